@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import com.spotify.helios.common.descriptors.AgentInfo;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.HostInfo;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.PortMapping;
+import com.spotify.helios.common.descriptors.TaskStatus;
+
+import java.util.Map;
+
+import static com.spotify.helios.common.descriptors.HostStatus.Status.UP;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.RUNNING;
+
+/**
+ * Descriptors shaped like the ones seen in production, shared by the benchmarks.
+ */
+final class Fixtures {
+
+  private Fixtures() {
+  }
+
+  static Job job(final int i) {
+    return jobBuilder(i).build();
+  }
+
+  static Job.Builder jobBuilder(final int i) {
+    return Job.newBuilder()
+        .setName("service-" + i)
+        .setVersion("1.0." + i)
+        .setImage("registry.example.com:80/spotify/service-" + i + ":1.0." + i)
+        .setCommand(ImmutableList.of("/usr/bin/java", "-Xmx1g", "-jar", "service.jar"))
+        .setEnv(ImmutableMap.of("SERVICE_ENV", "production",
+                                "SERVICE_SITE", "lon",
+                                "SERVICE_POOL", "pool-" + i))
+        .setPorts(ImmutableMap.of("http", PortMapping.of(8080),
+                                  "admin", PortMapping.of(8081),
+                                  "hm", PortMapping.of(4229, 4229 + i)))
+        .setVolumes(ImmutableMap.of("/var/log/service", "/var/log/service-" + i))
+        .setCreatingUser("benchmark");
+  }
+
+  static TaskStatus taskStatus(final Job job) {
+    return TaskStatus.newBuilder()
+        .setJob(job)
+        .setGoal(Goal.START)
+        .setState(RUNNING)
+        .setContainerId("4f3c2a9b1d0e8f7a6b5c4d3e2f1a0b9c8d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a")
+        .setPorts(job.getPorts())
+        .setEnv(job.getEnv())
+        .build();
+  }
+
+  static HostStatus hostStatus(final int jobs) {
+    final Map<JobId, Deployment> deployments = Maps.newHashMap();
+    final Map<JobId, TaskStatus> statuses = Maps.newHashMap();
+    for (int i = 0; i < jobs; i++) {
+      final Job job = job(i);
+      deployments.put(job.getId(), Deployment.of(job.getId(), Goal.START));
+      statuses.put(job.getId(), taskStatus(job));
+    }
+    return HostStatus.newBuilder()
+        .setJobs(deployments)
+        .setStatuses(statuses)
+        .setStatus(UP)
+        .setHostInfo(HostInfo.newBuilder()
+                         .setHostname("agent-1.example.com")
+                         .setUname("Linux 3.13.0-43-generic")
+                         .setArchitecture("amd64")
+                         .setOsName("Linux")
+                         .setOsVersion("3.13.0")
+                         .setCpus(24)
+                         .setLoadAvg(1.5)
+                         .setMemoryTotalBytes(64L << 30)
+                         .setMemoryFreeBytes(12L << 30)
+                         .build())
+        .setAgentInfo(AgentInfo.newBuilder()
+                          .setName("agent-1")
+                          .setVmName("Java HotSpot(TM) 64-Bit Server VM")
+                          .setVmVendor("Oracle Corporation")
+                          .setVmVersion("24.65-b04")
+                          .setInputArguments(ImmutableList.of("-Xmx256m"))
+                          .setUptime(3600000)
+                          .setStartTime(1420070400000L)
+                          .setVersion("0.8.0")
+                          .build())
+        .setEnvironment(ImmutableMap.of("SPOTIFY_DOMAIN", "lon.example.com"))
+        .build();
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Job construction, which computes the job hash, and job id parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JobBenchmark {
+
+  private Job.Builder builder;
+  private Job job;
+  private String jobId;
+  private String shortJobId;
+
+  @Setup
+  public void setup() {
+    builder = Fixtures.jobBuilder(0);
+    job = builder.build();
+    jobId = job.getId().toString();
+    shortJobId = job.getId().getName() + ":" + job.getId().getVersion();
+  }
+
+  @Benchmark
+  public Job build() {
+    return builder.build();
+  }
+
+  @Benchmark
+  public int hashCodeOfJob() {
+    return job.hashCode();
+  }
+
+  @Benchmark
+  public JobId fromString() {
+    return JobId.fromString(jobId);
+  }
+
+  @Benchmark
+  public JobId fromStringWithoutHash() {
+    return JobId.fromString(shortJobId);
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.TaskStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.MapperFeature.SORT_PROPERTIES_ALPHABETICALLY;
+import static com.fasterxml.jackson.databind.SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS;
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Serialization and deserialization of the descriptors that go over the wire and into ZooKeeper
+ * most often, through {@link Json}, through pre-resolved {@link JsonCodec}s, and through a plain
+ * reflection-based {@link ObjectMapper} configured the way {@link Json} used to be.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JsonBenchmark {
+
+  private static final ObjectMapper REFLECTION_MAPPER = new ObjectMapper()
+      .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
+      .configure(ORDER_MAP_ENTRIES_BY_KEYS, true)
+      .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+      .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private static final JsonCodec<Job> JOB_CODEC = Json.codec(Job.class);
+  private static final JsonCodec<TaskStatus> TASK_STATUS_CODEC = Json.codec(TaskStatus.class);
+  private static final JsonCodec<HostStatus> HOST_STATUS_CODEC = Json.codec(HostStatus.class);
+
+  /**
+   * The number of jobs deployed to the host in the {@link HostStatus}.
+   */
+  @Param({"10", "100"})
+  public int jobs;
+
+  private Job job;
+  private TaskStatus taskStatus;
+  private HostStatus hostStatus;
+  private byte[] jobBytes;
+  private byte[] taskStatusBytes;
+  private byte[] hostStatusBytes;
+
+  @Setup
+  public void setup() throws IOException {
+    job = Fixtures.job(0);
+    taskStatus = Fixtures.taskStatus(job);
+    hostStatus = Fixtures.hostStatus(jobs);
+    jobBytes = Json.asBytes(job);
+    taskStatusBytes = Json.asBytes(taskStatus);
+    hostStatusBytes = Json.asBytes(hostStatus);
+  }
+
+  @Benchmark
+  public byte[] writeJob() throws IOException {
+    return Json.asBytes(job);
+  }
+
+  @Benchmark
+  public Job readJob() throws IOException {
+    return Json.read(jobBytes, Job.class);
+  }
+
+  @Benchmark
+  public byte[] writeTaskStatus() throws IOException {
+    return Json.asBytes(taskStatus);
+  }
+
+  @Benchmark
+  public TaskStatus readTaskStatus() throws IOException {
+    return Json.read(taskStatusBytes, TaskStatus.class);
+  }
+
+  @Benchmark
+  public byte[] writeHostStatus() throws IOException {
+    return Json.asBytes(hostStatus);
+  }
+
+  @Benchmark
+  public HostStatus readHostStatus() throws IOException {
+    return Json.read(hostStatusBytes, HostStatus.class);
+  }
+
+  @Benchmark
+  public byte[] writeJobCodec() throws IOException {
+    return JOB_CODEC.asBytes(job);
+  }
+
+  @Benchmark
+  public Job readJobCodec() throws IOException {
+    return JOB_CODEC.read(jobBytes);
+  }
+
+  @Benchmark
+  public byte[] writeTaskStatusCodec() throws IOException {
+    return TASK_STATUS_CODEC.asBytes(taskStatus);
+  }
+
+  @Benchmark
+  public TaskStatus readTaskStatusCodec() throws IOException {
+    return TASK_STATUS_CODEC.read(taskStatusBytes);
+  }
+
+  @Benchmark
+  public byte[] writeHostStatusCodec() throws IOException {
+    return HOST_STATUS_CODEC.asBytes(hostStatus);
+  }
+
+  @Benchmark
+  public HostStatus readHostStatusCodec() throws IOException {
+    return HOST_STATUS_CODEC.read(hostStatusBytes);
+  }
+
+  @Benchmark
+  public byte[] writeJobReflection() throws IOException {
+    return REFLECTION_MAPPER.writeValueAsBytes(job);
+  }
+
+  @Benchmark
+  public Job readJobReflection() throws IOException {
+    return REFLECTION_MAPPER.readValue(jobBytes, Job.class);
+  }
+
+  @Benchmark
+  public byte[] writeTaskStatusReflection() throws IOException {
+    return REFLECTION_MAPPER.writeValueAsBytes(taskStatus);
+  }
+
+  @Benchmark
+  public TaskStatus readTaskStatusReflection() throws IOException {
+    return REFLECTION_MAPPER.readValue(taskStatusBytes, TaskStatus.class);
+  }
+
+  @Benchmark
+  public byte[] writeHostStatusReflection() throws IOException {
+    return REFLECTION_MAPPER.writeValueAsBytes(hostStatus);
+  }
+
+  @Benchmark
+  public HostStatus readHostStatusReflection() throws IOException {
+    return REFLECTION_MAPPER.readValue(hostStatusBytes, HostStatus.class);
+  }
+}
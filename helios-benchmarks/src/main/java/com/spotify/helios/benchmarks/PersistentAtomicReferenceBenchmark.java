@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.servicescommon.PersistentAtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.EXITED;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * Updates of a persisted map of task statuses, where each update changes a single entry, as the
+ * agent does whenever the status of one of its tasks changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersistentAtomicReferenceBenchmark {
+
+  private static final TypeReference<Map<JobId, TaskStatus>> TYPE =
+      new TypeReference<Map<JobId, TaskStatus>>() {};
+
+  /**
+   * The number of entries in the map.
+   */
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  /**
+   * Whether changes are logged, or the whole map is rewritten on every update.
+   */
+  @Param({"false", "true"})
+  public boolean logged;
+
+  private Path directory;
+  private PersistentAtomicReference<Map<JobId, TaskStatus>> reference;
+  private Map<JobId, TaskStatus> value;
+  private List<TaskStatus> running;
+  private List<TaskStatus> exited;
+  private int i;
+
+  @Setup
+  public void setup() throws IOException, InterruptedException {
+    directory = Files.createTempDirectory("helios-benchmark");
+    final Path file = directory.resolve("statuses.json");
+    final Supplier<Map<JobId, TaskStatus>> empty = new Supplier<Map<JobId, TaskStatus>>() {
+      @Override
+      public Map<JobId, TaskStatus> get() {
+        return Maps.newHashMap();
+      }
+    };
+    reference = logged
+                ? PersistentAtomicReference.createLogged(file, TYPE, empty)
+                : PersistentAtomicReference.create(file, TYPE, empty);
+    value = Maps.newHashMap();
+    running = newArrayList();
+    exited = newArrayList();
+    for (int i = 0; i < size; i++) {
+      final Job job = Fixtures.job(i);
+      final TaskStatus status = Fixtures.taskStatus(job);
+      running.add(status);
+      exited.add(status.asBuilder().setState(EXITED).build());
+      value.put(job.getId(), status);
+    }
+    reference.set(value);
+  }
+
+  @TearDown
+  public void teardown() {
+    deleteQuietly(directory.toFile());
+  }
+
+  @Benchmark
+  public void set() throws IOException, InterruptedException {
+    // Flip the state of one task per update, cycling through all of them
+    final int index = i % size;
+    final TaskStatus status = ((i / size) % 2 == 0 ? exited : running).get(index);
+    i++;
+    value.put(status.getJob().getId(), status);
+    reference.set(value);
+  }
+}
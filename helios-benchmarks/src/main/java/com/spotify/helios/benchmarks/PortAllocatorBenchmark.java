@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import com.spotify.helios.agent.PortAllocator;
+import com.spotify.helios.common.descriptors.PortMapping;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Port allocation on an agent where most of the port range is already in use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PortAllocatorBenchmark {
+
+  // The default port range of the agent
+  private static final int START = 20000;
+  private static final int END = 32768;
+
+  /**
+   * The percentage of the port range that is in use.
+   */
+  @Param({"0", "50", "90", "99"})
+  public int usedPercent;
+
+  private PortAllocator allocator;
+  private Set<Integer> used;
+
+  private final Map<String, PortMapping> ports = ImmutableMap.of(
+      "http", PortMapping.of(8080),
+      "admin", PortMapping.of(8081),
+      "hm", PortMapping.of(4229),
+      "static", PortMapping.of(9000, 19000));
+
+  @Setup
+  public void setup() {
+    allocator = new PortAllocator(START, END);
+    final Random random = new Random(4711);
+    final ImmutableSet.Builder<Integer> used = ImmutableSet.builder();
+    for (int port = START; port < END; port++) {
+      if (random.nextInt(100) < usedPercent) {
+        used.add(port);
+      }
+    }
+    this.used = used.build();
+  }
+
+  @Benchmark
+  public Map<String, Integer> allocate() {
+    return allocator.allocate(ports, used);
+  }
+}
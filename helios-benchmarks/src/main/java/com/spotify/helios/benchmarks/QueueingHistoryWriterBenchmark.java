@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.agent.KafkaClientProvider;
+import com.spotify.helios.agent.QueueingHistoryWriter;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * Queueing of task status events on the agent, and the writing of queued events to ZooKeeper.
+ *
+ * The queue is not drained in the {@link #add()} benchmark, so once it is full every event added
+ * also evicts the eldest queued event. {@link #addAndWrite()} drains the queue to an in-process
+ * ZooKeeper after each event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QueueingHistoryWriterBenchmark {
+
+  private static final String HOSTNAME = "agent-1";
+
+  // More jobs than the writer keeps events for, so that the total limit is hit and not only the
+  // limit per job.
+  private static final int JOBS = 50;
+
+  private final List<TaskStatus> statuses = newArrayList();
+
+  private ZooKeeperTestingServerManager zk;
+  private DefaultZooKeeperClient client;
+  private Path directory;
+  private QueueingHistoryWriter queueing;
+  private QueueingHistoryWriter writing;
+  private long timestamp;
+
+  @Setup
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    directory = Files.createTempDirectory("helios-benchmark");
+    final KafkaClientProvider kafka = new KafkaClientProvider(null);
+    queueing = new QueueingHistoryWriter(HOSTNAME, client, kafka,
+                                         directory.resolve("queueing.json"));
+    writing = new QueueingHistoryWriter(HOSTNAME, client, kafka,
+                                        directory.resolve("writing.json"));
+    for (int i = 0; i < JOBS; i++) {
+      final Job job = Fixtures.job(i);
+      statuses.add(Fixtures.taskStatus(job));
+    }
+    timestamp = System.currentTimeMillis();
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    zk.close();
+    deleteQuietly(directory.toFile());
+  }
+
+  @Benchmark
+  public void add() throws InterruptedException {
+    final TaskStatus status = statuses.get((int) (timestamp % JOBS));
+    queueing.saveHistoryItem(status.getJob().getId(), status, timestamp++);
+  }
+
+  @Benchmark
+  public void addAndWrite() throws InterruptedException {
+    final TaskStatus status = statuses.get((int) (timestamp % JOBS));
+    writing.saveHistoryItem(status.getJob().getId(), status, timestamp++);
+    writing.run();
+  }
+}
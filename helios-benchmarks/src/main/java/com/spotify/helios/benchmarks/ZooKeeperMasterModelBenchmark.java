@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.benchmarks;
+
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.master.ZooKeeperMasterModel;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Reads of the master model against an in-process ZooKeeper. Every job is deployed to every host
+ * and has a task status on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ZooKeeperMasterModelBenchmark {
+
+  @Param({"10", "100"})
+  public int jobs;
+
+  @Param({"1", "10"})
+  public int hosts;
+
+  private ZooKeeperTestingServerManager zk;
+  private ZooKeeperMasterModel model;
+  private JobId jobId;
+  private String host;
+
+  @Setup
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    final ZooKeeperClient client = new DefaultZooKeeperClient(zk.curator());
+
+    // The same bootstrapping as the master does
+    client.ensurePath(Paths.configHosts());
+    client.ensurePath(Paths.configJobs());
+    client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.statusHosts());
+    client.ensurePath(Paths.statusMasters());
+    client.ensurePath(Paths.historyJobs());
+
+    model = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(client, ZooKeeperModelReporter.noop()));
+
+    for (int i = 0; i < hosts; i++) {
+      model.registerHost("agent-" + i, "id-" + i);
+    }
+    for (int i = 0; i < jobs; i++) {
+      final Job job = Fixtures.job(i);
+      model.addJob(job);
+      for (int j = 0; j < hosts; j++) {
+        final String hostname = "agent-" + j;
+        model.deployJob(hostname, Deployment.of(job.getId(), Goal.START));
+        client.ensurePath(Paths.statusHostJobs(hostname));
+        client.createAndSetData(Paths.statusHostJob(hostname, job.getId()),
+                                Fixtures.taskStatus(job).toJsonBytes());
+      }
+    }
+
+    jobId = Fixtures.job(0).getId();
+    host = "agent-0";
+  }
+
+  @TearDown
+  public void teardown() throws Exception {
+    zk.close();
+  }
+
+  @Benchmark
+  public Map<JobId, Job> getJobs() {
+    return model.getJobs();
+  }
+
+  @Benchmark
+  public JobStatus getJobStatus() {
+    return model.getJobStatus(jobId);
+  }
+
+  @Benchmark
+  public HostStatus getHostStatus() {
+    return model.getHostStatus(host);
+  }
+}
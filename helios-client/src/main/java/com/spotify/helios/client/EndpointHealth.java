@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps track of which master endpoints could not be connected to recently, so that requests go
+ * to the endpoints that work instead of waiting on connect failures first.
+ *
+ * An endpoint that fails is ejected for a while, twice as long for each failure in a row, and
+ * is let back in once it has been connected to again. Ejected endpoints are still tried, after
+ * all others, so that requests get through when every endpoint has failed.
+ */
+class EndpointHealth {
+
+  private static final long BASE_EJECTION_MILLIS = SECONDS.toMillis(5);
+  private static final long MAX_EJECTION_MILLIS = MINUTES.toMillis(2);
+  private static final int MAX_DOUBLINGS = 10;
+
+  private final ConcurrentMap<URI, Ejection> ejections = Maps.newConcurrentMap();
+
+  /**
+   * Orders endpoints for a request: the endpoints that are not ejected, starting at
+   * {@code offset} modulo their number to spread requests over them, followed by the ejected
+   * ones, those that will be let back in soonest first.
+   */
+  List<URI> order(final List<URI> endpoints, final int offset) {
+    final long now = currentTimeMillis();
+    final List<URI> healthy = Lists.newArrayList();
+    final List<URI> ejected = Lists.newArrayList();
+    final Map<URI, Long> until = Maps.newHashMap();
+    final int size = endpoints.size();
+    final int start = (offset % size + size) % size;
+    for (int i = 0; i < size; i++) {
+      final URI endpoint = endpoints.get((start + i) % size);
+      final Ejection ejection = ejections.get(endpoint);
+      if (ejection == null || ejection.until <= now) {
+        healthy.add(endpoint);
+      } else {
+        ejected.add(endpoint);
+        until.put(endpoint, ejection.until);
+      }
+    }
+    Collections.sort(ejected, new Comparator<URI>() {
+      @Override
+      public int compare(final URI a, final URI b) {
+        return Long.compare(until.get(a), until.get(b));
+      }
+    });
+    healthy.addAll(ejected);
+    return healthy;
+  }
+
+  void succeeded(final URI endpoint) {
+    ejections.remove(endpoint);
+  }
+
+  void failed(final URI endpoint) {
+    final Ejection previous = ejections.get(endpoint);
+    final int failures = previous == null ? 1 : previous.failures + 1;
+    final long millis = min(MAX_EJECTION_MILLIS,
+                            BASE_EJECTION_MILLIS << min(failures - 1, MAX_DOUBLINGS));
+    ejections.put(endpoint, new Ejection(failures, currentTimeMillis() + millis));
+  }
+
+  private static class Ejection {
+
+    private final int failures;
+    private final long until;
+
+    private Ejection(final int failures, final long until) {
+      this.failures = failures;
+      this.until = until;
+    }
+  }
+}
@@ -46,28 +46,31 @@ import com.spotify.helios.common.Version;
 import com.spotify.helios.common.VersionCompatibility;
 import com.spotify.helios.common.VersionCompatibility.Status;
 import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.protocol.BulkDeploymentRequest;
+import com.spotify.helios.common.protocol.BulkUndeploymentRequest;
 import com.spotify.helios.common.protocol.CreateJobResponse;
 import com.spotify.helios.common.protocol.HostDeregisterResponse;
 import com.spotify.helios.common.protocol.JobDeleteResponse;
 import com.spotify.helios.common.protocol.JobDeployResponse;
 import com.spotify.helios.common.protocol.JobUndeployResponse;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.RollingUpdateResponse;
 import com.spotify.helios.common.protocol.SetGoalResponse;
+import com.spotify.helios.common.protocol.StatusEvents;
 import com.spotify.helios.common.protocol.TaskStatusEvents;
 import com.spotify.helios.common.protocol.VersionResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.lang.reflect.Field;
 import java.net.ConnectException;
-import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -81,7 +84,6 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.zip.GZIPInputStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -109,7 +111,22 @@ public class HeliosClient implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(HeliosClient.class);
   private static final long RETRY_TIMEOUT_MILLIS = SECONDS.toMillis(60);
+  private static final long RETRY_INTERVAL_MILLIS = SECONDS.toMillis(1);
   private static final long HTTP_TIMEOUT_MILLIS = SECONDS.toMillis(10);
+  private static final int DEFAULT_CONCURRENCY = 4;
+  private static final long DEFAULT_RESPONSE_CACHE_BYTES = 16 * 1024 * 1024;
+  // Long-polls must return well before the http read timeout
+  private static final long EVENTS_TIMEOUT_MILLIS = HTTP_TIMEOUT_MILLIS / 2;
+
+  private static final Map<String, String> COMPACT_QUERY = ImmutableMap.of("compact", "true");
+
+  private static final Function<JobStatus, JobStatus> WITH_TASK_STATUS_JOBS =
+      new Function<JobStatus, JobStatus>() {
+        @Override
+        public JobStatus apply(final JobStatus status) {
+          return status == null ? null : status.withTaskStatusJobs();
+        }
+      };
 
 
   private final AtomicBoolean versionWarningLogged = new AtomicBoolean();
@@ -118,13 +135,27 @@ public class HeliosClient implements AutoCloseable {
   private final Supplier<List<URI>> endpointSupplier;
 
   private final ListeningExecutorService executorService;
+  private final HttpTransport transport;
+  private final EndpointHealth endpointHealth = new EndpointHealth();
+  private final ResponseCache responseCache;
 
   HeliosClient(final String user,
                final Supplier<List<URI>> endpointSupplier,
-               final ListeningExecutorService executorService) {
+               final ListeningExecutorService executorService,
+               final HttpTransport transport,
+               final long responseCacheBytes) {
     this.user = checkNotNull(user);
     this.endpointSupplier = checkNotNull(endpointSupplier);
     this.executorService = checkNotNull(executorService);
+    this.transport = checkNotNull(transport);
+    this.responseCache = responseCacheBytes > 0 ? new ResponseCache(responseCacheBytes) : null;
+  }
+
+  HeliosClient(final String user,
+               final Supplier<List<URI>> endpointSupplier,
+               final ListeningExecutorService executorService) {
+    this(user, endpointSupplier, executorService,
+         new UrlConnectionTransport((int) HTTP_TIMEOUT_MILLIS), DEFAULT_RESPONSE_CACHE_BYTES);
   }
 
   HeliosClient(final String user, final List<URI> endpoints,
@@ -133,8 +164,7 @@ public class HeliosClient implements AutoCloseable {
   }
 
   HeliosClient(final String user, final Supplier<List<URI>> endpointSupplier) {
-    this(user, endpointSupplier, MoreExecutors.listeningDecorator(getExitingExecutorService(
-        (ThreadPoolExecutor) newFixedThreadPool(4), 0, SECONDS)));
+    this(user, endpointSupplier, newExecutor(DEFAULT_CONCURRENCY));
   }
 
   HeliosClient(final String user, final List<URI> endpoints) {
@@ -201,62 +231,33 @@ public class HeliosClient implements AutoCloseable {
     } else {
       entityBytes = new byte[]{};
     }
+    final boolean cacheable = responseCache != null && method.equals("GET");
     return executorService.submit(new Callable<Response>() {
       @Override
       public Response call() throws Exception {
-        final HttpURLConnection connection = connect(uri, method, entityBytes, headers);
-        final int status = connection.getResponseCode();
-        final InputStream rawStream;
-        if (status / 100 != 2) {
-          rawStream = connection.getErrorStream();
-        } else {
-          rawStream = connection.getInputStream();
+        // Revalidate a cached response rather than have the master send it again
+        final ResponseCache.Entry cached = cacheable ? responseCache.get(uri) : null;
+        if (cached != null) {
+          headers.put("If-None-Match", asList(cached.getETag()));
         }
-        final boolean gzip = isGzipCompressed(connection);
-        final InputStream stream = gzip ? new GZIPInputStream(rawStream) : rawStream;
-        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
-        if (stream != null) {
-          int n;
-          byte[] buffer = new byte[4096];
-          while ((n = stream.read(buffer, 0, buffer.length)) != -1) {
-            payload.write(buffer, 0, n);
-          }
+        HttpReply reply = send(uri, method, entityBytes, headers);
+        checkprotocolVersionStatus(reply);
+        if (cacheable) {
+          reply = responseCache.update(uri, cached, reply);
         }
-        URI realUri = connection.getURL().toURI();
-        if (log.isTraceEnabled()) {
-          log.trace("rep: {} {} {} {} {} gzip:{}",
-                    method, realUri, status, payload.size(), decode(payload), gzip);
-        } else {
-          log.debug("rep: {} {} {} {} gzip:{}",
-                    method, realUri, status, payload.size(), gzip);
-        }
-        checkprotocolVersionStatus(connection);
-        return new Response(method, uri, status, payload.toByteArray());
-      }
-
-      private boolean isGzipCompressed(final HttpURLConnection connection) {
-        final List<String> encodings = connection.getHeaderFields().get("Content-Encoding");
-        if (encodings == null) {
-          return false;
-        }
-        for (String encoding : encodings) {
-          if ("gzip".equals(encoding)) {
-            return true;
-          }
-        }
-        return false;
+        return new Response(method, uri, reply.getStatus(), reply.getPayload());
       }
     });
   }
 
-  private void checkprotocolVersionStatus(final HttpURLConnection connection) {
-    final Status versionStatus = getVersionStatus(connection);
+  private void checkprotocolVersionStatus(final HttpReply reply) {
+    final Status versionStatus = getVersionStatus(reply);
     if (versionStatus == null) {
       log.debug("Server didn't return a version header!");
       return; // shouldn't happen really
     }
 
-    final String serverVersion = connection.getHeaderField(HELIOS_SERVER_VERSION_HEADER);
+    final String serverVersion = reply.getHeader(HELIOS_SERVER_VERSION_HEADER);
     if ((versionStatus == VersionCompatibility.Status.MAYBE) &&
         (versionWarningLogged.compareAndSet(false, true))) {
       log.warn("Your Helios client version [{}] is ahead of the server [{}].  This will"
@@ -266,16 +267,15 @@ public class HeliosClient implements AutoCloseable {
     }
   }
 
-  private Status getVersionStatus(final HttpURLConnection connection) {
-    final String status = connection.getHeaderField(HELIOS_VERSION_STATUS_HEADER);
+  private Status getVersionStatus(final HttpReply reply) {
+    final String status = reply.getHeader(HELIOS_VERSION_STATUS_HEADER);
     if (status != null) {
       return VersionCompatibility.Status.valueOf(status);
     }
     return null;
   }
 
-  private String decode(final ByteArrayOutputStream payload) {
-    final byte[] bytes = payload.toByteArray();
+  private String decode(final byte[] bytes) {
     try {
       return Json.asPrettyString(Json.read(bytes, new TypeReference<Map<String, Object>>() {}));
     } catch (IOException e) {
@@ -284,10 +284,11 @@ public class HeliosClient implements AutoCloseable {
   }
 
   /**
-   * Sets up a connection, retrying on connect failure.
+   * Sends a request to a master, retrying on connect failure. Masters that could not be connected
+   * to recently are tried last, see {@link EndpointHealth}.
    */
-  private HttpURLConnection connect(final URI uri, final String method, final byte[] entity,
-                                    final Map<String, List<String>> headers)
+  private HttpReply send(final URI uri, final String method, final byte[] entity,
+                         final Map<String, List<String>> headers)
       throws URISyntaxException, IOException, TimeoutException, InterruptedException,
              HeliosException {
     final long deadline = currentTimeMillis() + RETRY_TIMEOUT_MILLIS;
@@ -298,8 +299,10 @@ public class HeliosClient implements AutoCloseable {
         throw new RuntimeException("failed to resolve master");
       }
       log.debug("endpoint uris are {}", endpoints);
-      for (int i = 0; i < endpoints.size() && currentTimeMillis() < deadline; i++) {
-        final URI endpoint = endpoints.get(positive(offset + i) % endpoints.size());
+      for (final URI endpoint : endpointHealth.order(endpoints, offset)) {
+        if (currentTimeMillis() >= deadline) {
+          break;
+        }
         final String fullpath = endpoint.getPath() + uri.getPath();
 
         final String host = endpoint.getHost();
@@ -310,71 +313,35 @@ public class HeliosClient implements AutoCloseable {
         }
 
         final URI realUri = new URI("http", host + ":" + port, fullpath, uri.getQuery(), null);
+        final HttpReply reply;
         try {
           log.debug("connecting to {}", realUri);
-          return connect0(realUri, method, entity, headers);
+          reply = transport.send(realUri, method, entity, headers);
         } catch (ConnectException | SocketTimeoutException | UnknownHostException e) {
           // UnknownHostException happens if we can't resolve hostname into IP address.
           // UnknownHostException's getMessage method returns just the hostname which is a useless
           // message, so log the exception class name to provide more info.
           log.debug(e.getClass().getSimpleName() + " - " + e.getMessage());
-          // Connecting failed, sleep a bit to avoid hammering and then try another endpoint
-          Thread.sleep(200);
+          // Connecting failed, try another endpoint and avoid this one for a while
+          endpointHealth.failed(endpoint);
+          continue;
+        }
+        endpointHealth.succeeded(endpoint);
+        if (log.isTraceEnabled()) {
+          log.trace("rep: {} {} {} {} {}", method, realUri, reply.getStatus(),
+                    reply.getPayload().length, decode(reply.getPayload()));
+        } else {
+          log.debug("rep: {} {} {} {}", method, realUri, reply.getStatus(),
+                    reply.getPayload().length);
         }
+        return reply;
       }
-      log.warn("Failed to connect, retrying in 5 seconds.");
-      Thread.sleep(5000);
+      log.warn("Failed to connect, retrying in 1 second.");
+      Thread.sleep(RETRY_INTERVAL_MILLIS);
     }
     throw new TimeoutException("Timed out connecting to master");
   }
 
-  private HttpURLConnection connect0(final URI uri, final String method, final byte[] entity,
-                                     final Map<String, List<String>> headers)
-      throws IOException {
-    if (log.isTraceEnabled()) {
-      log.trace("req: {} {} {} {} {} {}", method, uri,
-                headers.size(),
-                Joiner.on(',').withKeyValueSeparator("=").join(headers),
-                entity.length, Json.asPrettyStringUnchecked(entity));
-    } else {
-      log.debug("req: {} {} {} {}", method, uri, headers.size(), entity.length);
-    }
-    final HttpURLConnection connection;
-    connection = (HttpURLConnection) uri.toURL().openConnection();
-    connection.setRequestProperty("Accept-Encoding", "gzip");
-    connection.setInstanceFollowRedirects(false);
-    connection.setConnectTimeout((int) HTTP_TIMEOUT_MILLIS);
-    connection.setReadTimeout((int) HTTP_TIMEOUT_MILLIS);
-    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
-      for (final String value : header.getValue()) {
-        connection.addRequestProperty(header.getKey(), value);
-      }
-    }
-    if (entity.length > 0) {
-      connection.setDoOutput(true);
-      connection.getOutputStream().write(entity);
-    }
-    setRequestMethod(connection, method);
-    connection.getResponseCode();
-    return connection;
-  }
-
-  private int positive(final int value) {
-    return value < 0 ? value + Integer.MAX_VALUE : value;
-  }
-
-  private void setRequestMethod(final HttpURLConnection connection, final String method) {
-    // Nasty workaround for ancient HttpURLConnection only supporting few methods
-    final Class<?> httpURLConnectionClass = connection.getClass();
-    try {
-      final Field methodField = httpURLConnectionClass.getSuperclass().getDeclaredField("method");
-      methodField.setAccessible(true);
-      methodField.set(connection, method);
-    } catch (NoSuchFieldException | IllegalAccessException e) {
-      throw Throwables.propagate(e);
-    }
-  }
-
   private <T> ListenableFuture<T> get(final URI uri, final TypeReference<T> typeReference) {
     return get(uri, Json.type(typeReference));
   }
@@ -407,6 +374,31 @@ public class HeliosClient implements AutoCloseable {
                      ConvertResponseToPojo.create(JobDeployResponse.class, deserializeReturnCodes));
   }
 
+  /**
+   * Deploys a job to several hosts in a single request.
+   *
+   * @param job   The job to deploy.
+   * @param hosts The hosts to deploy to.
+   * @param goal  The goal to deploy with.
+   * @param token The authorization token for the job.
+   * @return The result for each host, or null if the master is too old to deploy to several hosts
+   *         at once.
+   */
+  public ListenableFuture<Map<String, JobDeployResponse>> deploy(final JobId job,
+                                                                 final List<String> hosts,
+                                                                 final Goal goal,
+                                                                 final String token) {
+    final ConvertResponseToPojo<Map<String, JobDeployResponse>> converter =
+        ConvertResponseToPojo.create(
+            TypeFactory.defaultInstance().constructMapType(Map.class, String.class,
+                                                           JobDeployResponse.class),
+            ImmutableSet.of(HTTP_OK, HTTP_BAD_REQUEST, HTTP_FORBIDDEN));
+    return transform(request(uri(path("/jobs/%s/deployments", job),
+                                 ImmutableMap.of("token", token)),
+                             "POST", new BulkDeploymentRequest(hosts, goal)),
+                     converter);
+  }
+
   public ListenableFuture<SetGoalResponse> setGoal(final Deployment job, final String host) {
     return setGoal(job, host, "");
   }
@@ -447,6 +439,26 @@ public class HeliosClient implements AutoCloseable {
     return transform(request(uri("/hosts/statuses"), "POST", hosts), converter);
   }
 
+  /**
+   * Gets the statuses of several hosts, projected onto {@code fields}.
+   *
+   * @param hosts  The hosts.
+   * @param fields The comma-separated fields of each status to return, or to leave out if
+   *               prefixed with {@code -}, e.g. {@code -statuses.*.env}. The fields that are
+   *               returned must still make up a valid {@link HostStatus}.
+   * @return The statuses, in host name order.
+   */
+  public ListenableFuture<Map<String, HostStatus>> hostStatuses(final List<String> hosts,
+                                                                final String fields) {
+    final ConvertResponseToPojo<Map<String, HostStatus>> converter = ConvertResponseToPojo.create(
+        TypeFactory.defaultInstance().constructMapType(Map.class, String.class, HostStatus.class),
+        ImmutableSet.of(HTTP_OK));
+
+    return transform(request(uri("/hosts/statuses", ImmutableMap.of("fields", fields)),
+                             "POST", hosts),
+                     converter);
+  }
+
   public ListenableFuture<Integer> registerHost(final String host, final String id) {
     return put(uri(path("/hosts/%s", host), ImmutableMap.of("id", id)));
   }
@@ -536,6 +548,26 @@ public class HeliosClient implements AutoCloseable {
     return get(uri("/jobs"), new TypeReference<Map<JobId, Job>>() {});
   }
 
+  /**
+   * Lists a page of jobs in job id order.
+   *
+   * @param query  Only list jobs whose id contains this string.
+   * @param cursor The job id to start after, i.e. the last job id of the previous page, or the
+   *               empty string to start at the first job.
+   * @param limit  The maximum number of jobs to return, or 0 for no limit.
+   * @param fields The comma-separated fields of each job to return, e.g. {@code id,image}, or
+   *               the empty string for all fields. Fields left out get their default values.
+   * @return The jobs, in job id order.
+   */
+  public ListenableFuture<Map<JobId, Job>> jobs(final String query, final String cursor,
+                                                final int limit, final String fields) {
+    return get(uri("/jobs", ImmutableMap.of("q", query,
+                                            "cursor", cursor,
+                                            "limit", String.valueOf(limit),
+                                            "fields", fields)),
+               new TypeReference<Map<JobId, Job>>() {});
+  }
+
   public ListenableFuture<TaskStatusEvents> jobHistory(final JobId jobId) {
     return transform(
         request(uri(path("/history/jobs/%s", jobId.toString())), "GET"),
@@ -543,8 +575,13 @@ public class HeliosClient implements AutoCloseable {
                                      ImmutableSet.of(HTTP_OK, HTTP_NOT_FOUND)));
   }
 
+  /**
+   * Returns the status of a job. The task statuses are fetched without the job, which is only
+   * sent once, and have it filled in again here.
+   */
   public ListenableFuture<JobStatus> jobStatus(final JobId jobId) {
-    return get(uri(path("/jobs/%s/status", jobId)), JobStatus.class);
+    return transform(get(uri(path("/jobs/%s/status", jobId), COMPACT_QUERY), JobStatus.class),
+                     WITH_TASK_STATUS_JOBS);
   }
 
   public ListenableFuture<Map<JobId, JobStatus>> jobStatuses(final Set<JobId> jobs) {
@@ -552,9 +589,104 @@ public class HeliosClient implements AutoCloseable {
         TypeFactory.defaultInstance().constructMapType(Map.class, JobId.class, JobStatus.class),
         ImmutableSet.of(HTTP_OK));
     
-    return transform(request(uri("/jobs/statuses"), "POST", jobs), converter);
+    return transform(transform(request(uri("/jobs/statuses", COMPACT_QUERY), "POST", jobs),
+                               converter),
+                     new Function<Map<JobId, JobStatus>, Map<JobId, JobStatus>>() {
+                       @Override
+                       public Map<JobId, JobStatus> apply(final Map<JobId, JobStatus> statuses) {
+                         return statuses == null
+                                ? null
+                                : Maps.newHashMap(
+                                    Maps.transformValues(statuses, WITH_TASK_STATUS_JOBS));
+                       }
+                     });
   }
   
+  /**
+   * Waits for the status changes that follow a position in the master change feed. This returns
+   * as soon as there are changes, or with no changes after a few seconds.
+   *
+   * @param feed  The feed id of the previous response, or the empty string to start following.
+   * @param since The version of the previous response.
+   * @return The changes.
+   * @see #subscribe()
+   */
+  public ListenableFuture<StatusEvents> events(final String feed, final long since) {
+    return get(uri("/events", ImmutableMap.of("feed", feed,
+                                              "since", String.valueOf(since),
+                                              "timeout", String.valueOf(EVENTS_TIMEOUT_MILLIS))),
+               StatusEvents.class);
+  }
+
+  /**
+   * Starts following the master change feed.
+   *
+   * @return A subscription that keeps track of the position in the feed.
+   */
+  public StatusEventSubscription subscribe() {
+    return new StatusEventSubscription(this);
+  }
+
+  /**
+   * Undeploys a job from several hosts in a single request.
+   *
+   * @param jobId The job to undeploy.
+   * @param hosts The hosts to undeploy from.
+   * @param token The authorization token for the job.
+   * @return The result for each host, or null if the master is too old to undeploy from several
+   *         hosts at once.
+   */
+  public ListenableFuture<Map<String, JobUndeployResponse>> undeploy(final JobId jobId,
+                                                                     final List<String> hosts,
+                                                                     final String token) {
+    final ConvertResponseToPojo<Map<String, JobUndeployResponse>> converter =
+        ConvertResponseToPojo.create(
+            TypeFactory.defaultInstance().constructMapType(Map.class, String.class,
+                                                           JobUndeployResponse.class),
+            ImmutableSet.of(HTTP_OK, HTTP_BAD_REQUEST, HTTP_FORBIDDEN));
+    return transform(request(uri(path("/jobs/%s/undeployments", jobId),
+                                 ImmutableMap.of("token", token)),
+                             "POST", new BulkUndeploymentRequest(hosts)),
+                     converter);
+  }
+
+  /**
+   * Starts a rolling update from one job to another, driven by the masters.
+   *
+   * @param request The jobs to update between, the hosts to update and how fast to go.
+   * @param token   The authorization token for both jobs.
+   * @return The id of the rolling update, or null if the master does not support rolling updates.
+   */
+  public ListenableFuture<RollingUpdateResponse> rollingUpdate(final RollingUpdateRequest request,
+                                                               final String token) {
+    return transform(request(uri("/rolling-updates", ImmutableMap.of("token", token)),
+                             "POST", request),
+                     ConvertResponseToPojo.create(RollingUpdateResponse.class,
+                                                  ImmutableSet.of(HTTP_OK, HTTP_BAD_REQUEST,
+                                                                  HTTP_FORBIDDEN)));
+  }
+
+  /**
+   * Returns the progress of a rolling update, or null if there is no such rolling update.
+   */
+  public ListenableFuture<RollingUpdate> rollingUpdate(final String id) {
+    return get(uri(path("/rolling-updates/%s", id)), RollingUpdate.class);
+  }
+
+  public ListenableFuture<Map<String, RollingUpdate>> rollingUpdates() {
+    return get(uri("/rolling-updates"), new TypeReference<Map<String, RollingUpdate>>() {});
+  }
+
+  public ListenableFuture<RollingUpdateResponse> cancelRollingUpdate(final String id,
+                                                                     final String token) {
+    return transform(request(uri(path("/rolling-updates/%s", id),
+                                 ImmutableMap.of("token", token)),
+                             "DELETE"),
+                     ConvertResponseToPojo.create(RollingUpdateResponse.class,
+                                                  ImmutableSet.of(HTTP_OK, HTTP_NOT_FOUND,
+                                                                  HTTP_FORBIDDEN)));
+  }
+
   private static final class ConvertResponseToPojo<T> implements AsyncFunction<Response, T> {
 
     private final JavaType javaType;
@@ -605,6 +737,11 @@ public class HeliosClient implements AutoCloseable {
     }
   }
 
+  private static ListeningExecutorService newExecutor(final int threads) {
+    return MoreExecutors.listeningDecorator(getExitingExecutorService(
+        (ThreadPoolExecutor) newFixedThreadPool(threads), 0, SECONDS));
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -613,6 +750,9 @@ public class HeliosClient implements AutoCloseable {
 
     private String user;
     private Supplier<List<URI>> endpointSupplier;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private HttpTransport transport;
+    private long responseCacheBytes = DEFAULT_RESPONSE_CACHE_BYTES;
 
     public Builder setUser(final String user) {
       this.user = user;
@@ -648,8 +788,41 @@ public class HeliosClient implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets how many requests the client sends at the same time, 4 by default. Further requests
+     * are queued.
+     */
+    public Builder setConcurrency(final int concurrency) {
+      checkArgument(concurrency > 0, "concurrency must be positive");
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    /**
+     * Sets the transport used to send requests, a {@link UrlConnectionTransport} by default.
+     */
+    public Builder setTransport(final HttpTransport transport) {
+      this.transport = transport;
+      return this;
+    }
+
+    /**
+     * Sets how many bytes of responses the client keeps to revalidate with the master instead of
+     * fetching them again, 16 MiB by default. Only the job list, the host list and job statuses
+     * are cached. Pass 0 to disable caching.
+     */
+    public Builder setResponseCacheBytes(final long responseCacheBytes) {
+      checkArgument(responseCacheBytes >= 0, "response cache size must not be negative");
+      this.responseCacheBytes = responseCacheBytes;
+      return this;
+    }
+
     public HeliosClient build() {
-      return new HeliosClient(user, endpointSupplier);
+      final HttpTransport transport = this.transport != null
+                                      ? this.transport
+                                      : new UrlConnectionTransport((int) HTTP_TIMEOUT_MILLIS);
+      return new HeliosClient(user, endpointSupplier, newExecutor(concurrency), transport,
+                              responseCacheBytes);
     }
   }
 
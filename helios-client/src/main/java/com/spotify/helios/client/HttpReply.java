@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response read by a {@link HttpTransport}.
+ */
+public class HttpReply {
+
+  private final int status;
+  private final Map<String, List<String>> headers;
+  private final byte[] payload;
+
+  public HttpReply(final int status, final Map<String, List<String>> headers,
+                   final byte[] payload) {
+    this.status = status;
+    // HttpURLConnection reports the status line as a header without a name
+    final ImmutableMap.Builder<String, List<String>> named = ImmutableMap.builder();
+    for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (header.getKey() != null) {
+        named.put(header);
+      }
+    }
+    this.headers = named.build();
+    this.payload = payload;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public Map<String, List<String>> getHeaders() {
+    return headers;
+  }
+
+  public byte[] getPayload() {
+    return payload;
+  }
+
+  /**
+   * Returns the first value of the named header, ignoring case, or null if there is none.
+   */
+  public String getHeader(final String name) {
+    for (final Map.Entry<String, List<String>> header : headers.entrySet()) {
+      if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+        return header.getValue().get(0);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends HTTP requests to Helios masters on behalf of {@link HeliosClient}. Implementations must
+ * be safe to use from several threads at once, and should keep connections to each master open
+ * between requests.
+ *
+ * Failures to reach a master should be signalled with {@link java.net.ConnectException},
+ * {@link java.net.SocketTimeoutException} or {@link java.net.UnknownHostException}, which make
+ * the client move on to another master.
+ */
+public interface HttpTransport {
+
+  /**
+   * Sends a request and reads the whole response.
+   *
+   * @param uri     The full URI of the request, including the master endpoint.
+   * @param method  The HTTP method.
+   * @param entity  The request body, empty if there is none.
+   * @param headers The request headers.
+   * @return The response, with its body decompressed if it was gzipped.
+   * @throws IOException If the request could not be sent or the response could not be read.
+   */
+  HttpReply send(URI uri, String method, byte[] entity, Map<String, List<String>> headers)
+      throws IOException;
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import java.net.URI;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+
+/**
+ * Remembers responses to GET requests that the master tagged with an ETag, so that they can be
+ * revalidated with If-None-Match instead of being sent again when they have not changed.
+ *
+ * The cache is bounded by the total size of the payloads it holds. Responses are only ever
+ * served after revalidation, so a cached payload is never stale.
+ */
+class ResponseCache {
+
+  private final Cache<URI, Entry> entries;
+
+  ResponseCache(final long maxBytes) {
+    this.entries = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<URI, Entry>() {
+          @Override
+          public int weigh(final URI uri, final Entry entry) {
+            return entry.payload.length;
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Returns the cached response to a GET of {@code uri}, or null if there is none.
+   */
+  Entry get(final URI uri) {
+    return entries.getIfPresent(uri);
+  }
+
+  /**
+   * Updates the cache with the reply to a GET of {@code uri} that was sent with the ETag of
+   * {@code cached}, if not null, and returns the reply to hand to the caller: the cached payload
+   * if the master replied that it has not been modified.
+   */
+  HttpReply update(final URI uri, final Entry cached, final HttpReply reply) {
+    if (reply.getStatus() == HTTP_NOT_MODIFIED && cached != null) {
+      return new HttpReply(HTTP_OK, reply.getHeaders(), cached.payload);
+    }
+    final String etag = reply.getHeader("ETag");
+    if (reply.getStatus() == HTTP_OK && etag != null) {
+      entries.put(uri, new Entry(etag, reply.getPayload()));
+    } else {
+      entries.invalidate(uri);
+    }
+    return reply;
+  }
+
+  static class Entry {
+
+    private final String etag;
+    private final byte[] payload;
+
+    private Entry(final String etag, final byte[] payload) {
+      this.etag = etag;
+      this.payload = payload;
+    }
+
+    String getETag() {
+      return etag;
+    }
+  }
+}
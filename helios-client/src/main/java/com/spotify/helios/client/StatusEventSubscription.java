@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.spotify.helios.common.protocol.StatusEvents;
+
+import static com.google.common.util.concurrent.Futures.transform;
+
+/**
+ * Follows the master change feed, keeping track of the position in the feed between calls to
+ * {@link #next()}.
+ *
+ * The first batch is always a reset, as are batches following a master failover. On a reset,
+ * callers should read the state they follow again, e.g. using {@link HeliosClient#jobStatus},
+ * and then apply the events of the following batches to it.
+ */
+public class StatusEventSubscription {
+
+  private final HeliosClient client;
+
+  private volatile String feed = "";
+  private volatile long since;
+
+  StatusEventSubscription(final HeliosClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Waits for the next batch of events. The returned batch is empty if nothing changed within a
+   * few seconds. Must not be called again before the previous call has completed.
+   *
+   * @return The next batch of events, or null if the master does not support the change feed.
+   */
+  public ListenableFuture<StatusEvents> next() {
+    return transform(client.events(feed, since), new Function<StatusEvents, StatusEvents>() {
+      @Override
+      public StatusEvents apply(final StatusEvents events) {
+        if (events != null) {
+          feed = events.getFeed();
+          since = events.getVersion();
+        }
+        return events;
+      }
+    });
+  }
+}
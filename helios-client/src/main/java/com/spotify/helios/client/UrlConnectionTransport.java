@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+
+import com.spotify.helios.common.Json;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A {@link HttpTransport} built on {@link HttpURLConnection}.
+ *
+ * The JDK keeps idle connections open and hands them to later requests to the same endpoint, but
+ * only once a response has been read to the end and its stream closed, which this transport
+ * always does, also for error responses. The number of idle connections kept per endpoint is set
+ * by the {@code http.maxConnections} system property, 5 by default.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+  private static final Logger log = LoggerFactory.getLogger(UrlConnectionTransport.class);
+
+  private final int timeoutMillis;
+
+  /**
+   * @param timeoutMillis The connect and read timeout of each request.
+   */
+  public UrlConnectionTransport(final int timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  @Override
+  public HttpReply send(final URI uri, final String method, final byte[] entity,
+                        final Map<String, List<String>> headers)
+      throws IOException {
+    if (log.isTraceEnabled()) {
+      log.trace("req: {} {} {} {} {} {}", method, uri,
+                headers.size(),
+                Joiner.on(',').withKeyValueSeparator("=").join(headers),
+                entity.length, Json.asPrettyStringUnchecked(entity));
+    } else {
+      log.debug("req: {} {} {} {}", method, uri, headers.size(), entity.length);
+    }
+    final HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+    connection.setInstanceFollowRedirects(false);
+    connection.setConnectTimeout(timeoutMillis);
+    connection.setReadTimeout(timeoutMillis);
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      for (final String value : header.getValue()) {
+        connection.addRequestProperty(header.getKey(), value);
+      }
+    }
+    if (entity.length > 0) {
+      connection.setDoOutput(true);
+      try (final OutputStream output = connection.getOutputStream()) {
+        output.write(entity);
+      }
+    }
+    setRequestMethod(connection, method);
+
+    final int status = connection.getResponseCode();
+    final InputStream stream = status / 100 == 2
+                               ? connection.getInputStream()
+                               : connection.getErrorStream();
+    // Read the raw response to the end and close it, so that the connection can be reused
+    final byte[] raw;
+    if (stream == null) {
+      raw = new byte[0];
+    } else {
+      try {
+        raw = ByteStreams.toByteArray(stream);
+      } finally {
+        stream.close();
+      }
+    }
+    final boolean gzip = "gzip".equals(connection.getContentEncoding());
+    final byte[] payload = gzip && raw.length > 0 ? gunzip(raw) : raw;
+    return new HttpReply(status, connection.getHeaderFields(), payload);
+  }
+
+  private static byte[] gunzip(final byte[] bytes) throws IOException {
+    try (final InputStream stream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return ByteStreams.toByteArray(stream);
+    }
+  }
+
+  private static void setRequestMethod(final HttpURLConnection connection, final String method) {
+    // Nasty workaround for ancient HttpURLConnection only supporting few methods
+    final Class<?> httpURLConnectionClass = connection.getClass();
+    try {
+      final Field methodField = httpURLConnectionClass.getSuperclass().getDeclaredField("method");
+      methodField.setAccessible(true);
+      methodField.set(connection, method);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
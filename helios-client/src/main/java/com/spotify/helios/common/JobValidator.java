@@ -406,6 +406,15 @@ public class JobValidator {
       }
     }
 
+    if (healthCheck.getTimeout() != null && healthCheck.getTimeout() <= 0) {
+      errors.add(format("Health check timeout must be positive, got %d seconds.",
+                        healthCheck.getTimeout()));
+    }
+    if (healthCheck.getInterval() != null && healthCheck.getInterval() <= 0) {
+      errors.add(format("Health check interval must be positive, got %d seconds.",
+                        healthCheck.getInterval()));
+    }
+
     return errors;
   }
 
@@ -24,6 +24,7 @@ package com.spotify.helios.common;
 import com.google.common.base.Throwables;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -34,10 +35,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.util.Map;
 
@@ -49,6 +53,14 @@ import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS
 public class Json {
 
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+      .registerModule(new AfterburnerModule())
+      .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
+      .configure(ORDER_MAP_ENTRIES_BY_KEYS, true)
+      .configure(WRITE_DATES_AS_TIMESTAMPS, false)
+      .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory())
+      .registerModule(new AfterburnerModule())
       .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
       .configure(ORDER_MAP_ENTRIES_BY_KEYS, true)
       .configure(WRITE_DATES_AS_TIMESTAMPS, false)
@@ -62,6 +74,7 @@ public class Json {
       .writer();
 
   private static final ObjectWriter PRETTY_OBJECT_WRITER = new ObjectMapper()
+      .registerModule(new AfterburnerModule())
       .configure(SORT_PROPERTIES_ALPHABETICALLY, true)
       .configure(ORDER_MAP_ENTRIES_BY_KEYS, true)
       .configure(WRITE_DATES_AS_TIMESTAMPS, false)
@@ -98,6 +111,22 @@ public class Json {
     }
   }
 
+  /**
+   * Serialize an object in the given format. Use for data stored in ZooKeeper, which can be read
+   * back using any of the {@code byte[]} readers regardless of the format.
+   *
+   * @param value The object to serialize.
+   * @param format The format to serialize the object in.
+   * @return The byte array for the given object.
+   * @throws JsonProcessingException If the object cannot be serialized.
+   */
+  public static byte[] asBytes(final Object value, final PayloadFormat format)
+      throws JsonProcessingException {
+    return format == PayloadFormat.SMILE
+           ? SMILE_MAPPER.writeValueAsBytes(value)
+           : OBJECT_MAPPER.writeValueAsBytes(value);
+  }
+
   /**
    * Serialize an object to a json string. Use when it is not know whether an object can be json
    * serializable.
@@ -198,17 +227,17 @@ public class Json {
   }
 
   public static <T> T read(final byte[] bytes, final Class<T> clazz) throws IOException {
-    return OBJECT_MAPPER.readValue(bytes, clazz);
+    return mapper(bytes).readValue(bytes, clazz);
   }
 
   public static <T> T read(final byte[] bytes, final TypeReference<?> typeReference)
       throws IOException {
-    return OBJECT_MAPPER.readValue(bytes, typeReference);
+    return mapper(bytes).readValue(bytes, typeReference);
   }
 
   public static <T> T read(final byte[] bytes, final JavaType javaType)
       throws IOException {
-    return OBJECT_MAPPER.readValue(bytes, javaType);
+    return mapper(bytes).readValue(bytes, javaType);
   }
 
   public static <T> T readUnchecked(final String content, final Class<T> clazz) {
@@ -237,7 +266,7 @@ public class Json {
 
   public static <T> T readUnchecked(final byte[] bytes, final Class<T> clazz) {
     try {
-      return OBJECT_MAPPER.readValue(bytes, clazz);
+      return read(bytes, clazz);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -245,7 +274,7 @@ public class Json {
 
   public static <T> T readUnchecked(final byte[] bytes, final TypeReference<?> typeReference) {
     try {
-      return OBJECT_MAPPER.readValue(bytes, typeReference);
+      return read(bytes, typeReference);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -253,7 +282,7 @@ public class Json {
 
   public static <T> T readUnchecked(final byte[] bytes, final JavaType javaType) {
     try {
-      return OBJECT_MAPPER.readValue(bytes, javaType);
+      return read(bytes, javaType);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -309,6 +338,28 @@ public class Json {
     }
   }
 
+  /**
+   * Convert an object to a json tree, e.g. to filter it before writing it out.
+   *
+   * @param value The object to convert.
+   * @return The json tree for the given object.
+   */
+  public static JsonNode asTree(final Object value) {
+    return OBJECT_MAPPER.valueToTree(value);
+  }
+
+  /**
+   * Create a generator for writing json incrementally to a stream. Objects written using the
+   * generator are serialized the same way as by {@link #asBytes(Object)}.
+   *
+   * @param stream The stream to write to.
+   * @return The generator.
+   * @throws IOException If the generator cannot be created.
+   */
+  public static JsonGenerator newGenerator(final OutputStream stream) throws IOException {
+    return OBJECT_MAPPER.getFactory().createGenerator(stream);
+  }
+
   public static JavaType type(Type t) {
     return OBJECT_MAPPER.constructType(t);
   }
@@ -321,6 +372,29 @@ public class Json {
     return OBJECT_MAPPER.getTypeFactory();
   }
 
+  /**
+   * Create a codec for values of {@code clazz} with its reader and writer resolved up front. Keep
+   * the codec around rather than creating one per call.
+   *
+   * @param clazz The type of values to read and write.
+   * @return The codec.
+   */
+  public static <T> JsonCodec<T> codec(final Class<T> clazz) {
+    return codec(OBJECT_MAPPER.constructType(clazz));
+  }
+
+  /**
+   * Create a codec for values of {@code javaType} with its reader and writer resolved up front.
+   *
+   * @param javaType The type of values to read and write.
+   * @return The codec.
+   * @see #codec(Class)
+   */
+  public static <T> JsonCodec<T> codec(final JavaType javaType) {
+    return new JsonCodec<>(OBJECT_MAPPER.reader(javaType), OBJECT_MAPPER.writerWithType(javaType),
+                           SMILE_MAPPER.reader(javaType), SMILE_MAPPER.writerWithType(javaType));
+  }
+
   public static ObjectReader reader() {
     return OBJECT_MAPPER.reader();
   }
@@ -329,6 +403,10 @@ public class Json {
     return OBJECT_MAPPER.writer();
   }
 
+  private static ObjectMapper mapper(final byte[] bytes) {
+    return PayloadFormat.isSmile(bytes) ? SMILE_MAPPER : OBJECT_MAPPER;
+  }
+
   public static byte[] sha1digest(final Object o) throws IOException {
     final String json = NORMALIZING_OBJECT_WRITER.writeValueAsString(o);
     final Map<String, Object> map = OBJECT_MAPPER.readValue(json, MAP_TYPE);
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.common;
+
+import com.google.common.base.Throwables;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes values of a single type using a reader and writer that are resolved once, up
+ * front, rather than looked up by type on every call. Values are serialized the same way as by
+ * {@link Json#asBytes(Object, PayloadFormat)}, and can be read back from either format.
+ *
+ * Codecs are thread safe and meant to be kept in static fields by code that serializes the same
+ * type over and over.
+ *
+ * @see Json#codec(Class)
+ */
+public class JsonCodec<T> {
+
+  private final ObjectReader reader;
+  private final ObjectWriter writer;
+  private final ObjectReader smileReader;
+  private final ObjectWriter smileWriter;
+
+  JsonCodec(final ObjectReader reader, final ObjectWriter writer,
+            final ObjectReader smileReader, final ObjectWriter smileWriter) {
+    this.reader = reader;
+    this.writer = writer;
+    this.smileReader = smileReader;
+    this.smileWriter = smileWriter;
+  }
+
+  public T read(final byte[] bytes) throws IOException {
+    return PayloadFormat.isSmile(bytes) ? smileReader.<T>readValue(bytes)
+                                        : reader.<T>readValue(bytes);
+  }
+
+  public T read(final String content) throws IOException {
+    return reader.readValue(content);
+  }
+
+  public T readUnchecked(final byte[] bytes) {
+    try {
+      return read(bytes);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public byte[] asBytes(final T value) throws JsonProcessingException {
+    return writer.writeValueAsBytes(value);
+  }
+
+  public byte[] asBytes(final T value, final PayloadFormat format) throws JsonProcessingException {
+    return format == PayloadFormat.SMILE ? smileWriter.writeValueAsBytes(value)
+                                         : writer.writeValueAsBytes(value);
+  }
+
+  public byte[] asBytesUnchecked(final T value, final PayloadFormat format) {
+    try {
+      return asBytes(value, format);
+    } catch (JsonProcessingException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public byte[] asBytesUnchecked(final T value) {
+    try {
+      return asBytes(value);
+    } catch (JsonProcessingException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
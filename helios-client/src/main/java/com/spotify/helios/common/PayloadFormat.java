@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.common;
+
+import com.google.common.collect.ImmutableList;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.util.List;
+
+import static com.fasterxml.jackson.dataformat.smile.SmileConstants.HEADER_BYTE_1;
+import static com.fasterxml.jackson.dataformat.smile.SmileConstants.HEADER_BYTE_2;
+import static com.fasterxml.jackson.dataformat.smile.SmileConstants.HEADER_BYTE_3;
+
+/**
+ * The encodings Helios can use for data stored in ZooKeeper.
+ *
+ * Smile payloads always start with the Smile header, {@code :)\n} followed by a version and flags
+ * byte. JSON payloads never start with a colon, so readers can tell the two apart without any
+ * other framing and keep reading data written before Smile was introduced. All of the
+ * {@code byte[]} readers in {@link Json} and {@link JsonCodec} accept both formats.
+ */
+public enum PayloadFormat {
+
+  JSON("json"),
+  SMILE("smile");
+
+  /**
+   * The names of the formats this version of Helios can read.
+   */
+  public static final List<String> READABLE = ImmutableList.of(JSON.getName(), SMILE.getName());
+
+  private final String name;
+
+  PayloadFormat(final String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Serialize an object in this format.
+   *
+   * @param value The object to serialize.
+   * @return The serialized object.
+   * @throws JsonProcessingException If the object cannot be serialized.
+   */
+  public byte[] encode(final Object value) throws JsonProcessingException {
+    return Json.asBytes(value, this);
+  }
+
+  /**
+   * @param bytes Data read from ZooKeeper.
+   * @return The format the data is in.
+   */
+  public static PayloadFormat of(final byte[] bytes) {
+    return isSmile(bytes) ? SMILE : JSON;
+  }
+
+  static boolean isSmile(final byte[] bytes) {
+    return bytes != null && bytes.length >= 3 &&
+           bytes[0] == HEADER_BYTE_1 && bytes[1] == HEADER_BYTE_2 && bytes[2] == HEADER_BYTE_3;
+  }
+
+  /**
+   * @param name The name of a format, as returned by {@link #getName()}.
+   * @return The format.
+   * @throws IllegalArgumentException If there is no such format.
+   */
+  public static PayloadFormat forName(final String name) {
+    for (final PayloadFormat format : values()) {
+      if (format.name.equals(name)) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unknown payload format: " + name);
+  }
+
+  /**
+   * Pick the format to write data in for a reader that can read {@code readable}, preferring
+   * {@code preferred}.
+   *
+   * @param preferred The format to use if the reader supports it.
+   * @param readable The names of the formats the reader supports, or null if it predates
+   *     payload format negotiation and can only read JSON.
+   * @return {@code preferred} if the reader can read it, {@link #JSON} otherwise.
+   */
+  public static PayloadFormat negotiate(final PayloadFormat preferred,
+                                        final List<String> readable) {
+    if (readable != null && readable.contains(preferred.getName())) {
+      return preferred;
+    }
+    return JSON;
+  }
+}
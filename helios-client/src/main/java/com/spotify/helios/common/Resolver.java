@@ -25,6 +25,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,9 +39,14 @@ import org.xbill.DNS.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
+import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
 import static java.lang.System.getenv;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public abstract class Resolver {
 
@@ -52,17 +58,53 @@ public abstract class Resolver {
 
   private static final Logger log = LoggerFactory.getLogger(Resolver.class);
 
+  private static final long MAX_CACHE_MILLIS = MINUTES.toMillis(5);
+
+  // Lookups by SRV name, shared by all suppliers
+  private static final ConcurrentMap<String, Endpoints> CACHE = Maps.newConcurrentMap();
+
+  /**
+   * Returns a supplier of the endpoints of a service. Lookups are cached for as long as the DNS
+   * records allow, but no longer than five minutes, and the cache is shared by all suppliers. If
+   * a lookup fails, the endpoints found by the previous lookup keep being returned.
+   */
   public static Supplier<List<URI>> supplier(final String srvName, final String domain) {
     return new Supplier<List<URI>>() {
       @Override
       public List<URI> get() {
-        return resolve(srvName, domain);
+        return cachedResolve(srvName, domain);
       }
     };
   }
 
   public static List<URI> resolve(final String srvName, final String domain) {
+    return lookup(srv(srvName, domain)).uris;
+  }
+
+  private static List<URI> cachedResolve(final String srvName, final String domain) {
     final String name = srv(srvName, domain);
+    final long now = currentTimeMillis();
+    final Endpoints cached = CACHE.get(name);
+    if (cached != null && now < cached.expires) {
+      return cached.uris;
+    }
+    final Endpoints endpoints;
+    try {
+      endpoints = lookup(name);
+    } catch (HeliosRuntimeException e) {
+      if (cached == null) {
+        throw e;
+      }
+      log.warn("Lookup of '{}' failed, using the previous result", name, e);
+      return cached.uris;
+    }
+    if (!endpoints.uris.isEmpty()) {
+      CACHE.put(name, endpoints);
+    }
+    return endpoints.uris;
+  }
+
+  private static Endpoints lookup(final String name) {
     final Lookup lookup;
     try {
       lookup = new Lookup(name, Type.SRV, DClass.IN);
@@ -75,18 +117,20 @@ public abstract class Resolver {
     switch (lookup.getResult()) {
       case Lookup.SUCCESSFUL:
         final ImmutableList.Builder<URI> endpoints = ImmutableList.builder();
+        long ttlMillis = MAX_CACHE_MILLIS;
         for (Record record : queryResult) {
           if (record instanceof SRVRecord) {
             SRVRecord srv = (SRVRecord) record;
             endpoints.add(http(srv.getTarget().toString(), srv.getPort()));
+            ttlMillis = min(ttlMillis, SECONDS.toMillis(srv.getTTL()));
           }
         }
-        return endpoints.build();
+        return new Endpoints(endpoints.build(), currentTimeMillis() + ttlMillis);
       case Lookup.HOST_NOT_FOUND:
         // fallthrough
       case Lookup.TYPE_NOT_FOUND:
         log.warn("No results returned for query '{}'", name);
-        return ImmutableList.of();
+        return new Endpoints(ImmutableList.<URI>of(), 0);
       default:
         throw new HeliosRuntimeException(String.format("Lookup of '%s' failed with code: %d - %s ",
                                                        name, lookup.getResult(),
@@ -107,4 +151,15 @@ public abstract class Resolver {
   private static String srv(final String name, final String domain) {
     return format(SRV_FORMAT, name, domain);
   }
+
+  private static class Endpoints {
+
+    private final List<URI> uris;
+    private final long expires;
+
+    private Endpoints(final List<URI> uris, final long expires) {
+      this.uris = uris;
+      this.expires = expires;
+    }
+  }
 }
@@ -42,6 +42,7 @@ import java.util.List;
  *   "startTime" : 1410308461448,
  *   "uptime" : 231779308,
  *   "version" : "0.8.10",
+ *   "payloadFormats" : [ "json", "smile" ],
  *   "vmName" : "Java HotSpot(TM) 64-Bit Server VM",
  *   "vmVendor" : "Oracle Corporation",
  *   "vmVersion" : "24.45-b08"
@@ -60,6 +61,7 @@ public class AgentInfo extends Descriptor {
   private final long uptime;
   private final long startTime;
   private final String version;
+  private final List<String> payloadFormats;
 
   /**
    * Constructor.
@@ -75,6 +77,8 @@ public class AgentInfo extends Descriptor {
    * @param uptime How long the Agent has been running.
    * @param startTime The clock time at which the Agent started.
    * @param version The Helios version of the running Agent.
+   * @param payloadFormats The ZooKeeper payload formats the Agent can read, or null if it only
+   *     reads JSON.
    */
   public AgentInfo(@JsonProperty("name") final String name,
                    @JsonProperty("vmName") final String vmName,
@@ -86,7 +90,8 @@ public class AgentInfo extends Descriptor {
                    @JsonProperty("inputArguments") final List<String> inputArguments,
                    @JsonProperty("uptime") final long uptime,
                    @JsonProperty("startTime") final long startTime,
-                   @JsonProperty("version") final String version) {
+                   @JsonProperty("version") final String version,
+                   @JsonProperty("payloadFormats") final List<String> payloadFormats) {
     this.name = name;
     this.vmName = vmName;
     this.vmVendor = vmVendor;
@@ -98,6 +103,7 @@ public class AgentInfo extends Descriptor {
     this.uptime = uptime;
     this.startTime = startTime;
     this.version = version;
+    this.payloadFormats = payloadFormats;
   }
 
   public AgentInfo(final Builder builder) {
@@ -112,6 +118,7 @@ public class AgentInfo extends Descriptor {
     this.uptime = builder.uptime;
     this.startTime = builder.startTime;
     this.version = builder.version;
+    this.payloadFormats = builder.payloadFormats;
   }
 
   public String getName() {
@@ -158,6 +165,10 @@ public class AgentInfo extends Descriptor {
     return version;
   }
 
+  public List<String> getPayloadFormats() {
+    return payloadFormats;
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
@@ -205,6 +216,10 @@ public class AgentInfo extends Descriptor {
     if (vmVersion != null ? !vmVersion.equals(agentInfo.vmVersion) : agentInfo.vmVersion != null) {
       return false;
     }
+    if (payloadFormats != null ? !payloadFormats.equals(agentInfo.payloadFormats)
+                               : agentInfo.payloadFormats != null) {
+      return false;
+    }
 
     return true;
   }
@@ -222,6 +237,7 @@ public class AgentInfo extends Descriptor {
     result = 31 * result + (int) (uptime ^ (uptime >>> 32));
     result = 31 * result + (int) (startTime ^ (startTime >>> 32));
     result = 31 * result + (version != null ? version.hashCode() : 0);
+    result = 31 * result + (payloadFormats != null ? payloadFormats.hashCode() : 0);
     return result;
   }
 
@@ -238,6 +254,7 @@ public class AgentInfo extends Descriptor {
            ", inputArguments=" + inputArguments +
            ", uptime=" + uptime +
            ", startTime=" + startTime +
+           ", payloadFormats=" + payloadFormats +
            '}';
   }
 
@@ -258,6 +275,7 @@ public class AgentInfo extends Descriptor {
     private long uptime;
     private long startTime;
     private String version;
+    private List<String> payloadFormats;
 
     public Builder setName(final String name) {
       this.name = name;
@@ -314,6 +332,11 @@ public class AgentInfo extends Descriptor {
       return this;
     }
 
+    public Builder setPayloadFormats(final List<String> payloadFormats) {
+      this.payloadFormats = payloadFormats;
+      return this;
+    }
+
     public AgentInfo build() {
       return new AgentInfo(this);
     }
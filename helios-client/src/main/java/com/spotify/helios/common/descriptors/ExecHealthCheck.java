@@ -23,6 +23,7 @@ package com.spotify.helios.common.descriptors;
 
 import com.google.common.base.Objects;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Arrays;
@@ -32,13 +33,20 @@ public class ExecHealthCheck extends HealthCheck {
 
   private final List<String> command;
 
-  public ExecHealthCheck(@JsonProperty("command") final List<String> command) {
-    super(EXEC);
+  public ExecHealthCheck(final List<String> command) {
+    this(command, null, null);
+  }
+
+  @JsonCreator
+  public ExecHealthCheck(@JsonProperty("command") final List<String> command,
+                         @JsonProperty("timeout") final Integer timeout,
+                         @JsonProperty("interval") final Integer interval) {
+    super(EXEC, timeout, interval);
     this.command = command;
   }
 
   private ExecHealthCheck(ExecHealthCheck.Builder builder) {
-    super(EXEC);
+    super(EXEC, builder.timeout, builder.interval);
     command = builder.command;
   }
 
@@ -68,6 +76,14 @@ public class ExecHealthCheck extends HealthCheck {
     if (command != null ? !command.equals(that.command) : that.command != null) {
       return false;
     }
+    if (getTimeout() != null ? !getTimeout().equals(that.getTimeout())
+                             : that.getTimeout() != null) {
+      return false;
+    }
+    if (getInterval() != null ? !getInterval().equals(that.getInterval())
+                              : that.getInterval() != null) {
+      return false;
+    }
 
     return true;
   }
@@ -75,6 +91,8 @@ public class ExecHealthCheck extends HealthCheck {
   @Override
   public int hashCode() {
     int result = command != null ? command.hashCode() : 0;
+    result = 31 * result + (getTimeout() != null ? getTimeout().hashCode() : 0);
+    result = 31 * result + (getInterval() != null ? getInterval().hashCode() : 0);
     return result;
   }
 
@@ -82,6 +100,8 @@ public class ExecHealthCheck extends HealthCheck {
   public String toString() {
     return Objects.toStringHelper(this)
         .add("command", command)
+        .add("timeout", getTimeout())
+        .add("interval", getInterval())
         .toString();
   }
 
@@ -92,6 +112,8 @@ public class ExecHealthCheck extends HealthCheck {
   public static class Builder {
 
     private List<String> command;
+    private Integer timeout;
+    private Integer interval;
 
     public List<String> getCommand() {
       return command;
@@ -102,6 +124,24 @@ public class ExecHealthCheck extends HealthCheck {
       return this;
     }
 
+    public Integer getTimeout() {
+      return timeout;
+    }
+
+    public Builder setTimeout(final Integer timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Integer getInterval() {
+      return interval;
+    }
+
+    public Builder setInterval(final Integer interval) {
+      this.interval = interval;
+      return this;
+    }
+
     public ExecHealthCheck build() {
       if (command == null || command.isEmpty()) {
         throw new IllegalArgumentException("You must specify a command for an exec health check.");
@@ -40,6 +40,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * }
  * </pre>
  *
+ * All health checks optionally take a "timeout", the number of seconds a single check may take,
+ * and an "interval", the longest number of seconds to wait between failed checks.
+ *
  * TCP health check:
  *
  * <pre>
@@ -72,17 +75,35 @@ public abstract class HealthCheck extends Descriptor {
   public static final String TCP = "tcp";
 
   private final String type;
+  private final Integer timeout;
+  private final Integer interval;
 
-  HealthCheck(final String type) {
+  HealthCheck(final String type, final Integer timeout, final Integer interval) {
     checkNotNull(type, "type");
     checkArgument(!type.isEmpty(), "type is empty");
     this.type = type;
+    this.timeout = timeout;
+    this.interval = interval;
   }
 
   public String getType() {
     return type;
   }
 
+  /**
+   * @return The number of seconds a single check may take, or null for the default.
+   */
+  public Integer getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * @return The maximum number of seconds between failed checks, or null for the default.
+   */
+  public Integer getInterval() {
+    return interval;
+  }
+
   public static ExecHealthCheck.Builder newExecHealthCheck() {
     return ExecHealthCheck.newBuilder();
   }
@@ -23,6 +23,7 @@ package com.spotify.helios.common.descriptors;
 
 import com.google.common.base.Objects;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -32,15 +33,22 @@ public class HttpHealthCheck extends HealthCheck {
   private final String path;
   private final String port;
 
+  public HttpHealthCheck(final String path, final String port) {
+    this(path, port, null, null);
+  }
+
+  @JsonCreator
   public HttpHealthCheck(@JsonProperty("path") final String path,
-                         @JsonProperty("port") final String port) {
-    super(HTTP);
+                         @JsonProperty("port") final String port,
+                         @JsonProperty("timeout") final Integer timeout,
+                         @JsonProperty("interval") final Integer interval) {
+    super(HTTP, timeout, interval);
     this.path = path;
     this.port = port;
   }
 
   private HttpHealthCheck(HttpHealthCheck.Builder builder) {
-    super(HTTP);
+    super(HTTP, builder.timeout, builder.interval);
     path = builder.path;
     port = builder.port;
   }
@@ -77,6 +85,14 @@ public class HttpHealthCheck extends HealthCheck {
     if (port != null ? !port.equals(that.port) : that.port != null) {
       return false;
     }
+    if (getTimeout() != null ? !getTimeout().equals(that.getTimeout())
+                             : that.getTimeout() != null) {
+      return false;
+    }
+    if (getInterval() != null ? !getInterval().equals(that.getInterval())
+                              : that.getInterval() != null) {
+      return false;
+    }
 
     return true;
   }
@@ -85,6 +101,8 @@ public class HttpHealthCheck extends HealthCheck {
   public int hashCode() {
     int result = path != null ? path.hashCode() : 0;
     result = 31 * result + (port != null ? port.hashCode() : 0);
+    result = 31 * result + (getTimeout() != null ? getTimeout().hashCode() : 0);
+    result = 31 * result + (getInterval() != null ? getInterval().hashCode() : 0);
     return result;
   }
 
@@ -93,6 +111,8 @@ public class HttpHealthCheck extends HealthCheck {
     return Objects.toStringHelper(this)
         .add("path", path)
         .add("port", port)
+        .add("timeout", getTimeout())
+        .add("interval", getInterval())
         .toString();
   }
 
@@ -104,6 +124,8 @@ public class HttpHealthCheck extends HealthCheck {
 
     private String path;
     private String port;
+    private Integer timeout;
+    private Integer interval;
 
     public String getPath() {
       return path;
@@ -123,6 +145,24 @@ public class HttpHealthCheck extends HealthCheck {
       return this;
     }
 
+    public Integer getTimeout() {
+      return timeout;
+    }
+
+    public Builder setTimeout(final Integer timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Integer getInterval() {
+      return interval;
+    }
+
+    public Builder setInterval(final Integer interval) {
+      this.interval = interval;
+      return this;
+    }
+
     public HttpHealthCheck build() {
       if (isNullOrEmpty(path)) {
         throw new
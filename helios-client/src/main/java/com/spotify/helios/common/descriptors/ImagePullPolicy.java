@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.common.descriptors;
+
+/**
+ * When the agent pulls the image of a job before starting a container of it.
+ */
+public enum ImagePullPolicy {
+  /**
+   * Pull the image every time a container is started.
+   */
+  ALWAYS,
+  /**
+   * Only pull the image if it is not present on the agent.
+   */
+  IF_NOT_PRESENT,
+  /**
+   * Only pull the image if it is not present on the agent and it is referenced by digest, which
+   * makes it immutable. Otherwise pull it every time a container is started. This is the default.
+   */
+  DIGEST_PINNED
+}
@@ -66,6 +66,7 @@ import static java.util.Collections.emptyMap;
  *   },
  *   "id" : "myservice:0.5:3539b7bc2235d53f79e6e8511942bbeaa8816265",
  *   "image" : "myregistry:80/janedoe/myservice:0.5-98c6ff4",
+ *   "imagePullPolicy" : "IF_NOT_PRESENT",
  *   "ports" : {
  *     "http" : {
  *       "externalPort" : 8060,
@@ -109,6 +110,7 @@ public class Job extends Descriptor implements Comparable<Job> {
   public static final String EMPTY_CREATING_USER = null;
   public static final String EMPTY_TOKEN = "";
   public static final HealthCheck EMPTY_HEALTH_CHECK = null;
+  public static final ImagePullPolicy EMPTY_IMAGE_PULL_POLICY = null;
 
   private final JobId id;
   private final String image;
@@ -124,6 +126,7 @@ public class Job extends Descriptor implements Comparable<Job> {
   private final String creatingUser;
   private final String token;
   private final HealthCheck healthCheck;
+  private final ImagePullPolicy imagePullPolicy;
 
   /**
    * Create a Job.
@@ -145,6 +148,8 @@ public class Job extends Descriptor implements Comparable<Job> {
    * @param creatingUser The user creating the job.
    * @param token The token needed to manipulate this job.
    * @param healthCheck A health check Helios will execute on the container.
+   * @param imagePullPolicy When to pull the image before starting a container. Defaults to
+   *    {@link ImagePullPolicy#DIGEST_PINNED}.
    */
   public Job(@JsonProperty("id") final JobId id,
              @JsonProperty("image") final String image,
@@ -160,7 +165,8 @@ public class Job extends Descriptor implements Comparable<Job> {
              @JsonProperty("registrationDomain") @Nullable String registrationDomain,
              @JsonProperty("creatingUser") @Nullable String creatingUser,
              @JsonProperty("token") @Nullable String token,
-             @JsonProperty("healthCheck") @Nullable HealthCheck healthCheck) {
+             @JsonProperty("healthCheck") @Nullable HealthCheck healthCheck,
+             @JsonProperty("imagePullPolicy") @Nullable ImagePullPolicy imagePullPolicy) {
     this.id = id;
     this.image = image;
 
@@ -178,6 +184,7 @@ public class Job extends Descriptor implements Comparable<Job> {
     this.creatingUser = Optional.fromNullable(creatingUser).orNull();
     this.token = Optional.fromNullable(token).or(EMPTY_TOKEN);
     this.healthCheck = Optional.fromNullable(healthCheck).orNull();
+    this.imagePullPolicy = imagePullPolicy;
   }
 
   private Job(final JobId id, final Builder.Parameters p) {
@@ -197,6 +204,7 @@ public class Job extends Descriptor implements Comparable<Job> {
     this.creatingUser = p.creatingUser;
     this.token = p.token;
     this.healthCheck = p.healthCheck;
+    this.imagePullPolicy = p.imagePullPolicy;
   }
 
   public JobId getId() {
@@ -255,6 +263,10 @@ public class Job extends Descriptor implements Comparable<Job> {
     return healthCheck;
   }
 
+  public ImagePullPolicy getImagePullPolicy() {
+    return imagePullPolicy;
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -319,6 +331,9 @@ public class Job extends Descriptor implements Comparable<Job> {
     if (healthCheck != null ? !healthCheck.equals(job.healthCheck) : job.healthCheck != null) {
       return false;
     }
+    if (imagePullPolicy != job.imagePullPolicy) {
+      return false;
+    }
 
     return true;
   }
@@ -339,6 +354,7 @@ public class Job extends Descriptor implements Comparable<Job> {
     result = 31 * result + (creatingUser != null ? creatingUser.hashCode() : 0);
     result = 31 * result + token.hashCode();
     result = 31 * result + (healthCheck != null ? healthCheck.hashCode() : 0);
+    result = 31 * result + (imagePullPolicy != null ? imagePullPolicy.hashCode() : 0);
     return result;
   }
 
@@ -358,6 +374,7 @@ public class Job extends Descriptor implements Comparable<Job> {
         .add("creatingUser", creatingUser)
         .add("token", token)
         .add("healthCheck", healthCheck)
+        .add("imagePullPolicy", imagePullPolicy)
         .toString();
   }
 
@@ -381,7 +398,8 @@ public class Job extends Descriptor implements Comparable<Job> {
         .setRegistrationDomain(registrationDomain)
         .setCreatingUser(creatingUser)
         .setToken(token)
-        .setHealthCheck(healthCheck);
+        .setHealthCheck(healthCheck)
+        .setImagePullPolicy(imagePullPolicy);
   }
 
   public static class Builder implements Cloneable {
@@ -415,6 +433,7 @@ public class Job extends Descriptor implements Comparable<Job> {
       public String creatingUser;
       public String token;
       public HealthCheck healthCheck;
+      public ImagePullPolicy imagePullPolicy;
 
       private Parameters() {
         this.command = EMPTY_COMMAND;
@@ -428,6 +447,7 @@ public class Job extends Descriptor implements Comparable<Job> {
         this.creatingUser = EMPTY_CREATING_USER;
         this.token = EMPTY_TOKEN;
         this.healthCheck = EMPTY_HEALTH_CHECK;
+        this.imagePullPolicy = EMPTY_IMAGE_PULL_POLICY;
       }
 
       private Parameters(final Parameters p) {
@@ -446,6 +466,7 @@ public class Job extends Descriptor implements Comparable<Job> {
         this.creatingUser = p.creatingUser;
         this.token = p.token;
         this.healthCheck = p.healthCheck;
+        this.imagePullPolicy = p.imagePullPolicy;
       }
     }
 
@@ -554,6 +575,11 @@ public class Job extends Descriptor implements Comparable<Job> {
       return this;
     }
 
+    public Builder setImagePullPolicy(final ImagePullPolicy imagePullPolicy) {
+      p.imagePullPolicy = imagePullPolicy;
+      return this;
+    }
+
     public String getName() {
       return p.name;
     }
@@ -610,6 +636,10 @@ public class Job extends Descriptor implements Comparable<Job> {
       return p.healthCheck;
     }
 
+    public ImagePullPolicy getImagePullPolicy() {
+      return p.imagePullPolicy;
+    }
+
     @SuppressWarnings({"CloneDoesntDeclareCloneNotSupportedException", "CloneDoesntCallSuperClone"})
     @Override
     public Builder clone() {
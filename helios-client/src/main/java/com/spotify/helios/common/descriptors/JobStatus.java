@@ -22,6 +22,7 @@
 package com.spotify.helios.common.descriptors;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -92,6 +93,36 @@ public class JobStatus {
     return deployments;
   }
 
+  /**
+   * Returns a copy of this status whose task statuses only refer to the job by id, as they all
+   * run the job returned by {@link #getJob()}.
+   */
+  public JobStatus withoutTaskStatusJobs() {
+    if (taskStatuses == null) {
+      return this;
+    }
+    final ImmutableMap.Builder<String, TaskStatus> statuses = ImmutableMap.builder();
+    for (final Map.Entry<String, TaskStatus> entry : taskStatuses.entrySet()) {
+      statuses.put(entry.getKey(), entry.getValue().withoutJob());
+    }
+    return new JobStatus(job, statuses.build(), deployments);
+  }
+
+  /**
+   * Returns a copy of this status with {@link #getJob()} filled in to the task statuses that
+   * only refer to it by id.
+   */
+  public JobStatus withTaskStatusJobs() {
+    if (taskStatuses == null || job == null) {
+      return this;
+    }
+    final ImmutableMap.Builder<String, TaskStatus> statuses = ImmutableMap.builder();
+    for (final Map.Entry<String, TaskStatus> entry : taskStatuses.entrySet()) {
+      statuses.put(entry.getKey(), entry.getValue().withJob(job));
+    }
+    return new JobStatus(job, statuses.build(), deployments);
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
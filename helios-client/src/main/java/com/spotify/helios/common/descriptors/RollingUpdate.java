@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.common.descriptors;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Optional.fromNullable;
+
+/**
+ * The progress of a rolling update of a set of hosts from one job to another, as persisted by the
+ * master driving it. Hosts are updated in the order listed, {@code batchSize} at a time, and at
+ * most {@code parallelism} hosts are waiting for their new task to come up at any one time.
+ *
+ * A typical JSON representation might be:
+ * <pre>
+ * {
+ *   "id" : "0b5e4c4d-6c5e-4b5e-9a38-1d8a0c0f8d5c",
+ *   "oldJob" : "myservice:0.5:3539b7bc2235d53f79e6e8511942bbeaa8816265",
+ *   "newJob" : "myservice:0.6:9a2d4b3c7a1d5e0f6b8c2e4d1f3a5b7c9d0e2f4a",
+ *   "hosts" : [ "host1", "host2" ],
+ *   "batchSize" : 1,
+ *   "parallelism" : 1,
+ *   "healthWaitSeconds" : 120,
+ *   "deployerUser" : "alice",
+ *   "token" : "",
+ *   "state" : "RUNNING",
+ *   "hostStates" : { "host1" : "DONE", "host2" : "UPDATING" },
+ *   "deadlines" : { "host2" : 1415288451000 },
+ *   "error" : null,
+ *   "owner" : "master1",
+ *   "leaseExpiry" : 1415288361000,
+ *   "created" : 1415288301000
+ * }
+ * </pre>
+ */
+public class RollingUpdate extends Descriptor {
+
+  public enum State {
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED
+  }
+
+  public enum HostState {
+    PENDING,
+    UPDATING,
+    DONE,
+    FAILED
+  }
+
+  private final String id;
+  private final JobId oldJob;
+  private final JobId newJob;
+  private final List<String> hosts;
+  private final int batchSize;
+  private final int parallelism;
+  private final long healthWaitSeconds;
+  private final String deployerUser;
+  private final String token;
+  private final State state;
+  private final Map<String, HostState> hostStates;
+  private final Map<String, Long> deadlines;
+  private final String error;
+  private final String owner;
+  private final long leaseExpiry;
+  private final long created;
+
+  /**
+   * @param id The id of the rolling update.
+   * @param oldJob The job to undeploy from each host, or null to only deploy the new job.
+   * @param newJob The job to deploy to each host.
+   * @param hosts The hosts to update, in order.
+   * @param batchSize How many hosts to update at a time.
+   * @param parallelism How many hosts may be waiting for the new job to come up at a time.
+   * @param healthWaitSeconds How long to wait for the new job to come up on a host.
+   * @param deployerUser The user that started the rolling update.
+   * @param token The authorization token for both jobs.
+   * @param state The state of the rolling update as a whole.
+   * @param hostStates The state of each host. Hosts missing from the map are pending.
+   * @param deadlines When each updating host must have the new job running by, in millis.
+   * @param error Why the rolling update failed, if it did.
+   * @param owner The name of the master driving the rolling update.
+   * @param leaseExpiry When another master may take over driving the rolling update, in millis.
+   * @param created When the rolling update was started, in millis.
+   */
+  public RollingUpdate(@JsonProperty("id") final String id,
+                       @JsonProperty("oldJob") @Nullable final JobId oldJob,
+                       @JsonProperty("newJob") final JobId newJob,
+                       @JsonProperty("hosts") final List<String> hosts,
+                       @JsonProperty("batchSize") final int batchSize,
+                       @JsonProperty("parallelism") final int parallelism,
+                       @JsonProperty("healthWaitSeconds") final long healthWaitSeconds,
+                       @JsonProperty("deployerUser") @Nullable final String deployerUser,
+                       @JsonProperty("token") final String token,
+                       @JsonProperty("state") final State state,
+                       @JsonProperty("hostStates") final Map<String, HostState> hostStates,
+                       @JsonProperty("deadlines") final Map<String, Long> deadlines,
+                       @JsonProperty("error") @Nullable final String error,
+                       @JsonProperty("owner") @Nullable final String owner,
+                       @JsonProperty("leaseExpiry") final long leaseExpiry,
+                       @JsonProperty("created") final long created) {
+    this.id = id;
+    this.oldJob = oldJob;
+    this.newJob = newJob;
+    this.hosts = ImmutableList.copyOf(fromNullable(hosts).or(Collections.<String>emptyList()));
+    this.batchSize = batchSize;
+    this.parallelism = parallelism;
+    this.healthWaitSeconds = healthWaitSeconds;
+    this.deployerUser = deployerUser;
+    this.token = fromNullable(token).or(Job.EMPTY_TOKEN);
+    this.state = fromNullable(state).or(State.RUNNING);
+    this.hostStates = ImmutableMap.copyOf(
+        fromNullable(hostStates).or(Collections.<String, HostState>emptyMap()));
+    this.deadlines = ImmutableMap.copyOf(
+        fromNullable(deadlines).or(Collections.<String, Long>emptyMap()));
+    this.error = error;
+    this.owner = owner;
+    this.leaseExpiry = leaseExpiry;
+    this.created = created;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  @Nullable
+  public JobId getOldJob() {
+    return oldJob;
+  }
+
+  public JobId getNewJob() {
+    return newJob;
+  }
+
+  public List<String> getHosts() {
+    return hosts;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public long getHealthWaitSeconds() {
+    return healthWaitSeconds;
+  }
+
+  @Nullable
+  public String getDeployerUser() {
+    return deployerUser;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public Map<String, HostState> getHostStates() {
+    return hostStates;
+  }
+
+  public Map<String, Long> getDeadlines() {
+    return deadlines;
+  }
+
+  @Nullable
+  public String getError() {
+    return error;
+  }
+
+  @Nullable
+  public String getOwner() {
+    return owner;
+  }
+
+  public long getLeaseExpiry() {
+    return leaseExpiry;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  /**
+   * Returns the state of {@code host}, which is {@link HostState#PENDING} until the update of
+   * the host has started.
+   */
+  public HostState getHostState(final String host) {
+    return fromNullable(hostStates.get(host)).or(HostState.PENDING);
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    final RollingUpdate that = (RollingUpdate) o;
+
+    return Objects.equal(id, that.id) &&
+           Objects.equal(oldJob, that.oldJob) &&
+           Objects.equal(newJob, that.newJob) &&
+           Objects.equal(hosts, that.hosts) &&
+           batchSize == that.batchSize &&
+           parallelism == that.parallelism &&
+           healthWaitSeconds == that.healthWaitSeconds &&
+           Objects.equal(deployerUser, that.deployerUser) &&
+           Objects.equal(token, that.token) &&
+           state == that.state &&
+           Objects.equal(hostStates, that.hostStates) &&
+           Objects.equal(deadlines, that.deadlines) &&
+           Objects.equal(error, that.error) &&
+           Objects.equal(owner, that.owner) &&
+           leaseExpiry == that.leaseExpiry &&
+           created == that.created;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(id, oldJob, newJob, hosts, batchSize, parallelism, healthWaitSeconds,
+                            deployerUser, token, state, hostStates, deadlines, error, owner,
+                            leaseExpiry, created);
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("id", id)
+        .add("oldJob", oldJob)
+        .add("newJob", newJob)
+        .add("hosts", hosts)
+        .add("batchSize", batchSize)
+        .add("parallelism", parallelism)
+        .add("healthWaitSeconds", healthWaitSeconds)
+        .add("deployerUser", deployerUser)
+        .add("state", state)
+        .add("hostStates", hostStates)
+        .add("deadlines", deadlines)
+        .add("error", error)
+        .add("owner", owner)
+        .add("leaseExpiry", leaseExpiry)
+        .add("created", created)
+        .toString();
+  }
+
+  public Builder toBuilder() {
+    return newBuilder()
+        .setId(id)
+        .setOldJob(oldJob)
+        .setNewJob(newJob)
+        .setHosts(hosts)
+        .setBatchSize(batchSize)
+        .setParallelism(parallelism)
+        .setHealthWaitSeconds(healthWaitSeconds)
+        .setDeployerUser(deployerUser)
+        .setToken(token)
+        .setState(state)
+        .setHostStates(hostStates)
+        .setDeadlines(deadlines)
+        .setError(error)
+        .setOwner(owner)
+        .setLeaseExpiry(leaseExpiry)
+        .setCreated(created);
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private String id;
+    private JobId oldJob;
+    private JobId newJob;
+    private List<String> hosts;
+    private int batchSize = 1;
+    private int parallelism = 1;
+    private long healthWaitSeconds;
+    private String deployerUser;
+    private String token;
+    private State state;
+    private Map<String, HostState> hostStates;
+    private Map<String, Long> deadlines;
+    private String error;
+    private String owner;
+    private long leaseExpiry;
+    private long created;
+
+    public Builder setId(final String id) {
+      this.id = id;
+      return this;
+    }
+
+    public Builder setOldJob(final JobId oldJob) {
+      this.oldJob = oldJob;
+      return this;
+    }
+
+    public Builder setNewJob(final JobId newJob) {
+      this.newJob = newJob;
+      return this;
+    }
+
+    public Builder setHosts(final List<String> hosts) {
+      this.hosts = hosts;
+      return this;
+    }
+
+    public Builder setBatchSize(final int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public Builder setParallelism(final int parallelism) {
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public Builder setHealthWaitSeconds(final long healthWaitSeconds) {
+      this.healthWaitSeconds = healthWaitSeconds;
+      return this;
+    }
+
+    public Builder setDeployerUser(final String deployerUser) {
+      this.deployerUser = deployerUser;
+      return this;
+    }
+
+    public Builder setToken(final String token) {
+      this.token = token;
+      return this;
+    }
+
+    public Builder setState(final State state) {
+      this.state = state;
+      return this;
+    }
+
+    public Builder setHostStates(final Map<String, HostState> hostStates) {
+      this.hostStates = hostStates;
+      return this;
+    }
+
+    public Builder setDeadlines(final Map<String, Long> deadlines) {
+      this.deadlines = deadlines;
+      return this;
+    }
+
+    public Builder setError(final String error) {
+      this.error = error;
+      return this;
+    }
+
+    public Builder setOwner(final String owner) {
+      this.owner = owner;
+      return this;
+    }
+
+    public Builder setLeaseExpiry(final long leaseExpiry) {
+      this.leaseExpiry = leaseExpiry;
+      return this;
+    }
+
+    public Builder setCreated(final long created) {
+      this.created = created;
+      return this;
+    }
+
+    public RollingUpdate build() {
+      return new RollingUpdate(id, oldJob, newJob, hosts, batchSize, parallelism,
+                               healthWaitSeconds, deployerUser, token, state, hostStates,
+                               deadlines, error, owner, leaseExpiry, created);
+    }
+  }
+}
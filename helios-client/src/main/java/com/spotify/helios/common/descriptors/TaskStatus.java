@@ -25,12 +25,14 @@ import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.emptyMap;
 
@@ -46,6 +48,7 @@ import static java.util.Collections.emptyMap;
  *   },
  *   "goal" : "START",
  *   "job" : { #... see the definition of Job },
+ *   "jobId" : "myservice:0.5:3539b7bc2235d53f79e6e8511942bbeaa8816265",
  *   "ports" : {
  *     "http" : {
  *       "externalPort" : 8080,
@@ -62,6 +65,9 @@ import static java.util.Collections.emptyMap;
  *   "throttled" : "NO"
  * },
  * </pre>
+ *
+ * The job is left out of statuses stored without it, see {@link #withoutJob()}. Those only carry
+ * the id of the job, and the job itself has to be looked up separately.
  */
 public class TaskStatus extends Descriptor {
 
@@ -81,6 +87,7 @@ public class TaskStatus extends Descriptor {
   }
 
   private final Job job;
+  private final JobId jobId;
   private final Goal goal;
   private final State state;
   private final String containerId;
@@ -89,7 +96,8 @@ public class TaskStatus extends Descriptor {
   private final Map<String, String> env;
 
   /**
-   * @param job The job the task is running.
+   * @param job The job the task is running, or null if the status was stored without it.
+   * @param jobId The id of the job the task is running. Derived from {@code job} if null.
    * @param goal The desired state of the task.
    * @param state The state of the task.
    * @param containerId The containerId, if the task has one (yet).
@@ -97,14 +105,17 @@ public class TaskStatus extends Descriptor {
    * @param ports The ports actually assigned to the task.
    * @param env The environment passed to the container.
    */
-  public TaskStatus(@JsonProperty("job") final Job job,
+  public TaskStatus(@Nullable @JsonProperty("job") final Job job,
+                    @Nullable @JsonProperty("jobId") final JobId jobId,
                     @Nullable @JsonProperty("goal") final Goal goal,
                     @JsonProperty("state") final State state,
                     @Nullable @JsonProperty("containerId") final String containerId,
                     @JsonProperty("throttled") final ThrottleState throttled,
                     @JsonProperty("ports") final Map<String, PortMapping> ports,
                     @Nullable @JsonProperty("env") final Map<String, String> env) {
-    this.job = checkNotNull(job, "job");
+    checkArgument(job != null || jobId != null, "job or jobId must be set");
+    this.job = job;
+    this.jobId = jobId != null ? jobId : job.getId();
     this.goal = goal; // TODO (dano): add null check when all masters are upgraded
     this.state = checkNotNull(state, "state");
 
@@ -118,6 +129,7 @@ public class TaskStatus extends Descriptor {
   public Builder asBuilder() {
     return newBuilder()
         .setJob(job)
+        .setJobId(jobId)
         .setGoal(goal)
         .setState(state)
         .setContainerId(containerId)
@@ -127,7 +139,9 @@ public class TaskStatus extends Descriptor {
   }
 
   private TaskStatus(final Builder builder) {
-    this.job = checkNotNull(builder.job, "job");
+    checkArgument(builder.job != null || builder.jobId != null, "job or jobId must be set");
+    this.job = builder.job;
+    this.jobId = builder.jobId != null ? builder.jobId : builder.job.getId();
     this.goal = checkNotNull(builder.goal, "goal");
     this.state = checkNotNull(builder.state, "state");
 
@@ -155,10 +169,41 @@ public class TaskStatus extends Descriptor {
     return state;
   }
 
+  /**
+   * @return The job the task is running, or null if the status was stored without it.
+   */
+  @Nullable
+  @JsonInclude(JsonInclude.Include.NON_NULL)
   public Job getJob() {
     return job;
   }
 
+  public JobId getJobId() {
+    return jobId;
+  }
+
+  /**
+   * Returns a copy of this status that only refers to its job by id. Jobs are immutable and
+   * stored under their id, so there is no need to repeat them in every status of every host.
+   */
+  public TaskStatus withoutJob() {
+    if (job == null) {
+      return this;
+    }
+    return asBuilder().setJob(null).build();
+  }
+
+  /**
+   * Returns a copy of this status that includes {@code job}, if it was stored without it.
+   */
+  public TaskStatus withJob(final Job job) {
+    if (this.job != null) {
+      return this;
+    }
+    checkArgument(jobId.equals(job.getId()), "job %s does not match %s", job.getId(), jobId);
+    return asBuilder().setJob(job).build();
+  }
+
   public Map<String, PortMapping> getPorts() {
     return ports;
   }
@@ -171,6 +216,7 @@ public class TaskStatus extends Descriptor {
   public String toString() {
     return Objects.toStringHelper(this)
         .add("job", job)
+        .add("jobId", jobId)
         .add("goal", goal)
         .add("state", state)
         .add("containerId", containerId)
@@ -203,6 +249,9 @@ public class TaskStatus extends Descriptor {
     if (job != null ? !job.equals(that.job) : that.job != null) {
       return false;
     }
+    if (jobId != null ? !jobId.equals(that.jobId) : that.jobId != null) {
+      return false;
+    }
     if (ports != null ? !ports.equals(that.ports) : that.ports != null) {
       return false;
     }
@@ -219,6 +268,7 @@ public class TaskStatus extends Descriptor {
   @Override
   public int hashCode() {
     int result = job != null ? job.hashCode() : 0;
+    result = 31 * result + (jobId != null ? jobId.hashCode() : 0);
     result = 31 * result + (goal != null ? goal.hashCode() : 0);
     result = 31 * result + (state != null ? state.hashCode() : 0);
     result = 31 * result + (containerId != null ? containerId.hashCode() : 0);
@@ -236,6 +286,7 @@ public class TaskStatus extends Descriptor {
     Builder() {}
 
     private Job job;
+    private JobId jobId;
     private Goal goal;
     private State state;
     private String containerId;
@@ -248,6 +299,11 @@ public class TaskStatus extends Descriptor {
       return this;
     }
 
+    public Builder setJobId(final JobId jobId) {
+      this.jobId = jobId;
+      return this;
+    }
+
     public Builder setGoal(Goal goal) {
       this.goal = goal;
       return this;
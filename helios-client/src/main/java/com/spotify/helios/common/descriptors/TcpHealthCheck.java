@@ -23,6 +23,7 @@ package com.spotify.helios.common.descriptors;
 
 import com.google.common.base.Objects;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -31,13 +32,20 @@ public class TcpHealthCheck extends HealthCheck {
 
   private final String port;
 
-  public TcpHealthCheck(@JsonProperty("port") final String port) {
-    super(TCP);
+  public TcpHealthCheck(final String port) {
+    this(port, null, null);
+  }
+
+  @JsonCreator
+  public TcpHealthCheck(@JsonProperty("port") final String port,
+                        @JsonProperty("timeout") final Integer timeout,
+                        @JsonProperty("interval") final Integer interval) {
+    super(TCP, timeout, interval);
     this.port = port;
   }
 
   private TcpHealthCheck(TcpHealthCheck.Builder builder) {
-    super(TCP);
+    super(TCP, builder.timeout, builder.interval);
     port = builder.port;
   }
 
@@ -63,6 +71,14 @@ public class TcpHealthCheck extends HealthCheck {
     if (port != null ? !port.equals(that.port) : that.port != null) {
       return false;
     }
+    if (getTimeout() != null ? !getTimeout().equals(that.getTimeout())
+                             : that.getTimeout() != null) {
+      return false;
+    }
+    if (getInterval() != null ? !getInterval().equals(that.getInterval())
+                              : that.getInterval() != null) {
+      return false;
+    }
 
     return true;
   }
@@ -70,6 +86,8 @@ public class TcpHealthCheck extends HealthCheck {
   @Override
   public int hashCode() {
     int result = port != null ? port.hashCode() : 0;
+    result = 31 * result + (getTimeout() != null ? getTimeout().hashCode() : 0);
+    result = 31 * result + (getInterval() != null ? getInterval().hashCode() : 0);
     return result;
   }
 
@@ -77,6 +95,8 @@ public class TcpHealthCheck extends HealthCheck {
   public String toString() {
     return Objects.toStringHelper(this)
         .add("port", port)
+        .add("timeout", getTimeout())
+        .add("interval", getInterval())
         .toString();
   }
 
@@ -87,6 +107,8 @@ public class TcpHealthCheck extends HealthCheck {
   public static class Builder {
 
     private String port;
+    private Integer timeout;
+    private Integer interval;
 
     public String getPort() {
       return port;
@@ -97,6 +119,24 @@ public class TcpHealthCheck extends HealthCheck {
       return this;
     }
 
+    public Integer getTimeout() {
+      return timeout;
+    }
+
+    public Builder setTimeout(final Integer timeout) {
+      this.timeout = timeout;
+      return this;
+    }
+
+    public Integer getInterval() {
+      return interval;
+    }
+
+    public Builder setInterval(final Integer interval) {
+      this.interval = interval;
+      return this;
+    }
+
     public TcpHealthCheck build() {
       if (isNullOrEmpty(port)) {
         throw new IllegalArgumentException("You must specify the name of a port you opened " +
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.common.protocol;
+
+import com.google.common.base.Objects;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.JobId;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Optional.fromNullable;
+
+/**
+ * A request to roll a set of hosts from one job to another.
+ *
+ * A typical JSON representation might be:
+ * <pre>
+ * {
+ *   "oldJob" : "myservice:0.5:3539b7bc2235d53f79e6e8511942bbeaa8816265",
+ *   "newJob" : "myservice:0.6:9a2d4b3c7a1d5e0f6b8c2e4d1f3a5b7c9d0e2f4a",
+ *   "hosts" : [ ],
+ *   "batchSize" : 2,
+ *   "parallelism" : 4,
+ *   "healthWaitSeconds" : 120
+ * }
+ * </pre>
+ */
+public class RollingUpdateRequest {
+
+  public static final int DEFAULT_BATCH_SIZE = 1;
+  public static final long DEFAULT_HEALTH_WAIT_SECONDS = 120;
+
+  private final JobId oldJob;
+  private final JobId newJob;
+  private final List<String> hosts;
+  private final int batchSize;
+  private final int parallelism;
+  private final long healthWaitSeconds;
+
+  /**
+   * @param oldJob The job to replace, or null to only deploy the new job.
+   * @param newJob The job to deploy.
+   * @param hosts The hosts to update, in order. If empty, every host the old job is deployed to.
+   * @param batchSize How many hosts to update at a time, {@value #DEFAULT_BATCH_SIZE} if null.
+   * @param parallelism How many hosts may be waiting for the new job to come up at a time. The
+   *                    batch size if null.
+   * @param healthWaitSeconds How long to wait for the new job to come up on a host before giving
+   *                          up on the rolling update, {@value #DEFAULT_HEALTH_WAIT_SECONDS} if
+   *                          null.
+   */
+  public RollingUpdateRequest(@JsonProperty("oldJob") @Nullable final JobId oldJob,
+                              @JsonProperty("newJob") final JobId newJob,
+                              @JsonProperty("hosts") @Nullable final List<String> hosts,
+                              @JsonProperty("batchSize") @Nullable final Integer batchSize,
+                              @JsonProperty("parallelism") @Nullable final Integer parallelism,
+                              @JsonProperty("healthWaitSeconds") @Nullable
+                              final Long healthWaitSeconds) {
+    this.oldJob = oldJob;
+    this.newJob = newJob;
+    this.hosts = fromNullable(hosts).or(Collections.<String>emptyList());
+    this.batchSize = fromNullable(batchSize).or(DEFAULT_BATCH_SIZE);
+    this.parallelism = fromNullable(parallelism).or(this.batchSize);
+    this.healthWaitSeconds = fromNullable(healthWaitSeconds).or(DEFAULT_HEALTH_WAIT_SECONDS);
+  }
+
+  @Nullable
+  public JobId getOldJob() {
+    return oldJob;
+  }
+
+  public JobId getNewJob() {
+    return newJob;
+  }
+
+  public List<String> getHosts() {
+    return hosts;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public long getHealthWaitSeconds() {
+    return healthWaitSeconds;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(getClass())
+        .add("oldJob", oldJob)
+        .add("newJob", newJob)
+        .add("hosts", hosts)
+        .add("batchSize", batchSize)
+        .add("parallelism", parallelism)
+        .add("healthWaitSeconds", healthWaitSeconds)
+        .toString();
+  }
+
+  public String toJsonString() {
+    return Json.asStringUnchecked(this);
+  }
+}
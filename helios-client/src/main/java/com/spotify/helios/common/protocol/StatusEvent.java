@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.common.protocol;
+
+import com.google.common.base.Objects;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A change to the state of a host, as reported by the master change feed.
+ *
+ * <ul>
+ * <li>{@link Type#TASK_STATUS}: the status of job {@code jobId} on {@code host} changed to
+ * {@code taskStatus}, or was removed if it is null. The task status is passed on as the agent
+ * stored it, and so might not include the job.</li>
+ * <li>{@link Type#DEPLOYMENT}: the deployment of job {@code jobId} on {@code host} changed to
+ * {@code deployment}, or the job was undeployed if it is null.</li>
+ * <li>{@link Type#HOST_STATUS}: {@code host} went {@code hostStatus}.</li>
+ * </ul>
+ */
+public class StatusEvent {
+
+  public enum Type {TASK_STATUS, DEPLOYMENT, HOST_STATUS}
+
+  private final long version;
+  private final Type type;
+  private final String host;
+  private final JobId jobId;
+  private final TaskStatus taskStatus;
+  private final Deployment deployment;
+  private final HostStatus.Status hostStatus;
+
+  public StatusEvent(@JsonProperty("version") final long version,
+                     @JsonProperty("type") final Type type,
+                     @JsonProperty("host") final String host,
+                     @JsonProperty("jobId") @Nullable final JobId jobId,
+                     @JsonProperty("taskStatus") @Nullable final TaskStatus taskStatus,
+                     @JsonProperty("deployment") @Nullable final Deployment deployment,
+                     @JsonProperty("hostStatus") @Nullable final HostStatus.Status hostStatus) {
+    this.version = version;
+    this.type = type;
+    this.host = host;
+    this.jobId = jobId;
+    this.taskStatus = taskStatus;
+    this.deployment = deployment;
+    this.hostStatus = hostStatus;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  @Nullable
+  public JobId getJobId() {
+    return jobId;
+  }
+
+  @Nullable
+  public TaskStatus getTaskStatus() {
+    return taskStatus;
+  }
+
+  @Nullable
+  public Deployment getDeployment() {
+    return deployment;
+  }
+
+  @Nullable
+  public HostStatus.Status getHostStatus() {
+    return hostStatus;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(getClass())
+        .add("version", version)
+        .add("type", type)
+        .add("host", host)
+        .add("jobId", jobId)
+        .add("taskStatus", taskStatus)
+        .add("deployment", deployment)
+        .add("hostStatus", hostStatus)
+        .toString();
+  }
+
+  public String toJsonString() {
+    return Json.asStringUnchecked(this);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.common.protocol;
+
+import com.google.common.base.Objects;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotify.helios.common.Json;
+
+import java.util.List;
+
+/**
+ * A batch of {@link StatusEvent}s from the master change feed.
+ *
+ * The position in the feed is given by {@code feed}, which identifies the feed of a particular
+ * master, and {@code version}, the version of the last event returned. Pass both to the next
+ * request to get the events that follow. If {@code reset} is true, events might have been missed,
+ * e.g. because the request went to another master, and the state being followed should be read
+ * again.
+ */
+public class StatusEvents {
+
+  private final String feed;
+  private final long version;
+  private final boolean reset;
+  private final List<StatusEvent> events;
+
+  public StatusEvents(@JsonProperty("feed") final String feed,
+                      @JsonProperty("version") final long version,
+                      @JsonProperty("reset") final boolean reset,
+                      @JsonProperty("events") final List<StatusEvent> events) {
+    this.feed = feed;
+    this.version = version;
+    this.reset = reset;
+    this.events = events;
+  }
+
+  public String getFeed() {
+    return feed;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isReset() {
+    return reset;
+  }
+
+  public List<StatusEvent> getEvents() {
+    return events;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(getClass())
+        .add("feed", feed)
+        .add("version", version)
+        .add("reset", reset)
+        .add("events", events)
+        .toString();
+  }
+
+  public String toJsonString() {
+    return Json.asStringUnchecked(this);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndpointHealthTest {
+
+  private static final URI A = URI.create("http://a:5801");
+  private static final URI B = URI.create("http://b:5801");
+  private static final URI C = URI.create("http://c:5801");
+  private static final List<URI> ENDPOINTS = ImmutableList.of(A, B, C);
+
+  private final EndpointHealth health = new EndpointHealth();
+
+  @Test
+  public void testRotatesHealthyEndpoints() {
+    assertEquals(ImmutableList.of(A, B, C), health.order(ENDPOINTS, 0));
+    assertEquals(ImmutableList.of(B, C, A), health.order(ENDPOINTS, 1));
+    assertEquals(ImmutableList.of(C, A, B), health.order(ENDPOINTS, -1));
+    assertEquals(ImmutableList.of(B, C, A), health.order(ENDPOINTS, Integer.MIN_VALUE));
+  }
+
+  @Test
+  public void testFailedEndpointsGoLast() {
+    health.failed(A);
+    health.failed(A);
+    health.failed(B);
+    assertEquals(ImmutableList.of(C, B, A), health.order(ENDPOINTS, 0));
+
+    health.succeeded(A);
+    assertEquals(ImmutableList.of(A, C, B), health.order(ENDPOINTS, 0));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.client;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseCacheTest {
+
+  private static final URI JOBS = URI.create("/jobs?user=foo");
+  private static final byte[] PAYLOAD = "{}".getBytes(UTF_8);
+  private static final Map<String, List<String>> TAGGED =
+      ImmutableMap.of("ETag", asList("\"1\""));
+  private static final Map<String, List<String>> UNTAGGED = ImmutableMap.of();
+
+  private final ResponseCache cache = new ResponseCache(1024);
+
+  @Test
+  public void testServesCachedPayloadWhenNotModified() {
+    cache.update(JOBS, null, new HttpReply(HTTP_OK, TAGGED, PAYLOAD));
+    final ResponseCache.Entry cached = cache.get(JOBS);
+    assertEquals("\"1\"", cached.getETag());
+
+    final HttpReply reply = cache.update(
+        JOBS, cached, new HttpReply(HTTP_NOT_MODIFIED, TAGGED, new byte[0]));
+    assertEquals(HTTP_OK, reply.getStatus());
+    assertArrayEquals(PAYLOAD, reply.getPayload());
+  }
+
+  @Test
+  public void testUntaggedReplyInvalidates() {
+    cache.update(JOBS, null, new HttpReply(HTTP_OK, TAGGED, PAYLOAD));
+    cache.update(JOBS, cache.get(JOBS), new HttpReply(HTTP_OK, UNTAGGED, PAYLOAD));
+    assertNull(cache.get(JOBS));
+  }
+
+  @Test
+  public void testLargePayloadsAreNotKept() {
+    cache.update(JOBS, null, new HttpReply(HTTP_OK, TAGGED, new byte[2048]));
+    assertNull(cache.get(JOBS));
+  }
+}
@@ -21,6 +21,10 @@
 
 package com.spotify.helios.common;
 
+import com.google.common.collect.ImmutableList;
+
+import com.spotify.helios.common.descriptors.Job;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -30,6 +34,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
@@ -108,4 +113,47 @@ public class JsonTest {
                  "  \"foo\" : \"bar\"\n" +
                  "}", json);
   }
+
+  @Test
+  public void verifyCodecMatchesMapper() throws Exception {
+    final Job job = Job.newBuilder()
+        .setName("foo")
+        .setVersion("1")
+        .setImage("busybox")
+        .setCommand(ImmutableList.of("echo", "hello"))
+        .build();
+    final JsonCodec<Job> codec = Json.codec(Job.class);
+
+    final byte[] bytes = codec.asBytes(job);
+    assertArrayEquals(Json.asBytes(job), bytes);
+    assertEquals(job, codec.read(bytes));
+    assertEquals(job, codec.read(new String(bytes, UTF_8)));
+  }
+
+  @Test
+  public void verifySmilePayloadsAreDetected() throws Exception {
+    final Job job = Job.newBuilder()
+        .setName("foo")
+        .setVersion("1")
+        .setImage("busybox")
+        .build();
+    final JsonCodec<Job> codec = Json.codec(Job.class);
+
+    final byte[] smile = codec.asBytes(job, PayloadFormat.SMILE);
+    final byte[] json = codec.asBytes(job, PayloadFormat.JSON);
+    assertEquals(PayloadFormat.SMILE, PayloadFormat.of(smile));
+    assertEquals(PayloadFormat.JSON, PayloadFormat.of(json));
+    assertEquals(job, codec.read(smile));
+    assertEquals(job, codec.read(json));
+    assertEquals(job, Json.read(smile, Job.class));
+  }
+
+  @Test
+  public void verifyPayloadFormatNegotiation() {
+    assertEquals(PayloadFormat.SMILE,
+                 PayloadFormat.negotiate(PayloadFormat.SMILE, PayloadFormat.READABLE));
+    assertEquals(PayloadFormat.JSON,
+                 PayloadFormat.negotiate(PayloadFormat.SMILE, ImmutableList.of("json")));
+    assertEquals(PayloadFormat.JSON, PayloadFormat.negotiate(PayloadFormat.SMILE, null));
+  }
 }
@@ -23,11 +23,15 @@ package com.spotify.helios.common.descriptors;
 
 import com.google.common.collect.ImmutableList;
 
+import com.spotify.helios.common.Json;
+
 import org.junit.Test;
 
 import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 
 public class HealthCheckTest {
 
@@ -50,6 +54,30 @@ public class HealthCheckTest {
     final HttpHealthCheck healthCheck = builder.build();
     assertEquals("port", setPort, healthCheck.getPort());
     assertEquals("path", setPath, healthCheck.getPath());
+    assertNull("timeout", healthCheck.getTimeout());
+    assertNull("interval", healthCheck.getInterval());
+  }
+
+  @Test
+  public void testTimeoutAndInterval() throws Exception {
+    final TcpHealthCheck healthCheck = HealthCheck.newTcpHealthCheck()
+        .setPort("http-admin")
+        .setTimeout(5)
+        .setInterval(10)
+        .build();
+    assertEquals("timeout", Integer.valueOf(5), healthCheck.getTimeout());
+    assertEquals("interval", Integer.valueOf(10), healthCheck.getInterval());
+
+    final HealthCheck parsed = Json.read(Json.asBytes(healthCheck), HealthCheck.class);
+    assertEquals(healthCheck, parsed);
+    assertNotEquals(TcpHealthCheck.of("http-admin"), parsed);
+  }
+
+  @Test
+  public void testParseWithoutTimeoutAndInterval() throws Exception {
+    final HealthCheck parsed = Json.read(
+        "{\"type\":\"http\",\"port\":\"http-admin\",\"path\":\"/\"}", HealthCheck.class);
+    assertEquals(HttpHealthCheck.of("http-admin", "/"), parsed);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -24,6 +24,7 @@ package com.spotify.helios.common.descriptors;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.TaskStatus.State;
 
@@ -33,6 +34,8 @@ import java.util.Map;
 
 import static com.spotify.helios.common.descriptors.Goal.START;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 public class TaskStatusTest {
   private static final Job JOB = Job.newBuilder()
@@ -69,4 +72,27 @@ public class TaskStatusTest {
     assertEquals(1, s.getEnv().size());
     assertEquals("VALUE", s.getEnv().get("VAR"));
   }
+
+  @Test
+  public void testWithoutJob() throws Exception {
+    final TaskStatus compact = STATUS.withoutJob();
+    assertNull(compact.getJob());
+    assertEquals(JOB.getId(), compact.getJobId());
+
+    final String json = Json.asString(compact);
+    assertFalse(json.contains("\"job\""));
+    final TaskStatus read = Json.read(json, TaskStatus.class);
+    assertEquals(compact, read);
+    assertEquals(STATUS, read.withJob(JOB));
+  }
+
+  @Test
+  public void testJobIdOfStatusWithJob() throws Exception {
+    final Map<String, Object> legacy = Json.read(Json.asBytes(STATUS),
+                                                 new TypeReference<Map<String, Object>>() {});
+    legacy.remove("jobId");
+    final TaskStatus read = Json.read(Json.asBytes(legacy), TaskStatus.class);
+    assertEquals(JOB.getId(), read.getJobId());
+    assertEquals(STATUS, read);
+  }
 }
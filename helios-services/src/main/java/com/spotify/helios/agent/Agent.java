@@ -29,7 +29,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractIdleService;
 
-import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.Task;
@@ -42,9 +41,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Predicates.in;
@@ -52,6 +53,7 @@ import static com.google.common.base.Predicates.not;
 import static com.spotify.helios.common.descriptors.Goal.START;
 import static com.spotify.helios.common.descriptors.Goal.UNDEPLOY;
 import static com.spotify.helios.servicescommon.Reactor.Callback;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -84,8 +86,9 @@ public class Agent extends AbstractIdleService {
   private final AgentModel model;
   private final SupervisorFactory supervisorFactory;
   private final ModelListener modelListener = new ModelListener();
-  private final Supervisor.Listener supervisorListener = new SupervisorListener();
   private final Map<JobId, Supervisor> supervisors = Maps.newHashMap();
+  private final Set<JobId> changedJobs = Sets.newConcurrentHashSet();
+  private final AtomicBoolean resyncRequested = new AtomicBoolean(true);
   private final Reactor reactor;
   private final PersistentAtomicReference<Map<JobId, Execution>> executions;
   private final PortAllocator portAllocator;
@@ -136,6 +139,7 @@ public class Agent extends AbstractIdleService {
       supervisor.close();
       supervisor.join();
     }
+    executions.compact();
   }
 
   /**
@@ -148,38 +152,56 @@ public class Agent extends AbstractIdleService {
     final TaskStatus taskStatus = model.getTaskStatus(job.getId());
     final String containerId = (taskStatus == null) ? null : taskStatus.getContainerId();
     final Supervisor supervisor = supervisorFactory.create(job, containerId, portAllocation,
-                                                           supervisorListener);
+                                                           new SupervisorListener(job.getId()));
     supervisors.put(job.getId(), supervisor);
     return supervisor;
   }
 
   /**
-   * Listens to model state updates and signals the reactor.
+   * Listens to model state updates and signals the reactor to reconcile the changed jobs.
    */
   private class ModelListener implements AgentModel.Listener {
 
     @Override
-    public void tasksChanged(final AgentModel model) {
+    public void tasksChanged(final AgentModel model, final Set<JobId> jobIds) {
+      changedJobs.addAll(jobIds);
       reactor.signal();
     }
   }
 
   /**
-   * Listens to supervisor state updates and signals the reactor.
+   * Listens to state updates of the supervisor of a job, and signals the reactor to reconcile
+   * that job.
    */
   private class SupervisorListener implements Supervisor.Listener {
 
+    private final JobId jobId;
+
+    private SupervisorListener(final JobId jobId) {
+      this.jobId = jobId;
+    }
+
     @Override
     public void stateChanged(final Supervisor supervisor) {
+      changedJobs.add(jobId);
       reactor.signal();
     }
   }
 
   /**
    * Starts and stops supervisors to reflect the desired state. Called by the reactor.
+   *
+   * Only jobs that are affected by a change are reconciled: jobs whose task the model reported as
+   * added, removed or changed, jobs whose supervisor changed state, and jobs whose supervisor is
+   * winding down. All jobs are reconciled and unwanted containers reaped on the first run and then
+   * periodically.
    */
   private class Update implements Callback {
 
+    private final Set<JobId> stopping = Sets.newHashSet();
+
+    private long lastResync;
+
     @Override
     public void run(final boolean timeout) throws InterruptedException {
 
@@ -190,7 +212,44 @@ public class Agent extends AbstractIdleService {
       //   to die before spawning a new one.
       // * Book-keeping a supervisor of one job should not block processing of other jobs
 
-      // Reap unwanted containers
+      final long now = System.nanoTime();
+      final boolean resync = timeout || resyncRequested.getAndSet(false) ||
+                             now - lastResync >= MILLISECONDS.toNanos(UPDATE_INTERVAL);
+
+      if (resync) {
+        lastResync = now;
+        reap();
+      }
+
+      // Collect the jobs affected by changes since the last run
+      final Set<JobId> jobs = Sets.newHashSet();
+      if (resync) {
+        jobs.addAll(model.getTasks().keySet());
+        jobs.addAll(executions.get().keySet());
+        jobs.addAll(supervisors.keySet());
+      }
+      for (final Iterator<JobId> it = changedJobs.iterator(); it.hasNext(); ) {
+        jobs.add(it.next());
+        it.remove();
+      }
+      jobs.addAll(stopping);
+
+      if (jobs.isEmpty()) {
+        return;
+      }
+
+      log.debug("reconciling {} jobs (resync: {})", jobs.size(), resync);
+      log.debug("executions: {}", executions.get());
+      log.debug("supervisors: {}", supervisors);
+
+      updateExecutions(jobs);
+      updateSupervisors(jobs);
+    }
+
+    /**
+     * Reap containers that are not owned by any supervisor.
+     */
+    private void reap() throws InterruptedException {
       reaper.reap(new Supplier<Set<String>>() {
         @Override
         public Set<String> get() {
@@ -204,111 +263,100 @@ public class Agent extends AbstractIdleService {
           return active;
         }
       });
+    }
 
-      final Map<JobId, Task> tasks = model.getTasks();
-
-      log.debug("tasks: {}", tasks);
-      log.debug("executions: {}", executions.get());
-      log.debug("supervisors: {}", supervisors);
-
-      // Create and update executions
-      final Map<JobId, Execution> newExecutions = Maps.newHashMap(executions.get());
-      for (Entry<JobId, Task> entry : tasks.entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Task task = entry.getValue();
-        final Execution existing = newExecutions.get(jobId);
-        if (existing != null) {
-          if (existing.getGoal() != task.getGoal()) {
-            final Execution execution = existing.withGoal(task.getGoal());
-            newExecutions.put(jobId, execution);
+    /**
+     * Create and update the executions of {@code jobs} to match their tasks, and persist them.
+     */
+    private void updateExecutions(final Set<JobId> jobs) {
+      final Map<JobId, Execution> current = executions.get();
+      final Map<JobId, Execution> updates = Maps.newHashMap();
+
+      for (final JobId jobId : jobs) {
+        final Task task = model.getTask(jobId);
+        final Execution existing = current.get(jobId);
+        if (task != null) {
+          if (existing == null) {
+            updates.put(jobId, Execution.of(task.getJob()).withGoal(task.getGoal()));
+          } else if (existing.getGoal() != task.getGoal()) {
+            updates.put(jobId, existing.withGoal(task.getGoal()));
           }
-        } else  {
-          newExecutions.put(jobId, Execution.of(task.getJob()).withGoal(task.getGoal()));
-        }
-      }
-
-      // Create undeploy goals for removed tasks
-      for (Entry<JobId, Execution> entry : newExecutions.entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Execution execution = entry.getValue();
-
-        if (!tasks.containsKey(jobId)) {
-          log.debug("Setting UNDEPLOY goal for removed job: {}", execution.getJob());
-          entry.setValue(execution.withGoal(Goal.UNDEPLOY));
+        } else if (existing != null && existing.getGoal() != UNDEPLOY) {
+          // Create undeploy goals for removed tasks
+          log.debug("Setting UNDEPLOY goal for removed job: {}", existing.getJob());
+          updates.put(jobId, existing.withGoal(UNDEPLOY));
         }
       }
 
       // Allocate ports
-      final Map<JobId, Execution> pending = ImmutableMap.copyOf(
-          Maps.filterValues(newExecutions, PORT_ALLOCATION_PENDING));
-      if (!pending.isEmpty()) {
-        final ImmutableSet.Builder<Integer> usedPorts = ImmutableSet.builder();
-        final Map<JobId, Execution> allocated = Maps.filterValues(newExecutions, PORTS_ALLOCATED);
-        for (final Entry<JobId, Execution> entry : allocated.entrySet()) {
-          usedPorts.addAll(entry.getValue().getPorts().values());
+      Set<Integer> usedPorts = null;
+      for (final JobId jobId : jobs) {
+        final Execution execution = updates.containsKey(jobId) ? updates.get(jobId)
+                                                                : current.get(jobId);
+        if (execution == null || !PORT_ALLOCATION_PENDING.apply(execution)) {
+          continue;
         }
-
-        for (final Entry<JobId, Execution> entry : pending.entrySet()) {
-          final JobId jobId = entry.getKey();
-          final Execution execution = entry.getValue();
-          final Job job = execution.getJob();
-          final Map<String, Integer> ports = portAllocator.allocate(job.getPorts(),
-                                                                    usedPorts.build());
-          log.debug("Allocated ports for job {}: {}", jobId, ports);
-          if (ports != null) {
-            newExecutions.put(jobId, execution.withPorts(ports));
-            usedPorts.addAll(ports.values());
-          } else {
-            log.warn("Unable to allocate ports for job: {}", job);
-          }
+        if (usedPorts == null) {
+          usedPorts = usedPorts(current, updates);
+        }
+        final Job job = execution.getJob();
+        final Map<String, Integer> ports = portAllocator.allocate(job.getPorts(),
+                                                                  ImmutableSet.copyOf(usedPorts));
+        log.debug("Allocated ports for job {}: {}", jobId, ports);
+        if (ports != null) {
+          updates.put(jobId, execution.withPorts(ports));
+          usedPorts.addAll(ports.values());
+        } else {
+          log.warn("Unable to allocate ports for job: {}", job);
         }
       }
 
       // Persist executions
-      if (!newExecutions.equals(executions.get())) {
+      if (!updates.isEmpty()) {
+        final Map<JobId, Execution> newExecutions = Maps.newHashMap(current);
+        newExecutions.putAll(updates);
         executions.setUnchecked(ImmutableMap.copyOf(newExecutions));
       }
+    }
 
-      // Remove stopped supervisors.
-      for (final Entry<JobId, Supervisor> entry : ImmutableSet.copyOf(supervisors.entrySet())) {
-        final JobId jobId = entry.getKey();
-        final Supervisor supervisor = entry.getValue();
-        if (supervisor.isStopping() && supervisor.isDone()) {
+    /**
+     * Release, create and update the supervisors of {@code jobs}, and remove the executions of
+     * undeployed jobs once their supervisors are gone.
+     */
+    private void updateSupervisors(final Set<JobId> jobs) throws InterruptedException {
+      final Set<JobId> reapedTasks = Sets.newHashSet();
+      for (final JobId jobId : jobs) {
+        final Execution execution = executions.get().get(jobId);
+        Supervisor supervisor = supervisors.get(jobId);
+
+        // Remove stopped supervisor
+        if (supervisor != null && supervisor.isStopping() && supervisor.isDone()) {
           log.debug("releasing stopped supervisor: {}", jobId);
           supervisors.remove(jobId);
           supervisor.close();
-          reactor.signal();
+          supervisor = null;
         }
-      }
 
-      // Create new supervisors
-      for (final Entry<JobId, Execution> entry : executions.get().entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Execution execution = entry.getValue();
-        final Supervisor supervisor = supervisors.get(jobId);
+        // Create new supervisor
         if (supervisor == null &&
+            execution != null &&
             execution.getGoal() == START &&
             execution.getPorts() != null) {
-          createSupervisor(execution.getJob(), execution.getPorts());
+          supervisor = createSupervisor(execution.getJob(), execution.getPorts());
         }
-      }
-
-      // Update supervisor goals
-      for (final Map.Entry<JobId, Supervisor> entry : supervisors.entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Supervisor supervisor = entry.getValue();
-        final Execution execution = executions.get().get(jobId);
-        supervisor.setGoal(execution.getGoal());
-      }
 
-      // Reap dead executions
-      final Set<JobId> reapedTasks = Sets.newHashSet();
-      for (Entry<JobId, Execution> entry : executions.get().entrySet()) {
-        final JobId jobId = entry.getKey();
-        final Execution execution = entry.getValue();
-        if (execution.getGoal() == UNDEPLOY) {
-          final Supervisor supervisor = supervisors.get(jobId);
-          if (supervisor == null) {
+        if (supervisor != null) {
+          // Update supervisor goal
+          supervisor.setGoal(execution.getGoal());
+          if (execution.getGoal() == START) {
+            stopping.remove(jobId);
+          } else {
+            stopping.add(jobId);
+          }
+        } else {
+          stopping.remove(jobId);
+          // Reap dead execution
+          if (execution != null && execution.getGoal() == UNDEPLOY) {
             reapedTasks.add(jobId);
             log.debug("Removing task: {}", jobId);
             model.removeTaskStatus(jobId);
@@ -324,4 +372,25 @@ public class Agent extends AbstractIdleService {
       }
     }
   }
+
+  /**
+   * Returns the ports allocated to executions, with {@code updates} applied to {@code current}.
+   */
+  private static Set<Integer> usedPorts(final Map<JobId, Execution> current,
+                                        final Map<JobId, Execution> updates) {
+    final Set<Integer> usedPorts = Sets.newHashSet();
+    for (final Entry<JobId, Execution> entry : current.entrySet()) {
+      final Execution execution = updates.containsKey(entry.getKey())
+                                  ? updates.get(entry.getKey()) : entry.getValue();
+      if (PORTS_ALLOCATED.apply(execution)) {
+        usedPorts.addAll(execution.getPorts().values());
+      }
+    }
+    for (final Entry<JobId, Execution> entry : updates.entrySet()) {
+      if (!current.containsKey(entry.getKey()) && PORTS_ALLOCATED.apply(entry.getValue())) {
+        usedPorts.addAll(entry.getValue().getPorts().values());
+      }
+    }
+    return usedPorts;
+  }
 }
@@ -21,6 +21,7 @@
 
 package com.spotify.helios.agent;
 
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.servicescommon.DockerHost;
 
 import io.dropwizard.Configuration;
@@ -43,6 +44,7 @@ public class AgentConfig extends Configuration {
   private int zooKeeperConnectionTimeoutMillis;
   private String zooKeeperNamespace;
   private String zooKeeperClusterId;
+  private PayloadFormat zooKeeperPayloadFormat = PayloadFormat.JSON;
   private Map<String, String> envVars;
   private String redirectToSyslog;
   private boolean inhibitMetrics;
@@ -61,6 +63,11 @@ public class AgentConfig extends Configuration {
   private boolean noHttp;
   private List<String> binds;
   private List<String> kafkaBrokers;
+  private int jobThreads;
+  private int maxConcurrentPulls;
+  private boolean prefetchImages;
+  private long statusCoalesceMillis;
+  private boolean compactTaskStatuses;
 
   public boolean isInhibitMetrics() {
     return inhibitMetrics;
@@ -152,6 +159,15 @@ public class AgentConfig extends Configuration {
     return zooKeeperClusterId;
   }
 
+  public AgentConfig setZooKeeperPayloadFormat(final PayloadFormat zooKeeperPayloadFormat) {
+    this.zooKeeperPayloadFormat = zooKeeperPayloadFormat;
+    return this;
+  }
+
+  public PayloadFormat getZooKeeperPayloadFormat() {
+    return zooKeeperPayloadFormat;
+  }
+
   public AgentConfig setEnvVars(final Map<String, String> envVars) {
     this.envVars = envVars;
     return this;
@@ -290,4 +306,49 @@ public class AgentConfig extends Configuration {
     this.kafkaBrokers = kafkaBrokers;
     return this;
   }
+
+  public int getJobThreads() {
+    return jobThreads;
+  }
+
+  public AgentConfig setJobThreads(final int jobThreads) {
+    this.jobThreads = jobThreads;
+    return this;
+  }
+
+  public int getMaxConcurrentPulls() {
+    return maxConcurrentPulls;
+  }
+
+  public AgentConfig setMaxConcurrentPulls(final int maxConcurrentPulls) {
+    this.maxConcurrentPulls = maxConcurrentPulls;
+    return this;
+  }
+
+  public boolean isPrefetchImages() {
+    return prefetchImages;
+  }
+
+  public AgentConfig setPrefetchImages(final boolean prefetchImages) {
+    this.prefetchImages = prefetchImages;
+    return this;
+  }
+
+  public long getStatusCoalesceMillis() {
+    return statusCoalesceMillis;
+  }
+
+  public AgentConfig setStatusCoalesceMillis(final long statusCoalesceMillis) {
+    this.statusCoalesceMillis = statusCoalesceMillis;
+    return this;
+  }
+
+  public boolean isCompactTaskStatuses() {
+    return compactTaskStatuses;
+  }
+
+  public AgentConfig setCompactTaskStatuses(final boolean compactTaskStatuses) {
+    this.compactTaskStatuses = compactTaskStatuses;
+    return this;
+  }
 }
@@ -21,6 +21,7 @@
 
 package com.spotify.helios.agent;
 
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.common.Version;
 import com.spotify.helios.common.descriptors.AgentInfo;
 import com.spotify.helios.servicescommon.coordination.NodeUpdaterFactory;
@@ -69,6 +70,7 @@ public class AgentInfoReporter extends InterruptingScheduledService {
         .setUptime(runtimeMXBean.getUptime())
         .setStartTime(runtimeMXBean.getStartTime())
         .setVersion(Version.POM_VERSION)
+        .setPayloadFormats(PayloadFormat.READABLE)
         .build();
 
     nodeUpdater.update(agentInfo.toJsonBytes());
@@ -26,6 +26,7 @@ import com.spotify.helios.common.descriptors.Task;
 import com.spotify.helios.common.descriptors.TaskStatus;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Models the desired state of a host as provided by masters and provides a way for an agent to
@@ -40,6 +41,14 @@ public interface AgentModel {
    */
   Map<JobId, Task> getTasks();
 
+  /**
+   * Get a task.
+   *
+   * @param jobId The job ID.
+   * @return The task, or null if the job is not deployed to this host.
+   */
+  Task getTask(JobId jobId);
+
   /**
    * Get a map of the task statuses.
    *
@@ -96,8 +105,9 @@ public interface AgentModel {
     /**
      * The set of tasks changed.
      *
-     * @param model This state.
+     * @param model  This state.
+     * @param jobIds The ids of the jobs whose tasks were added, removed or changed.
      */
-    void tasksChanged(AgentModel model);
+    void tasksChanged(AgentModel model, Set<JobId> jobIds);
   }
 }
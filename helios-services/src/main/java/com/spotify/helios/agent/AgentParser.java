@@ -65,6 +65,11 @@ public class AgentParser extends ServiceParser {
   private Argument dnsArg;
   private Argument bindArg;
   private Argument kafkaArg;
+  private Argument jobThreadsArg;
+  private Argument maxConcurrentPullsArg;
+  private Argument prefetchImagesArg;
+  private Argument statusCoalesceMillisArg;
+  private Argument compactTaskStatusesArg;
 
   public AgentParser(final String... args) throws ArgumentParserException {
     super("helios-agent", "Spotify Helios Agent", args);
@@ -116,6 +121,7 @@ public class AgentParser extends ServiceParser {
         .setZooKeeperConnectionTimeoutMillis(getZooKeeperConnectionTimeoutMillis())
         .setZooKeeperNamespace(getZooKeeperNamespace())
         .setZooKeeperClusterId(getZooKeeperClusterId())
+        .setZooKeeperPayloadFormat(getZooKeeperPayloadFormat())
         .setDomain(getDomain())
         .setEnvVars(envVars)
         .setDockerHost(dockerHost)
@@ -131,7 +137,12 @@ public class AgentParser extends ServiceParser {
         .setAdminPort(options.getInt(adminArg.getDest()))
         .setHttpEndpoint(httpAddress)
         .setNoHttp(options.getBoolean(noHttpArg.getDest()))
-        .setKafkaBrokers(kafkaBrokers.isEmpty() ? null : kafkaBrokers);
+        .setKafkaBrokers(kafkaBrokers.isEmpty() ? null : kafkaBrokers)
+        .setJobThreads(options.getInt(jobThreadsArg.getDest()))
+        .setMaxConcurrentPulls(options.getInt(maxConcurrentPullsArg.getDest()))
+        .setPrefetchImages(options.getBoolean(prefetchImagesArg.getDest()))
+        .setStatusCoalesceMillis(options.getLong(statusCoalesceMillisArg.getDest()))
+        .setCompactTaskStatuses(options.getBoolean(compactTaskStatusesArg.getDest()));
 
     final String explicitId = options.getString(agentIdArg.getDest());
     if (explicitId != null) {
@@ -221,6 +232,37 @@ public class AgentParser extends ServiceParser {
         .action(append())
         .setDefault(new ArrayList<String>())
         .help("Kafka brokers to bootstrap with");
+
+    jobThreadsArg = parser.addArgument("--job-threads")
+        .type(Integer.class)
+        .setDefault(0)
+        .help("Run the supervisors of all jobs on a shared pool of this many threads instead of "
+              + "on threads of their own. Pulling images and stopping containers still get a "
+              + "thread each while they run. 0 to disable.");
+
+    maxConcurrentPullsArg = parser.addArgument("--max-concurrent-pulls")
+        .type(Integer.class)
+        .setDefault(4)
+        .help("The maximum number of images to pull at the same time. Pulls for containers "
+              + "that are about to start go first. 0 for no limit.");
+
+    prefetchImagesArg = parser.addArgument("--prefetch-images")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("Start pulling the image of a job as soon as it is deployed to the agent.");
+
+    statusCoalesceMillisArg = parser.addArgument("--status-coalesce-millis")
+        .type(Long.class)
+        .setDefault(100L)
+        .help("Publish task statuses at most this often per agent, keeping only the latest status "
+              + "of each job. Every status still goes into the task history. 0 to publish each "
+              + "status as it happens.");
+
+    compactTaskStatusesArg = parser.addArgument("--compact-task-statuses")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("Store task statuses and history events in ZooKeeper with only the id of their job "
+              + "instead of the whole job. Only enable once all masters have been upgraded.");
   }
 
   public AgentConfig getAgentConfig() {
@@ -26,6 +26,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Resources;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -74,6 +75,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Charsets.UTF_8;
@@ -108,6 +112,11 @@ public class AgentService extends AbstractIdleService implements Managed {
   private final ZooKeeperAgentModel model;
   private final Metrics metrics;
   private final ServiceRegistrar serviceRegistrar;
+  private final ScheduledExecutorService jobExecutor;
+  private final ExecutorService jobBlockingExecutor;
+  private final ContainerExitWatcher exitWatcher;
+  private final ImageCache imageCache;
+  private final HealthCheckerFactory healthCheckerFactory;
 
   private ZooKeeperRegistrar zkRegistrar;
 
@@ -192,7 +201,8 @@ public class AgentService extends AbstractIdleService implements Managed {
         config.getKafkaBrokers());
     try {
       this.model = new ZooKeeperAgentModel(zkClientProvider, kafkaClientProvider,
-        config.getName(), stateDirectory);
+        config.getName(), stateDirectory, config.getStatusCoalesceMillis(),
+        config.getZooKeeperPayloadFormat(), config.isCompactTaskStatuses());
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -205,7 +215,7 @@ public class AgentService extends AbstractIdleService implements Managed {
     final ZooKeeperNodeUpdaterFactory nodeUpdaterFactory =
         new ZooKeeperNodeUpdaterFactory(zooKeeperClient);
 
-    final DockerClient dockerClient;
+    final PollingDockerClient dockerClient;
     if (isNullOrEmpty(config.getDockerHost().dockerCertPath())) {
       dockerClient = new PollingDockerClient(config.getDockerHost().uri());
     } else {
@@ -222,6 +232,18 @@ public class AgentService extends AbstractIdleService implements Managed {
 
     final DockerClient monitoredDockerClient = MonitoredDockerClient.wrap(riemannFacade,
                                                                           dockerClient);
+    this.exitWatcher = dockerClient.getExitWatcher();
+
+    // Set up the cache of images shared by the supervisors of all jobs
+    this.imageCache = new ImageCache(monitoredDockerClient, metrics.getSupervisorMetrics(),
+                                     config.getMaxConcurrentPulls());
+    if (config.isPrefetchImages()) {
+      model.addListener(new ImagePrefetcher(imageCache));
+    }
+
+    // Set up the health check engine shared by the supervisors of all jobs
+    this.healthCheckerFactory = new HealthCheckerFactory(monitoredDockerClient,
+                                                         config.getDockerHost());
 
     this.hostInfoReporter = HostInfoReporter.newBuilder()
         .setNodeUpdaterFactory(nodeUpdaterFactory)
@@ -253,6 +275,25 @@ public class AgentService extends AbstractIdleService implements Managed {
       decorators.add(new BindVolumeContainerDecorator(config.getBinds()));
     }
 
+    // Set up the executor shared by the supervisors of all jobs, if enabled. Steps that block,
+    // like pulling images and stopping containers, get threads of their own for as long as they
+    // run, so that they do not hold up the jobs sharing the fixed pool.
+    if (config.getJobThreads() > 0) {
+      this.jobExecutor = Executors.newScheduledThreadPool(
+          config.getJobThreads(), new ThreadFactoryBuilder()
+              .setNameFormat("helios-agent-job-%d")
+              .setDaemon(true)
+              .build());
+      this.jobBlockingExecutor = Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("helios-agent-job-blocking-%d")
+              .setDaemon(true)
+              .build());
+    } else {
+      this.jobExecutor = null;
+      this.jobBlockingExecutor = null;
+    }
+
     final SupervisorFactory supervisorFactory = new SupervisorFactory(
         model, monitoredDockerClient,
         config.getEnvVars(), serviceRegistrar,
@@ -262,7 +303,12 @@ public class AgentService extends AbstractIdleService implements Managed {
         metrics.getSupervisorMetrics(),
         namespace,
         config.getDomain(),
-        config.getDns());
+        config.getDns(),
+        jobExecutor,
+        jobBlockingExecutor,
+        exitWatcher,
+        imageCache,
+        healthCheckerFactory);
 
     final ReactorFactory reactorFactory = new ReactorFactory();
 
@@ -271,9 +317,10 @@ public class AgentService extends AbstractIdleService implements Managed {
 
     final PersistentAtomicReference<Map<JobId, Execution>> executions;
     try {
-      executions = PersistentAtomicReference.create(stateDirectory.resolve("executions.json"),
-                                                    JOBID_EXECUTIONS_MAP,
-                                                    Suppliers.ofInstance(EMPTY_EXECUTIONS));
+      executions = PersistentAtomicReference.createLogged(
+          stateDirectory.resolve("executions.json"),
+          JOBID_EXECUTIONS_MAP,
+          Suppliers.ofInstance(EMPTY_EXECUTIONS));
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
@@ -336,6 +383,7 @@ public class AgentService extends AbstractIdleService implements Managed {
     logBanner();
     zkRegistrar.startAsync().awaitRunning();
     model.startAsync().awaitRunning();
+    exitWatcher.startAsync().awaitRunning();
     agent.startAsync().awaitRunning();
     hostInfoReporter.startAsync();
     agentInfoReporter.startAsync();
@@ -368,6 +416,13 @@ public class AgentService extends AbstractIdleService implements Managed {
     agentInfoReporter.stopAsync().awaitTerminated();
     environmentVariableReporter.stopAsync().awaitTerminated();
     agent.stopAsync().awaitTerminated();
+    if (jobExecutor != null) {
+      jobExecutor.shutdownNow();
+      jobBlockingExecutor.shutdownNow();
+    }
+    exitWatcher.stopAsync().awaitTerminated();
+    imageCache.close();
+    healthCheckerFactory.close();
 
     if (serviceRegistrar != null) {
       serviceRegistrar.close();
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import com.spotify.docker.client.ContainerNotFoundException;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerException;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.ContainerExit;
+import com.spotify.docker.client.messages.ContainerInfo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Watches for the exit of containers that are being waited for, using a single listing of the
+ * running containers per interval for all of them instead of inspecting each of them. Only
+ * containers that have dropped out of the listing are inspected, to get their exit code.
+ */
+public class ContainerExitWatcher extends InterruptingScheduledService {
+
+  private static final Logger log = LoggerFactory.getLogger(ContainerExitWatcher.class);
+
+  static final long LIST_INTERVAL_MILLIS =
+      Long.getLong("HELIOS_WAIT_LIST_INTERVAL_MILLIS", 1000);
+
+  private final DockerClient docker;
+  private final ConcurrentMap<String, SettableFuture<ContainerExit>> exits = newConcurrentMap();
+
+  public ContainerExitWatcher(final DockerClient docker) {
+    this.docker = docker;
+  }
+
+  /**
+   * Returns a future that is completed when the container exits. It fails with
+   * {@link ContainerNotFoundException} if the container is removed.
+   *
+   * @param containerId The id of the container.
+   * @return The exit of the container.
+   */
+  public ListenableFuture<ContainerExit> exit(final String containerId) {
+    final SettableFuture<ContainerExit> exit = SettableFuture.create();
+    final SettableFuture<ContainerExit> existing = exits.putIfAbsent(containerId, exit);
+    return existing == null ? exit : existing;
+  }
+
+  @Override
+  protected void runOneIteration() throws InterruptedException {
+    if (exits.isEmpty()) {
+      return;
+    }
+
+    final Set<String> running = Sets.newHashSet();
+    try {
+      for (final Container container : docker.listContainers()) {
+        running.add(container.id());
+      }
+    } catch (DockerException e) {
+      log.warn("failed to list containers", e);
+      return;
+    }
+
+    for (final Map.Entry<String, SettableFuture<ContainerExit>> entry : exits.entrySet()) {
+      final String containerId = entry.getKey();
+      if (running.contains(containerId)) {
+        continue;
+      }
+      final SettableFuture<ContainerExit> exit = entry.getValue();
+      try {
+        final ContainerInfo info = docker.inspectContainer(containerId);
+        if (!info.state().running()) {
+          exits.remove(containerId, exit);
+          exit.set(new ContainerExit(info.state().exitCode()));
+        }
+      } catch (ContainerNotFoundException e) {
+        exits.remove(containerId, exit);
+        exit.setException(e);
+      } catch (DockerException e) {
+        log.warn("failed to inspect container {}", containerId, e);
+      }
+    }
+  }
+
+  @Override
+  protected ScheduledFuture<?> schedule(final Runnable runnable,
+                                        final ScheduledExecutorService executorService) {
+    return executorService.scheduleWithFixedDelay(runnable, 0, LIST_INTERVAL_MILLIS,
+                                                  MILLISECONDS);
+  }
+}
@@ -21,9 +21,15 @@
 
 package com.spotify.helios.agent;
 
-import com.spotify.docker.client.DockerException;
+import com.google.common.util.concurrent.ListenableFuture;
 
 public interface HealthChecker {
-  public boolean check(String containerId)
-      throws InterruptedException, DockerException;
+
+  /**
+   * Checks a container once, without blocking.
+   *
+   * @return A future that completes with true if the container is healthy and false if it is
+   *         not, or fails if the container cannot be health checked at all.
+   */
+  public ListenableFuture<Boolean> check(String containerId);
 }
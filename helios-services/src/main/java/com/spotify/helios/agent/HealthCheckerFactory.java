@@ -19,11 +19,26 @@
  * under the License.
  */
 
+
 package com.spotify.helios.agent;
 
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.DockerException;
@@ -37,49 +52,207 @@ import com.spotify.helios.servicescommon.DockerHost;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.URL;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Creates the health checkers of the jobs on an agent. All health checkers made by a factory share
+ * its resources: TCP and HTTP checks are made on non-blocking channels driven by a single selector
+ * thread, and the docker calls of exec checks run on a shared pool. Whether docker supports exec
+ * checks, and the bridge gateways used to reach containers over loopback, are cached.
+ */
 public class HealthCheckerFactory {
 
-  public static HealthChecker create(final TaskConfig taskConfig, final DockerClient docker,
-                                     final DockerHost dockerHost) {
+  private static final Logger log = LoggerFactory.getLogger(HealthCheckerFactory.class);
+
+  private static final long CONNECT_TIMEOUT_MILLIS = 500;
+  private static final long READ_TIMEOUT_MILLIS = SECONDS.toMillis(10);
+
+  /**
+   * How long to remember whether docker supports exec health checks. Docker could be upgraded
+   * while the agent is running.
+   */
+  private static final long DOCKER_VERSION_CACHE_MINUTES = 10;
+
+  private final DockerClient docker;
+  private final DockerHost dockerHost;
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("helios-health-check-timer-%d").setDaemon(true)
+          .build());
+  private final ListeningExecutorService dockerExecutor = MoreExecutors.listeningDecorator(
+      Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                                        .setNameFormat("helios-health-check-docker-%d")
+                                        .setDaemon(true).build()));
+  private final SocketProber prober = new SocketProber(timer);
+  private final Supplier<Boolean> execSupported;
+  private final Cache<String, String> gateways = CacheBuilder.newBuilder()
+      .expireAfterAccess(10, MINUTES)
+      .build();
+
+  public HealthCheckerFactory(final DockerClient docker, final DockerHost dockerHost) {
+    this.docker = docker;
+    this.dockerHost = dockerHost;
+    this.execSupported = execSupported(docker);
+  }
+
+  /**
+   * Create the health checker of a task.
+   *
+   * @return The health checker, or null if the task has no health check.
+   */
+  public HealthChecker create(final TaskConfig taskConfig) {
     final HealthCheck healthCheck = taskConfig.healthCheck();
 
     if (healthCheck == null) {
       return null;
     } else if (healthCheck instanceof ExecHealthCheck) {
-      return new ExecHealthChecker((ExecHealthCheck) healthCheck, docker);
+      final HealthChecker checker = new ExecHealthChecker(
+          (ExecHealthCheck) healthCheck, docker, execSupported, dockerExecutor);
+      return healthCheck.getTimeout() == null
+             ? checker
+             : withTimeout(checker, SECONDS.toMillis(healthCheck.getTimeout()));
     } else if (healthCheck instanceof HttpHealthCheck) {
-      return new HttpHealthChecker((HttpHealthCheck) healthCheck, taskConfig, dockerHost);
+      return new HttpHealthChecker((HttpHealthCheck) healthCheck, taskConfig);
     } else if (healthCheck instanceof TcpHealthCheck) {
-      return new TcpHealthChecker((TcpHealthCheck) healthCheck, taskConfig, docker, dockerHost);
+      return new TcpHealthChecker((TcpHealthCheck) healthCheck, taskConfig);
     }
 
     throw new IllegalArgumentException("Unknown healthCheck type");
   }
 
+  /**
+   * Stops the threads shared by the health checkers. Checks in flight fail.
+   */
+  public void close() {
+    prober.close();
+    timer.shutdownNow();
+    dockerExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns whether docker supports exec health checks. The answer is remembered for a while, but
+   * failures to ask docker are not.
+   */
+  static Supplier<Boolean> execSupported(final DockerClient docker) {
+    return Suppliers.memoizeWithExpiration(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        try {
+          return compatibleDockerVersion(docker.info().executionDriver(),
+                                         docker.version().apiVersion());
+        } catch (DockerException e) {
+          throw Throwables.propagate(e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw Throwables.propagate(e);
+        }
+      }
+    }, DOCKER_VERSION_CACHE_MINUTES, MINUTES);
+  }
+
+  private static boolean compatibleDockerVersion(final String executionDriver,
+                                                 final String apiVersion) {
+    if (Strings.isNullOrEmpty(executionDriver) || !executionDriver.startsWith("native")) {
+      return false;
+    }
+    if (Strings.isNullOrEmpty(apiVersion)) {
+      return false;
+    }
+
+    final Iterable<String> split = Splitter.on(".").split(apiVersion);
+    final int major = Integer.parseInt(Iterables.get(split, 0, "0"));
+    final int minor = Integer.parseInt(Iterables.get(split, 1, "0"));
+    return major == 1 && minor >= 18;
+  }
+
+  /**
+   * Makes the checks of a health checker fail if they do not complete in time.
+   */
+  private HealthChecker withTimeout(final HealthChecker checker, final long timeoutMillis) {
+    return new HealthChecker() {
+      @Override
+      public ListenableFuture<Boolean> check(final String containerId) {
+        final SettableFuture<Boolean> result = SettableFuture.create();
+        final ListenableFuture<Boolean> check = checker.check(containerId);
+        final ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            if (result.set(false)) {
+              check.cancel(true);
+            }
+          }
+        }, timeoutMillis, MILLISECONDS);
+        Futures.addCallback(check, new FutureCallback<Boolean>() {
+          @Override
+          public void onSuccess(final Boolean healthy) {
+            timeout.cancel(false);
+            result.set(healthy);
+          }
+
+          @Override
+          public void onFailure(final Throwable t) {
+            timeout.cancel(false);
+            result.setException(t);
+          }
+        });
+        return result;
+      }
+    };
+  }
+
+  private static long timeoutMillis(final HealthCheck healthCheck, final long defaultMillis) {
+    return healthCheck.getTimeout() == null
+           ? defaultMillis
+           : SECONDS.toMillis(healthCheck.getTimeout());
+  }
+
   static class ExecHealthChecker implements HealthChecker {
 
     private static final Logger log = LoggerFactory.getLogger(ExecHealthChecker.class);
 
     private final ExecHealthCheck healthCheck;
     private final DockerClient docker;
+    private final Supplier<Boolean> execSupported;
+    private final ListeningExecutorService executor;
 
-    ExecHealthChecker(final ExecHealthCheck healthCheck, final DockerClient docker) {
+    ExecHealthChecker(final ExecHealthCheck healthCheck, final DockerClient docker,
+                      final Supplier<Boolean> execSupported,
+                      final ListeningExecutorService executor) {
       this.healthCheck = healthCheck;
       this.docker = docker;
+      this.execSupported = execSupported;
+      this.executor = executor;
     }
 
     @Override
-    public boolean check(final String containerId) {
+    public ListenableFuture<Boolean> check(final String containerId) {
+      return executor.submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return checkNow(containerId);
+        }
+      });
+    }
+
+    private boolean checkNow(final String containerId) {
       // Make sure we are on a docker version that supports exec health checks
-      if (!compatibleDockerVersion(docker)) {
+      final boolean supported;
+      try {
+        supported = execSupported.get();
+      } catch (RuntimeException e) {
+        log.warn("failed to get docker version for exec health check", e);
+        return false;
+      }
+      if (!supported) {
         throw new UnsupportedOperationException(
             "docker exec healthcheck is not supported on your docker version");
       }
@@ -109,105 +282,94 @@ public class HealthCheckerFactory {
         return false;
       }
     }
-
-    private static boolean compatibleDockerVersion(final DockerClient docker) {
-      final String executionDriver;
-      final String apiVersion;
-      try {
-        executionDriver = docker.info().executionDriver();
-        apiVersion = docker.version().apiVersion();
-      } catch (DockerException e) {
-        return false;
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        return false;
-      }
-
-      if (Strings.isNullOrEmpty(executionDriver) || !executionDriver.startsWith("native")) {
-        return false;
-      }
-      if (Strings.isNullOrEmpty(apiVersion)) {
-        return false;
-      }
-
-      final Iterable<String> split = Splitter.on(".").split(apiVersion);
-      final int major = Integer.parseInt(Iterables.get(split, 0, "0"));
-      final int minor = Integer.parseInt(Iterables.get(split, 1, "0"));
-      return major == 1 && minor >= 18;
-    }
   }
 
-  private static class HttpHealthChecker implements HealthChecker {
-
-    private static final int CONNECT_TIMEOUT_MILLIS = 500;
-    private static final long READ_TIMEOUT_MILLIS = SECONDS.toMillis(10);
+  private class HttpHealthChecker implements HealthChecker {
 
     private final HttpHealthCheck healthCheck;
     private final TaskConfig taskConfig;
-    private final DockerHost dockerHost;
 
-    private HttpHealthChecker(final HttpHealthCheck healthCheck, final TaskConfig taskConfig,
-                              final DockerHost dockerHost) {
+    private HttpHealthChecker(final HttpHealthCheck healthCheck, final TaskConfig taskConfig) {
       this.healthCheck = healthCheck;
       this.taskConfig = taskConfig;
-      this.dockerHost = dockerHost;
     }
 
     @Override
-    public boolean check(final String containerId) throws InterruptedException, DockerException {
+    public ListenableFuture<Boolean> check(final String containerId) {
       final Integer port = taskConfig.ports().get(healthCheck.getPort()).getExternalPort();
-
-      try {
-        final URL url = new URL("http", dockerHost.address(), port, healthCheck.getPath());
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
-        conn.setReadTimeout((int) READ_TIMEOUT_MILLIS);
-
-        final int response = conn.getResponseCode();
-        return response >= 200 && response <= 399;
-      } catch (Exception e) {
-        return false;
+      final InetSocketAddress address = new InetSocketAddress(dockerHost.address(), port);
+      if (address.isUnresolved()) {
+        return Futures.immediateFuture(false);
       }
+      final long timeoutMillis = timeoutMillis(healthCheck, READ_TIMEOUT_MILLIS);
+      final long connectTimeoutMillis = healthCheck.getTimeout() == null
+                                        ? CONNECT_TIMEOUT_MILLIS
+                                        : timeoutMillis;
+      return prober.get(address, healthCheck.getPath(), connectTimeoutMillis, timeoutMillis);
     }
   }
 
-  private static class TcpHealthChecker implements HealthChecker {
-
-    private static final int CONNECT_TIMEOUT_MILLIS = 500;
+  private class TcpHealthChecker implements HealthChecker {
 
     private final TcpHealthCheck healthCheck;
     private final TaskConfig taskConfig;
-    private final DockerClient docker;
-    private final DockerHost dockerHost;
-
 
-    private TcpHealthChecker(final TcpHealthCheck healthCheck, final TaskConfig taskConfig,
-                             final DockerClient docker, final DockerHost dockerHost) {
+    private TcpHealthChecker(final TcpHealthCheck healthCheck, final TaskConfig taskConfig) {
       this.healthCheck = healthCheck;
       this.taskConfig = taskConfig;
-      this.docker = docker;
-      this.dockerHost = dockerHost;
     }
 
     @Override
-    public boolean check(final String containerId) throws InterruptedException, DockerException {
+    public ListenableFuture<Boolean> check(final String containerId) {
       final Integer port = taskConfig.ports().get(healthCheck.getPort()).getExternalPort();
+      final long timeoutMillis = timeoutMillis(healthCheck, CONNECT_TIMEOUT_MILLIS);
 
-      InetSocketAddress address = new InetSocketAddress(dockerHost.address(), port);
-      if (address.getAddress().isLoopbackAddress()) {
-        // tcp connections to a container-mapped port on loopback always succeed,
-        // regardless of if the container is listening or not. use the bridge address instead.
-        final String bridge = docker.inspectContainer(containerId).networkSettings().gateway();
-        address = new InetSocketAddress(bridge, port);
+      final InetSocketAddress address = new InetSocketAddress(dockerHost.address(), port);
+      if (address.isUnresolved()) {
+        return Futures.immediateFuture(false);
+      }
+      if (!address.getAddress().isLoopbackAddress()) {
+        return prober.connect(address, timeoutMillis);
       }
 
-      try (final Socket s = new Socket()) {
-        s.connect(address, CONNECT_TIMEOUT_MILLIS);
-      } catch (Exception e) {
-        return false;
+      // tcp connections to a container-mapped port on loopback always succeed,
+      // regardless of if the container is listening or not. use the bridge address instead.
+      final String bridge = gateways.getIfPresent(containerId);
+      if (bridge != null) {
+        return prober.connect(new InetSocketAddress(bridge, port), timeoutMillis);
       }
+      final ListenableFuture<String> gateway = dockerExecutor.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return gateway(containerId);
+        }
+      });
+      return Futures.transform(gateway, new AsyncFunction<String, Boolean>() {
+        @Override
+        public ListenableFuture<Boolean> apply(final String bridge) {
+          if (bridge == null) {
+            return Futures.immediateFuture(false);
+          }
+          return prober.connect(new InetSocketAddress(bridge, port), timeoutMillis);
+        }
+      });
+    }
 
-      return true;
+    /**
+     * Returns the bridge gateway of a container, or null if it could not be found.
+     */
+    private String gateway(final String containerId) {
+      try {
+        return gateways.get(containerId, new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return docker.inspectContainer(containerId).networkSettings().gateway();
+          }
+        });
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        log.warn("failed to get bridge gateway of container {}", containerId, e.getCause());
+        return null;
+      }
     }
   }
 }
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.agent;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.DockerException;
+import com.spotify.docker.client.DockerTimeoutException;
+import com.spotify.docker.client.ImageNotFoundException;
+import com.spotify.docker.client.ImagePullFailedException;
+import com.spotify.docker.client.messages.ImageInfo;
+import com.spotify.helios.common.descriptors.ImagePullPolicy;
+import com.spotify.helios.servicescommon.statistics.SupervisorMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.spotify.helios.common.descriptors.ImagePullPolicy.ALWAYS;
+import static com.spotify.helios.common.descriptors.ImagePullPolicy.IF_NOT_PRESENT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps track of the images present on the agent, so that containers can be started without a
+ * round trip to the registry when the pull policy of their job allows it. Concurrent pulls of the
+ * same image, e.g. by the task runners of several jobs, are collapsed into a single pull, and the
+ * number of pulls running at the same time can be limited.
+ *
+ * Images can also be pulled speculatively using {@link #prefetch(String, ImagePullPolicy)}, e.g.
+ * as soon as a job is deployed to the agent. Speculative pulls give way to the pulls of
+ * containers that are about to start.
+ *
+ * An image that is removed from docker behind the back of the agent stays cached until
+ * {@link #invalidate(String)} is called for it.
+ */
+public class ImageCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ImageCache.class);
+
+  /**
+   * How long a speculative pull of an image that is always pulled stands in for the pull done
+   * when the container is started.
+   */
+  private static final long PREFETCH_VALIDITY_MILLIS = MINUTES.toMillis(5);
+
+  private static final TaskRunner.Listener NOP_LISTENER = new TaskRunner.NopListener();
+
+  private final ConcurrentMap<String, CachedImage> images = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, Pull> pulls = Maps.newConcurrentMap();
+  private final ExecutorService prefetchExecutor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("helios-image-prefetch-%d").setDaemon(true).build());
+  private final DockerClient docker;
+  private final SupervisorMetrics metrics;
+  private final PullScheduler scheduler;
+
+  public ImageCache(final DockerClient docker, final SupervisorMetrics metrics) {
+    this(docker, metrics, 0);
+  }
+
+  /**
+   * @param maxConcurrentPulls The maximum number of pulls to run at the same time, or 0 for no
+   *                           limit.
+   */
+  public ImageCache(final DockerClient docker, final SupervisorMetrics metrics,
+                    final int maxConcurrentPulls) {
+    this.docker = checkNotNull(docker, "docker");
+    this.metrics = checkNotNull(metrics, "metrics");
+    this.scheduler = new PullScheduler(maxConcurrentPulls);
+  }
+
+  /**
+   * Returns the info of an image, pulling the image first unless the pull policy allows using an
+   * image that is already present.
+   *
+   * @param image    The image reference.
+   * @param policy   The pull policy of the job, or null for the default policy.
+   * @param listener Told about the pull, if there is one.
+   * @return The image info.
+   */
+  public ImageInfo get(final String image, final ImagePullPolicy policy,
+                       final TaskRunner.Listener listener)
+      throws DockerException, InterruptedException {
+    final ImageInfo info = mustPull(image, policy) ? prefetched(image) : present(image);
+    if (info != null) {
+      metrics.imageCacheHit();
+      return info;
+    }
+    metrics.imageCacheMiss();
+    return pull(image, true, listener);
+  }
+
+  /**
+   * Starts pulling an image in the background, if the pull policy says that it would be pulled
+   * when starting a container. Returns immediately.
+   *
+   * @param image  The image reference.
+   * @param policy The pull policy of the job, or null for the default policy.
+   */
+  public void prefetch(final String image, final ImagePullPolicy policy) {
+    if (pulls.containsKey(image) || (!mustPull(image, policy) && images.containsKey(image))) {
+      return;
+    }
+    try {
+      prefetchExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (!mustPull(image, policy) && present(image) != null) {
+              return;
+            }
+            log.info("Prefetching image {}", image);
+            pull(image, false, NOP_LISTENER);
+          } catch (InterruptedException e) {
+            log.debug("Prefetching image {} was interrupted", image);
+          } catch (Exception e) {
+            log.warn("Prefetching image {} failed", image, e);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      log.debug("Not prefetching image {}, image cache is closed", image);
+    }
+  }
+
+  /**
+   * Forgets about an image, e.g. because creating a container from it failed.
+   */
+  public void invalidate(final String image) {
+    images.remove(image);
+  }
+
+  /**
+   * Stops all speculative pulls.
+   */
+  public void close() {
+    prefetchExecutor.shutdownNow();
+  }
+
+  private static boolean mustPull(final String image, final ImagePullPolicy policy) {
+    if (policy == ALWAYS) {
+      return true;
+    } else if (policy == IF_NOT_PRESENT) {
+      return false;
+    } else {
+      // Images referenced by digest cannot change, tags can be moved to another image
+      return !image.contains("@");
+    }
+  }
+
+  /**
+   * Returns the info of an image if it is present on the agent, or null if it is not.
+   */
+  private ImageInfo present(final String image) throws DockerException, InterruptedException {
+    final CachedImage cached = images.get(image);
+    if (cached != null) {
+      log.debug("Using image {}, present since {}s ago", image,
+                SECONDS.convert(System.currentTimeMillis() - cached.since, MILLISECONDS));
+      return cached.info;
+    }
+    try {
+      final ImageInfo info = docker.inspectImage(image);
+      cache(image, info, false);
+      return info;
+    } catch (ImageNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the info of an image if it was pulled speculatively a short while ago, or null if it
+   * was not. The speculative pull only stands in for one actual pull.
+   */
+  private ImageInfo prefetched(final String image) {
+    final CachedImage cached = images.get(image);
+    if (cached == null || !cached.prefetched ||
+        System.currentTimeMillis() - cached.since > PREFETCH_VALIDITY_MILLIS) {
+      return null;
+    }
+    if (!images.replace(image, cached, new CachedImage(cached.info, cached.since, false))) {
+      return null;
+    }
+    log.info("Using prefetched image {}", image);
+    return cached.info;
+  }
+
+  private ImageInfo pull(final String image, final boolean urgent,
+                         final TaskRunner.Listener listener)
+      throws DockerException, InterruptedException {
+    while (true) {
+      final Pull pull = new Pull(scheduler.ticket(urgent));
+      final Pull existing = pulls.putIfAbsent(image, pull);
+
+      if (existing == null) {
+        try {
+          final ImageInfo info = pull0(image, pull, listener);
+          // A speculative pull that a container waited for has already served its purpose
+          cache(image, info, !scheduler.isUrgent(pull.ticket));
+          pull.future.set(info);
+          return info;
+        } catch (DockerException | InterruptedException | RuntimeException e) {
+          pull.future.setException(e);
+          throw e;
+        } finally {
+          pulls.remove(image, pull);
+        }
+      }
+
+      // Someone else is already pulling the image, wait for them to finish
+      log.info("Waiting for ongoing pull of image {}", image);
+      if (urgent) {
+        scheduler.escalate(existing.ticket);
+      }
+      listener.pulling();
+      try {
+        final ImageInfo info = existing.future.get();
+        listener.pulled();
+        return info;
+      } catch (ExecutionException e) {
+        listener.pullFailed();
+        final Throwable cause = e.getCause();
+        if (cause instanceof InterruptedException) {
+          // The puller was stopped, not us. Try again.
+          continue;
+        }
+        Throwables.propagateIfInstanceOf(cause, DockerException.class);
+        throw Throwables.propagate(cause);
+      }
+    }
+  }
+
+  private ImageInfo pull0(final String image, final Pull pull, final TaskRunner.Listener listener)
+      throws DockerException, InterruptedException {
+    // The task is in the PULLING_IMAGE state while the pull is queued as well
+    listener.pulling();
+    final Stopwatch queueTime = Stopwatch.createStarted();
+    final int queued = scheduler.waiting();
+    scheduler.acquire(pull.ticket);
+    if (queued > 0) {
+      log.info("Pull of image {} waited {}s behind {} other pulls", image,
+               queueTime.elapsed(SECONDS), queued);
+    }
+
+    DockerTimeoutException wasTimeout = null;
+    final Stopwatch pullTime = Stopwatch.createStarted();
+
+    // Attempt to pull.  Failure, while less than ideal, is ok.
+    try {
+      docker.pull(image);
+      listener.pulled();
+      log.info("Pulled image {} in {}s", image, pullTime.elapsed(SECONDS));
+    } catch (DockerTimeoutException e) {
+      log.warn("Pulling image {} failed with timeout after {}s", image,
+               pullTime.elapsed(SECONDS), e);
+      listener.pullFailed();
+      wasTimeout = e;
+    } catch (DockerException e) {
+      log.warn("Pulling image {} failed after {}s", image, pullTime.elapsed(SECONDS), e);
+      listener.pullFailed();
+    } finally {
+      scheduler.release();
+    }
+
+    try {
+      // If we don't have the image by now, fail.
+      return docker.inspectImage(image);
+    } catch (ImageNotFoundException e) {
+      // If we get not found, see if we timed out above, since that's what we actually care
+      // to know, as the pull should have fixed the not found-ness.
+      if (wasTimeout != null) {
+        throw new ImagePullFailedException("Failed pulling image " + image + " because of timeout",
+            wasTimeout);
+      }
+      throw e;
+    }
+  }
+
+  private void cache(final String image, final ImageInfo info, final boolean prefetched) {
+    if (info != null) {
+      images.put(image, new CachedImage(info, System.currentTimeMillis(), prefetched));
+    }
+  }
+
+  private static class CachedImage {
+
+    private final ImageInfo info;
+    private final long since;
+    private final boolean prefetched;
+
+    private CachedImage(final ImageInfo info, final long since, final boolean prefetched) {
+      this.info = info;
+      this.since = since;
+      this.prefetched = prefetched;
+    }
+  }
+
+  private static class Pull {
+
+    private final SettableFuture<ImageInfo> future = SettableFuture.create();
+    private final PullScheduler.Ticket ticket;
+
+    private Pull(final PullScheduler.Ticket ticket) {
+      this.ticket = ticket;
+    }
+  }
+}
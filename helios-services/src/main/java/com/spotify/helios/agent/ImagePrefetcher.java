@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.Sets;
+
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.Task;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.spotify.helios.common.descriptors.Goal.START;
+
+/**
+ * Starts pulling the images of jobs as soon as they are deployed to the agent, before their
+ * supervisors are created.
+ */
+class ImagePrefetcher implements AgentModel.Listener {
+
+  private final ImageCache imageCache;
+  private final Set<JobId> seen = Sets.newHashSet();
+
+  ImagePrefetcher(final ImageCache imageCache) {
+    this.imageCache = imageCache;
+  }
+
+  @Override
+  public synchronized void tasksChanged(final AgentModel model, final Set<JobId> jobIds) {
+    final Map<JobId, Task> tasks = model.getTasks();
+    seen.retainAll(tasks.keySet());
+    for (final Map.Entry<JobId, Task> entry : tasks.entrySet()) {
+      final JobId jobId = entry.getKey();
+      final Task task = entry.getValue();
+      if (task.getGoal() != START) {
+        seen.remove(jobId);
+        continue;
+      }
+      if (!seen.add(jobId)) {
+        continue;
+      }
+      // Jobs that already have a status were deployed before, their containers are likely to be
+      // running already.
+      if (model.getTaskStatus(jobId) != null) {
+        continue;
+      }
+      final Job job = task.getJob();
+      imageCache.prefetch(job.getImage(), job.getImagePullPolicy());
+    }
+  }
+}
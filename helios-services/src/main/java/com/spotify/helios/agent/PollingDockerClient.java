@@ -19,8 +19,11 @@
  * under the License.
  */
 
+
 package com.spotify.helios.agent;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import com.spotify.docker.client.DefaultDockerClient;
 import com.spotify.docker.client.DockerCertificates;
 import com.spotify.docker.client.DockerException;
@@ -28,16 +31,27 @@ import com.spotify.docker.client.messages.ContainerExit;
 import com.spotify.docker.client.messages.ContainerInfo;
 
 import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.base.Throwables.propagate;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * A {@code DockerClient} that overrides {@link #waitContainer} to poll instead of block
  * indefinitely.  See the source code for details as to why this needs to exist.
+ *
+ * The exits of all waited-for containers are detected by one {@link ContainerExitWatcher}, which
+ * lists the running containers once per interval while it is running. Each waiter also inspects
+ * its container every few seconds, in case the watcher misses the exit or has not been started.
  */
 public class PollingDockerClient extends DefaultDockerClient {
 
-  private static final long WAIT_INSPECT_INTERVAL_MILLIS =
+  static final long WAIT_INSPECT_INTERVAL_MILLIS =
       Long.getLong("HELIOS_WAIT_INSPECT_INTERVAL_MILLIS", 5000);
 
+  private final ContainerExitWatcher exitWatcher = new ContainerExitWatcher(this);
+
   public PollingDockerClient(final String uri) {
     super(uri);
   }
@@ -57,12 +71,29 @@ public class PollingDockerClient extends DefaultDockerClient {
     //             agent hang forever on waitContainer after the socket got into a weird half-open
     //             state where the kernel (netstat/lsof) would only show one end of the connection
     //             and restarting docker would not close the socket. ¯\_(ツ)_/¯
+    final ListenableFuture<ContainerExit> exit = exitWatcher.exit(containerId);
     while (true) {
-      final ContainerInfo info = inspectContainer(containerId);
-      if (!info.state().running()) {
-        return new ContainerExit(info.state().exitCode());
+      try {
+        return exit.get(WAIT_INSPECT_INTERVAL_MILLIS, MILLISECONDS);
+      } catch (TimeoutException e) {
+        final ContainerInfo info = inspectContainer(containerId);
+        if (!info.state().running()) {
+          return new ContainerExit(info.state().exitCode());
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof DockerException) {
+          throw (DockerException) e.getCause();
+        }
+        throw propagate(e.getCause());
       }
-      Thread.sleep(WAIT_INSPECT_INTERVAL_MILLIS);
     }
   }
+
+  /**
+   * Returns the watcher of container exits, which is up to the owner of this client to start and
+   * stop.
+   */
+  public ContainerExitWatcher getExitWatcher() {
+    return exitWatcher;
+  }
 }
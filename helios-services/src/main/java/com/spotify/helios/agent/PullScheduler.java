@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.Sets;
+
+import java.util.Set;
+
+/**
+ * Limits the number of image pulls that run at the same time, so that a rollout of many jobs
+ * to a host does not saturate its network and make all pulls time out.
+ *
+ * Pulls for containers that are about to start are urgent and go first. Speculative pulls only
+ * run when no urgent pull is waiting, and become urgent when a container needs their image.
+ */
+class PullScheduler {
+
+  private final int maxConcurrentPulls;
+  private final Set<Ticket> waiting = Sets.newHashSet();
+
+  private int running;
+
+  /**
+   * @param maxConcurrentPulls The maximum number of pulls to run at the same time, or 0 for no
+   *                           limit.
+   */
+  PullScheduler(final int maxConcurrentPulls) {
+    this.maxConcurrentPulls = maxConcurrentPulls;
+  }
+
+  Ticket ticket(final boolean urgent) {
+    return new Ticket(urgent);
+  }
+
+  /**
+   * Waits until the pull may run. Every successful call must be followed by {@link #release()}.
+   */
+  synchronized void acquire(final Ticket ticket) throws InterruptedException {
+    waiting.add(ticket);
+    try {
+      while (!mayRun(ticket)) {
+        wait();
+      }
+    } finally {
+      waiting.remove(ticket);
+      // Others might be waiting for this ticket to go away
+      notifyAll();
+    }
+    running++;
+  }
+
+  synchronized void release() {
+    running--;
+    notifyAll();
+  }
+
+  /**
+   * Makes a pull urgent, e.g. because a container is waiting for a speculative pull.
+   */
+  synchronized void escalate(final Ticket ticket) {
+    ticket.urgent = true;
+    notifyAll();
+  }
+
+  synchronized boolean isUrgent(final Ticket ticket) {
+    return ticket.urgent;
+  }
+
+  synchronized int waiting() {
+    return waiting.size();
+  }
+
+  private boolean mayRun(final Ticket ticket) {
+    if (maxConcurrentPulls > 0 && running >= maxConcurrentPulls) {
+      return false;
+    }
+    if (ticket.urgent) {
+      return true;
+    }
+    for (final Ticket other : waiting) {
+      if (other.urgent) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static class Ticket {
+
+    // Guarded by the scheduler
+    private boolean urgent;
+
+    private Ticket(final boolean urgent) {
+      this.urgent = urgent;
+    }
+  }
+}
@@ -22,25 +22,30 @@
 package com.spotify.helios.agent;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 import com.spotify.helios.servicescommon.PersistentAtomicReference;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -50,7 +55,7 @@ import org.apache.kafka.common.serialization.StringSerializer;
 
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.ConnectionLossException;
-import org.apache.zookeeper.KeeperException.NodeExistsException;
+import org.apache.zookeeper.KeeperException.NoNodeException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +68,10 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
@@ -74,8 +83,11 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkState;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.create;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.delete;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -91,6 +103,8 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  *    occurring, as the file may get large if ZK has been away for a long time.
  * 2. We limit each job to max 30 events in memory (and in ZK for that matter)
  * 3. Maximum of 600 total events, so as not to consume all available memory.
+ * 4. Bursts of events are batched: concurrent adds share a single write of the backing file,
+ *    and the queued events of a job go to ZK in a single transaction that also does the trimming.
  */
 public class QueueingHistoryWriter extends AbstractIdleService implements Runnable {
   private static final Logger log = LoggerFactory.getLogger(QueueingHistoryWriter.class);
@@ -103,24 +117,55 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
 
   private static final String KAFKA_TOPIC = "HeliosEvents";
 
+  private static final JsonCodec<TaskStatus> TASK_STATUS_CODEC = Json.codec(TaskStatus.class);
+
   private final ConcurrentMap<JobId, Deque<TaskStatusEvent>> items;
   private final ScheduledExecutorService zkWriterExecutor =
       MoreExecutors.getExitingScheduledExecutorService(
           (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(1), 0, SECONDS);
   private final String hostname;
   private final AtomicInteger count;
+  private final AtomicLong generation = new AtomicLong();
+  private final Object persistLock = new Object();
+  private long persisted;
   private final ZooKeeperClient client;
   private final PersistentAtomicReference<ConcurrentMap<JobId, Deque<TaskStatusEvent>>>
       backingStore;
 
   private final Optional<KafkaProducer<String, TaskStatusEvent>> kafkaProducer;
+  private final Supplier<PayloadFormat> payloadFormat;
+  private final boolean compactTaskStatuses;
 
   public QueueingHistoryWriter(final String hostname, final ZooKeeperClient client,
                                final KafkaClientProvider kafkaProvider,
                                final Path backingFile) throws IOException, InterruptedException {
+    this(hostname, client, kafkaProvider, backingFile, PayloadFormat.JSON, false);
+  }
+
+  public QueueingHistoryWriter(final String hostname, final ZooKeeperClient client,
+                               final KafkaClientProvider kafkaProvider,
+                               final Path backingFile, final PayloadFormat payloadFormat,
+                               final boolean compactTaskStatuses)
+      throws IOException, InterruptedException {
+    this(hostname, client, kafkaProvider, backingFile, Suppliers.ofInstance(payloadFormat),
+         compactTaskStatuses);
+  }
+
+  /**
+   * @param payloadFormat The format to write history events in, asked for on every write so
+   *                      that it can follow what the masters can read.
+   */
+  public QueueingHistoryWriter(final String hostname, final ZooKeeperClient client,
+                               final KafkaClientProvider kafkaProvider,
+                               final Path backingFile,
+                               final Supplier<PayloadFormat> payloadFormat,
+                               final boolean compactTaskStatuses)
+      throws IOException, InterruptedException {
     this.hostname = hostname;
+    this.payloadFormat = payloadFormat;
+    this.compactTaskStatuses = compactTaskStatuses;
     this.client = client;
-    this.backingStore = PersistentAtomicReference.create(backingFile,
+    this.backingStore = PersistentAtomicReference.createLogged(backingFile,
         new TypeReference<ConcurrentMap<JobId, Deque<TaskStatusEvent>>>(){},
         new Supplier<ConcurrentMap<JobId, Deque<TaskStatusEvent>>>() {
           @Override public ConcurrentMap<JobId, Deque<TaskStatusEvent>> get() {
@@ -158,6 +203,7 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
   protected void shutDown() throws Exception {
     zkWriterExecutor.shutdownNow();
     zkWriterExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    backingStore.compact();
 
     if (kafkaProducer.isPresent()) {
       // Otherwise it enters an infinite loop for some reason.
@@ -171,7 +217,7 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
       getNext();
     }
 
-    final JobId key = item.getStatus().getJob().getId();
+    final JobId key = item.getStatus().getJobId();
     final Deque<TaskStatusEvent> deque = getDeque(key);
 
     synchronized (deque) {
@@ -184,12 +230,30 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
       count.incrementAndGet();
     }
 
-    try {
-      backingStore.set(items);
-    } catch (ClosedByInterruptException e) {
-      log.debug("Writing task status event to backing store was interrupted");
-    } catch (IOException e) { // We are best effort after all...
-      log.warn("Failed to write task status event to backing store", e);
+    persist(generation.incrementAndGet());
+  }
+
+  /**
+   * Writes the pending events to the backing store, unless another thread has already written
+   * them. Threads that add events while a write is in progress wait for it to finish, and the
+   * first of them then writes the events of all of them at once.
+   *
+   * @param added The generation of the event that the caller added.
+   */
+  private void persist(final long added) throws InterruptedException {
+    synchronized (persistLock) {
+      if (persisted >= added) {
+        return;
+      }
+      final long current = generation.get();
+      try {
+        backingStore.set(items);
+        persisted = current;
+      } catch (ClosedByInterruptException e) {
+        log.debug("Writing task status event to backing store was interrupted");
+      } catch (IOException e) { // We are best effort after all...
+        log.warn("Failed to write task status event to backing store", e);
+      }
     }
   }
 
@@ -217,22 +281,30 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
   }
 
   private TaskStatusEvent getNext() {
+    final List<TaskStatusEvent> batch = getNextBatch(1);
+    return batch.isEmpty() ? null : batch.get(0);
+  }
+
+  /**
+   * Takes up to {@code max} of the oldest queued events of the job that has the eldest event.
+   */
+  private List<TaskStatusEvent> getNextBatch(final int max) {
     // Some explanation: We first find the eldest event from amongst the queues (ok, they're
     // deques, but we really use it as a put back queue), and only then to we try to get
     // a lock on the relevant queue from whence we got the event.  Assuming that all worked
     // *and* that the event we have wasn't rolled off due to max-size limitations, we then
-    // pull the item off the queue and return it.  We're basically doing optimistic concurrency,
-    // and skewing things so that adding to this should be cheap.
+    // pull the items off the queue and return them.  We're basically doing optimistic
+    // concurrency, and skewing things so that adding to this should be cheap.
 
     while (true) {
       final TaskStatusEvent current = findEldestEvent();
 
       // Didn't find anything that needed processing?
       if (current == null) {
-        return null;
+        return Collections.emptyList();
       }
 
-      final JobId id = current.getStatus().getJob().getId();
+      final JobId id = current.getStatus().getJobId();
       final Deque<TaskStatusEvent> deque = items.get(id);
       if (deque == null) {
         // shouldn't happen because we should be the only one pulling items off, but....
@@ -245,10 +317,13 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
           continue;
         }
 
-        // Pull it off the queue and be paranoid.
-        final TaskStatusEvent newCurrent = deque.poll();
-        count.decrementAndGet();
-        checkState(current.equals(newCurrent), "current should equal newCurrent");
+        // Pull them off the queue and be paranoid.
+        final List<TaskStatusEvent> batch = Lists.newArrayList();
+        while (batch.size() < max && !deque.isEmpty()) {
+          batch.add(deque.poll());
+          count.decrementAndGet();
+        }
+        checkState(current.equals(batch.get(0)), "current should equal the first item");
         // Safe because this is the *only* place we hold these two locks at the same time.
         synchronized (items) {
           // Extra paranoia: curDeque should always == deque
@@ -257,7 +332,7 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
             items.remove(id);
           }
         }
-        return current;
+        return batch;
       }
     }
   }
@@ -266,16 +341,19 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
     return count.get() == 0;
   }
 
-  private void putBack(TaskStatusEvent event) {
-    final JobId key = event.getStatus().getJob().getId();
+  private void putBack(final List<TaskStatusEvent> batch) {
+    final JobId key = batch.get(0).getStatus().getJobId();
     final Deque<TaskStatusEvent> queue = getDeque(key);
     synchronized (queue) {
-      if (queue.size() >= MAX_QUEUE_SIZE) {
-        // already full, just toss the event
-        return;
+      // Push the newest first so that the batch ends up at the front of the queue in order
+      for (final TaskStatusEvent event : Lists.reverse(batch)) {
+        if (queue.size() >= MAX_QUEUE_SIZE) {
+          // already full, just toss the rest of the events
+          return;
+        }
+        queue.push(event);
+        count.incrementAndGet();
       }
-      queue.push(event);
-      count.incrementAndGet();
     }
   }
 
@@ -300,73 +378,87 @@ public class QueueingHistoryWriter extends AbstractIdleService implements Runnab
   @Override
   public void run() {
     while (true) {
-      final TaskStatusEvent item = getNext();
-      if (item == null) {
+      final List<TaskStatusEvent> batch = getNextBatch(MAX_QUEUE_SIZE);
+      if (batch.isEmpty()) {
         return;
       }
 
-      final JobId jobId = item.getStatus().getJob().getId();
-      final String historyPath = Paths.historyJobHostEventsTimestamp(
-              jobId, hostname, item.getTimestamp());
-
+      final JobId jobId = batch.get(0).getStatus().getJobId();
       try {
-        log.debug("writing queued item to zookeeper {} {}", item.getStatus().getJob().getId(),
-                item.getTimestamp());
-
-        client.ensurePath(historyPath, true);
-        client.createAndSetData(historyPath, item.getStatus().toJsonBytes());
-
-        // See if too many
-        final List<String> events = client.getChildren(Paths.historyJobHostEvents(jobId, hostname));
-        if (events.size() > MAX_NUMBER_STATUS_EVENTS_TO_RETAIN) {
-          trimStatusEvents(events, jobId);
-        }
-      } catch (NodeExistsException e) {
-        // Ahh, the two generals problem...  We handle by doing nothing since the thing
-        // we wanted in, is in.
-        log.debug("item we wanted in is already there");
+        log.debug("writing {} queued items to zookeeper {}", batch.size(), jobId);
+        write(jobId, batch);
       } catch (ConnectionLossException e) {
-        log.warn("Connection lost while putting item into zookeeper, will retry");
-        putBack(item);
+        log.warn("Connection lost while putting items into zookeeper, will retry");
+        putBack(batch);
         break;
       } catch (KeeperException e) {
-        log.error("Error putting item into zookeeper, will retry", e);
-        putBack(item);
+        log.error("Error putting items into zookeeper, will retry", e);
+        putBack(batch);
         break;
       }
 
-      try {
-        if (kafkaProducer.isPresent()) {
-          final Future<RecordMetadata> future = kafkaProducer.get().send(
-            new ProducerRecord<String, TaskStatusEvent>(KAFKA_TOPIC, item));
-          final RecordMetadata metadata = future.get(5, TimeUnit.SECONDS);
-          log.debug("Sent an event to Kafka, meta: {}", metadata);
+      for (final TaskStatusEvent item : batch) {
+        try {
+          if (kafkaProducer.isPresent()) {
+            final Future<RecordMetadata> future = kafkaProducer.get().send(
+              new ProducerRecord<String, TaskStatusEvent>(KAFKA_TOPIC, item));
+            final RecordMetadata metadata = future.get(5, TimeUnit.SECONDS);
+            log.debug("Sent an event to Kafka, meta: {}", metadata);
+          }
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+          log.error("Unable to send an event to Kafka", e);
         }
-      } catch (ExecutionException | InterruptedException | TimeoutException e) {
-        log.error("Unable to send an event to Kafka", e);
       }
     }
   }
 
-  private void trimStatusEvents(List<String> events, JobId jobId) {
-    // CleanupExecutor only has one thread so can assume no others are fiddling as we do this.
+  /**
+   * Writes a batch of events of a job to zookeeper in a single transaction, which also trims the
+   * oldest events so that at most {@link #MAX_NUMBER_STATUS_EVENTS_TO_RETAIN} are kept.
+   */
+  private void write(final JobId jobId, final List<TaskStatusEvent> batch)
+      throws KeeperException {
+    final String eventsPath = Paths.historyJobHostEvents(jobId, hostname);
+    List<String> children;
+    try {
+      children = client.getChildren(eventsPath);
+    } catch (NoNodeException e) {
+      client.ensurePath(eventsPath);
+      children = Collections.emptyList();
+    }
+
     // All this to sort numerically instead of lexically....
-    final List<Long> eventsAsLongs = Lists.newArrayList(Iterables.transform(events,
-      new Function<String, Long>() {
-      @Override
-      public Long apply(String name) {
-        return Long.valueOf(name);
+    final Set<Long> stored = Sets.newHashSet();
+    for (final String name : children) {
+      stored.add(Long.valueOf(name));
+    }
+    final SortedMap<Long, TaskStatusEvent> pending = Maps.newTreeMap();
+    for (final TaskStatusEvent item : batch) {
+      pending.put(item.getTimestamp(), item);
+    }
+    final SortedSet<Long> timestamps = Sets.newTreeSet(stored);
+    timestamps.addAll(pending.keySet());
+    final Set<Long> retained = ImmutableSet.copyOf(Iterables.skip(
+        timestamps, Math.max(0, timestamps.size() - MAX_NUMBER_STATUS_EVENTS_TO_RETAIN)));
+
+    final List<ZooKeeperOperation> operations = Lists.newArrayList();
+    for (final Map.Entry<Long, TaskStatusEvent> entry : pending.entrySet()) {
+      // Ahh, the two generals problem...  Items that are already in were written before we
+      // failed to hear back, and items that would be trimmed right away need not go in at all.
+      final Long timestamp = entry.getKey();
+      if (!stored.contains(timestamp) && retained.contains(timestamp)) {
+        final TaskStatus status = entry.getValue().getStatus();
+        operations.add(create(Paths.historyJobHostEventsTimestamp(jobId, hostname, timestamp),
+                              TASK_STATUS_CODEC.asBytesUnchecked(
+                                  compactTaskStatuses ? status.withoutJob() : status,
+                                  payloadFormat.get())));
       }
-    }));
-    Collections.sort(eventsAsLongs);
-
-    for (int i = 0; i < (eventsAsLongs.size() - MAX_NUMBER_STATUS_EVENTS_TO_RETAIN); i++) {
-      try {
-        client.delete(Paths.historyJobHostEventsTimestamp(jobId, hostname, eventsAsLongs.get(i)));
-      } catch (KeeperException e) {
-        log.warn("failure deleting overflow of status items - we're hoping a later"
-            + " execution will fix", e);
+    }
+    for (final Long timestamp : stored) {
+      if (!retained.contains(timestamp)) {
+        operations.add(delete(Paths.historyJobHostEventsTimestamp(jobId, hostname, timestamp)));
       }
     }
+    client.transaction(operations);
   }
 }
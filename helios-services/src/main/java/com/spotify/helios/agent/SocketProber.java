@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.agent;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static java.nio.channels.SelectionKey.OP_CONNECT;
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Makes TCP and HTTP health check probes on non-blocking channels. All probes are driven by a
+ * single selector thread, which is started when the first probe is made.
+ */
+class SocketProber implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(SocketProber.class);
+
+  /**
+   * Enough to hold the status line of a response.
+   */
+  private static final int RESPONSE_BUFFER_SIZE = 256;
+
+  private final ScheduledExecutorService timer;
+  private final Queue<Probe> pending = new ConcurrentLinkedQueue<>();
+
+  private Selector selector;
+  private volatile boolean closed;
+
+  /**
+   * @param timer Used to time out probes.
+   */
+  SocketProber(final ScheduledExecutorService timer) {
+    this.timer = timer;
+  }
+
+  /**
+   * Checks whether a TCP connection can be made to an address.
+   *
+   * @return A future that completes with true if the connection was made in time.
+   */
+  ListenableFuture<Boolean> connect(final InetSocketAddress address,
+                                    final long timeoutMillis) {
+    return probe(new Probe(address, null), timeoutMillis, timeoutMillis);
+  }
+
+  /**
+   * Makes an HTTP GET request.
+   *
+   * @return A future that completes with true if the response status was 2xx or 3xx.
+   */
+  ListenableFuture<Boolean> get(final InetSocketAddress address, final String path,
+                                final long connectTimeoutMillis, final long timeoutMillis) {
+    final String request = "GET " + path + " HTTP/1.1\r\n" +
+                           "Host: " + address.getHostString() + ":" + address.getPort() + "\r\n" +
+                           "User-Agent: helios-agent\r\n" +
+                           "Connection: close\r\n" +
+                           "\r\n";
+    return probe(new Probe(address, ByteBuffer.wrap(request.getBytes(US_ASCII))),
+                 connectTimeoutMillis, timeoutMillis);
+  }
+
+  private ListenableFuture<Boolean> probe(final Probe probe, final long connectTimeoutMillis,
+                                          final long timeoutMillis) {
+    if (closed) {
+      return Futures.immediateFuture(false);
+    }
+    try {
+      probe.channel = SocketChannel.open();
+      probe.channel.configureBlocking(false);
+      probe.connected = probe.channel.connect(probe.address);
+    } catch (IOException e) {
+      probe.finish(false);
+      return probe.result;
+    }
+    if (probe.connected && probe.request == null) {
+      probe.finish(true);
+      return probe.result;
+    }
+    try {
+      probe.timeouts(connectTimeoutMillis, timeoutMillis);
+      pending.add(probe);
+      selector().wakeup();
+    } catch (IOException | RejectedExecutionException e) {
+      log.warn("failed to start health check probe of {}", probe.address, e);
+      probe.finish(false);
+    }
+    return probe.result;
+  }
+
+  private synchronized Selector selector() throws IOException {
+    if (selector == null) {
+      selector = Selector.open();
+      final Thread thread = new Thread(this, "helios-health-check-selector");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return selector;
+  }
+
+  /**
+   * Stops the selector thread and fails all probes in flight.
+   */
+  void close() {
+    closed = true;
+    synchronized (this) {
+      if (selector != null) {
+        selector.wakeup();
+      }
+    }
+  }
+
+  @Override
+  public void run() {
+    final Selector selector;
+    synchronized (this) {
+      selector = this.selector;
+    }
+    while (!closed) {
+      try {
+        selector.select();
+      } catch (IOException e) {
+        log.warn("health check selector failed", e);
+        continue;
+      }
+      register(selector);
+      final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        final SelectionKey key = keys.next();
+        keys.remove();
+        final Probe probe = (Probe) key.attachment();
+        try {
+          probe.ready(key);
+        } catch (IOException | CancelledKeyException e) {
+          probe.finish(false);
+        } catch (RuntimeException e) {
+          // Fail only this probe, the selector thread has to keep driving the others
+          log.error("health check probe of {} failed", probe.address, e);
+          probe.finish(false);
+        }
+      }
+    }
+    for (final SelectionKey key : selector.keys()) {
+      ((Probe) key.attachment()).finish(false);
+    }
+    Probe probe;
+    while ((probe = pending.poll()) != null) {
+      probe.finish(false);
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      log.warn("failed to close health check selector", e);
+    }
+  }
+
+  private void register(final Selector selector) {
+    Probe probe;
+    while ((probe = pending.poll()) != null) {
+      try {
+        probe.channel.register(selector, probe.connected ? OP_WRITE : OP_CONNECT, probe);
+      } catch (IOException | CancelledKeyException e) {
+        // The probe timed out before it was registered
+        probe.finish(false);
+      } catch (RuntimeException e) {
+        log.error("failed to register health check probe of {}", probe.address, e);
+        probe.finish(false);
+      }
+    }
+  }
+
+  /**
+   * Parses the status of an HTTP response.
+   *
+   * @return True or false if the status is known to be 2xx or 3xx, or not, and null if more of
+   *         the response is needed to tell.
+   */
+  static Boolean successful(final ByteBuffer response) {
+    final String head = new String(response.array(), 0, response.position(), US_ASCII);
+    final int lineEnd = head.indexOf("\r\n");
+    final String line = lineEnd < 0 ? head : head.substring(0, lineEnd);
+    final int codeStart = line.indexOf(' ') + 1;
+    if (codeStart == 0 || line.length() < codeStart + 3) {
+      return lineEnd < 0 ? null : false;
+    }
+    if (!line.startsWith("HTTP/")) {
+      return false;
+    }
+    final int code;
+    try {
+      code = Integer.parseInt(line.substring(codeStart, codeStart + 3));
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    return code >= 200 && code <= 399;
+  }
+
+  private class Probe {
+
+    private final InetSocketAddress address;
+    private final ByteBuffer request;
+    private final SettableFuture<Boolean> result = SettableFuture.create();
+
+    private SocketChannel channel;
+    private ByteBuffer response;
+    private volatile boolean connected;
+    private ScheduledFuture<?> connectTimeout;
+    private ScheduledFuture<?> timeout;
+
+    private Probe(final InetSocketAddress address, final ByteBuffer request) {
+      this.address = address;
+      this.request = request;
+    }
+
+    private synchronized void timeouts(final long connectTimeoutMillis,
+                                       final long timeoutMillis) {
+      connectTimeout = timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (!connected) {
+            finish(false);
+          }
+        }
+      }, connectTimeoutMillis, MILLISECONDS);
+      timeout = timer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          finish(false);
+        }
+      }, timeoutMillis, MILLISECONDS);
+    }
+
+    /**
+     * Called on the selector thread when the channel is ready.
+     */
+    private void ready(final SelectionKey key) throws IOException {
+      if (key.isConnectable()) {
+        if (!channel.finishConnect()) {
+          return;
+        }
+        connected = true;
+        if (request == null) {
+          finish(true);
+          return;
+        }
+        key.interestOps(OP_WRITE);
+      } else if (key.isWritable()) {
+        channel.write(request);
+        if (!request.hasRemaining()) {
+          response = ByteBuffer.allocate(RESPONSE_BUFFER_SIZE);
+          key.interestOps(OP_READ);
+        }
+      } else if (key.isReadable()) {
+        final int read = channel.read(response);
+        final Boolean successful = successful(response);
+        if (successful != null) {
+          finish(successful);
+        } else if (read < 0 || !response.hasRemaining()) {
+          finish(false);
+        }
+      }
+    }
+
+    private void finish(final boolean healthy) {
+      if (!result.set(healthy)) {
+        return;
+      }
+      synchronized (this) {
+        if (connectTimeout != null) {
+          connectTimeout.cancel(false);
+        }
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+      }
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignore) {
+        }
+      }
+    }
+  }
+}
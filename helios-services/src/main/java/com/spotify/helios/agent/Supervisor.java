@@ -29,8 +29,8 @@ import com.spotify.docker.client.DockerException;
 import com.spotify.docker.client.messages.ContainerInfo;
 import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.Job;
-import com.spotify.helios.servicescommon.DefaultReactor;
 import com.spotify.helios.servicescommon.Reactor;
+import com.spotify.helios.servicescommon.ReactorFactory;
 import com.spotify.helios.servicescommon.statistics.MetricsContext;
 import com.spotify.helios.servicescommon.statistics.SupervisorMetrics;
 
@@ -86,8 +86,8 @@ public class Supervisor {
     this.runnerFactory = checkNotNull(builder.runnerFactory, "runnerFactory");
     this.statusUpdater = checkNotNull(builder.statusUpdater, "statusUpdater");
     this.monitor = checkNotNull(builder.monitor, "monitor");
-    this.reactor = new DefaultReactor("supervisor-" + job.getId(), new Update(),
-                                      SECONDS.toMillis(30));
+    this.reactor = checkNotNull(builder.reactorFactory, "reactorFactory")
+        .create("supervisor-" + job.getId(), new Update(), SECONDS.toMillis(30));
     this.reactor.startAsync();
     statusUpdater.setContainerId(containerId);
     this.sleeper = builder.sleeper;
@@ -121,7 +121,7 @@ public class Supervisor {
   public void close() {
     reactor.stopAsync();
     if (runner != null) {
-      runner.stopAsync();
+      runner.close();
     }
     metrics.supervisorClosed();
     monitor.close();
@@ -134,7 +134,7 @@ public class Supervisor {
     reactor.awaitTerminated();
     if (runner != null) {
       // Stop the runner again in case it was rewritten by the reactor before it terminated.
-      runner.stopAsync();
+      runner.close();
       runner.awaitTerminated();
     }
   }
@@ -217,6 +217,7 @@ public class Supervisor {
     private StatusUpdater statusUpdater;
     private TaskMonitor monitor;
     private Sleeper sleeper = new ThreadSleeper();
+    private ReactorFactory reactorFactory = new ReactorFactory();
 
 
     public Builder setJob(final Job job) {
@@ -269,6 +270,11 @@ public class Supervisor {
       return this;
     }
 
+    public Builder setReactorFactory(final ReactorFactory reactorFactory) {
+      this.reactorFactory = reactorFactory;
+      return this;
+    }
+
     public Supervisor build() {
       return new Supervisor(this);
     }
@@ -307,7 +313,7 @@ public class Supervisor {
         return;
       }
 
-      if (runner.isRunning()) {
+      if (!runner.resultFuture().isDone()) {
         // There's an active runner, brought up by this or another Start command previously.
         return;
       }
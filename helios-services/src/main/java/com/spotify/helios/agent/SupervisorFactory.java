@@ -26,10 +26,13 @@ import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.serviceregistration.ServiceRegistrar;
 import com.spotify.helios.servicescommon.DockerHost;
+import com.spotify.helios.servicescommon.ReactorFactory;
 import com.spotify.helios.servicescommon.statistics.SupervisorMetrics;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -51,6 +54,12 @@ public class SupervisorFactory {
   private final SupervisorMetrics metrics;
   private final String defaultRegistrationDomain;
   private final List<String> dns;
+  private final ScheduledExecutorService executor;
+  private final Executor blockingExecutor;
+  private final ContainerExitWatcher exitWatcher;
+  private final ReactorFactory reactorFactory;
+  private final ImageCache imageCache;
+  private final HealthCheckerFactory healthCheckerFactory;
 
   public SupervisorFactory(final AgentModel model, final DockerClient dockerClient,
                            final Map<String, String> envVars,
@@ -62,6 +71,35 @@ public class SupervisorFactory {
                            final String namespace,
                            final String defaultRegistrationDomain,
                            final List<String> dns) {
+    this(model, dockerClient, envVars, registrar, containerDecorators, dockerHost, host,
+         supervisorMetrics, namespace, defaultRegistrationDomain, dns, null, null, null, null,
+         null);
+  }
+
+  /**
+   * Create a supervisor factory. If {@code executor} is not null, the supervisors, task runners
+   * and task monitors of all jobs run on it instead of on threads of their own. If
+   * {@code blockingExecutor} is not null as well, the steps that block run on it instead: the
+   * commands of the supervisors, such as stopping a container, and pulling images and starting
+   * containers. If {@code exitWatcher} is not null, task runners on the executor use it to learn
+   * when their containers exit. If {@code imageCache} or {@code healthCheckerFactory} is null, the
+   * supervisors share one of their own.
+   */
+  public SupervisorFactory(final AgentModel model, final DockerClient dockerClient,
+                           final Map<String, String> envVars,
+                           final ServiceRegistrar registrar,
+                           final List<ContainerDecorator> containerDecorators,
+                           final DockerHost dockerHost,
+                           final String host,
+                           final SupervisorMetrics supervisorMetrics,
+                           final String namespace,
+                           final String defaultRegistrationDomain,
+                           final List<String> dns,
+                           final ScheduledExecutorService executor,
+                           final Executor blockingExecutor,
+                           final ContainerExitWatcher exitWatcher,
+                           final ImageCache imageCache,
+                           final HealthCheckerFactory healthCheckerFactory) {
     this.dockerClient = dockerClient;
     this.namespace = namespace;
     this.model = checkNotNull(model, "model");
@@ -74,6 +112,17 @@ public class SupervisorFactory {
     this.defaultRegistrationDomain = checkNotNull(defaultRegistrationDomain,
                                                   "defaultRegistrationDomain");
     this.dns = checkNotNull(dns, "dns");
+    this.executor = executor;
+    this.blockingExecutor = blockingExecutor;
+    this.exitWatcher = exitWatcher;
+    this.reactorFactory = new ReactorFactory(
+        executor, blockingExecutor != null ? blockingExecutor : executor);
+    this.imageCache = imageCache != null
+                      ? imageCache
+                      : new ImageCache(dockerClient, supervisorMetrics);
+    this.healthCheckerFactory = healthCheckerFactory != null
+                                ? healthCheckerFactory
+                                : new HealthCheckerFactory(dockerClient, dockerHost);
   }
 
   /**
@@ -105,16 +154,20 @@ public class SupervisorFactory {
         .setPorts(taskConfig.ports());
     final StatusUpdater statusUpdater = new DefaultStatusUpdater(model, taskStatus);
     final FlapController flapController = FlapController.create();
-    final TaskMonitor taskMonitor = new TaskMonitor(job.getId(), flapController, statusUpdater);
+    final TaskMonitor taskMonitor = new TaskMonitor(job.getId(), flapController, statusUpdater,
+                                                    executor);
 
-    final HealthChecker healthChecker = HealthCheckerFactory.create(
-        taskConfig, dockerClient, dockerHost);
+    final HealthChecker healthChecker = healthCheckerFactory.create(taskConfig);
     final TaskRunnerFactory runnerFactory = TaskRunnerFactory.builder()
         .config(taskConfig)
         .registrar(registrar)
         .dockerClient(dockerClient)
         .healthChecker(healthChecker)
         .listener(taskMonitor)
+        .scheduler(executor)
+        .blockingExecutor(blockingExecutor)
+        .exitWatcher(exitWatcher)
+        .imageCache(imageCache)
         .build();
 
     return Supervisor.newBuilder()
@@ -127,6 +180,7 @@ public class SupervisorFactory {
         .setRunnerFactory(runnerFactory)
         .setStatusUpdater(statusUpdater)
         .setMonitor(taskMonitor)
+        .setReactorFactory(reactorFactory)
         .build();
   }
 }
@@ -35,6 +35,7 @@ import com.spotify.docker.client.messages.ImageInfo;
 import com.spotify.docker.client.messages.PortBinding;
 import com.spotify.helios.common.descriptors.HealthCheck;
 import com.spotify.helios.common.descriptors.HttpHealthCheck;
+import com.spotify.helios.common.descriptors.ImagePullPolicy;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.PortMapping;
 import com.spotify.helios.common.descriptors.Resources;
@@ -350,6 +351,10 @@ public class TaskConfig {
     return job.getImage();
   }
 
+  public ImagePullPolicy imagePullPolicy() {
+    return job.getImagePullPolicy();
+  }
+
   public String name() {
     return job.getId().toShortString();
   }
@@ -63,6 +63,7 @@ public class TaskMonitor implements TaskRunner.Listener, Closeable {
 
   private final JobId jobId;
   private final ScheduledExecutorService scheduler;
+  private final boolean ownsScheduler;
   private final FlapController flapController;
   private final StatusUpdater statusUpdater;
 
@@ -73,16 +74,31 @@ public class TaskMonitor implements TaskRunner.Listener, Closeable {
 
   public TaskMonitor(final JobId jobId, final FlapController flapController,
                      final StatusUpdater statusUpdater) {
+    this(jobId, flapController, statusUpdater, null);
+  }
+
+  /**
+   * Create a task monitor that schedules flapping state checks on a shared scheduler. If the
+   * scheduler is null, the monitor uses a scheduler of its own.
+   */
+  public TaskMonitor(final JobId jobId, final FlapController flapController,
+                     final StatusUpdater statusUpdater, final ScheduledExecutorService scheduler) {
     this.jobId = jobId;
     this.flapController = flapController;
     this.statusUpdater = statusUpdater;
 
-    final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
-    // Let core threads time out to avoid unnecessarily keeping a flapping state check thread alive
-    // for the majority of tasks that do not flap.
-    executor.setKeepAliveTime(5, SECONDS);
-    executor.allowCoreThreadTimeOut(true);
-    this.scheduler = MoreExecutors.getExitingScheduledExecutorService(executor, 0, SECONDS);
+    if (scheduler != null) {
+      this.scheduler = scheduler;
+      this.ownsScheduler = false;
+    } else {
+      final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+      // Let core threads time out to avoid unnecessarily keeping a flapping state check thread
+      // alive for the majority of tasks that do not flap.
+      executor.setKeepAliveTime(5, SECONDS);
+      executor.allowCoreThreadTimeOut(true);
+      this.scheduler = MoreExecutors.getExitingScheduledExecutorService(executor, 0, SECONDS);
+      this.ownsScheduler = true;
+    }
   }
 
   /**
@@ -95,13 +111,17 @@ public class TaskMonitor implements TaskRunner.Listener, Closeable {
 
   @Override
   public void close() {
-    scheduler.shutdownNow();
+    if (ownsScheduler) {
+      scheduler.shutdownNow();
+    } else if (flapTimeout != null) {
+      flapTimeout.cancel(false);
+    }
   }
 
   @Override
   protected void finalize() throws Throwable {
     super.finalize();
-    if (!scheduler.isShutdown()) {
+    if (ownsScheduler && !scheduler.isShutdown()) {
       log.error("task monitor not properly closed: {}", jobId);
     }
   }
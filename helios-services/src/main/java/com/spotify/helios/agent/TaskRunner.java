@@ -22,16 +22,16 @@
 package com.spotify.helios.agent;
 
 import com.google.common.base.Optional;
-import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 
 import com.spotify.docker.client.ContainerNotFoundException;
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.DockerException;
-import com.spotify.docker.client.DockerTimeoutException;
 import com.spotify.docker.client.ImageNotFoundException;
-import com.spotify.docker.client.ImagePullFailedException;
 import com.spotify.docker.client.messages.ContainerConfig;
 import com.spotify.docker.client.messages.ContainerCreation;
 import com.spotify.docker.client.messages.ContainerExit;
@@ -40,24 +40,42 @@ import com.spotify.docker.client.messages.ContainerState;
 import com.spotify.docker.client.messages.HostConfig;
 import com.spotify.docker.client.messages.ImageInfo;
 import com.spotify.helios.common.HeliosRuntimeException;
+import com.spotify.helios.common.descriptors.HealthCheck;
 import com.spotify.helios.serviceregistration.NopServiceRegistrar;
 import com.spotify.helios.serviceregistration.ServiceRegistrar;
 import com.spotify.helios.serviceregistration.ServiceRegistrationHandle;
 import com.spotify.helios.servicescommon.InterruptingExecutionThreadService;
+import com.spotify.helios.servicescommon.statistics.NoopSupervisorMetrics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.spotify.helios.agent.PollingDockerClient.WAIT_INSPECT_INTERVAL_MILLIS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * A runner service that starts a container once.
+ *
+ * By default the runner runs on a thread of its own, which waits for the container to exit. If
+ * given a scheduler, the runner instead starts the container on the scheduler and then health
+ * checks it and polls it for exit from there, without holding on to a thread while the container
+ * is being health checked or is running. Pulling the image and starting the container block, so
+ * if also given a blocking executor, the runner does that on it rather than on the scheduler.
  */
 class TaskRunner extends InterruptingExecutionThreadService {
 
   private static final Logger log = LoggerFactory.getLogger(TaskRunner.class);
   private static final int SECONDS_TO_WAIT_BEFORE_KILL = 120;
+  private static final long HEALTH_CHECK_MIN_INTERVAL_MILLIS = SECONDS.toMillis(1);
+  private static final long HEALTH_CHECK_MAX_INTERVAL_MILLIS = SECONDS.toMillis(30);
 
   private final long delayMillis;
   private final SettableFuture<Integer> result = SettableFuture.create();
@@ -67,11 +85,18 @@ class TaskRunner extends InterruptingExecutionThreadService {
   private final Listener listener;
   private final ServiceRegistrar registrar;
   private final Optional<HealthChecker> healthChecker;
+  private final ScheduledExecutorService scheduler;
+  private final ContainerExitWatcher exitWatcher;
+  private final ImageCache imageCache;
   private Optional<ServiceRegistrationHandle> serviceRegistrationHandle;
   private Optional<String> containerId;
+  private volatile HealthCheckPoll healthCheckPoll;
+  private volatile ExitPoll exitPoll;
 
   private TaskRunner(final Builder builder) {
-    super("TaskRunner(" + builder.taskConfig.name() + ")");
+    super("TaskRunner(" + builder.taskConfig.name() + ")", delayedExecutor(builder));
+    this.scheduler = builder.scheduler;
+    this.exitWatcher = builder.exitWatcher;
     this.delayMillis = builder.delayMillis;
     this.config = checkNotNull(builder.taskConfig, "config");
     this.docker = checkNotNull(builder.docker, "docker");
@@ -79,6 +104,9 @@ class TaskRunner extends InterruptingExecutionThreadService {
     this.existingContainerId = builder.existingContainerId;
     this.registrar = checkNotNull(builder.registrar, "registrar");
     this.healthChecker = Optional.fromNullable(builder.healthChecker);
+    this.imageCache = builder.imageCache != null
+                      ? builder.imageCache
+                      : new ImageCache(docker, new NoopSupervisorMetrics());
     this.serviceRegistrationHandle = Optional.absent();
     this.containerId = Optional.absent();
   }
@@ -112,8 +140,9 @@ class TaskRunner extends InterruptingExecutionThreadService {
     if (containerId.isPresent()) {
       final String container = containerId.get();
 
-      // Interrupt the thread blocking on waitContainer
+      // Interrupt the thread blocking on waitContainer, or stop polling the container
       stopAsync().awaitTerminated();
+      cancelPolls();
 
       // Tell docker to stop or eventually kill the container
       try {
@@ -124,20 +153,72 @@ class TaskRunner extends InterruptingExecutionThreadService {
     }
   }
 
+  /**
+   * Stops this runner, leaving the container as-is.
+   */
+  public void close() {
+    stopAsync();
+    cancelPolls();
+  }
+
   @Override
   protected void run() {
     try {
-      final int exitCode = run0();
-      result.set(exitCode);
+      final String containerId = runContainer();
+
+      // Only containers started by this runner are health checked
+      final boolean healthCheck = healthChecker.isPresent() &&
+                                  !containerId.equals(existingContainerId);
+
+      if (scheduler == null) {
+        if (healthCheck) {
+          awaitHealthy(containerId);
+        }
+        markRunning();
+
+        // Wait for container to exit
+        final ContainerExit exit;
+        try {
+          exit = docker.waitContainer(containerId);
+        } finally {
+          unregister();
+          this.containerId = Optional.absent();
+        }
+        result.set(exited(containerId, exit.statusCode()));
+      } else if (healthCheck) {
+        // Health check and then poll for container exit without holding on to this thread
+        healthCheckPoll = new HealthCheckPoll(containerId);
+        healthCheckPoll.start();
+      } else {
+        // Poll for container exit without holding on to this thread
+        markRunning();
+        exitPoll = new ExitPoll(containerId);
+        exitPoll.start();
+      }
     } catch (Exception e) {
       listener.failed(e);
       result.setException(e);
     }
   }
 
-  private int run0() throws InterruptedException, DockerException {
+  @Override
+  protected void shutDown() {
+    // The runner was stopped before it got to run
+    if (!result.isDone() && exitPoll == null && healthCheckPoll == null) {
+      result.setException(new InterruptedException("task runner stopped"));
+    }
+  }
+
+  /**
+   * Starts the container if it is not already running.
+   *
+   * @return The id of the running container.
+   */
+  private String runContainer() throws InterruptedException, DockerException {
     // Delay
-    Thread.sleep(delayMillis);
+    if (scheduler == null) {
+      Thread.sleep(delayMillis);
+    }
 
     // Check if the container is already running
     final ContainerInfo info = getContainerInfo(existingContainerId);
@@ -150,47 +231,94 @@ class TaskRunner extends InterruptingExecutionThreadService {
       // Create and start container if necessary
       containerId = createAndStartContainer();
       this.containerId = Optional.of(containerId);
+    }
 
-      if (healthChecker.isPresent()) {
-        listener.healthChecking();
+    return containerId;
+  }
 
-        final RetryScheduler retryScheduler = BoundedRandomExponentialBackoff.newBuilder()
-            .setMinIntervalMillis(SECONDS.toMillis(1))
-            .setMaxIntervalMillis(SECONDS.toMillis(30))
-            .build().newScheduler();
+  /**
+   * Marks the container as running and registers it.
+   */
+  private void markRunning() {
+    listener.running();
 
-        while (!healthChecker.get().check(containerId)) {
-          final ContainerState state = docker.inspectContainer(containerId).state();
-          if (!state.running()) {
-            log.warn("container exited during health checking: {}: {}: {}",
-                     config, containerId, state.exitCode());
-            throw new RuntimeException("container exited during health checking");
-          }
+    // Register
+    serviceRegistrationHandle = Optional.fromNullable(registrar.register(config.registration()));
+  }
 
-          final long retryMillis = retryScheduler.nextMillis();
-          log.warn("container failed healthcheck, will retry in {}ms: {}: {}",
-                   retryMillis, config, containerId);
-          Thread.sleep(retryMillis);
-        }
-      }
-    }
+  /**
+   * Health checks the container on this thread until it passes.
+   */
+  private void awaitHealthy(final String containerId)
+      throws InterruptedException, DockerException {
+    listener.healthChecking();
 
-    listener.running();
+    final RetryScheduler retryScheduler = healthCheckRetryScheduler();
+    while (!checkHealth(containerId)) {
+      checkRunning(containerId);
 
-    // Register and wait for container to exit
-    serviceRegistrationHandle = Optional.fromNullable(registrar.register(config.registration()));
-    final ContainerExit exit;
+      final long retryMillis = retryScheduler.nextMillis();
+      log.warn("container failed healthcheck, will retry in {}ms: {}: {}",
+               retryMillis, config, containerId);
+      Thread.sleep(retryMillis);
+    }
+  }
+
+  private boolean checkHealth(final String containerId) throws InterruptedException {
+    final ListenableFuture<Boolean> check = healthChecker.get().check(containerId);
     try {
-      exit = docker.waitContainer(containerId);
-    } finally {
-      unregister();
-      this.containerId = Optional.absent();
+      return check.get();
+    } catch (InterruptedException e) {
+      check.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
+  }
+
+  /**
+   * Throws if the container exited while it was being health checked.
+   */
+  private void checkRunning(final String containerId)
+      throws InterruptedException, DockerException {
+    final ContainerState state = docker.inspectContainer(containerId).state();
+    if (!state.running()) {
+      log.warn("container exited during health checking: {}: {}: {}",
+               config, containerId, state.exitCode());
+      throw new RuntimeException("container exited during health checking");
+    }
+  }
+
+  /**
+   * Failed health checks are retried with an exponential backoff, up to the interval of the health
+   * check of the job.
+   */
+  private RetryScheduler healthCheckRetryScheduler() {
+    final HealthCheck healthCheck = config.healthCheck();
+    final long maxIntervalMillis = (healthCheck == null || healthCheck.getInterval() == null)
+                                   ? HEALTH_CHECK_MAX_INTERVAL_MILLIS
+                                   : SECONDS.toMillis(healthCheck.getInterval());
+    return BoundedRandomExponentialBackoff.newBuilder()
+        .setMinIntervalMillis(Math.min(HEALTH_CHECK_MIN_INTERVAL_MILLIS, maxIntervalMillis))
+        .setMaxIntervalMillis(maxIntervalMillis)
+        .build().newScheduler();
+  }
 
-    log.info("container exited: {}: {}: {}", config, containerId, exit.statusCode());
-    listener.exited(exit.statusCode());
+  private int exited(final String containerId, final int statusCode) {
+    log.info("container exited: {}: {}: {}", config, containerId, statusCode);
+    listener.exited(statusCode);
+    return statusCode;
+  }
 
-    return exit.statusCode();
+  private void cancelPolls() {
+    final HealthCheckPoll healthCheck = healthCheckPoll;
+    if (healthCheck != null) {
+      healthCheck.cancel();
+    }
+    final ExitPoll poll = exitPoll;
+    if (poll != null) {
+      poll.cancel();
+    }
   }
 
   private String createAndStartContainer()
@@ -198,25 +326,29 @@ class TaskRunner extends InterruptingExecutionThreadService {
 
     // Ensure we have the image
     final String image = config.containerImage();
-    pullImage(image);
+    final ImageInfo imageInfo = imageCache.get(image, config.imagePullPolicy(), listener);
+    if (imageInfo == null) {
+      throw new HeliosRuntimeException("docker inspect image returned null on image " + image);
+    }
 
-    return startContainer(image);
+    return startContainer(image, imageInfo);
   }
 
-  private String startContainer(final String image)
+  private String startContainer(final String image, final ImageInfo imageInfo)
       throws InterruptedException, DockerException {
 
-    // Get container image info
-    final ImageInfo imageInfo = docker.inspectImage(image);
-    if (imageInfo == null) {
-      throw new HeliosRuntimeException("docker inspect image returned null on image " + image);
-    }
-
     // Create container
     final ContainerConfig containerConfig = config.containerConfig(imageInfo);
     final String name = config.containerName();
     listener.creating();
-    final ContainerCreation container = docker.createContainer(containerConfig, name);
+    final ContainerCreation container;
+    try {
+      container = docker.createContainer(containerConfig, name);
+    } catch (ImageNotFoundException e) {
+      // The image was removed since we last saw it, pull it again next time
+      imageCache.invalidate(image);
+      throw e;
+    }
     log.info("created container: {}: {}, {}", config, container, containerConfig);
     listener.created(container.id());
 
@@ -244,37 +376,211 @@ class TaskRunner extends InterruptingExecutionThreadService {
     }
   }
 
-  private void pullImage(final String image) throws DockerException, InterruptedException {
-    listener.pulling();
-    DockerTimeoutException wasTimeout = null;
-    final Stopwatch pullTime = Stopwatch.createStarted();
+  /**
+   * Returns the executor to run the runner on, or null to run it on a thread of its own.
+   */
+  private static Executor delayedExecutor(final Builder builder) {
+    final ScheduledExecutorService scheduler = builder.scheduler;
+    if (scheduler == null) {
+      return null;
+    }
+    final long delayMillis = builder.delayMillis;
+    final Executor blockingExecutor = builder.blockingExecutor;
+    return new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        if (blockingExecutor == null) {
+          scheduler.schedule(command, delayMillis, MILLISECONDS);
+          return;
+        }
+        scheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            blockingExecutor.execute(command);
+          }
+        }, delayMillis, MILLISECONDS);
+      }
+    };
+  }
 
-    // Attempt to pull.  Failure, while less than ideal, is ok.
-    try {
-      docker.pull(image);
-      listener.pulled();
-      log.info("Pulled image {} in {}s", image, pullTime.elapsed(SECONDS));
-    } catch (DockerTimeoutException e) {
-      log.warn("Pulling image {} failed with timeout after {}s", image,
-               pullTime.elapsed(SECONDS), e);
-      listener.pullFailed();
-      wasTimeout = e;
-    } catch (DockerException e) {
-      log.warn("Pulling image {} failed after {}s", image, pullTime.elapsed(SECONDS), e);
-      listener.pullFailed();
+  /**
+   * Health checks a container on the scheduler until it passes, and then marks it as running and
+   * starts polling it for exit. No thread is held on to while a check is in flight or between
+   * checks.
+   */
+  private class HealthCheckPoll implements Runnable, FutureCallback<Boolean> {
+
+    private final String containerId;
+    private final RetryScheduler retryScheduler = healthCheckRetryScheduler();
+
+    private Future<?> future;
+    private boolean done;
+
+    private HealthCheckPoll(final String containerId) {
+      this.containerId = containerId;
     }
 
-    try {
-      // If we don't have the image by now, fail.
-      docker.inspectImage(image);
-    } catch (ImageNotFoundException e) {
-      // If we get not found, see if we timed out above, since that's what we actually care
-      // to know, as the pull should have fixed the not found-ness.
-      if (wasTimeout != null) {
-        throw new ImagePullFailedException("Failed pulling image " + image + " because of timeout",
-            wasTimeout);
+    private void start() {
+      listener.healthChecking();
+      run();
+    }
+
+    private void cancel() {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+        if (future != null) {
+          future.cancel(false);
+        }
       }
-      throw e;
+      final InterruptedException e = new InterruptedException("task runner stopped");
+      listener.failed(e);
+      result.setException(e);
+    }
+
+    @Override
+    public void run() {
+      final ListenableFuture<Boolean> check;
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        check = healthChecker.get().check(containerId);
+        future = check;
+      }
+      Futures.addCallback(check, this, scheduler);
+    }
+
+    @Override
+    public void onSuccess(final Boolean healthy) {
+      if (healthy) {
+        final ExitPoll poll;
+        synchronized (this) {
+          if (done) {
+            return;
+          }
+          done = true;
+          markRunning();
+          poll = exitPoll = new ExitPoll(containerId);
+        }
+        poll.start();
+        return;
+      }
+
+      try {
+        checkRunning(containerId);
+      } catch (Exception e) {
+        onFailure(e);
+        return;
+      }
+
+      final long retryMillis = retryScheduler.nextMillis();
+      log.warn("container failed healthcheck, will retry in {}ms: {}: {}",
+               retryMillis, config, containerId);
+      synchronized (this) {
+        if (!done) {
+          future = scheduler.schedule(this, retryMillis, MILLISECONDS);
+        }
+      }
+    }
+
+    @Override
+    public void onFailure(final Throwable t) {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+        done = true;
+      }
+      listener.failed(t);
+      result.setException(t);
+    }
+  }
+
+  /**
+   * Checks a running container on the scheduler until it exits, and then completes the result.
+   * The container is checked when the exit watcher sees it exit, and periodically in case the
+   * watcher misses it.
+   */
+  private class ExitPoll implements Runnable {
+
+    private final String containerId;
+
+    private ScheduledFuture<?> future;
+    private boolean done;
+
+    private ExitPoll(final String containerId) {
+      this.containerId = containerId;
+    }
+
+    private void start() {
+      if (exitWatcher != null) {
+        // Check the container as soon as the watcher sees it exit
+        exitWatcher.exit(containerId).addListener(this, scheduler);
+      }
+      schedule();
+    }
+
+    private synchronized void schedule() {
+      if (!done) {
+        if (future != null) {
+          future.cancel(false);
+        }
+        future = scheduler.schedule(this, WAIT_INSPECT_INTERVAL_MILLIS, MILLISECONDS);
+      }
+    }
+
+    private synchronized void cancel() {
+      if (done) {
+        return;
+      }
+      if (future != null) {
+        future.cancel(false);
+      }
+      final InterruptedException e = new InterruptedException("task runner stopped");
+      finish();
+      listener.failed(e);
+      result.setException(e);
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (done) {
+          return;
+        }
+      }
+      final ContainerInfo info;
+      try {
+        info = docker.inspectContainer(containerId);
+      } catch (Exception e) {
+        synchronized (this) {
+          if (!done) {
+            finish();
+            listener.failed(e);
+            result.setException(e);
+          }
+        }
+        return;
+      }
+      if (info.state().running()) {
+        schedule();
+        return;
+      }
+      synchronized (this) {
+        if (!done) {
+          finish();
+          result.set(exited(containerId, info.state().exitCode()));
+        }
+      }
+    }
+
+    private void finish() {
+      done = true;
+      unregister();
+      TaskRunner.this.containerId = Optional.absent();
     }
   }
 
@@ -318,6 +624,10 @@ class TaskRunner extends InterruptingExecutionThreadService {
     private String existingContainerId;
     private Listener listener;
     private HealthChecker healthChecker;
+    private ScheduledExecutorService scheduler;
+    private Executor blockingExecutor;
+    private ContainerExitWatcher exitWatcher;
+    private ImageCache imageCache;
     public ServiceRegistrar registrar = new NopServiceRegistrar();
 
     public Builder delayMillis(final long delayMillis) {
@@ -355,6 +665,26 @@ class TaskRunner extends InterruptingExecutionThreadService {
       return this;
     }
 
+    public Builder scheduler(final ScheduledExecutorService scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    public Builder blockingExecutor(final Executor blockingExecutor) {
+      this.blockingExecutor = blockingExecutor;
+      return this;
+    }
+
+    public Builder exitWatcher(final ContainerExitWatcher exitWatcher) {
+      this.exitWatcher = exitWatcher;
+      return this;
+    }
+
+    public Builder imageCache(final ImageCache imageCache) {
+      this.imageCache = imageCache;
+      return this;
+    }
+
     public TaskRunner build() {
       return new TaskRunner(this);
     }
@@ -28,6 +28,8 @@ import com.spotify.docker.client.DockerClient;
 import com.spotify.helios.serviceregistration.ServiceRegistrar;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.concat;
@@ -43,6 +45,10 @@ public class TaskRunnerFactory {
   private final Optional<HealthChecker> healthChecker;
   private final ServiceRegistrar registrar;
   private final List<TaskRunner.Listener> listeners;
+  private final ScheduledExecutorService scheduler;
+  private final Executor blockingExecutor;
+  private final ContainerExitWatcher exitWatcher;
+  private final ImageCache imageCache;
 
   public TaskRunnerFactory(final Builder builder) {
     this.taskConfig = checkNotNull(builder.config, "config");
@@ -50,6 +56,10 @@ public class TaskRunnerFactory {
     this.docker = checkNotNull(builder.docker, "docker");
     this.listeners = checkNotNull(builder.listeners, "listeners");
     this.healthChecker = Optional.fromNullable(builder.healthChecker);
+    this.scheduler = builder.scheduler;
+    this.blockingExecutor = builder.blockingExecutor;
+    this.exitWatcher = builder.exitWatcher;
+    this.imageCache = builder.imageCache;
   }
 
   public TaskRunner create(final long delay,
@@ -63,6 +73,10 @@ public class TaskRunnerFactory {
         .existingContainerId(containerId)
         .listener(new BroadcastingListener(concat(this.listeners, asList(listener))))
         .registrar(registrar)
+        .scheduler(scheduler)
+        .blockingExecutor(blockingExecutor)
+        .exitWatcher(exitWatcher)
+        .imageCache(imageCache)
         .build();
   }
 
@@ -80,6 +94,10 @@ public class TaskRunnerFactory {
     private HealthChecker healthChecker;
     private ServiceRegistrar registrar;
     private List<TaskRunner.Listener> listeners = Lists.newArrayList();
+    private ScheduledExecutorService scheduler;
+    private Executor blockingExecutor;
+    private ContainerExitWatcher exitWatcher;
+    private ImageCache imageCache;
 
     public Builder config(final TaskConfig config) {
       this.config = config;
@@ -106,6 +124,26 @@ public class TaskRunnerFactory {
       return this;
     }
 
+    public Builder scheduler(final ScheduledExecutorService scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    public Builder blockingExecutor(final Executor blockingExecutor) {
+      this.blockingExecutor = blockingExecutor;
+      return this;
+    }
+
+    public Builder exitWatcher(final ContainerExitWatcher exitWatcher) {
+      this.exitWatcher = exitWatcher;
+      return this;
+    }
+
+    public Builder imageCache(final ImageCache imageCache) {
+      this.imageCache = imageCache;
+      return this;
+    }
+
     public TaskRunnerFactory build() {
       return new TaskRunnerFactory(this);
     }
@@ -22,6 +22,7 @@
 package com.spotify.helios.agent;
 
 import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 
 import org.apache.kafka.common.serialization.Serializer;
@@ -34,12 +35,14 @@ import java.util.Map;
  */
 
 public class TaskStatusEventSerializer implements Serializer<TaskStatusEvent> {
+    private static final JsonCodec<TaskStatusEvent> CODEC = Json.codec(TaskStatusEvent.class);
+
     @Override
     public void configure(final Map<String, ?> configs, final boolean isKey) { }
 
     @Override
     public byte[] serialize(final String topic, final TaskStatusEvent value) {
-        return Json.asBytesUnchecked(value);
+        return CODEC.asBytesUnchecked(value);
     }
 
     @Override
@@ -21,14 +21,24 @@
 
 package com.spotify.helios.agent;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.Task;
 import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.servicescommon.MasterPayloadFormats;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.PersistentPathChildrenCache;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
@@ -41,17 +51,28 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.spotify.helios.common.descriptors.Descriptor.parse;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * The Helios Agent's view into ZooKeeper.
  *
  * This caches ZK state to local disk so the agent can continue to function in the face of a ZK
  * outage.
+ *
+ * Task statuses that are identical to the current status of a task are dropped. Other statuses go
+ * into the task history right away, but can be published with a delay, so that the rapid
+ * transitions of a starting task, or of many tasks starting at once, are written to disk and to ZK
+ * only once. Reads see the latest status, whether it has been published or not.
  */
 public class ZooKeeperAgentModel extends AbstractIdleService implements AgentModel {
 
@@ -61,6 +82,8 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   private static final String TASK_HISTORY_FILENAME = "task-history.json";
   private static final String TASK_STATUS_FILENAME = "task-status.json";
 
+  private static final JsonCodec<TaskStatus> TASK_STATUS_CODEC = Json.codec(TaskStatus.class);
+
   private final PersistentPathChildrenCache<Task> tasks;
   private final ZooKeeperUpdatingPersistentDirectory taskStatuses;
   private final QueueingHistoryWriter historyWriter;
@@ -68,9 +91,50 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   private final String agent;
   private final CopyOnWriteArrayList<AgentModel.Listener> listeners = new CopyOnWriteArrayList<>();
 
+  private final long statusCoalesceMillis;
+  private final MasterPayloadFormats masterFormats;
+  private final boolean compactTaskStatuses;
+  private final ScheduledExecutorService statusPublisher;
+  // Guards the pending statuses. Never held while writing, so readers don't wait for I/O.
+  private final Object statusLock = new Object();
+  // Held while writing the task status directory and the history, to keep the writes in order
+  private final Object publishLock = new Object();
+  private final Map<JobId, byte[]> pendingStatuses = Maps.newHashMap();
+  private final List<HistoryItem> pendingHistory = Lists.newArrayList();
+  private ScheduledFuture<?> publish;
+
   public ZooKeeperAgentModel(final ZooKeeperClientProvider provider,
                              final KafkaClientProvider kafkaProvider, final String host,
                              final Path stateDirectory) throws IOException, InterruptedException {
+    this(provider, kafkaProvider, host, stateDirectory, 0);
+  }
+
+  /**
+   * @param statusCoalesceMillis How long to hold on to task statuses before publishing them, or 0
+   *                             to publish them right away.
+   */
+  public ZooKeeperAgentModel(final ZooKeeperClientProvider provider,
+                             final KafkaClientProvider kafkaProvider, final String host,
+                             final Path stateDirectory, final long statusCoalesceMillis)
+      throws IOException, InterruptedException {
+    this(provider, kafkaProvider, host, stateDirectory, statusCoalesceMillis, PayloadFormat.JSON,
+         false);
+  }
+
+  /**
+   * @param statusCoalesceMillis How long to hold on to task statuses before publishing them, or 0
+   *                             to publish them right away.
+   * @param payloadFormat        The format to write task statuses and history events in, as
+   *                             long as every master can read it. See
+   *                             {@link MasterPayloadFormats}.
+   * @param compactTaskStatuses  Whether to write task statuses and history events with only the
+   *                             id of their job, see {@link TaskStatus#withoutJob()}.
+   */
+  public ZooKeeperAgentModel(final ZooKeeperClientProvider provider,
+                             final KafkaClientProvider kafkaProvider, final String host,
+                             final Path stateDirectory, final long statusCoalesceMillis,
+                             final PayloadFormat payloadFormat, final boolean compactTaskStatuses)
+      throws IOException, InterruptedException {
     // TODO(drewc): we're constructing too many heavyweight things in the ctor, these kinds of
     // things should be passed in/provider'd/etc.
     final ZooKeeperClient client = provider.get("ZooKeeperAgentModel_ctor");
@@ -86,8 +150,28 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
                                                                     provider,
                                                                     taskStatusFile,
                                                                     Paths.statusHostJobs(host));
+    if (checkNotNull(payloadFormat) == PayloadFormat.JSON) {
+      this.masterFormats = null;
+    } else {
+      this.masterFormats = new MasterPayloadFormats(client, payloadFormat);
+      masterFormats.addListener(new MasterPayloadFormats.Listener() {
+        @Override
+        public void payloadFormatChanged(final PayloadFormat format) {
+          rewriteStatuses(format);
+        }
+      });
+    }
+    this.compactTaskStatuses = compactTaskStatuses;
+    final Supplier<PayloadFormat> historyFormat = masterFormats == null
+                                                  ? Suppliers.ofInstance(PayloadFormat.JSON)
+                                                  : masterFormats;
     this.historyWriter = new QueueingHistoryWriter(host, client, kafkaProvider,
-        stateDirectory.resolve(TASK_HISTORY_FILENAME));
+        stateDirectory.resolve(TASK_HISTORY_FILENAME), historyFormat, compactTaskStatuses);
+    this.statusCoalesceMillis = statusCoalesceMillis;
+    this.statusPublisher = statusCoalesceMillis <= 0 ? null :
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("helios-task-status-publisher-%d")
+                .setDaemon(true).build());
   }
 
   @Override
@@ -95,10 +179,20 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
     tasks.startAsync().awaitRunning();
     taskStatuses.startAsync().awaitRunning();
     historyWriter.startAsync().awaitRunning();
+    if (masterFormats != null) {
+      masterFormats.startAsync().awaitRunning();
+    }
   }
 
   @Override
   protected void shutDown() throws Exception {
+    if (masterFormats != null) {
+      masterFormats.stopAsync().awaitTerminated();
+    }
+    if (statusPublisher != null) {
+      statusPublisher.shutdownNow();
+      publishStatuses();
+    }
     tasks.stopAsync().awaitTerminated();
     taskStatuses.stopAsync().awaitTerminated();
     historyWriter.stopAsync().awaitTerminated();
@@ -122,17 +216,31 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
     return tasks;
   }
 
+  @Override
+  public Task getTask(final JobId jobId) {
+    return tasks.getNodes().get(Paths.configHostJob(agent, jobId));
+  }
+
   /**
-   * Returns the {@link TaskStatus}es for all tasks assigned to the current agent.
+   * Returns the {@link TaskStatus}es for all tasks assigned to the current agent. Statuses stored
+   * without their job get it filled in from the task, if the job is still deployed.
    */
   @Override
   public Map<JobId, TaskStatus> getTaskStatuses() {
+    final Map<JobId, byte[]> data = Maps.newHashMap();
+    synchronized (statusLock) {
+      for (Map.Entry<String, byte[]> entry : this.taskStatuses.entrySet()) {
+        data.put(JobId.fromString(entry.getKey()), entry.getValue());
+      }
+      data.putAll(pendingStatuses);
+    }
+    final Map<JobId, Task> tasks = getTasks();
     final Map<JobId, TaskStatus> statuses = Maps.newHashMap();
-    for (Map.Entry<String, byte[]> entry : this.taskStatuses.entrySet()) {
+    for (Map.Entry<JobId, byte[]> entry : data.entrySet()) {
       try {
-        final JobId id = JobId.fromString(entry.getKey());
-        final TaskStatus status = Json.read(entry.getValue(), TaskStatus.class);
-        statuses.put(id, status);
+        final TaskStatus status = TASK_STATUS_CODEC.read(entry.getValue());
+        final Task task = tasks.get(entry.getKey());
+        statuses.put(entry.getKey(), task == null ? status : status.withJob(task.getJob()));
       } catch (IOException e) {
         throw Throwables.propagate(e);
       }
@@ -146,25 +254,143 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   @Override
   public void setTaskStatus(final JobId jobId, final TaskStatus status)
       throws InterruptedException {
-    log.debug("setting task status: {}", status);
-    taskStatuses.put(jobId.toString(), status.toJsonBytes());
-    historyWriter.saveHistoryItem(jobId, status);
+    final TaskStatus stored = compactTaskStatuses ? status.withoutJob() : status;
+    final byte[] data = TASK_STATUS_CODEC.asBytesUnchecked(stored, payloadFormat());
+    synchronized (statusLock) {
+      if (Arrays.equals(data, statusData(jobId))) {
+        log.debug("task status unchanged: {}", status);
+        return;
+      }
+      log.debug("setting task status: {}", status);
+      pendingStatuses.put(jobId, data);
+      pendingHistory.add(new HistoryItem(jobId, status, System.currentTimeMillis()));
+      if (statusPublisher != null && publish == null) {
+        publish = statusPublisher.schedule(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              publishStatuses();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }, statusCoalesceMillis, MILLISECONDS);
+      }
+    }
+    if (statusPublisher == null) {
+      publishStatuses();
+    }
+  }
+
+  private PayloadFormat payloadFormat() {
+    return masterFormats == null ? PayloadFormat.JSON : masterFormats.get();
   }
 
   /**
-   * Get the {@link TaskStatus} for the job identified by {@code jobId}.
+   * Rewrites the task statuses in {@code format}, so that statuses written in a format a newly
+   * started master cannot read are readable to it.
+   */
+  private void rewriteStatuses(final PayloadFormat format) {
+    synchronized (publishLock) {
+      final Map<String, byte[]> statuses = Maps.newHashMap();
+      synchronized (statusLock) {
+        for (final Map.Entry<String, byte[]> entry : taskStatuses.entrySet()) {
+          statuses.put(entry.getKey(), reencode(entry.getValue(), format));
+        }
+        for (final Map.Entry<JobId, byte[]> entry : pendingStatuses.entrySet()) {
+          entry.setValue(reencode(entry.getValue(), format));
+        }
+      }
+      try {
+        taskStatuses.putAll(statuses);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static byte[] reencode(final byte[] data, final PayloadFormat format) {
+    if (PayloadFormat.of(data) == format) {
+      return data;
+    }
+    try {
+      return TASK_STATUS_CODEC.asBytesUnchecked(TASK_STATUS_CODEC.read(data), format);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Writes the statuses waiting to be published to the task status directory, at once, and then
+   * queues the history events of the changes that led to them. Statuses stay pending, and so
+   * readable, until they have been written.
+   */
+  private void publishStatuses() throws InterruptedException {
+    synchronized (publishLock) {
+      final Map<JobId, byte[]> statuses;
+      final List<HistoryItem> history;
+      synchronized (statusLock) {
+        publish = null;
+        statuses = ImmutableMap.copyOf(pendingStatuses);
+        history = ImmutableList.copyOf(pendingHistory);
+        pendingHistory.clear();
+      }
+
+      if (!statuses.isEmpty()) {
+        final Map<String, byte[]> data = Maps.newHashMap();
+        for (final Map.Entry<JobId, byte[]> entry : statuses.entrySet()) {
+          data.put(entry.getKey().toString(), entry.getValue());
+        }
+        taskStatuses.putAll(data);
+        synchronized (statusLock) {
+          // Statuses set again while we were writing are published next time
+          for (final Map.Entry<JobId, byte[]> entry : statuses.entrySet()) {
+            if (pendingStatuses.get(entry.getKey()) == entry.getValue()) {
+              pendingStatuses.remove(entry.getKey());
+            }
+          }
+        }
+      }
+
+      for (final HistoryItem item : history) {
+        historyWriter.saveHistoryItem(item.jobId, item.status, item.timestamp);
+      }
+    }
+  }
+
+  /**
+   * Returns the latest status of a job, published or not.
+   */
+  private byte[] statusData(final JobId jobId) {
+    final byte[] pending = pendingStatuses.get(jobId);
+    return pending != null ? pending : taskStatuses.get(jobId.toString());
+  }
+
+  /**
+   * Get the {@link TaskStatus} for the job identified by {@code jobId}. A status stored without
+   * its job gets it filled in from the task, if the job is still deployed, as in
+   * {@link #getTaskStatuses()}.
    */
   @Override
   public TaskStatus getTaskStatus(final JobId jobId) {
-    final byte[] data = taskStatuses.get(jobId.toString());
+    final byte[] data;
+    synchronized (statusLock) {
+      data = statusData(jobId);
+    }
     if (data == null) {
       return null;
     }
+    final TaskStatus status;
     try {
-      return parse(data, TaskStatus.class);
+      status = TASK_STATUS_CODEC.read(data);
     } catch (IOException e) {
       throw Throwables.propagate(e);
     }
+    if (status.getJob() != null) {
+      return status;
+    }
+    final Task task = tasks.getNodes().get(Paths.configHostJob(agent, jobId));
+    return task == null ? status : status.withJob(task.getJob());
   }
 
   /**
@@ -172,7 +398,12 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
    */
   @Override
   public void removeTaskStatus(final JobId jobId) throws InterruptedException {
-    taskStatuses.remove(jobId.toString());
+    synchronized (publishLock) {
+      synchronized (statusLock) {
+        pendingStatuses.remove(jobId);
+      }
+      taskStatuses.remove(jobId.toString());
+    }
   }
 
   /**
@@ -181,7 +412,7 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   @Override
   public void addListener(final AgentModel.Listener listener) {
     listeners.add(listener);
-    listener.tasksChanged(this);
+    listener.tasksChanged(this, ImmutableSet.copyOf(getTasks().keySet()));
   }
 
   /**
@@ -192,10 +423,10 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
     listeners.remove(listener);
   }
 
-  protected void fireTasksUpdated() {
+  protected void fireTasksUpdated(final Set<JobId> jobIds) {
     for (final AgentModel.Listener listener : listeners) {
       try {
-        listener.tasksChanged(this);
+        listener.tasksChanged(this, jobIds);
       } catch (Exception e) {
         log.error("listener threw exception", e);
       }
@@ -205,8 +436,13 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
   private class JobsListener implements PersistentPathChildrenCache.Listener {
 
     @Override
-    public void nodesChanged(final PersistentPathChildrenCache<?> cache) {
-      fireTasksUpdated();
+    public void nodesChanged(final PersistentPathChildrenCache<?> cache,
+                             final Set<String> nodes) {
+      final ImmutableSet.Builder<JobId> jobIds = ImmutableSet.builder();
+      for (final String node : nodes) {
+        jobIds.add(jobIdFromTaskPath(node));
+      }
+      fireTasksUpdated(jobIds.build());
     }
 
     @Override
@@ -214,4 +450,20 @@ public class ZooKeeperAgentModel extends AbstractIdleService implements AgentMod
       // ignore
     }
   }
+
+  /**
+   * A task status change, waiting for the status to be published before it is saved to history.
+   */
+  private static class HistoryItem {
+
+    private final JobId jobId;
+    private final TaskStatus status;
+    private final long timestamp;
+
+    HistoryItem(final JobId jobId, final TaskStatus status, final long timestamp) {
+      this.jobId = jobId;
+      this.status = status;
+      this.timestamp = timestamp;
+    }
+  }
 }
@@ -21,6 +21,8 @@
 
 package com.spotify.helios.master;
 
+import com.spotify.helios.common.PayloadFormat;
+
 import io.dropwizard.Configuration;
 
 import java.net.InetSocketAddress;
@@ -48,6 +50,10 @@ public class MasterConfig extends Configuration {
   private String zooKeeperClusterId;
   private int adminPort;
   private InetSocketAddress httpEndpoint;
+  private boolean zooKeeperReadCache;
+  private boolean statusEvents;
+  private int statusThreads;
+  private PayloadFormat zooKeeperPayloadFormat = PayloadFormat.JSON;
 
   public String getDomain() {
     return domain;
@@ -183,4 +189,40 @@ public class MasterConfig extends Configuration {
   public InetSocketAddress getHttpEndpoint() {
     return httpEndpoint;
   }
+
+  public boolean isZooKeeperReadCache() {
+    return zooKeeperReadCache;
+  }
+
+  public MasterConfig setZooKeeperReadCache(final boolean zooKeeperReadCache) {
+    this.zooKeeperReadCache = zooKeeperReadCache;
+    return this;
+  }
+
+  public boolean isStatusEvents() {
+    return statusEvents;
+  }
+
+  public MasterConfig setStatusEvents(final boolean statusEvents) {
+    this.statusEvents = statusEvents;
+    return this;
+  }
+
+  public int getStatusThreads() {
+    return statusThreads;
+  }
+
+  public MasterConfig setStatusThreads(final int statusThreads) {
+    this.statusThreads = statusThreads;
+    return this;
+  }
+
+  public PayloadFormat getZooKeeperPayloadFormat() {
+    return zooKeeperPayloadFormat;
+  }
+
+  public MasterConfig setZooKeeperPayloadFormat(final PayloadFormat zooKeeperPayloadFormat) {
+    this.zooKeeperPayloadFormat = zooKeeperPayloadFormat;
+    return this;
+  }
 }
@@ -21,6 +21,7 @@
 
 package com.spotify.helios.master;
 
+import com.spotify.helios.common.HeliosException;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.HostStatus;
 import com.spotify.helios.common.descriptors.Job;
@@ -28,6 +29,7 @@ import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
 import com.spotify.helios.common.descriptors.TaskStatusEvent;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +45,12 @@ public interface MasterModel {
 
   List<String> listHosts();
 
+  /**
+   * Returns a version that changes whenever a host is registered or deregistered, for use in
+   * validating cached results of {@link #listHosts()}.
+   */
+  long getHostsVersion();
+
   HostStatus getHostStatus(String host);
 
   void addJob(Job job) throws JobExistsException;
@@ -51,8 +59,24 @@ public interface MasterModel {
 
   Map<JobId, Job> getJobs();
 
+  List<JobId> listJobs();
+
+  /**
+   * Returns a version that changes whenever a job is added or removed, for use in validating
+   * cached job listings. Job definitions are immutable so their contents need not be covered.
+   */
+  long getJobsVersion();
+
+  Map<JobId, Job> getJobs(Collection<JobId> jobIds);
+
   JobStatus getJobStatus(JobId jobId);
 
+  /**
+   * Returns a version that changes whenever the result of {@link #getJobStatus(JobId)} might, or
+   * null if the job does not exist.
+   */
+  Long getJobStatusVersion(JobId jobId);
+
   Job removeJob(JobId jobId)
       throws JobDoesNotExistException,
              JobStillDeployedException;
@@ -75,6 +99,16 @@ public interface MasterModel {
              JobPortAllocationConflictException,
              TokenVerificationException;
 
+  /**
+   * Deploys a job to several hosts at once.
+   *
+   * @return The hosts the job could not be deployed to, mapped to the reason why.
+   */
+  Map<String, HeliosException> deployJob(Collection<String> hosts, Deployment deployment,
+                                         String token)
+      throws JobDoesNotExistException,
+             TokenVerificationException;
+
   Deployment getDeployment(String host, JobId jobId);
 
   Deployment undeployJob(String host, JobId jobId)
@@ -86,6 +120,15 @@ public interface MasterModel {
              JobNotDeployedException,
              TokenVerificationException;
 
+  /**
+   * Undeploys a job from several hosts at once.
+   *
+   * @return The hosts the job could not be undeployed from, mapped to the reason why.
+   */
+  Map<String, HeliosException> undeployJob(Collection<String> hosts, JobId jobId, String token)
+      throws JobDoesNotExistException,
+             TokenVerificationException;
+
   void updateDeployment(String host, Deployment deployment)
       throws HostNotFoundException,
              JobNotDeployedException;
@@ -30,6 +30,8 @@ import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
 
+import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
+
 /**
  * Parses command-line arguments to produce the {@link MasterConfig}.
  */
@@ -39,6 +41,9 @@ public class MasterParser extends ServiceParser {
 
   private Argument httpArg;
   private Argument adminArg;
+  private Argument zkReadCacheArg;
+  private Argument statusEventsArg;
+  private Argument statusThreadsArg;
 
   public MasterParser(final String... args) throws ArgumentParserException {
     super("helios-master", "Spotify Helios Master", args);
@@ -52,6 +57,7 @@ public class MasterParser extends ServiceParser {
         .setZooKeeperConnectionTimeoutMillis(getZooKeeperConnectionTimeoutMillis())
         .setZooKeeperNamespace(getZooKeeperNamespace())
         .setZooKeeperClusterId(getZooKeeperClusterId())
+        .setZooKeeperPayloadFormat(getZooKeeperPayloadFormat())
         .setDomain(getDomain())
         .setName(getName())
         .setStatsdHostPort(getStatsdHostPort())
@@ -61,6 +67,9 @@ public class MasterParser extends ServiceParser {
         .setServiceRegistryAddress(getServiceRegistryAddress())
         .setServiceRegistrarPlugin(getServiceRegistrarPlugin())
         .setAdminPort(options.getInt(adminArg.getDest()))
+        .setZooKeeperReadCache(options.getBoolean(zkReadCacheArg.getDest()))
+        .setStatusEvents(options.getBoolean(statusEventsArg.getDest()))
+        .setStatusThreads(options.getInt(statusThreadsArg.getDest()))
         .setHttpEndpoint(httpAddress);
 
     this.masterConfig = config;
@@ -76,6 +85,25 @@ public class MasterParser extends ServiceParser {
         .type(Integer.class)
         .setDefault(5802)
         .help("admin http port");
+
+    zkReadCacheArg = parser.addArgument("--zk-read-cache")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("Serve job and host reads from an in-memory, watch-driven copy of ZooKeeper. " +
+              "Reads become eventually consistent with writes.");
+
+    statusEventsArg = parser.addArgument("--status-events")
+        .action(storeTrue())
+        .setDefault(false)
+        .help("Keep an in-memory copy of host and task statuses to serve the feed of status " +
+              "changes, used to watch jobs and to advance rolling updates as soon as statuses " +
+              "change. Always enabled with --zk-read-cache, which shares its copy.");
+
+    statusThreadsArg = parser.addArgument("--status-threads")
+        .type(Integer.class)
+        .setDefault(32)
+        .help("The number of threads reading host and job statuses in parallel for requests " +
+              "that ask for several of them.");
   }
 
   public MasterConfig getMasterConfig() {
@@ -25,14 +25,23 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Resources;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.codahale.metrics.MetricRegistry;
 import com.spotify.helios.master.http.VersionResponseFilter;
 import com.spotify.helios.master.metrics.ReportingResourceMethodDispatchAdapter;
+import com.spotify.helios.master.metrics.ReportingResponseFilter;
+import com.spotify.helios.master.metrics.ReportingServletFilter;
+import com.spotify.helios.master.metrics.SlowRequestLog;
+import com.spotify.helios.master.metrics.SlowRequestServlet;
+import com.spotify.helios.master.resources.EventsResource;
 import com.spotify.helios.master.resources.HistoryResource;
 import com.spotify.helios.master.resources.HostsResource;
 import com.spotify.helios.master.resources.JobsResource;
 import com.spotify.helios.master.resources.MastersResource;
+import com.spotify.helios.master.resources.RollingUpdatesResource;
 import com.spotify.helios.master.resources.VersionResource;
 import com.spotify.helios.serviceregistration.ServiceRegistrar;
 import com.spotify.helios.serviceregistration.ServiceRegistration;
@@ -42,6 +51,7 @@ import com.spotify.helios.servicescommon.RiemannHeartBeat;
 import com.spotify.helios.servicescommon.RiemannSupport;
 import com.spotify.helios.servicescommon.ServiceUtil;
 import com.spotify.helios.servicescommon.ZooKeeperRegistrar;
+import com.spotify.helios.servicescommon.coordination.CachingZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.CuratorClientFactory;
 import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.Paths;
@@ -66,6 +76,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.EnumSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.DispatcherType;
@@ -80,6 +92,7 @@ import io.dropwizard.server.DefaultServerFactory;
 import io.dropwizard.setup.Environment;
 
 import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.spotify.helios.servicescommon.ServiceRegistrars.createServiceRegistrar;
 
 /**
@@ -89,13 +102,21 @@ public class MasterService extends AbstractIdleService {
 
   private static final Logger log = LoggerFactory.getLogger(MasterService.class);
 
+  private static final int STATUS_QUEUE_SIZE = 1024;
+  private static final int SLOW_REQUEST_LOG_SIZE = 100;
+  private static final long SLOW_REQUEST_THRESHOLD_MILLIS = 1000;
+
   private final Server server;
   private final MasterConfig config;
   private final ServiceRegistrar registrar;
   private final RiemannFacade riemannFacade;
   private final ZooKeeperClient zooKeeperClient;
+  private final CachingZooKeeperClient cachingZooKeeperClient;
   private final ExpiredJobReaper expiredJobReaper;
   private final CuratorClientFactory curatorClientFactory;
+  private final ListeningExecutorService statusExecutor;
+  private final StatusEventFeed statusEventFeed;
+  private final RollingUpdater rollingUpdater;
 
   private ZooKeeperRegistrar zkRegistrar;
 
@@ -137,7 +158,19 @@ public class MasterService extends AbstractIdleService {
         riemannFacade, metrics.getZooKeeperMetrics());
     final ZooKeeperClientProvider zkClientProvider = new ZooKeeperClientProvider(
         zooKeeperClient, modelReporter);
-    final MasterModel model = new ZooKeeperMasterModel(zkClientProvider);
+    final ZooKeeperClientProvider zkReadClientProvider;
+    if (config.isZooKeeperReadCache()) {
+      this.cachingZooKeeperClient = new CachingZooKeeperClient(
+          zooKeeperClient, modelReporter, Paths.configJobs(), Paths.configJobRefs(),
+          Paths.configHosts(), Paths.statusHosts());
+      zkReadClientProvider = new ZooKeeperClientProvider(zooKeeperClient, modelReporter,
+                                                         cachingZooKeeperClient);
+    } else {
+      this.cachingZooKeeperClient = null;
+      zkReadClientProvider = zkClientProvider;
+    }
+    final MasterModel model = new ZooKeeperMasterModel(zkClientProvider, zkReadClientProvider,
+                                                       config.getZooKeeperPayloadFormat());
 
     final ZooKeeperHealthChecker zooKeeperHealthChecker = new ZooKeeperHealthChecker(
         zooKeeperClient, Paths.statusMasters(), riemannFacade, TimeUnit.MINUTES, 2);
@@ -156,16 +189,60 @@ public class MasterService extends AbstractIdleService {
         .setMasterModel(model)
         .build();
 
+    // Set up the executor used by resources to look up several statuses in parallel. Once its
+    // queue is full, requests read the rest of their statuses on their own threads.
+    checkArgument(config.getStatusThreads() > 0, "status threads must be positive");
+    this.statusExecutor = MoreExecutors.listeningDecorator(new ThreadPoolExecutor(
+        config.getStatusThreads(), config.getStatusThreads(), 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(STATUS_QUEUE_SIZE), new ThreadFactoryBuilder()
+            .setNameFormat("helios-master-status-%d")
+            .setDaemon(true)
+            .build(),
+        new ThreadPoolExecutor.CallerRunsPolicy()));
+
+    // Set up the feed of status changes. It follows the read cache when there is one, and is
+    // otherwise opt-in, as it keeps a copy of all host and task statuses in memory.
+    if (cachingZooKeeperClient != null) {
+      this.statusEventFeed = new StatusEventFeed(cachingZooKeeperClient);
+    } else if (config.isStatusEvents()) {
+      this.statusEventFeed = new StatusEventFeed(zooKeeperClient.getCuratorFramework());
+    } else {
+      this.statusEventFeed = null;
+    }
+
+    // Set up rolling updates, advanced as the statuses of the jobs being rolled out change, or
+    // periodically without the feed
+    this.rollingUpdater = new RollingUpdater(model, zkClientProvider, config.getName());
+    if (statusEventFeed != null) {
+      rollingUpdater.follow(statusEventFeed);
+    }
+
     // Set up http server
     environment.servlets()
         .addFilter("VersionResponseFilter", VersionResponseFilter.class)
         .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
     environment.jersey().register(
         new ReportingResourceMethodDispatchAdapter(metrics.getMasterMetrics()));
-    environment.jersey().register(new JobsResource(model, metrics.getMasterMetrics()));
+    final SlowRequestLog slowRequests = new SlowRequestLog(SLOW_REQUEST_LOG_SIZE,
+                                                           SLOW_REQUEST_THRESHOLD_MILLIS);
+    environment.servlets()
+        .addFilter("ReportingServletFilter",
+                   new ReportingServletFilter(metrics.getMasterMetrics(), slowRequests))
+        .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+    environment.jersey().getResourceConfig().getContainerResponseFilters().add(
+        new ReportingResponseFilter());
+    environment.admin().addServlet("slow-requests", new SlowRequestServlet(slowRequests))
+        .addMapping("/slow-requests");
+    environment.jersey().register(
+        new JobsResource(model, metrics.getMasterMetrics(), statusExecutor));
     environment.jersey().register(new HistoryResource(model, metrics.getMasterMetrics()));
-    environment.jersey().register(new HostsResource(model));
+    environment.jersey().register(new HostsResource(model, statusExecutor));
     environment.jersey().register(new MastersResource(model));
+    if (statusEventFeed != null) {
+      // Without it, clients get a 404 and poll instead
+      environment.jersey().register(new EventsResource(statusEventFeed));
+    }
+    environment.jersey().register(new RollingUpdatesResource(rollingUpdater));
     environment.jersey().register(new VersionResource());
     environment.jersey().register(new UserProvider());
 
@@ -222,7 +299,14 @@ public class MasterService extends AbstractIdleService {
   protected void startUp() throws Exception {
     logBanner();
     zkRegistrar.startAsync().awaitRunning();
+    if (cachingZooKeeperClient != null) {
+      cachingZooKeeperClient.start();
+    }
+    if (statusEventFeed != null) {
+      statusEventFeed.startAsync().awaitRunning();
+    }
     expiredJobReaper.startAsync().awaitRunning();
+    rollingUpdater.startAsync().awaitRunning();
     try {
       server.start();
     } catch (Exception e) {
@@ -241,9 +325,17 @@ public class MasterService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     server.stop();
     server.join();
+    statusExecutor.shutdownNow();
     registrar.close();
     expiredJobReaper.stopAsync().awaitTerminated();
+    rollingUpdater.stopAsync().awaitTerminated();
     zkRegistrar.stopAsync().awaitTerminated();
+    if (statusEventFeed != null) {
+      statusEventFeed.stopAsync().awaitTerminated();
+    }
+    if (cachingZooKeeperClient != null) {
+      cachingZooKeeperClient.close();
+    }
     zooKeeperClient.close();
   }
 
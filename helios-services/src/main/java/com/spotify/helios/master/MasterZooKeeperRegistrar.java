@@ -21,6 +21,7 @@
 
 package com.spotify.helios.master;
 
+import com.spotify.helios.servicescommon.MasterPayloadFormats;
 import com.spotify.helios.servicescommon.ZooKeeperRegistrarEventListener;
 import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
@@ -73,13 +74,16 @@ public class MasterZooKeeperRegistrar implements ZooKeeperRegistrarEventListener
     client.ensurePath(Paths.configHosts());
     client.ensurePath(Paths.configJobs());
     client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.configRollingUpdates());
     client.ensurePath(Paths.statusHosts());
     client.ensurePath(Paths.statusMasters());
     client.ensurePath(Paths.historyJobs());
 
     if (upNode == null) {
       final String upPath = Paths.statusMasterUp(name);
-      upNode = client.persistentEphemeralNode(upPath, Mode.EPHEMERAL, new byte[]{});
+      // Agents check which payload formats every master can read before writing in them
+      upNode = client.persistentEphemeralNode(upPath, Mode.EPHEMERAL,
+                                              MasterPayloadFormats.upNodeData());
       upNode.start();
     }
 
@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.spotify.helios.agent.Clock;
+import com.spotify.helios.agent.SystemClock;
+import com.spotify.helios.common.HeliosException;
+import com.spotify.helios.common.HeliosRuntimeException;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.descriptors.RollingUpdate.HostState;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.StatusEvent;
+import com.spotify.helios.servicescommon.coordination.Node;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.BadVersionException;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.base.Optional.fromNullable;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.DONE;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.FAILED;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.PENDING;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.UPDATING;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.TASK_STATUS;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperOperations.set;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Drives rolling updates of hosts from one job to another. The progress of each rolling update is
+ * kept in ZooKeeper under {@link Paths#configRollingUpdates()}, so that if the master driving it
+ * goes away, another master can pick it up where it was left.
+ *
+ * Each rolling update is driven by one master at a time, which holds a lease on it that it renews
+ * every time it advances the update. Every master periodically looks at all rolling updates,
+ * advancing those it holds the lease on and taking over those whose lease has expired. Updates
+ * to the node are made conditional on its version, so that masters never overwrite each other.
+ *
+ * A rolling update is advanced whenever the {@link StatusEventFeed} reports a change in the
+ * status of the job being deployed, which is usually a host on which the job has come up.
+ * Advancing deploys the job to the next hosts as long as no more than the allowed number of
+ * hosts are waiting for the job to come up. A rolling update fails if the job does not come up on
+ * a host in time, and leaves the remaining hosts alone. While following the feed, the periodic
+ * look at a rolling update this master drives only renews its lease, and reads the status of the
+ * job when a host has run out of time or the update has not been advanced since its last event.
+ *
+ * Undeploying the old job and deploying the new one are idempotent, so if a master dies after
+ * starting a batch but before recording it, the master taking over simply starts it again. The
+ * same goes for a master that loses the lease between starting a batch and recording it: its
+ * write fails and it stops driving the update, and since every master starts the pending hosts in
+ * the same order, and only while fewer than the allowed number of hosts are still coming up, the
+ * hosts it started are the ones the master taking over starts next. This keeps the number of
+ * hosts waiting for the new job within the parallelism of the update, unless the new job stops
+ * running on a host that a master has already counted as done.
+ */
+public class RollingUpdater extends AbstractIdleService implements StatusEventFeed.Listener {
+
+  private static final Logger log = LoggerFactory.getLogger(RollingUpdater.class);
+
+  public static final long DEFAULT_INTERVAL_MILLIS = SECONDS.toMillis(5);
+
+  private static final long LEASE_MILLIS = SECONDS.toMillis(30);
+  private static final long RETENTION_MILLIS = DAYS.toMillis(7);
+  private static final JsonCodec<RollingUpdate> CODEC = Json.codec(RollingUpdate.class);
+
+  private final MasterModel model;
+  private final ZooKeeperClientProvider provider;
+  private final String name;
+  private final long intervalMillis;
+  private final Clock clock;
+  private final ScheduledExecutorService executor;
+
+  // The rolling updates this master is driving, mapped to the job they deploy
+  private final ConcurrentMap<String, JobId> driving = Maps.newConcurrentMap();
+  private final Set<String> scheduled = Sets.newConcurrentHashSet();
+  // The rolling updates this master has advanced since the last status event of their job
+  private final Set<String> settled = Sets.newConcurrentHashSet();
+
+  private volatile boolean following;
+
+  /**
+   * @param model The master model used to deploy and undeploy jobs.
+   * @param provider The ZooKeeper client used to store rolling updates.
+   * @param name The name of this master.
+   */
+  public RollingUpdater(final MasterModel model, final ZooKeeperClientProvider provider,
+                        final String name) {
+    this(model, provider, name, DEFAULT_INTERVAL_MILLIS, new SystemClock());
+  }
+
+  public RollingUpdater(final MasterModel model, final ZooKeeperClientProvider provider,
+                        final String name, final long intervalMillis, final Clock clock) {
+    this.model = model;
+    this.provider = provider;
+    this.name = name;
+    this.intervalMillis = intervalMillis;
+    this.clock = clock;
+    this.executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("helios-rolling-updater-%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        advanceAll();
+      }
+    }, 0, intervalMillis, MILLISECONDS);
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(1, DAYS);
+  }
+
+  /**
+   * Advances rolling updates on the status events of {@code feed}, rather than only by looking at
+   * the status of their jobs periodically.
+   */
+  public void follow(final StatusEventFeed feed) {
+    feed.addListener(this);
+    following = true;
+  }
+
+  @Override
+  public void statusEvent(final StatusEvent event) {
+    if (event.getType() != TASK_STATUS) {
+      return;
+    }
+    for (final Map.Entry<String, JobId> entry : driving.entrySet()) {
+      if (entry.getValue().equals(event.getJobId())) {
+        settled.remove(entry.getKey());
+        schedule(entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * Picks the hosts to update. These are the hosts given in the request or, if there are none,
+   * every host the old job is deployed to.
+   */
+  public List<String> selectHosts(final RollingUpdateRequest request) {
+    if (!request.getHosts().isEmpty()) {
+      return ImmutableList.copyOf(Sets.newLinkedHashSet(request.getHosts()));
+    }
+    if (request.getOldJob() == null) {
+      return Collections.emptyList();
+    }
+    final JobStatus status = model.getJobStatus(request.getOldJob());
+    if (status == null) {
+      return Collections.emptyList();
+    }
+    return Ordering.natural().sortedCopy(status.getDeployments().keySet());
+  }
+
+  /**
+   * Starts a rolling update, to be driven by this master.
+   *
+   * @param request The jobs to update between and how fast to go.
+   * @param hosts The hosts to update, in order.
+   * @param token The authorization token for both jobs.
+   * @param user The user starting the rolling update.
+   * @return The rolling update.
+   */
+  public RollingUpdate create(final RollingUpdateRequest request, final List<String> hosts,
+                              final String token, final String user)
+      throws JobDoesNotExistException, TokenVerificationException {
+    verifyJob(request.getNewJob(), token);
+    if (request.getOldJob() != null) {
+      verifyJob(request.getOldJob(), token);
+    }
+
+    final long now = clock.now().getMillis();
+    final RollingUpdate update = RollingUpdate.newBuilder()
+        .setId(UUID.randomUUID().toString())
+        .setOldJob(request.getOldJob())
+        .setNewJob(request.getNewJob())
+        .setHosts(hosts)
+        .setBatchSize(request.getBatchSize())
+        .setParallelism(request.getParallelism())
+        .setHealthWaitSeconds(request.getHealthWaitSeconds())
+        .setDeployerUser(user)
+        .setToken(token)
+        .setState(RollingUpdate.State.RUNNING)
+        .setOwner(name)
+        .setLeaseExpiry(now + LEASE_MILLIS)
+        .setCreated(now)
+        .build();
+
+    final ZooKeeperClient client = provider.get("createRollingUpdate");
+    try {
+      client.createAndSetData(Paths.configRollingUpdate(update.getId()),
+                              CODEC.asBytesUnchecked(update));
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("creating rolling update " + update.getId() + " failed", e);
+    }
+    log.info("starting rolling update {}", update);
+    driving.put(update.getId(), update.getNewJob());
+    schedule(update.getId());
+    return update;
+  }
+
+  /**
+   * Returns the rolling update with the given id, or null if there is none.
+   */
+  public RollingUpdate get(final String id) {
+    final ZooKeeperClient client = provider.get("getRollingUpdate");
+    try {
+      return CODEC.read(client.getData(Paths.configRollingUpdate(id)));
+    } catch (NoNodeException e) {
+      return null;
+    } catch (KeeperException | IOException e) {
+      throw new HeliosRuntimeException("getting rolling update " + id + " failed", e);
+    }
+  }
+
+  /**
+   * Returns all rolling updates, including those that have finished recently.
+   */
+  public Map<String, RollingUpdate> list() {
+    final ZooKeeperClient client = provider.get("listRollingUpdates");
+    try {
+      final List<String> paths = Lists.newArrayList();
+      for (final String id : client.getChildren(Paths.configRollingUpdates())) {
+        paths.add(Paths.configRollingUpdate(id));
+      }
+      final Map<String, RollingUpdate> updates = Maps.newHashMap();
+      for (final byte[] bytes : client.getDataMany(paths).values()) {
+        final RollingUpdate update = CODEC.read(bytes);
+        updates.put(update.getId(), update);
+      }
+      return updates;
+    } catch (KeeperException | IOException e) {
+      throw new HeliosRuntimeException("listing rolling updates failed", e);
+    }
+  }
+
+  /**
+   * Stops a rolling update. Hosts that are already updating are left as they are.
+   *
+   * @return The cancelled rolling update, or null if there is none with the given id.
+   */
+  public RollingUpdate cancel(final String id, final String token)
+      throws TokenVerificationException {
+    final ZooKeeperClient client = provider.get("cancelRollingUpdate");
+    final String path = Paths.configRollingUpdate(id);
+    while (true) {
+      try {
+        final Node node = client.getNode(path);
+        final RollingUpdate update = CODEC.read(node.getBytes());
+        if (!token.equals(update.getToken())) {
+          throw new TokenVerificationException(update.getNewJob());
+        }
+        if (update.getState() != RollingUpdate.State.RUNNING) {
+          return update;
+        }
+        final RollingUpdate cancelled = update.toBuilder()
+            .setState(RollingUpdate.State.CANCELLED)
+            .build();
+        client.transaction(set(path, CODEC.asBytesUnchecked(cancelled),
+                               node.getStat().getVersion()));
+        log.info("cancelled rolling update {}", id);
+        forget(id);
+        return cancelled;
+      } catch (NoNodeException e) {
+        return null;
+      } catch (BadVersionException e) {
+        // Advanced by its master since we read it, try again
+      } catch (KeeperException | IOException e) {
+        throw new HeliosRuntimeException("cancelling rolling update " + id + " failed", e);
+      }
+    }
+  }
+
+  private void verifyJob(final JobId id, final String token)
+      throws JobDoesNotExistException, TokenVerificationException {
+    final Job job = model.getJob(id);
+    if (job == null) {
+      throw new JobDoesNotExistException(id);
+    }
+    if (!token.equals(job.getToken())) {
+      throw new TokenVerificationException(id);
+    }
+  }
+
+  private void schedule(final String id) {
+    if (!scheduled.add(id)) {
+      return;
+    }
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          scheduled.remove(id);
+          advance(id, true);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // Shutting down
+      scheduled.remove(id);
+    }
+  }
+
+  private void advanceAll() {
+    final List<String> ids;
+    try {
+      ids = provider.get("listRollingUpdates").getChildren(Paths.configRollingUpdates());
+    } catch (KeeperException e) {
+      log.warn("listing rolling updates failed", e);
+      return;
+    }
+    for (final String id : ids) {
+      advance(id, false);
+    }
+  }
+
+  /**
+   * Advances a rolling update if this master is driving it, or takes it over if the master that
+   * was driving it has gone away. Only called on the executor thread.
+   *
+   * @param changed Whether the status of the job may have changed since this master last
+   *                advanced the rolling update.
+   */
+  private void advance(final String id, final boolean changed) {
+    final ZooKeeperClient client = provider.get("advanceRollingUpdate");
+    final String path = Paths.configRollingUpdate(id);
+    try {
+      final Node node = client.getNode(path);
+      final int version = node.getStat().getVersion();
+      RollingUpdate update = CODEC.read(node.getBytes());
+      final long now = clock.now().getMillis();
+
+      if (update.getState() != RollingUpdate.State.RUNNING) {
+        forget(id);
+        if (now - update.getCreated() > RETENTION_MILLIS) {
+          client.delete(path, version);
+        }
+        return;
+      }
+
+      if (!name.equals(update.getOwner())) {
+        if (now < update.getLeaseExpiry()) {
+          forget(id);
+          return;
+        }
+        // Taking over is written together with the first step
+        log.info("taking over rolling update {} from {}", id, update.getOwner());
+      } else if (!changed && following && settled.contains(id) && !overdue(update, now)) {
+        if (update.getLeaseExpiry() - now < LEASE_MILLIS / 2) {
+          update = update.toBuilder()
+              .setLeaseExpiry(now + LEASE_MILLIS)
+              .build();
+          client.transaction(set(path, CODEC.asBytesUnchecked(update), version));
+        }
+        return;
+      }
+
+      // Driving it already, so that status events during the step advance it again afterwards
+      driving.put(id, update.getNewJob());
+      final RollingUpdate next = step(update, now);
+      client.transaction(set(path, CODEC.asBytesUnchecked(next), version));
+      if (next.getState() == RollingUpdate.State.RUNNING) {
+        settled.add(id);
+      } else {
+        log.info("rolling update {} finished: {}", id, next);
+        forget(id);
+      }
+    } catch (NoNodeException e) {
+      forget(id);
+    } catch (BadVersionException e) {
+      // Cancelled or taken over since we read it, look again on the next round
+      log.debug("rolling update {} changed while advancing it", id);
+    } catch (Exception e) {
+      log.warn("advancing rolling update {} failed", id, e);
+    }
+  }
+
+  private void forget(final String id) {
+    driving.remove(id);
+    settled.remove(id);
+  }
+
+  /**
+   * Returns true if the new job has run out of time to come up on any of the updating hosts.
+   */
+  private static boolean overdue(final RollingUpdate update, final long now) {
+    for (final String host : update.getHosts()) {
+      if (update.getHostState(host) == UPDATING &&
+          now >= fromNullable(update.getDeadlines().get(host)).or(0L)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Works out the next state of a rolling update, deploying the new job to more hosts if there
+   * is room to.
+   */
+  private RollingUpdate step(final RollingUpdate update, final long now) {
+    final Map<String, HostState> states = Maps.newLinkedHashMap(update.getHostStates());
+    final Map<String, Long> deadlines = Maps.newLinkedHashMap(update.getDeadlines());
+    final RollingUpdate.Builder next = update.toBuilder()
+        .setOwner(name)
+        .setLeaseExpiry(now + LEASE_MILLIS)
+        .setHostStates(states)
+        .setDeadlines(deadlines);
+
+    // See which of the updating hosts the new job has come up on
+    final JobStatus status = model.getJobStatus(update.getNewJob());
+    if (status == null) {
+      return next.setState(RollingUpdate.State.FAILED)
+          .setError(format("job %s no longer exists", update.getNewJob()))
+          .build();
+    }
+    int updating = 0;
+    for (final String host : update.getHosts()) {
+      if (update.getHostState(host) != UPDATING) {
+        continue;
+      }
+      final TaskStatus taskStatus = status.getTaskStatuses().get(host);
+      if (taskStatus != null && taskStatus.getState() == TaskStatus.State.RUNNING) {
+        states.put(host, DONE);
+        deadlines.remove(host);
+      } else if (now >= fromNullable(deadlines.get(host)).or(0L)) {
+        states.put(host, FAILED);
+        return next.setState(RollingUpdate.State.FAILED)
+            .setError(format("%s did not come up on %s within %d seconds, state: %s",
+                             update.getNewJob(), host, update.getHealthWaitSeconds(),
+                             taskStatus == null ? null : taskStatus.getState()))
+            .build();
+      } else {
+        updating++;
+      }
+    }
+
+    // Start updating more hosts if fewer than the allowed number are waiting for the new job
+    final List<String> pending = Lists.newArrayList();
+    for (final String host : update.getHosts()) {
+      if (update.getHostState(host) == PENDING) {
+        pending.add(host);
+      }
+    }
+    int started = 0;
+    while (started < pending.size() && updating < update.getParallelism()) {
+      final int size = min(update.getBatchSize(), update.getParallelism() - updating);
+      final List<String> batch = pending.subList(started, min(pending.size(), started + size));
+      final Map<String, HeliosException> failures;
+      try {
+        failures = updateHosts(update, batch);
+      } catch (HeliosException e) {
+        return next.setState(RollingUpdate.State.FAILED)
+            .setError(e.getMessage())
+            .build();
+      }
+      final long deadline = now + SECONDS.toMillis(update.getHealthWaitSeconds());
+      for (final String host : batch) {
+        states.put(host, failures.containsKey(host) ? FAILED : UPDATING);
+        deadlines.put(host, deadline);
+      }
+      if (!failures.isEmpty()) {
+        return next.setState(RollingUpdate.State.FAILED)
+            .setError(format("updating %s failed: %s", failures.keySet(), failures.values()))
+            .build();
+      }
+      updating += batch.size();
+      started += batch.size();
+    }
+
+    for (final String host : update.getHosts()) {
+      if (states.get(host) != DONE) {
+        return next.build();
+      }
+    }
+    return next.setState(RollingUpdate.State.DONE).build();
+  }
+
+  /**
+   * Replaces the old job with the new one on a batch of hosts.
+   *
+   * @return The hosts that could not be updated, mapped to the reason why.
+   */
+  private Map<String, HeliosException> updateHosts(final RollingUpdate update,
+                                                   final List<String> hosts)
+      throws JobDoesNotExistException, TokenVerificationException {
+    log.info("rolling update {}: updating {}", update.getId(), hosts);
+    final Map<String, HeliosException> failures = Maps.newHashMap();
+    final List<String> undeployed = Lists.newArrayList(hosts);
+
+    // Undeploy first, as the old and new jobs are likely to want the same ports
+    if (update.getOldJob() != null) {
+      try {
+        final Map<String, HeliosException> undeployFailures =
+            model.undeployJob(hosts, update.getOldJob(), update.getToken());
+        for (final Map.Entry<String, HeliosException> entry : undeployFailures.entrySet()) {
+          if (!(entry.getValue() instanceof JobNotDeployedException)) {
+            failures.put(entry.getKey(), entry.getValue());
+            undeployed.remove(entry.getKey());
+          }
+        }
+      } catch (JobDoesNotExistException ignored) {
+        // The old job has been removed, so there is nothing to undeploy
+      }
+    }
+
+    final Deployment deployment = Deployment.of(update.getNewJob(), Goal.START,
+                                                update.getDeployerUser());
+    final Map<String, HeliosException> deployFailures =
+        model.deployJob(undeployed, deployment, update.getToken());
+    for (final Map.Entry<String, HeliosException> entry : deployFailures.entrySet()) {
+      if (!(entry.getValue() instanceof JobAlreadyDeployedException)) {
+        failures.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return failures;
+  }
+}
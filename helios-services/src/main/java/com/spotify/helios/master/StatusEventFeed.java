@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractIdleService;
+
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.HostStatus;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.Task;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.protocol.StatusEvent;
+import com.spotify.helios.common.protocol.StatusEvents;
+import com.spotify.helios.servicescommon.coordination.CachingZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.spotify.helios.common.descriptors.HostStatus.Status.DOWN;
+import static com.spotify.helios.common.descriptors.HostStatus.Status.UP;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.DEPLOYMENT;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.HOST_STATUS;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.TASK_STATUS;
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * A feed of changes to task statuses, deployments and host up/down state, driven by ZooKeeper
+ * watches on the host config and status subtrees. The most recent events are kept in memory so
+ * that clients can long-poll for the events that follow the last one they have seen, instead of
+ * repeatedly reading the full state.
+ *
+ * The feed is identified by a random id that changes whenever events might have been missed,
+ * i.e. on startup and after reconnecting to ZooKeeper. Clients following an older feed are told
+ * to read the state again.
+ *
+ * The watched subtrees are either mirrored by the feed itself, or, when the master already keeps
+ * them in a {@link CachingZooKeeperClient}, followed through the mirrors of that client so that
+ * they are only held in memory once.
+ */
+public class StatusEventFeed extends AbstractIdleService implements TreeCacheListener {
+
+  /**
+   * Receives each event as it is added to the feed. Called on the ZooKeeper event thread, so
+   * implementations must not block.
+   */
+  public interface Listener {
+
+    void statusEvent(StatusEvent event);
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(StatusEventFeed.class);
+
+  private static final int MAX_EVENTS = 10000;
+  private static final JsonCodec<Task> TASK_CODEC = Json.codec(Task.class);
+  private static final JsonCodec<TaskStatus> TASK_STATUS_CODEC = Json.codec(TaskStatus.class);
+  private static final Splitter PATH_SPLITTER = Splitter.on('/').omitEmptyStrings();
+  private static final List<String> CONFIG_HOSTS = PATH_SPLITTER.splitToList(Paths.configHosts());
+  private static final List<String> STATUS_HOSTS = PATH_SPLITTER.splitToList(Paths.statusHosts());
+  private static final String JOBS = "jobs";
+  private static final String UP_NODE = "up";
+
+  private final List<TreeCache> caches;
+
+  private final Object lock = new Object();
+  private final Deque<StatusEvent> events = new ArrayDeque<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private int uninitialized = 2;
+  private String feed = "";
+  private long version;
+
+  /**
+   * Creates a feed that mirrors the host config and status subtrees itself.
+   *
+   * @param curator The client to watch ZooKeeper with.
+   */
+  public StatusEventFeed(final CuratorFramework curator) {
+    this.caches = ImmutableList.of(new TreeCache(curator, Paths.configHosts()),
+                                   new TreeCache(curator, Paths.statusHosts()));
+    for (final TreeCache cache : caches) {
+      cache.getListenable().addListener(this);
+    }
+  }
+
+  /**
+   * Creates a feed that follows the mirrors of the host config and status subtrees kept by
+   * {@code client}. Must be created before the client is started, so that no change is missed.
+   *
+   * @param client A client that caches {@link Paths#configHosts()} and
+   *               {@link Paths#statusHosts()}.
+   */
+  public StatusEventFeed(final CachingZooKeeperClient client) {
+    this.caches = ImmutableList.of();
+    client.getListenable(Paths.configHosts()).addListener(this);
+    client.getListenable(Paths.statusHosts()).addListener(this);
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    for (final TreeCache cache : caches) {
+      cache.start();
+    }
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    for (final TreeCache cache : caches) {
+      cache.close();
+    }
+  }
+
+  public void addListener(final Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Waits for the events that follow {@code since} in {@code feed}.
+   *
+   * @param feed          The id of the feed the client is following.
+   * @param since         The version of the last event the client has seen.
+   * @param timeoutMillis How long to wait for new events.
+   * @return The events following {@code since}, which is empty if the wait timed out. If the
+   *         feed is not the current one or events following {@code since} have been dropped,
+   *         an empty reset is returned with the current position in the feed.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public StatusEvents poll(final String feed, final long since, final long timeoutMillis)
+      throws InterruptedException {
+    final long deadline = currentTimeMillis() + timeoutMillis;
+    synchronized (lock) {
+      while (true) {
+        if (uninitialized == 0) {
+          final long first = events.isEmpty() ? version + 1 : events.peekFirst().getVersion();
+          if (!this.feed.equals(feed) || since < first - 1 || since > version) {
+            return new StatusEvents(this.feed, version, true,
+                                    Collections.<StatusEvent>emptyList());
+          }
+          if (since < version) {
+            final ImmutableList.Builder<StatusEvent> newer = ImmutableList.builder();
+            for (final StatusEvent event : events) {
+              if (event.getVersion() > since) {
+                newer.add(event);
+              }
+            }
+            return new StatusEvents(this.feed, version, false, newer.build());
+          }
+        }
+        final long remaining = deadline - currentTimeMillis();
+        if (remaining <= 0) {
+          return new StatusEvents(feed, since, false, Collections.<StatusEvent>emptyList());
+        }
+        lock.wait(remaining);
+      }
+    }
+  }
+
+  @Override
+  public void childEvent(final CuratorFramework client, final TreeCacheEvent event) {
+    switch (event.getType()) {
+      case INITIALIZED:
+        synchronized (lock) {
+          uninitialized--;
+          if (uninitialized == 0) {
+            restart();
+          }
+        }
+        return;
+      case CONNECTION_RECONNECTED:
+        // Changes made while we were disconnected might not all show up as events
+        synchronized (lock) {
+          if (uninitialized == 0) {
+            restart();
+          }
+        }
+        return;
+      case NODE_ADDED:
+      case NODE_UPDATED:
+      case NODE_REMOVED:
+        break;
+      default:
+        return;
+    }
+
+    synchronized (lock) {
+      // The initial load of the caches is not a change
+      if (uninitialized > 0) {
+        return;
+      }
+    }
+
+    try {
+      nodeEvent(event.getType(), event.getData());
+    } catch (IOException e) {
+      log.warn("failed to parse {}", event.getData().getPath(), e);
+    }
+  }
+
+  private void nodeEvent(final TreeCacheEvent.Type type, final ChildData data)
+      throws IOException {
+    final List<String> path = PATH_SPLITTER.splitToList(data.getPath());
+    final boolean removed = type == TreeCacheEvent.Type.NODE_REMOVED;
+    final int depth = CONFIG_HOSTS.size();
+
+    if (path.size() == depth + 3 && path.subList(0, depth).equals(CONFIG_HOSTS) &&
+        path.get(depth + 1).equals(JOBS)) {
+      // /config/hosts/<host>/jobs/<job>
+      final String host = path.get(depth);
+      final JobId jobId = JobId.fromString(path.get(depth + 2));
+      final Deployment deployment;
+      if (removed) {
+        deployment = null;
+      } else {
+        final Task task = TASK_CODEC.read(data.getData());
+        deployment = Deployment.of(jobId, task.getGoal(), task.getDeployerUser());
+      }
+      append(DEPLOYMENT, host, jobId, null, deployment, null);
+    } else if (path.size() == depth + 3 && path.subList(0, depth).equals(STATUS_HOSTS) &&
+               path.get(depth + 1).equals(JOBS)) {
+      // /status/hosts/<host>/jobs/<job>
+      final String host = path.get(depth);
+      final JobId jobId = JobId.fromString(path.get(depth + 2));
+      final TaskStatus status = removed ? null : TASK_STATUS_CODEC.read(data.getData());
+      append(TASK_STATUS, host, jobId, status, null, null);
+    } else if (path.size() == depth + 2 && path.subList(0, depth).equals(STATUS_HOSTS) &&
+               path.get(depth + 1).equals(UP_NODE) &&
+               type != TreeCacheEvent.Type.NODE_UPDATED) {
+      // /status/hosts/<host>/up
+      final HostStatus.Status status = removed ? DOWN : UP;
+      append(HOST_STATUS, path.get(depth), null, null, null, status);
+    }
+  }
+
+  private void append(final StatusEvent.Type type, final String host, final JobId jobId,
+                      final TaskStatus taskStatus, final Deployment deployment,
+                      final HostStatus.Status hostStatus) {
+    final StatusEvent event;
+    synchronized (lock) {
+      version++;
+      event = new StatusEvent(version, type, host, jobId, taskStatus, deployment, hostStatus);
+      events.addLast(event);
+      if (events.size() > MAX_EVENTS) {
+        events.removeFirst();
+      }
+      lock.notifyAll();
+    }
+    for (final Listener listener : listeners) {
+      listener.statusEvent(event);
+    }
+  }
+
+  /**
+   * Starts a new feed, telling all clients to read the state again. Must hold the lock.
+   */
+  private void restart() {
+    feed = UUID.randomUUID().toString();
+    events.clear();
+    log.info("started status event feed {} at version {}", feed, version);
+    lock.notifyAll();
+  }
+}
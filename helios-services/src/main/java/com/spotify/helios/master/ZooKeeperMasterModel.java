@@ -22,15 +22,23 @@
 package com.spotify.helios.master;
 
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.common.HeliosException;
 import com.spotify.helios.common.HeliosRuntimeException;
 import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.common.descriptors.AgentInfo;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.HostInfo;
@@ -48,6 +56,7 @@ import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.BadVersionException;
 import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.apache.zookeeper.KeeperException.NotEmptyException;
@@ -57,10 +66,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.google.common.base.Charsets.UTF_8;
@@ -98,6 +109,20 @@ public class ZooKeeperMasterModel implements MasterModel {
 
   private static final Logger log = LoggerFactory.getLogger(ZooKeeperMasterModel.class);
 
+  private static final int JOB_CACHE_SIZE = 10000;
+
+  /**
+   * The number of hosts whose deployments are written in a single transaction by the bulk
+   * deploy and undeploy operations. Keeps transactions well below the default ZooKeeper request
+   * size limit of 1 MB.
+   */
+  private static final int DEPLOYMENT_BATCH_SIZE = 50;
+
+  private static final JsonCodec<Job> JOB_CODEC = Json.codec(Job.class);
+  private static final JsonCodec<TaskStatus> TASK_STATUS_CODEC = Json.codec(TaskStatus.class);
+  private static final JsonCodec<Task> TASK_CODEC = Json.codec(Task.class);
+  private static final JsonCodec<AgentInfo> AGENT_INFO_CODEC = Json.codec(AgentInfo.class);
+
   public static final Map<JobId, TaskStatus> EMPTY_STATUSES = emptyMap();
   public static final TypeReference<HostInfo>
       HOST_INFO_TYPE =
@@ -110,9 +135,37 @@ public class ZooKeeperMasterModel implements MasterModel {
       new TypeReference<Map<String, String>>() {};
 
   private final ZooKeeperClientProvider provider;
+  private final ZooKeeperClientProvider readProvider;
+  private final PayloadFormat payloadFormat;
+
+  // Jobs never change once created, so they can be cached by id for filling in the task statuses
+  // that are stored without them.
+  private final Cache<JobId, Job> jobCache = CacheBuilder.newBuilder()
+      .maximumSize(JOB_CACHE_SIZE)
+      .build();
 
   public ZooKeeperMasterModel(final ZooKeeperClientProvider provider) {
+    this(provider, provider);
+  }
+
+  public ZooKeeperMasterModel(final ZooKeeperClientProvider provider,
+                              final ZooKeeperClientProvider readProvider) {
+    this(provider, readProvider, PayloadFormat.JSON);
+  }
+
+  /**
+   * @param provider      The provider of clients used for writes and for the reads they depend on.
+   * @param readProvider  The provider of clients used to serve read-only queries. This may be
+   *                      backed by an eventually consistent cache, e.g. a
+   *                      {@link com.spotify.helios.servicescommon.coordination.CachingZooKeeperClient}.
+   * @param payloadFormat The format to write task configurations in, for agents that can read it.
+   */
+  public ZooKeeperMasterModel(final ZooKeeperClientProvider provider,
+                              final ZooKeeperClientProvider readProvider,
+                              final PayloadFormat payloadFormat) {
     this.provider = provider;
+    this.readProvider = readProvider;
+    this.payloadFormat = payloadFormat;
   }
 
   /**
@@ -150,7 +203,7 @@ public class ZooKeeperMasterModel implements MasterModel {
   public List<String> listHosts() {
     try {
       // TODO (dano): only return hosts whose agents completed registration (i.e. has id nodes)
-      return provider.get("listHosts").getChildren(Paths.configHosts());
+      return readProvider.get("listHosts").getChildren(Paths.configHosts());
     } catch (KeeperException.NoNodeException e) {
       return emptyList();
     } catch (KeeperException e) {
@@ -158,6 +211,27 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
+  /**
+   * Returns the zxid of the last change to the set of registered hosts.
+   */
+  @Override
+  public long getHostsVersion() {
+    return childrenVersion(readProvider.get("getHostsVersion"), Paths.configHosts());
+  }
+
+  /**
+   * Returns the latest zxid at which the children of {@code path} changed, or 0 if the node does
+   * not exist.
+   */
+  private static long childrenVersion(final ZooKeeperClient client, final String path) {
+    try {
+      final Stat stat = client.exists(path);
+      return stat == null ? 0 : Math.max(stat.getCzxid(), stat.getPzxid());
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting version of " + path + " failed", e);
+    }
+  }
+
   /**
    * Returns a list of the host names of the currently running masters.
    */
@@ -314,7 +388,7 @@ public class ZooKeeperMasterModel implements MasterModel {
     if (descriptor == null) {
       throw new JobDoesNotExistException(jobId);
     }
-    final ZooKeeperClient client = provider.get("getJobHistory");
+    final ZooKeeperClient client = readProvider.get("getJobHistory");
     final List<String> hosts;
     try {
       hosts = client.getChildren(Paths.historyJobHosts(jobId));
@@ -338,8 +412,8 @@ public class ZooKeeperMasterModel implements MasterModel {
         try {
           byte[] data = client.getData(Paths.historyJobHostEventsTimestamp(
               jobId, host, Long.valueOf(event)));
-          final TaskStatus status = Json.read(data, TaskStatus.class);
-          jsEvents.add(new TaskStatusEvent(status, Long.valueOf(event), host));
+          final TaskStatus status = TASK_STATUS_CODEC.read(data);
+          jsEvents.add(new TaskStatusEvent(status.withJob(descriptor), Long.valueOf(event), host));
         } catch (NoNodeException e) { // ignore, it went away before we read it
         } catch (KeeperException | IOException e) {
           throw Throwables.propagate(e);
@@ -357,7 +431,7 @@ public class ZooKeeperMasterModel implements MasterModel {
   @Override
   public Job getJob(final JobId id) {
     log.debug("getting job: {}", id);
-    final ZooKeeperClient client = provider.get("getJob");
+    final ZooKeeperClient client = readProvider.get("getJob");
     return getJob(client, id);
   }
 
@@ -366,7 +440,7 @@ public class ZooKeeperMasterModel implements MasterModel {
     final String path = Paths.configJob(id);
     try {
       final byte[] data = client.getData(path);
-      return Json.read(data, Job.class);
+      return JOB_CODEC.read(data);
     } catch (NoNodeException e) {
       // Return null to indicate that the job does not exist
       return null;
@@ -382,7 +456,7 @@ public class ZooKeeperMasterModel implements MasterModel {
   public Map<JobId, Job> getJobs() {
     log.debug("getting jobs");
     final String folder = Paths.configJobs();
-    final ZooKeeperClient client = provider.get("getJobs");
+    final ZooKeeperClient client = readProvider.get("getJobs");
     try {
       final List<String> ids;
       try {
@@ -390,31 +464,83 @@ public class ZooKeeperMasterModel implements MasterModel {
       } catch (NoNodeException e) {
         return Maps.newHashMap();
       }
-      final Map<JobId, Job> descriptors = Maps.newHashMap();
+      final List<JobId> jobIds = Lists.newArrayList();
       for (final String id : ids) {
-        final JobId jobId = JobId.fromString(id);
-        final String path = Paths.configJob(jobId);
-        try {
-          final byte[] data = client.getData(path);
-          final Job descriptor = parse(data, Job.class);
-          descriptors.put(descriptor.getId(), descriptor);
-        } catch (NoNodeException e) {
-          // Ignore, the job was deleted before we had a chance to read it.
-          log.debug("Ignoring deleted job {}", jobId);
-        }
+        jobIds.add(JobId.fromString(id));
       }
-      return descriptors;
-    } catch (KeeperException | IOException e) {
+      return getJobs(client, jobIds);
+    } catch (KeeperException e) {
       throw new HeliosRuntimeException("getting jobs failed", e);
     }
   }
 
+  /**
+   * Returns the ids of all jobs without reading their definitions.
+   */
+  @Override
+  public List<JobId> listJobs() {
+    try {
+      final List<String> ids = readProvider.get("listJobs").getChildren(Paths.configJobs());
+      final List<JobId> jobIds = Lists.newArrayList();
+      for (final String id : ids) {
+        jobIds.add(JobId.fromString(id));
+      }
+      return jobIds;
+    } catch (NoNodeException e) {
+      return emptyList();
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("listing jobs failed", e);
+    }
+  }
+
+  /**
+   * Returns the zxid of the last job addition or removal.
+   */
+  @Override
+  public long getJobsVersion() {
+    return childrenVersion(readProvider.get("getJobsVersion"), Paths.configJobs());
+  }
+
+  /**
+   * Returns the definitions of the given jobs. Jobs that do not exist are left out.
+   */
+  @Override
+  public Map<JobId, Job> getJobs(final Collection<JobId> jobIds) {
+    log.debug("getting {} jobs", jobIds.size());
+    try {
+      return getJobs(readProvider.get("getJobs"), jobIds);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting jobs failed", e);
+    }
+  }
+
+  private Map<JobId, Job> getJobs(final ZooKeeperClient client, final Collection<JobId> jobIds)
+      throws KeeperException {
+    final List<String> paths = Lists.newArrayList();
+    for (final JobId id : jobIds) {
+      paths.add(Paths.configJob(id));
+    }
+    // Jobs deleted before we had a chance to read them are left out of the batch result.
+    final Map<String, byte[]> data = client.getDataMany(paths);
+    final Map<JobId, Job> descriptors = Maps.newHashMap();
+    for (final byte[] bytes : data.values()) {
+      final Job descriptor;
+      try {
+        descriptor = parse(bytes, Job.class);
+      } catch (IOException e) {
+        throw new HeliosRuntimeException("parsing job failed", e);
+      }
+      descriptors.put(descriptor.getId(), descriptor);
+    }
+    return descriptors;
+  }
+
   /**
    * Returns the current job status as a {@link JobStatus} object.
    */
   @Override
   public JobStatus getJobStatus(final JobId jobId) {
-    final ZooKeeperClient client = provider.get("getJobStatus");
+    final ZooKeeperClient client = readProvider.get("getJobStatus");
 
     final Job job = getJob(client, jobId);
     if (job == null) {
@@ -428,16 +554,30 @@ public class ZooKeeperMasterModel implements MasterModel {
       return null;
     }
 
+    // Read the task status and deployment on every host in a single batch
+    final List<String> paths = Lists.newArrayList();
+    for (final String host : hosts) {
+      paths.add(Paths.statusHostJob(host, jobId));
+      paths.add(Paths.configHostJob(host, jobId));
+    }
+    final Map<String, byte[]> data;
+    try {
+      data = client.getDataMany(paths);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting job " + jobId + " status failed", e);
+    }
+
     final ImmutableMap.Builder<String, Deployment> deployments = ImmutableMap.builder();
     final ImmutableMap.Builder<String, TaskStatus> taskStatuses = ImmutableMap.builder();
     for (final String host : hosts) {
-      final TaskStatus taskStatus = getTaskStatus(client, host, jobId);
+      final TaskStatus taskStatus = parseTaskStatus(
+          host, jobId, data.get(Paths.statusHostJob(host, jobId)));
       if (taskStatus != null) {
-        taskStatuses.put(host, taskStatus);
+        taskStatuses.put(host, taskStatus.withJob(job));
       }
-      final Deployment deployment = getDeployment(host, jobId);
-      if (deployment != null) {
-        deployments.put(host, deployment);
+      final Task task = parseTask(data.get(Paths.configHostJob(host, jobId)));
+      if (task != null) {
+        deployments.put(host, Deployment.of(jobId, task.getGoal(), task.getDeployerUser()));
       }
     }
 
@@ -449,6 +589,41 @@ public class ZooKeeperMasterModel implements MasterModel {
         .build();
   }
 
+  /**
+   * Returns a hash of the zxids of the nodes a job status is read from: the hosts the job is
+   * deployed to and the deployment and task status on each of them. Only the stats are read, so
+   * this is much cheaper than reading the job status itself. Removed nodes drop out of the hash,
+   * so a removal changes the version even if a later change was made elsewhere.
+   */
+  @Override
+  public Long getJobStatusVersion(final JobId jobId) {
+    final ZooKeeperClient client = readProvider.get("getJobStatusVersion");
+    final String hostsPath = Paths.configJobHosts(jobId);
+    try {
+      final Stat hostsStat = client.exists(hostsPath);
+      if (hostsStat == null) {
+        return null;
+      }
+      final List<String> paths = Lists.newArrayList();
+      for (final String host : client.getChildren(hostsPath)) {
+        paths.add(Paths.statusHostJob(host, jobId));
+        paths.add(Paths.configHostJob(host, jobId));
+      }
+      final Hasher hasher = Hashing.murmur3_128().newHasher()
+          .putLong(hostsStat.getCzxid())
+          .putLong(hostsStat.getPzxid());
+      final Map<String, Stat> stats = client.existsMany(paths);
+      for (final String path : Ordering.natural().sortedCopy(stats.keySet())) {
+        hasher.putString(path, UTF_8).putLong(stats.get(path).getMzxid());
+      }
+      return hasher.hash().asLong();
+    } catch (NoNodeException e) {
+      return null;
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting job " + jobId + " status version failed", e);
+    }
+  }
+
   private List<String> listJobHosts(final ZooKeeperClient client, final JobId jobId)
       throws JobDoesNotExistException {
     final List<String> hosts;
@@ -557,7 +732,7 @@ public class ZooKeeperMasterModel implements MasterModel {
     log.info("deploying {}: {} (retry={})", deployment, host, count);
 
     final JobId id = deployment.getJobId();
-    final Job job = getJob(id);
+    final Job job = getJob(client, id);
 
     if (job == null) {
       throw new JobDoesNotExistException(id);
@@ -589,7 +764,7 @@ public class ZooKeeperMasterModel implements MasterModel {
       // if we get here the node exists already
       throw new JobAlreadyDeployedException(host, id);
     } catch (NoNodeException e) {
-      operations.add(create(taskPath, task));
+      operations.add(create(taskPath, encodeTask(client, host, task)));
       operations.add(create(taskCreationPath));
     } catch (KeeperException e) {
       throw new HeliosRuntimeException("reading existing task description failed", e);
@@ -647,6 +822,163 @@ public class ZooKeeperMasterModel implements MasterModel {
     }
   }
 
+  /**
+   * Deploys a job to several hosts. The job and token are checked once, whether each host can
+   * take the job is read in a single batch, and the deployments are written in transactions of
+   * {@link #DEPLOYMENT_BATCH_SIZE} hosts. If a transaction fails because something changed since
+   * the batch was read, the hosts of that transaction are deployed to one at a time instead.
+   *
+   * @return The hosts the job could not be deployed to, and why. A host whose deployment failed
+   *         for any other reason than the ones {@link #deployJob(String, Deployment, String)}
+   *         declares is reported with a plain {@link HeliosException}.
+   */
+  @Override
+  public Map<String, HeliosException> deployJob(final Collection<String> hosts,
+                                                final Deployment deployment, final String token)
+      throws JobDoesNotExistException, TokenVerificationException {
+    final ZooKeeperClient client = provider.get("deployJobs");
+
+    final JobId id = deployment.getJobId();
+    final Job job = getJob(client, id);
+    if (job == null) {
+      throw new JobDoesNotExistException(id);
+    }
+    verifyToken(token, job);
+
+    final Set<String> targets = Sets.newLinkedHashSet(hosts);
+    log.info("deploying {}: {} hosts", deployment, targets.size());
+
+    final List<Integer> staticPorts = staticPorts(job);
+    final List<String> paths = Lists.newArrayList();
+    for (final String host : targets) {
+      paths.add(Paths.configHost(host));
+      paths.add(Paths.configHostJob(host, id));
+      paths.add(Paths.statusHostAgentInfo(host));
+      for (final int port : staticPorts) {
+        paths.add(Paths.configHostPort(host, port));
+      }
+    }
+    final Map<String, byte[]> data;
+    try {
+      data = client.getDataMany(paths);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("deploying job failed", e);
+    }
+
+    final Map<String, HeliosException> failures = Maps.newHashMap();
+    final Task task = new Task(job, deployment.getGoal(), deployment.getDeployerUser());
+    final byte[] idJson = id.toJsonBytes();
+    // The creation node of each host in the batch, to tell whether a failed transaction went in
+    final Map<String, String> batch = Maps.newLinkedHashMap();
+    final List<ZooKeeperOperation> operations = Lists.newArrayList();
+    for (final String host : targets) {
+      if (!data.containsKey(Paths.configHost(host))) {
+        failures.put(host, new HostNotFoundException(host));
+        continue;
+      }
+      final String taskPath = Paths.configHostJob(host, id);
+      if (data.containsKey(taskPath)) {
+        failures.put(host, new JobAlreadyDeployedException(host, id));
+        continue;
+      }
+      final Map<String, byte[]> portNodes = Maps.newHashMap();
+      JobPortAllocationConflictException conflict = null;
+      for (final int port : staticPorts) {
+        final String path = Paths.configHostPort(host, port);
+        final byte[] existing = data.get(path);
+        if (existing != null) {
+          conflict = new JobPortAllocationConflictException(
+              id, Json.readUnchecked(existing, JobId.class), host, port);
+          break;
+        }
+        portNodes.put(path, idJson);
+      }
+      if (conflict != null) {
+        failures.put(host, conflict);
+        continue;
+      }
+
+      final byte[] taskBytes = encodeTask(host, data.get(Paths.statusHostAgentInfo(host)), task);
+      operations.add(create(portNodes));
+      operations.add(create(Paths.configJobHost(id, host)));
+      operations.add(create(taskPath, taskBytes));
+      final String creationPath = Paths.configHostJobCreation(host, id, UUID.randomUUID());
+      operations.add(create(creationPath));
+      batch.put(host, creationPath);
+      if (batch.size() == DEPLOYMENT_BATCH_SIZE) {
+        commitDeployments(client, deployment, token, batch, operations, failures);
+      }
+    }
+    commitDeployments(client, deployment, token, batch, operations, failures);
+    return failures;
+  }
+
+  /**
+   * Commits the deployments of a batch of hosts, mapped to the creation node written for each.
+   * If the transaction fails, the creation nodes tell whether it went in anyway, as it may have
+   * if the connection was lost. If it did not, and it failed because something changed since the
+   * batch was read, the hosts are deployed to one at a time instead.
+   */
+  private void commitDeployments(final ZooKeeperClient client, final Deployment deployment,
+                                 final String token, final Map<String, String> batch,
+                                 final List<ZooKeeperOperation> operations,
+                                 final Map<String, HeliosException> failures) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final List<ZooKeeperOperation> transaction = Lists.newArrayList();
+    transaction.add(check(Paths.configJob(deployment.getJobId())));
+    transaction.addAll(operations);
+    try {
+      client.transaction(transaction);
+      log.info("deployed {}: {}", deployment, batch.keySet());
+    } catch (KeeperException e) {
+      final List<String> missing = Lists.newArrayList();
+      try {
+        final Map<String, Stat> created = client.existsMany(batch.values());
+        for (final Map.Entry<String, String> entry : batch.entrySet()) {
+          if (!created.containsKey(entry.getValue())) {
+            missing.add(entry.getKey());
+          }
+        }
+      } catch (KeeperException ex) {
+        log.warn("checking deployments of {} failed", deployment, ex);
+        missing.addAll(batch.keySet());
+      }
+      if (missing.isEmpty()) {
+        log.info("deployed {}: {} ({})", deployment, batch.keySet(), e.toString());
+      } else if (e instanceof NodeExistsException || e instanceof BadVersionException ||
+                 e instanceof NoNodeException) {
+        log.info("deploying {} to {} hosts at once failed, deploying one host at a time: {}",
+                 deployment, missing.size(), e.toString());
+        deployEach(client, deployment, token, missing, failures);
+      } else {
+        log.warn("deploying {} to {} failed", deployment, missing, e);
+        for (final String host : missing) {
+          failures.put(host, new HeliosException("deploying job failed", e));
+        }
+      }
+    }
+    batch.clear();
+    operations.clear();
+  }
+
+  private void deployEach(final ZooKeeperClient client, final Deployment deployment,
+                          final String token, final List<String> hosts,
+                          final Map<String, HeliosException> failures) {
+    for (final String host : hosts) {
+      try {
+        deployJobRetry(client, host, deployment, 0, token);
+      } catch (JobDoesNotExistException | JobAlreadyDeployedException | HostNotFoundException |
+          JobPortAllocationConflictException | TokenVerificationException ex) {
+        failures.put(host, ex);
+      } catch (HeliosRuntimeException ex) {
+        log.warn("deploying {} to {} failed", deployment, host, ex);
+        failures.put(host, new HeliosException(ex));
+      }
+    }
+  }
+
   private void assertJobExists(final ZooKeeperClient client, final JobId id)
       throws JobDoesNotExistException {
     try {
@@ -703,13 +1035,47 @@ public class ZooKeeperMasterModel implements MasterModel {
     final String path = Paths.configHostJob(host, jobId);
     final Task task = new Task(job, deployment.getGoal(), Task.EMPTY_DEPLOYER_USER);
     try {
-      client.setData(path, task.toJsonBytes());
+      client.setData(path, encodeTask(client, host, task));
     } catch (Exception e) {
       throw new HeliosRuntimeException("updating deployment " + deployment +
                                        " on host " + host + " failed", e);
     }
   }
 
+  /**
+   * Serializes a task for {@code host}, in the configured format if the agent on the host has
+   * advertised that it can read it and as JSON otherwise.
+   */
+  private byte[] encodeTask(final ZooKeeperClient client, final String host, final Task task) {
+    byte[] agentInfo = null;
+    if (payloadFormat != PayloadFormat.JSON) {
+      try {
+        agentInfo = client.getData(Paths.statusHostAgentInfo(host));
+      } catch (NoNodeException e) {
+        // The agent has not reported in yet, stick to JSON
+      } catch (KeeperException e) {
+        log.warn("failed to read agent info of {}, writing task as JSON", host, e);
+      }
+    }
+    return encodeTask(host, agentInfo, task);
+  }
+
+  /**
+   * @param agentInfo The agent info node of the host, or null if there is none.
+   */
+  private byte[] encodeTask(final String host, @Nullable final byte[] agentInfo, final Task task) {
+    PayloadFormat format = PayloadFormat.JSON;
+    if (payloadFormat != PayloadFormat.JSON && agentInfo != null) {
+      try {
+        format = PayloadFormat.negotiate(payloadFormat,
+                                         AGENT_INFO_CODEC.read(agentInfo).getPayloadFormats());
+      } catch (IOException e) {
+        log.warn("failed to parse agent info of {}, writing task as JSON", host, e);
+      }
+    }
+    return TASK_CODEC.asBytesUnchecked(task, format);
+  }
+
   private void assertHostExists(final ZooKeeperClient client, final String host)
   throws HostNotFoundException {
     try {
@@ -737,8 +1103,12 @@ public class ZooKeeperMasterModel implements MasterModel {
    */
   @Override
   public Deployment getDeployment(final String host, final JobId jobId) {
+    return getDeployment(readProvider.get("getDeployment"), host, jobId);
+  }
+
+  private Deployment getDeployment(final ZooKeeperClient client, final String host,
+                                   final JobId jobId) {
     final String path = Paths.configHostJob(host, jobId);
-    final ZooKeeperClient client = provider.get("getDeployment");
     try {
       final byte[] data = client.getData(path);
       final Task task = parse(data, Task.class);
@@ -755,84 +1125,159 @@ public class ZooKeeperMasterModel implements MasterModel {
    */
   @Override
   public HostStatus getHostStatus(final String host) {
-    final Stat stat;
-    final ZooKeeperClient client = provider.get("getHostStatus");
-
+    final ZooKeeperClient client = readProvider.get("getHostStatus");
+
+    final String idPath = Paths.configHostId(host);
+    final String upPath = Paths.statusHostUp(host);
+    final String hostInfoPath = Paths.statusHostInfo(host);
+    final String agentInfoPath = Paths.statusHostAgentInfo(host);
+    final String environmentPath = Paths.statusHostEnvVars(host);
+    final String configJobsPath = Paths.configHostJobs(host);
+    final String statusJobsPath = Paths.statusHostJobs(host);
+
+    // Read everything we know the path of up front, then all the task nodes in a second batch
+    final Map<String, byte[]> hostData;
+    final Map<String, List<String>> hostChildren;
     try {
-      stat = client.exists(Paths.configHostId(host));
+      hostData = client.getDataMany(ImmutableList.of(
+          idPath, upPath, hostInfoPath, agentInfoPath, environmentPath));
+      if (!hostData.containsKey(idPath)) {
+        return null;
+      }
+      hostChildren = client.getChildrenMany(ImmutableList.of(configJobsPath, statusJobsPath));
     } catch (KeeperException e) {
-      throw new HeliosRuntimeException("Failed to check host status", e);
+      throw new HeliosRuntimeException("getting host " + host + " status failed", e);
     }
 
-    if (stat == null) {
-      return null;
+    final List<String> configJobs = hostChildren.get(configJobsPath);
+    final List<String> statusJobs = fromNullable(hostChildren.get(statusJobsPath))
+        .or(Collections.<String>emptyList());
+
+    final List<String> taskPaths = Lists.newArrayList();
+    if (configJobs != null) {
+      for (final String jobId : configJobs) {
+        taskPaths.add(Paths.configHostJob(host, JobId.fromString(jobId)));
+      }
+    }
+    for (final String jobId : statusJobs) {
+      taskPaths.add(Paths.statusHostJob(host, JobId.fromString(jobId)));
     }
 
-    final boolean up = checkHostUp(client, host);
-    final HostInfo hostInfo = getHostInfo(client, host);
-    final AgentInfo agentInfo = getAgentInfo(client, host);
-    final Map<JobId, Deployment> tasks = getTasks(client, host);
-    final Map<JobId, TaskStatus> statuses = getTaskStatuses(client, host);
-    final Map<String, String> environment = getEnvironment(client, host);
+    final Map<String, byte[]> taskData;
+    try {
+      taskData = client.getDataMany(taskPaths);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("getting host " + host + " status failed", e);
+    }
+
+    final Map<JobId, Deployment> tasks = configJobs == null
+                                         ? null
+                                         : parseTasks(host, configJobs, taskData);
+    final Map<JobId, TaskStatus> statuses = withJobs(
+        client, parseTaskStatuses(host, statusJobs, taskData));
 
     return HostStatus.newBuilder()
         .setJobs(tasks)
         .setStatuses(fromNullable(statuses).or(EMPTY_STATUSES))
-        .setHostInfo(hostInfo)
-        .setAgentInfo(agentInfo)
-        .setStatus(up ? UP : DOWN)
-        .setEnvironment(environment)
+        .setHostInfo(tryParseEntity(hostData.get(hostInfoPath), HOST_INFO_TYPE, "host info"))
+        .setAgentInfo(tryParseEntity(hostData.get(agentInfoPath), AGENT_INFO_TYPE, "agent info"))
+        .setStatus(hostData.containsKey(upPath) ? UP : DOWN)
+        .setEnvironment(tryParseEntity(hostData.get(environmentPath), STRING_MAP_TYPE,
+                                       "environment"))
         .build();
   }
 
-  private <T> T tryGetEntity(final ZooKeeperClient client, String path, TypeReference<T> type,
-                             String name) {
-    try {
-      final byte[] data = client.getData(path);
-      return Json.read(data, type);
-    } catch (NoNodeException e) {
+  private <T> T tryParseEntity(final byte[] data, TypeReference<T> type, String name) {
+    if (data == null) {
       return null;
-    } catch (KeeperException | IOException e) {
-      throw new HeliosRuntimeException("reading " + name + " info failed", e);
     }
-  }
-
-  private Map<String, String> getEnvironment(final ZooKeeperClient client, final String host) {
-    return tryGetEntity(client, Paths.statusHostEnvVars(host), STRING_MAP_TYPE, "environment");
-  }
-
-  private AgentInfo getAgentInfo(final ZooKeeperClient client, final String host) {
-    return tryGetEntity(client, Paths.statusHostAgentInfo(host), AGENT_INFO_TYPE, "agent info");
-  }
-
-  private HostInfo getHostInfo(final ZooKeeperClient client, final String host) {
-    return tryGetEntity(client, Paths.statusHostInfo(host), HOST_INFO_TYPE, "host info");
-  }
-
-  private boolean checkHostUp(final ZooKeeperClient client, final String host) {
     try {
-      final Stat stat = client.exists(Paths.statusHostUp(host));
-      return stat != null;
-    } catch (KeeperException e) {
-      throw new HeliosRuntimeException("getting host " + host + " up status failed", e);
+      return Json.read(data, type);
+    } catch (IOException e) {
+      throw new HeliosRuntimeException("reading " + name + " info failed", e);
     }
   }
 
-  private Map<JobId, TaskStatus> getTaskStatuses(final ZooKeeperClient client, final String host) {
+  private Map<JobId, TaskStatus> parseTaskStatuses(final String host, final List<String> jobIds,
+                                                   final Map<String, byte[]> data) {
     final Map<JobId, TaskStatus> statuses = Maps.newHashMap();
-    final List<JobId> jobIds = listHostJobs(client, host);
-    for (final JobId jobId : jobIds) {
-      final TaskStatus status = getTaskStatus(client, host, jobId);
+    for (final String jobIdString : jobIds) {
+      final JobId jobId = JobId.fromString(jobIdString);
+      final TaskStatus status = parseTaskStatus(host, jobId,
+                                                data.get(Paths.statusHostJob(host, jobId)));
       if (status != null) {
         statuses.put(jobId, status);
       } else {
         log.debug("Task {} status missing for host {}", jobId, host);
       }
     }
-
     return statuses;
   }
 
+  /**
+   * Fills in the jobs of task statuses that were stored without them, from the job cache or
+   * otherwise read in a single batch. Statuses of jobs that no longer exist are left out, as
+   * clients that predate statuses without a job cannot read a status that has none.
+   */
+  private Map<JobId, TaskStatus> withJobs(final ZooKeeperClient client,
+                                          final Map<JobId, TaskStatus> statuses) {
+    final Map<JobId, Job> jobs = Maps.newHashMap();
+    final List<JobId> uncached = Lists.newArrayList();
+    for (final TaskStatus status : statuses.values()) {
+      if (status.getJob() != null) {
+        continue;
+      }
+      final Job job = jobCache.getIfPresent(status.getJobId());
+      if (job != null) {
+        jobs.put(job.getId(), job);
+      } else {
+        uncached.add(status.getJobId());
+      }
+    }
+    if (jobs.isEmpty() && uncached.isEmpty()) {
+      return statuses;
+    }
+    if (!uncached.isEmpty()) {
+      try {
+        final Map<JobId, Job> read = getJobs(client, uncached);
+        jobCache.putAll(read);
+        jobs.putAll(read);
+      } catch (KeeperException e) {
+        throw new HeliosRuntimeException("getting jobs of task statuses failed", e);
+      }
+    }
+    final Map<JobId, TaskStatus> resolved = Maps.newHashMap();
+    for (final Map.Entry<JobId, TaskStatus> entry : statuses.entrySet()) {
+      final TaskStatus status = entry.getValue();
+      if (status.getJob() != null) {
+        resolved.put(entry.getKey(), status);
+        continue;
+      }
+      final Job job = jobs.get(status.getJobId());
+      if (job == null) {
+        log.debug("leaving out task status of removed job {}", status.getJobId());
+        continue;
+      }
+      resolved.put(entry.getKey(), status.withJob(job));
+    }
+    return resolved;
+  }
+
+  private Map<JobId, Deployment> parseTasks(final String host, final List<String> jobIds,
+                                            final Map<String, byte[]> data) {
+    final Map<JobId, Deployment> jobs = Maps.newHashMap();
+    for (final String jobIdString : jobIds) {
+      final JobId jobId = JobId.fromString(jobIdString);
+      final Task task = parseTask(data.get(Paths.configHostJob(host, jobId)));
+      if (task != null) {
+        jobs.put(jobId, Deployment.of(jobId, task.getGoal()));
+      } else {
+        log.debug("deployment config node disappeared: {}", jobIdString);
+      }
+    }
+    return jobs;
+  }
+
   private List<JobId> listHostJobs(final ZooKeeperClient client, final String host) {
     final List<String> jobIdStrings;
     final String folder = Paths.statusHostJobs(host);
@@ -851,47 +1296,29 @@ public class ZooKeeperMasterModel implements MasterModel {
   }
 
   @Nullable
-  private TaskStatus getTaskStatus(final ZooKeeperClient client, final String host,
-                                   final JobId jobId) {
-    final String containerPath = Paths.statusHostJob(host, jobId);
+  private TaskStatus parseTaskStatus(final String host, final JobId jobId,
+                                     @Nullable final byte[] data) {
+    if (data == null) {
+      return null;
+    }
     try {
-      final byte[] data = client.getData(containerPath);
       return parse(data, TaskStatus.class);
-    } catch (NoNodeException ignored) {
-      return null;
-    } catch (KeeperException | IOException e) {
+    } catch (IOException e) {
       throw new HeliosRuntimeException("Getting task " + jobId + " status " +
                                        "for host " + host + " failed", e);
     }
   }
 
-  private Map<JobId, Deployment> getTasks(final ZooKeeperClient client, final String host) {
-    final Map<JobId, Deployment> jobs = Maps.newHashMap();
+  @Nullable
+  private Task parseTask(@Nullable final byte[] data) {
+    if (data == null) {
+      return null;
+    }
     try {
-      final String folder = Paths.configHostJobs(host);
-      final List<String> jobIds;
-      try {
-        jobIds = client.getChildren(folder);
-      } catch (KeeperException.NoNodeException e) {
-        return null;
-      }
-
-      for (final String jobIdString : jobIds) {
-        final JobId jobId = JobId.fromString(jobIdString);
-        final String containerPath = Paths.configHostJob(host, jobId);
-        try {
-          final byte[] data = client.getData(containerPath);
-          final Task task = parse(data, Task.class);
-          jobs.put(jobId, Deployment.of(jobId, task.getGoal()));
-        } catch (KeeperException.NoNodeException ignored) {
-          log.debug("deployment config node disappeared: {}", jobIdString);
-        }
-      }
-    } catch (KeeperException | IOException e) {
+      return parse(data, Task.class);
+    } catch (IOException e) {
       throw new HeliosRuntimeException("getting deployment config failed", e);
     }
-
-    return jobs;
   }
 
   @Override
@@ -915,7 +1342,7 @@ public class ZooKeeperMasterModel implements MasterModel {
 
     assertHostExists(client, host);
 
-    final Deployment deployment = getDeployment(host, jobId);
+    final Deployment deployment = getDeployment(client, host, jobId);
     if (deployment == null) {
       throw new JobNotDeployedException(host, jobId);
     }
@@ -947,6 +1374,111 @@ public class ZooKeeperMasterModel implements MasterModel {
     return deployment;
   }
 
+  /**
+   * Undeploys a job from several hosts. The job and token are checked once, the deployments are
+   * read in a single batch and removed in transactions of {@link #DEPLOYMENT_BATCH_SIZE} hosts.
+   * If a transaction fails because something changed since the batch was read, the job is
+   * undeployed from the hosts of that transaction one at a time instead.
+   *
+   * @return The hosts the job could not be undeployed from, and why. A host whose undeployment
+   *         failed for any other reason than the ones
+   *         {@link #undeployJob(String, JobId, String)} declares is reported with a plain
+   *         {@link HeliosException}.
+   */
+  @Override
+  public Map<String, HeliosException> undeployJob(final Collection<String> hosts,
+                                                  final JobId jobId, final String token)
+      throws JobDoesNotExistException, TokenVerificationException {
+    final ZooKeeperClient client = provider.get("undeployJobs");
+
+    final Job job = getJob(client, jobId);
+    if (job == null) {
+      throw new JobDoesNotExistException(jobId);
+    }
+    verifyToken(token, job);
+
+    final Set<String> targets = Sets.newLinkedHashSet(hosts);
+    log.info("undeploying {}: {} hosts", jobId, targets.size());
+
+    final List<String> hostPaths = Lists.newArrayList();
+    final List<String> taskPaths = Lists.newArrayList();
+    for (final String host : targets) {
+      hostPaths.add(Paths.configHost(host));
+      taskPaths.add(Paths.configHostJob(host, jobId));
+    }
+    final Map<String, byte[]> hostData;
+    final Map<String, List<String>> taskChildren;
+    try {
+      hostData = client.getDataMany(hostPaths);
+      taskChildren = client.getChildrenMany(taskPaths);
+    } catch (KeeperException e) {
+      throw new HeliosRuntimeException("undeploying job failed", e);
+    }
+
+    final Map<String, HeliosException> failures = Maps.newHashMap();
+    final List<Integer> staticPorts = staticPorts(job);
+    final List<String> batch = Lists.newArrayList();
+    final List<ZooKeeperOperation> operations = Lists.newArrayList();
+    for (final String host : targets) {
+      if (!hostData.containsKey(Paths.configHost(host))) {
+        failures.put(host, new HostNotFoundException(host));
+        continue;
+      }
+      final String taskPath = Paths.configHostJob(host, jobId);
+      final List<String> creations = taskChildren.get(taskPath);
+      if (creations == null) {
+        failures.put(host, new JobNotDeployedException(host, jobId));
+        continue;
+      }
+
+      final List<String> nodes = Lists.newArrayList();
+      for (final String creation : creations) {
+        nodes.add(taskPath + "/" + creation);
+      }
+      nodes.add(taskPath);
+      nodes.add(Paths.configJobHost(jobId, host));
+      for (final int port : staticPorts) {
+        nodes.add(Paths.configHostPort(host, port));
+      }
+      operations.add(delete(nodes));
+      batch.add(host);
+      if (batch.size() == DEPLOYMENT_BATCH_SIZE) {
+        commitUndeployments(client, jobId, token, batch, operations, failures);
+      }
+    }
+    commitUndeployments(client, jobId, token, batch, operations, failures);
+    return failures;
+  }
+
+  private void commitUndeployments(final ZooKeeperClient client, final JobId jobId,
+                                   final String token, final List<String> batch,
+                                   final List<ZooKeeperOperation> operations,
+                                   final Map<String, HeliosException> failures) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      client.transaction(operations);
+      log.info("undeployed {}: {}", jobId, batch);
+    } catch (KeeperException e) {
+      log.info("undeploying {} from {} hosts at once failed, undeploying one host at a time: {}",
+               jobId, batch.size(), e.toString());
+      for (final String host : batch) {
+        try {
+          undeployJob(host, jobId, token);
+        } catch (HostNotFoundException | JobNotDeployedException |
+            TokenVerificationException ex) {
+          failures.put(host, ex);
+        } catch (HeliosRuntimeException ex) {
+          log.warn("undeploying {} from {} failed", jobId, host, ex);
+          failures.put(host, new HeliosException(ex));
+        }
+      }
+    }
+    batch.clear();
+    operations.clear();
+  }
+
   private static void verifyToken(final String token, final Job job)
       throws TokenVerificationException {
     checkNotNull(token, "token");
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.http;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import static com.spotify.helios.common.Version.POM_VERSION;
+
+/**
+ * Utility code for conditional GETs of resources whose state is versioned in ZooKeeper.
+ *
+ * The server version is part of each tag, as the representation of the same state may change
+ * between versions.
+ */
+public class EntityTags {
+
+  public static EntityTag entityTag(final long version) {
+    return new EntityTag(POM_VERSION + "-" + Long.toHexString(version));
+  }
+
+  /**
+   * Returns a 304 Not Modified response if the request has an If-None-Match header matching
+   * {@code tag}, or null if the resource has to be sent.
+   */
+  public static Response notModified(final Request request, final EntityTag tag) {
+    final Response.ResponseBuilder builder = request.evaluatePreconditions(tag);
+    return builder == null ? null : builder.tag(tag).build();
+  }
+}
@@ -24,6 +24,7 @@ package com.spotify.helios.master.metrics;
 import com.google.common.collect.Maps;
 
 import com.spotify.helios.servicescommon.statistics.MasterMetrics;
+import com.spotify.helios.servicescommon.statistics.RequestPhases;
 import com.sun.jersey.api.core.HttpContext;
 import com.sun.jersey.api.model.AbstractResourceMethod;
 import com.sun.jersey.spi.dispatch.RequestDispatcher;
@@ -48,6 +49,9 @@ public class ReportingResourceMethodDispatcher implements RequestDispatcher {
   public void dispatch(final Object resource, final HttpContext context) {
     final AbstractResourceMethod resourceMethod = context.getUriInfo().getMatchedMethod();
     final String key = getKey(resourceMethod);
+    final String user = context.getRequest().getQueryParameters().getFirst("user");
+    final RequestPhases phases = RequestPhases.start(key, user);
+    metrics.requestStarted(key, user);
     try {
       dispatcher.dispatch(resource, context);
       metrics.success(key);
@@ -64,6 +68,9 @@ public class ReportingResourceMethodDispatcher implements RequestDispatcher {
     } catch (Exception e) {
       metrics.failure(key);
       throw e;
+    } finally {
+      // The request is finished by ReportingServletFilter, once the response has been written
+      phases.dispatched();
     }
   }
 
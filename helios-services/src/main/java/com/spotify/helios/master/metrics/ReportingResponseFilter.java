@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.master.metrics;
+
+import com.google.common.io.CountingOutputStream;
+
+import com.spotify.helios.servicescommon.statistics.RequestPhases;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes of the response to the request started by
+ * {@link ReportingResourceMethodDispatcher}, for {@link ReportingServletFilter} to report once
+ * the response has been written.
+ */
+public class ReportingResponseFilter implements ContainerResponseFilter {
+
+  @Override
+  public ContainerResponse filter(final ContainerRequest request,
+                                  final ContainerResponse response) {
+    final RequestPhases phases = RequestPhases.current();
+    if (phases != null) {
+      response.setContainerResponseWriter(
+          new ReportingWriter(response.getContainerResponseWriter(), phases));
+    }
+    return response;
+  }
+
+  private class ReportingWriter implements ContainerResponseWriter {
+
+    private final ContainerResponseWriter writer;
+    private final RequestPhases phases;
+
+    private CountingOutputStream out;
+
+    private ReportingWriter(final ContainerResponseWriter writer, final RequestPhases phases) {
+      this.writer = writer;
+      this.phases = phases;
+    }
+
+    @Override
+    public OutputStream writeStatusAndHeaders(final long contentLength,
+                                              final ContainerResponse response)
+        throws IOException {
+      out = new CountingOutputStream(writer.writeStatusAndHeaders(contentLength, response));
+      return out;
+    }
+
+    @Override
+    public void finish() throws IOException {
+      writer.finish();
+      phases.written(out == null ? 0 : out.getCount());
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.metrics;
+
+import com.spotify.helios.servicescommon.statistics.MasterMetrics;
+import com.spotify.helios.servicescommon.statistics.RequestPhases;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Ends the request started by {@link ReportingResourceMethodDispatcher} once the response has
+ * been written, including any streamed entity, and reports how long writing it took, how large
+ * it was and how much of the request was spent in ZooKeeper. Slow requests are also recorded in
+ * a {@link SlowRequestLog}.
+ */
+public class ReportingServletFilter implements Filter {
+
+  private final MasterMetrics metrics;
+  private final SlowRequestLog slowRequests;
+
+  public ReportingServletFilter(final MasterMetrics metrics, final SlowRequestLog slowRequests) {
+    this.metrics = metrics;
+    this.slowRequests = slowRequests;
+  }
+
+  @Override
+  public void doFilter(final ServletRequest request, final ServletResponse response,
+                       final FilterChain chain) throws IOException, ServletException {
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      final RequestPhases phases = RequestPhases.end();
+      if (phases != null) {
+        final long now = System.nanoTime();
+        final long serializationNanos = now - phases.getDispatchedNanos();
+        final int status = response instanceof HttpServletResponse
+                           ? ((HttpServletResponse) response).getStatus()
+                           : 0;
+        metrics.requestFinished(phases.getName());
+        metrics.responseWritten(phases.getName(), phases.getZooKeeperNanos(), serializationNanos,
+                                phases.getBytes());
+        slowRequests.record(phases.getName(), phases.getUser(), status,
+                            now - phases.getStartNanos(), phases.getZooKeeperNanos(),
+                            serializationNanos, phases.getBytes());
+      }
+    }
+  }
+
+  @Override
+  public void init(final FilterConfig config) throws ServletException {}
+
+  @Override
+  public void destroy() {}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.master.metrics;
+
+import com.google.common.collect.Lists;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Keeps the most recent requests to the master that took longer than a threshold in a fixed-size
+ * ring buffer, so that the worst offenders can be inspected on the admin port.
+ */
+public class SlowRequestLog {
+
+  private final long thresholdNanos;
+  private final SlowRequest[] requests;
+
+  private int next;
+
+  public SlowRequestLog(final int capacity, final long thresholdMillis) {
+    this.thresholdNanos = MILLISECONDS.toNanos(thresholdMillis);
+    this.requests = new SlowRequest[capacity];
+  }
+
+  /**
+   * Records a request if it took at least as long as the threshold.
+   */
+  public void record(final String name, final String user, final int status,
+                     final long totalNanos, final long zooKeeperNanos,
+                     final long serializationNanos, final long bytes) {
+    if (totalNanos < thresholdNanos) {
+      return;
+    }
+    final SlowRequest request = new SlowRequest(
+        System.currentTimeMillis(), name, user, status, NANOSECONDS.toMillis(totalNanos),
+        NANOSECONDS.toMillis(zooKeeperNanos), NANOSECONDS.toMillis(serializationNanos), bytes);
+    synchronized (this) {
+      requests[next] = request;
+      next = (next + 1) % requests.length;
+    }
+  }
+
+  /**
+   * @return The recorded requests, slowest first.
+   */
+  public List<SlowRequest> slowest() {
+    final List<SlowRequest> slowest = Lists.newArrayList();
+    synchronized (this) {
+      for (final SlowRequest request : requests) {
+        if (request != null) {
+          slowest.add(request);
+        }
+      }
+    }
+    Collections.sort(slowest, new Comparator<SlowRequest>() {
+      @Override
+      public int compare(final SlowRequest a, final SlowRequest b) {
+        return Long.compare(b.totalMillis, a.totalMillis);
+      }
+    });
+    return slowest;
+  }
+
+  public static class SlowRequest {
+
+    @JsonProperty private final long timestamp;
+    @JsonProperty private final String endpoint;
+    @JsonProperty private final String user;
+    @JsonProperty private final int status;
+    @JsonProperty private final long totalMillis;
+    @JsonProperty private final long zooKeeperMillis;
+    @JsonProperty private final long serializationMillis;
+    @JsonProperty private final long responseBytes;
+
+    SlowRequest(final long timestamp, final String endpoint, final String user, final int status,
+                final long totalMillis, final long zooKeeperMillis,
+                final long serializationMillis, final long responseBytes) {
+      this.timestamp = timestamp;
+      this.endpoint = endpoint;
+      this.user = user;
+      this.status = status;
+      this.totalMillis = totalMillis;
+      this.zooKeeperMillis = zooKeeperMillis;
+      this.serializationMillis = serializationMillis;
+      this.responseBytes = responseBytes;
+    }
+
+    public String getEndpoint() {
+      return endpoint;
+    }
+
+    public String getUser() {
+      return user;
+    }
+
+    public long getTotalMillis() {
+      return totalMillis;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Waits for the reads that resources run in parallel on the status executor.
+ */
+final class ConcurrentReads {
+
+  private ConcurrentReads() {
+  }
+
+  /**
+   * Waits for {@code read} to complete and returns its value. A failure is rethrown as it was
+   * thrown by the read, not wrapped, so that it maps to the same response as it would if the
+   * read had been made on the request thread.
+   *
+   * @param read The read to wait for.
+   * @return The value read.
+   */
+  static <T> T get(final Future<T> read) {
+    try {
+      return Uninterruptibles.getUninterruptibly(read);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.spotify.helios.common.protocol.StatusEvents;
+import com.spotify.helios.master.StatusEventFeed;
+
+import java.util.concurrent.Semaphore;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import static com.spotify.helios.master.http.Responses.badRequest;
+import static com.spotify.helios.master.http.Responses.serviceUnavailable;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+@Path("/events")
+public class EventsResource {
+
+  private static final long MAX_TIMEOUT_MILLIS = SECONDS.toMillis(60);
+
+  // A waiting poll holds a request thread, so only this many may wait at the same time
+  private static final int MAX_WAITING_POLLS = 64;
+
+  private final StatusEventFeed feed;
+  private final Semaphore waiting = new Semaphore(MAX_WAITING_POLLS);
+
+  public EventsResource(final StatusEventFeed feed) {
+    this.feed = feed;
+  }
+
+  /**
+   * Returns the task status, deployment and host status changes that follow the version
+   * {@code since} of the feed {@code feed}, waiting up to {@code timeout} milliseconds for one to
+   * happen. Start with an empty feed id to get the current position in the feed.
+   *
+   * When too many polls are already waiting, a poll that would have to wait is answered with 503
+   * Service Unavailable instead, and the client should fall back to reading the state.
+   *
+   * @param feed    The feed id from the previous response.
+   * @param since   The version from the previous response.
+   * @param timeout How long to wait for changes, in milliseconds.
+   * @return The changes.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  @GET
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public StatusEvents poll(@QueryParam("feed") @DefaultValue("") final String feed,
+                           @QueryParam("since") @DefaultValue("0") final long since,
+                           @QueryParam("timeout") @DefaultValue("0") final long timeout)
+      throws InterruptedException {
+    if (timeout < 0 || timeout > MAX_TIMEOUT_MILLIS) {
+      throw badRequest("Invalid timeout");
+    }
+    if (timeout == 0) {
+      return this.feed.poll(feed, since, 0);
+    }
+    if (!waiting.tryAcquire()) {
+      final StatusEvents events = this.feed.poll(feed, since, 0);
+      if (events.isReset() || !events.getEvents().isEmpty()) {
+        return events;
+      }
+      throw serviceUnavailable();
+    }
+    try {
+      return this.feed.poll(feed, since, timeout);
+    } finally {
+      waiting.release();
+    }
+  }
+}
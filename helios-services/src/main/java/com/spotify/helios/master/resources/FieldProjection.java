@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spotify.helios.common.Json;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A projection of JSON objects onto a set of fields, as given by the {@code fields} query
+ * parameter of the list endpoints. Fields are comma-separated dotted paths where {@code *}
+ * matches any field, e.g. {@code id,image} or {@code statuses.*.state}. Paths prefixed with
+ * {@code -} are removed instead, e.g. {@code -statuses.*.env}. If no fields are included,
+ * everything that is not removed is kept.
+ */
+final class FieldProjection {
+
+  private static final String WILDCARD = "*";
+  private static final Splitter FIELD_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final Splitter PATH_SPLITTER = Splitter.on('.');
+
+  private final PathTree includes;
+  private final PathTree excludes;
+
+  private FieldProjection(final PathTree includes, final PathTree excludes) {
+    this.includes = includes;
+    this.excludes = excludes;
+  }
+
+  /**
+   * @param fields The comma-separated fields, or the empty string to keep everything.
+   * @return The projection.
+   */
+  static FieldProjection parse(final String fields) {
+    PathTree includes = null;
+    final PathTree excludes = new PathTree();
+    for (final String field : FIELD_SPLITTER.split(fields)) {
+      if (field.startsWith("-")) {
+        excludes.add(field.substring(1));
+      } else {
+        if (includes == null) {
+          includes = new PathTree();
+        }
+        includes.add(field);
+      }
+    }
+    return new FieldProjection(includes, excludes);
+  }
+
+  /**
+   * Returns true if this projection keeps everything, in which case values can be written
+   * without being converted to a tree first.
+   */
+  boolean isIdentity() {
+    return includes == null && excludes.children.isEmpty();
+  }
+
+  JsonNode apply(final Object value) {
+    final JsonNode tree = Json.asTree(value);
+    final JsonNode included = includes == null ? tree : include(tree, includes);
+    exclude(included, excludes);
+    return included;
+  }
+
+  private static JsonNode include(final JsonNode node, final PathTree paths) {
+    if (paths.terminal || !node.isObject()) {
+      return node;
+    }
+    final ObjectNode projected = JsonNodeFactory.instance.objectNode();
+    final Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+    while (fields.hasNext()) {
+      final Map.Entry<String, JsonNode> field = fields.next();
+      final PathTree subpaths = paths.get(field.getKey());
+      if (subpaths != null) {
+        projected.set(field.getKey(), include(field.getValue(), subpaths));
+      }
+    }
+    return projected;
+  }
+
+  private static void exclude(final JsonNode node, final PathTree paths) {
+    if (paths.children.isEmpty() || !node.isObject()) {
+      return;
+    }
+    final ObjectNode object = (ObjectNode) node;
+    for (final String name : Lists.newArrayList(object.fieldNames())) {
+      final PathTree subpaths = paths.get(name);
+      if (subpaths == null) {
+        continue;
+      }
+      if (subpaths.terminal) {
+        object.remove(name);
+      } else {
+        exclude(object.get(name), subpaths);
+      }
+    }
+  }
+
+  /**
+   * A set of paths stored as a tree of field names. A terminal node matches the whole subtree
+   * below it.
+   */
+  private static class PathTree {
+
+    private final Map<String, PathTree> children = Maps.newHashMap();
+    private boolean terminal;
+
+    void add(final String path) {
+      PathTree node = this;
+      for (final String name : PATH_SPLITTER.split(path)) {
+        PathTree child = node.children.get(name);
+        if (child == null) {
+          child = new PathTree();
+          node.children.put(name, child);
+        }
+        node = child;
+      }
+      node.terminal = true;
+    }
+
+    /**
+     * Returns the paths below the field {@code name}, including those matched by a wildcard, or
+     * null if no path matches the field.
+     */
+    PathTree get(final String name) {
+      final PathTree named = children.get(name);
+      final PathTree wildcard = children.get(WILDCARD);
+      if (named == null || wildcard == null) {
+        return named == null ? wildcard : named;
+      }
+      return union(named, wildcard);
+    }
+
+    private static PathTree union(final PathTree a, final PathTree b) {
+      final PathTree union = new PathTree();
+      union.terminal = a.terminal || b.terminal;
+      final List<String> names = Lists.newArrayList(a.children.keySet());
+      names.addAll(b.children.keySet());
+      for (final String name : names) {
+        final PathTree left = a.children.get(name);
+        final PathTree right = b.children.get(name);
+        if (left == null || right == null) {
+          union.children.put(name, left == null ? right : left);
+        } else {
+          union.children.put(name, union(left, right));
+        }
+      }
+      return union;
+    }
+  }
+}
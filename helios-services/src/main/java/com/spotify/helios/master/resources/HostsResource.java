@@ -23,6 +23,8 @@ package com.spotify.helios.master.resources;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
@@ -47,7 +49,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
 
 import javax.validation.Valid;
 import javax.ws.rs.DELETE;
@@ -59,13 +62,19 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import static com.spotify.helios.common.protocol.JobUndeployResponse.Status.FORBIDDEN;
 import static com.spotify.helios.common.protocol.JobUndeployResponse.Status.HOST_NOT_FOUND;
 import static com.spotify.helios.common.protocol.JobUndeployResponse.Status.INVALID_ID;
 import static com.spotify.helios.common.protocol.JobUndeployResponse.Status.JOB_NOT_FOUND;
 import static com.spotify.helios.common.protocol.JobUndeployResponse.Status.OK;
+import static com.spotify.helios.master.http.EntityTags.entityTag;
+import static com.spotify.helios.master.http.EntityTags.notModified;
 import static com.spotify.helios.master.http.Responses.badRequest;
 import static com.spotify.helios.master.http.Responses.forbidden;
 import static com.spotify.helios.master.http.Responses.notFound;
@@ -76,21 +85,34 @@ public class HostsResource {
   private static final Logger log = LoggerFactory.getLogger(HostsResource.class);
 
   private final MasterModel model;
+  private final ListeningExecutorService executor;
 
-  public HostsResource(final MasterModel model) {
+  /**
+   * @param model    The master model.
+   * @param executor The executor used to look up the statuses of several hosts in parallel.
+   */
+  public HostsResource(final MasterModel model, final ListeningExecutorService executor) {
     this.model = model;
+    this.executor = executor;
   }
 
   /**
    * Returns the list of hostnames of known hosts/agents.
-   * @return The list of hostnames.
+   * @param request The request, used to answer conditional GETs.
+   * @return The list of hostnames, or 304 Not Modified if no host has been registered or
+   *         deregistered since the version in the If-None-Match header.
    */
   @GET
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public List<String> list() {
-    return model.listHosts();
+  public Response list(@Context final Request request) {
+    final EntityTag tag = entityTag(model.getHostsVersion());
+    final Response notModified = notModified(request, tag);
+    if (notModified != null) {
+      return notModified;
+    }
+    return Response.ok(model.listHosts()).tag(tag).build();
   }
 
   /**
@@ -153,7 +175,15 @@ public class HostsResource {
 
   /**
    * Returns various status information about the hosts.
-   * @param hosts The hosts.
+   *
+   * The statuses are read concurrently and written in host name order. A page of statuses can be
+   * requested by passing a {@code limit} and the last host name of the previous page as the
+   * {@code cursor}.
+   *
+   * @param hosts  The hosts.
+   * @param cursor The host name to start after.
+   * @param limit  The maximum number of statuses to return, or 0 for no limit.
+   * @param fields The fields of each status to return. See {@link FieldProjection}.
    * @return The response.
    */
   @POST
@@ -161,15 +191,31 @@ public class HostsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<String, HostStatus> hostStatuses(final List<String> hosts) {
-    final Map<String, HostStatus> statuses = Maps.newHashMap();
-    for (final String current : hosts) {
-      final HostStatus status = model.getHostStatus(current);
-      if (status != null) {
-        statuses.put(current, status);
-      }
+  public StreamingOutput hostStatuses(final List<String> hosts,
+                                      @QueryParam("cursor") @DefaultValue("") final String cursor,
+                                      @QueryParam("limit") @DefaultValue("0") final int limit,
+                                      @QueryParam("fields") @DefaultValue("") final String fields) {
+    if (limit < 0) {
+      throw badRequest("Invalid limit");
+    }
+
+    final SortedMap<String, String> names = Maps.newTreeMap();
+    for (final String host : hosts) {
+      names.put(host, host);
+    }
+
+    final SortedMap<String, ListenableFuture<HostStatus>> futures = Maps.newTreeMap();
+    for (final String current : StreamingMapOutput.page(names, cursor, limit).keySet()) {
+      futures.put(current, executor.submit(new Callable<HostStatus>() {
+        @Override
+        public HostStatus call() throws Exception {
+          return model.getHostStatus(current);
+        }
+      }));
     }
-    return statuses;
+    // Read everything before returning, so that a failure is a 500 and not a truncated 200
+    return new StreamingMapOutput(StreamingMapOutput.resolve(futures),
+                                  FieldProjection.parse(fields));
   }
 
   /**
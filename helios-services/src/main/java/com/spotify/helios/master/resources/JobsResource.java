@@ -24,17 +24,29 @@ package com.spotify.helios.master.resources;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
+import com.spotify.helios.common.HeliosException;
 import com.spotify.helios.common.JobValidator;
+import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.protocol.BulkDeploymentRequest;
+import com.spotify.helios.common.protocol.BulkUndeploymentRequest;
 import com.spotify.helios.common.protocol.CreateJobResponse;
 import com.spotify.helios.common.protocol.JobDeleteResponse;
+import com.spotify.helios.common.protocol.JobDeployResponse;
+import com.spotify.helios.common.protocol.JobUndeployResponse;
+import com.spotify.helios.master.HostNotFoundException;
+import com.spotify.helios.master.JobAlreadyDeployedException;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.JobExistsException;
+import com.spotify.helios.master.JobNotDeployedException;
+import com.spotify.helios.master.JobPortAllocationConflictException;
 import com.spotify.helios.master.JobStillDeployedException;
 import com.spotify.helios.master.MasterModel;
 import com.spotify.helios.master.TokenVerificationException;
@@ -45,9 +57,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
 
 import javax.validation.Valid;
 import javax.ws.rs.DELETE;
@@ -58,9 +73,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
 import static com.spotify.helios.common.protocol.CreateJobResponse.Status.INVALID_JOB_DEFINITION;
 import static com.spotify.helios.common.protocol.CreateJobResponse.Status.JOB_ALREADY_EXISTS;
+import static com.spotify.helios.master.http.EntityTags.entityTag;
+import static com.spotify.helios.master.http.EntityTags.notModified;
 import static com.spotify.helios.master.http.Responses.badRequest;
 import static com.spotify.helios.master.http.Responses.forbidden;
 import static com.spotify.helios.master.http.Responses.notFound;
@@ -75,44 +96,93 @@ public class JobsResource {
 
   private final MasterModel model;
   private final MasterMetrics metrics;
+  private final ListeningExecutorService executor;
 
-  public JobsResource(final MasterModel model, final MasterMetrics metrics) {
+  /**
+   * @param model    The master model.
+   * @param metrics  The master metrics.
+   * @param executor The executor used to look up the statuses of several jobs in parallel.
+   */
+  public JobsResource(final MasterModel model, final MasterMetrics metrics,
+                      final ListeningExecutorService executor) {
     this.model = model;
     this.metrics = metrics;
+    this.executor = executor;
   }
 
   /**
    * Returns a {@link Map} of job id to job definition for all jobs known.  If the query
    * parameter {@code q} is specified it will only return jobs whose job id contains the string.
    *
-   * @param q The query string.
-   * @return A map of Job IDs to Jobs.
+   * The jobs are written in job id order. A page of jobs can be requested by passing a
+   * {@code limit} and the last job id of the previous page as the {@code cursor}. A page is only
+   * shorter than the limit if it is the last one, also when jobs are removed while it is read.
+   *
+   * @param q      The query string.
+   * @param cursor The job id to start after.
+   * @param limit  The maximum number of jobs to return, or 0 for no limit.
+   * @param fields The fields of each job to return. See {@link FieldProjection}.
+   * @param request The request, used to answer conditional GETs.
+   * @return A map of Job IDs to Jobs, or 304 Not Modified if no job has been added or removed
+   *         since the version in the If-None-Match header.
    */
   @GET
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<JobId, Job> list(@QueryParam("q") @DefaultValue("") final String q) {
-    final Map<JobId, Job> allJobs = model.getJobs();
+  public Response list(@QueryParam("q") @DefaultValue("") final String q,
+                       @QueryParam("cursor") @DefaultValue("") final String cursor,
+                       @QueryParam("limit") @DefaultValue("0") final int limit,
+                       @QueryParam("fields") @DefaultValue("") final String fields,
+                       @Context final Request request) {
+    if (limit < 0) {
+      throw badRequest("Invalid limit");
+    }
 
-    // Return all jobs if the query string is empty
-    if (q.isEmpty()) {
-      metrics.jobsInJobList(allJobs.size());
-      return allJobs;
+    // Take the version before reading so that a concurrent change can only make the tag older
+    final EntityTag tag = entityTag(model.getJobsVersion());
+    final Response notModified = notModified(request, tag);
+    if (notModified != null) {
+      return notModified;
     }
 
-    // Filter jobs
-    final Map<JobId, Job> filteredJobs = Maps.newHashMap();
-    for (Entry<JobId, Job> entry : allJobs.entrySet()) {
-      if (entry.getKey().toString().contains(q)) {
-        filteredJobs.put(entry.getKey(), entry.getValue());
+    // Filter on the ids so that only the definitions of the jobs we return have to be read
+    final SortedMap<String, JobId> ids = Maps.newTreeMap();
+    for (final JobId id : model.listJobs()) {
+      final String key = id.toString();
+      if (key.contains(q)) {
+        ids.put(key, id);
       }
     }
 
-    metrics.jobsInJobList(filteredJobs.size());
-    return filteredJobs;
-  }
+    final SortedMap<String, Job> jobs = Maps.newTreeMap();
+    String after = cursor;
+    while (true) {
+      final SortedMap<String, JobId> page =
+          StreamingMapOutput.page(ids, after, limit == 0 ? 0 : limit - jobs.size());
+      if (page.isEmpty()) {
+        break;
+      }
+      final Map<JobId, Job> read = model.getJobs(page.values());
+      for (final Entry<String, JobId> entry : page.entrySet()) {
+        // Jobs removed since they were listed are null and left out
+        final Job job = read.get(entry.getValue());
+        if (job != null) {
+          jobs.put(entry.getKey(), job);
+        }
+      }
+      // Fill up the rest of a page that lost jobs from the ids after it
+      if (limit == 0 || jobs.size() == limit) {
+        break;
+      }
+      after = page.lastKey();
+    }
 
+    metrics.jobsInJobList(jobs.size());
+    return Response.ok(new StreamingMapOutput(jobs, FieldProjection.parse(fields)))
+        .tag(tag)
+        .build();
+  }
 
   /**
    * Returns the {@link Job} with the given id.
@@ -201,18 +271,41 @@ public class JobsResource {
    * deployed, and the status of the jobs where it's deployed, etc.
    *
    * @param id The job ID.
-   * @return The job status.
+   * @param compact Whether to leave the job out of the task statuses, as it is the same for all
+   *                of them. Off by default for clients that expect every task status to include
+   *                it.
+   * @param request The request, used to answer conditional GETs.
+   * @return The job status, or 304 Not Modified if it has not changed since the version in the
+   *         If-None-Match header.
    */
   @Path("{id}/status")
   @GET
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Optional<JobStatus> statusGet(@PathParam("id") @Valid final JobId id) {
+  public Response statusGet(
+      @PathParam("id") @Valid final JobId id,
+      @QueryParam("compact") @DefaultValue("false") final boolean compact,
+      @Context final Request request) {
     if (!id.isFullyQualified()) {
       throw badRequest("Invalid id");
     }
-    return Optional.fromNullable(model.getJobStatus(id));
+    final Long version = model.getJobStatusVersion(id);
+    if (version == null) {
+      throw notFound();
+    }
+    final EntityTag tag = entityTag(version);
+    final Response notModified = notModified(request, tag);
+    if (notModified != null) {
+      return notModified;
+    }
+    final JobStatus status = model.getJobStatus(id);
+    if (status == null) {
+      throw notFound();
+    }
+    return Response.ok(compact ? status.withoutTaskStatusJobs() : status)
+        .tag(tag)
+        .build();
   }
   
   @Path("/statuses")
@@ -220,19 +313,156 @@ public class JobsResource {
   @Produces(APPLICATION_JSON)
   @Timed
   @ExceptionMetered
-  public Map<JobId, JobStatus> jobStatuses(@Valid final Set<JobId> ids) {
+  public Map<JobId, JobStatus> jobStatuses(
+      @Valid final Set<JobId> ids,
+      @QueryParam("compact") @DefaultValue("false") final boolean compact) {
     for (final JobId id : ids) {
       if (!id.isFullyQualified()) {
         throw badRequest("Invalid id " + id);
       }
     }
-    final Map<JobId, JobStatus> results = Maps.newHashMap();
+    final Map<JobId, ListenableFuture<JobStatus>> futures = Maps.newHashMap();
     for (final JobId id : ids) {
-      final JobStatus status = model.getJobStatus(id);
+      futures.put(id, executor.submit(new Callable<JobStatus>() {
+        @Override
+        public JobStatus call() throws Exception {
+          return model.getJobStatus(id);
+        }
+      }));
+    }
+    final Map<JobId, JobStatus> results = Maps.newHashMap();
+    for (final Entry<JobId, ListenableFuture<JobStatus>> entry : futures.entrySet()) {
+      final JobStatus status = ConcurrentReads.get(entry.getValue());
       if (status != null) {
-        results.put(id, status);
+        results.put(entry.getKey(), compact ? status.withoutTaskStatusJobs() : status);
       }
     }
     return results;
   }
+
+  /**
+   * Deploys the job to several hosts at once. The job and token are checked once for all of
+   * them, and the deployments are written to ZooKeeper in batches.
+   *
+   * @param id The job to deploy.
+   * @param request The hosts to deploy to and the goal to deploy with.
+   * @param username The user deploying.
+   * @param token The authorization token for the job.
+   * @return The result for each host.
+   */
+  @Path("{id}/deployments")
+  @POST
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public Map<String, JobDeployResponse> deploy(
+      @PathParam("id") @Valid final JobId id,
+      @Valid final BulkDeploymentRequest request,
+      @RequestUser final String username,
+      @QueryParam("token") @DefaultValue("") final String token) {
+    final List<String> hosts = request.getHosts();
+    if (!id.isFullyQualified()) {
+      throw badRequest(deployResponses(hosts, id, JobDeployResponse.Status.INVALID_ID));
+    }
+    final Map<String, HeliosException> failures;
+    try {
+      failures = model.deployJob(hosts, Deployment.of(id, request.getGoal(), username), token);
+    } catch (JobDoesNotExistException e) {
+      throw badRequest(deployResponses(hosts, id, JobDeployResponse.Status.JOB_NOT_FOUND));
+    } catch (TokenVerificationException e) {
+      throw forbidden(deployResponses(hosts, id, JobDeployResponse.Status.FORBIDDEN));
+    }
+
+    final Map<String, JobDeployResponse> responses = Maps.newHashMap();
+    for (final String host : hosts) {
+      final HeliosException failure = failures.get(host);
+      final JobDeployResponse.Status status;
+      if (failure == null) {
+        status = JobDeployResponse.Status.OK;
+      } else if (failure instanceof JobAlreadyDeployedException) {
+        status = JobDeployResponse.Status.JOB_ALREADY_DEPLOYED;
+      } else if (failure instanceof HostNotFoundException) {
+        status = JobDeployResponse.Status.HOST_NOT_FOUND;
+      } else if (failure instanceof JobPortAllocationConflictException) {
+        status = JobDeployResponse.Status.PORT_CONFLICT;
+      } else if (failure instanceof TokenVerificationException) {
+        status = JobDeployResponse.Status.FORBIDDEN;
+      } else if (failure instanceof JobDoesNotExistException) {
+        status = JobDeployResponse.Status.JOB_NOT_FOUND;
+      } else {
+        status = JobDeployResponse.Status.FAILED;
+      }
+      responses.put(host, new JobDeployResponse(status, host, id));
+    }
+    return responses;
+  }
+
+  /**
+   * Undeploys the job from several hosts at once. The job and token are checked once for all of
+   * them, and the deployments are removed from ZooKeeper in batches.
+   *
+   * @param id The job to undeploy.
+   * @param request The hosts to undeploy from.
+   * @param token The authorization token for the job.
+   * @return The result for each host.
+   */
+  @Path("{id}/undeployments")
+  @POST
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public Map<String, JobUndeployResponse> undeploy(
+      @PathParam("id") @Valid final JobId id,
+      @Valid final BulkUndeploymentRequest request,
+      @QueryParam("token") @DefaultValue("") final String token) {
+    final List<String> hosts = request.getHosts();
+    if (!id.isFullyQualified()) {
+      throw badRequest(undeployResponses(hosts, id, JobUndeployResponse.Status.INVALID_ID));
+    }
+    final Map<String, HeliosException> failures;
+    try {
+      failures = model.undeployJob(hosts, id, token);
+    } catch (JobDoesNotExistException e) {
+      throw badRequest(undeployResponses(hosts, id, JobUndeployResponse.Status.JOB_NOT_FOUND));
+    } catch (TokenVerificationException e) {
+      throw forbidden(undeployResponses(hosts, id, JobUndeployResponse.Status.FORBIDDEN));
+    }
+
+    final Map<String, JobUndeployResponse> responses = Maps.newHashMap();
+    for (final String host : hosts) {
+      final HeliosException failure = failures.get(host);
+      final JobUndeployResponse.Status status;
+      if (failure == null) {
+        status = JobUndeployResponse.Status.OK;
+      } else if (failure instanceof HostNotFoundException) {
+        status = JobUndeployResponse.Status.HOST_NOT_FOUND;
+      } else if (failure instanceof TokenVerificationException) {
+        status = JobUndeployResponse.Status.FORBIDDEN;
+      } else if (failure instanceof JobNotDeployedException) {
+        status = JobUndeployResponse.Status.JOB_NOT_FOUND;
+      } else {
+        status = JobUndeployResponse.Status.FAILED;
+      }
+      responses.put(host, new JobUndeployResponse(status, host, id));
+    }
+    return responses;
+  }
+
+  private static Map<String, JobDeployResponse> deployResponses(
+      final List<String> hosts, final JobId id, final JobDeployResponse.Status status) {
+    final Map<String, JobDeployResponse> responses = Maps.newHashMap();
+    for (final String host : hosts) {
+      responses.put(host, new JobDeployResponse(status, host, id));
+    }
+    return responses;
+  }
+
+  private static Map<String, JobUndeployResponse> undeployResponses(
+      final List<String> hosts, final JobId id, final JobUndeployResponse.Status status) {
+    final Map<String, JobUndeployResponse> responses = Maps.newHashMap();
+    for (final String host : hosts) {
+      responses.put(host, new JobUndeployResponse(status, host, id));
+    }
+    return responses;
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.RollingUpdateResponse;
+import com.spotify.helios.master.JobDoesNotExistException;
+import com.spotify.helios.master.RollingUpdater;
+import com.spotify.helios.master.TokenVerificationException;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.validation.Valid;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.FORBIDDEN;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.INVALID_ID;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.INVALID_OPTIONS;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.JOB_NOT_FOUND;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.NOT_FOUND;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.NO_HOSTS;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.OK;
+import static com.spotify.helios.master.http.Responses.badRequest;
+import static com.spotify.helios.master.http.Responses.forbidden;
+import static com.spotify.helios.master.http.Responses.notFound;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+@Path("/rolling-updates")
+public class RollingUpdatesResource {
+
+  private final RollingUpdater updater;
+
+  public RollingUpdatesResource(final RollingUpdater updater) {
+    this.updater = updater;
+  }
+
+  /**
+   * Starts a rolling update from one job to another. The update is driven by the masters; use
+   * {@link #get(String)} to follow its progress.
+   *
+   * @param request The jobs to update between, the hosts to update and how fast to go.
+   * @param username The user starting the rolling update.
+   * @param token The authorization token for both jobs.
+   * @return The id of the rolling update.
+   */
+  @POST
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public RollingUpdateResponse post(@Valid final RollingUpdateRequest request,
+                                    @RequestUser final String username,
+                                    @QueryParam("token") @DefaultValue("") final String token) {
+    if (!isFullyQualified(request.getNewJob()) ||
+        (request.getOldJob() != null && !isFullyQualified(request.getOldJob()))) {
+      throw badRequest(new RollingUpdateResponse(INVALID_ID, null));
+    }
+    if (request.getBatchSize() < 1 || request.getParallelism() < 1 ||
+        request.getHealthWaitSeconds() < 1) {
+      throw badRequest(new RollingUpdateResponse(INVALID_OPTIONS, null));
+    }
+    final List<String> hosts = updater.selectHosts(request);
+    if (hosts.isEmpty()) {
+      throw badRequest(new RollingUpdateResponse(NO_HOSTS, null));
+    }
+    try {
+      final RollingUpdate update = updater.create(request, hosts, token, username);
+      return new RollingUpdateResponse(OK, update.getId());
+    } catch (JobDoesNotExistException e) {
+      throw badRequest(new RollingUpdateResponse(JOB_NOT_FOUND, null));
+    } catch (TokenVerificationException e) {
+      throw forbidden(new RollingUpdateResponse(FORBIDDEN, null));
+    }
+  }
+
+  /**
+   * Returns all rolling updates, including those that finished in the last few days.
+   *
+   * @return A map of rolling update ids to rolling updates.
+   */
+  @GET
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public Map<String, RollingUpdate> list() {
+    return updater.list();
+  }
+
+  /**
+   * Returns the progress of a rolling update.
+   *
+   * @param id The id of the rolling update.
+   * @return The rolling update.
+   */
+  @Path("{id}")
+  @GET
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public RollingUpdate get(@PathParam("id") final String id) {
+    final RollingUpdate update = updater.get(id);
+    if (update == null) {
+      throw notFound();
+    }
+    return update;
+  }
+
+  /**
+   * Stops a rolling update. Hosts that have already been updated are left as they are.
+   *
+   * @param id The id of the rolling update.
+   * @param token The authorization token the rolling update was started with.
+   * @return The response.
+   */
+  @Path("{id}")
+  @DELETE
+  @Produces(APPLICATION_JSON)
+  @Timed
+  @ExceptionMetered
+  public RollingUpdateResponse cancel(@PathParam("id") final String id,
+                                      @QueryParam("token") @DefaultValue("") final String token) {
+    try {
+      if (updater.cancel(id, token) == null) {
+        throw notFound(new RollingUpdateResponse(NOT_FOUND, id));
+      }
+      return new RollingUpdateResponse(OK, id);
+    } catch (TokenVerificationException e) {
+      throw forbidden(new RollingUpdateResponse(FORBIDDEN, id));
+    }
+  }
+
+  private static boolean isFullyQualified(final JobId id) {
+    return id != null && id.isFullyQualified();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.spotify.helios.common.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.SortedMap;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Writes a map as a JSON object one entry at a time, so that the whole response never has to be
+ * held as one JSON tree. Entries are written in key order. Entries whose value is null are left
+ * out.
+ *
+ * The values must all be read before the output is returned from a resource: once Jersey starts
+ * writing, the 200 status has been sent and a failure can only truncate the body. Use
+ * {@link #resolve(SortedMap)} to wait for values read concurrently.
+ */
+class StreamingMapOutput implements StreamingOutput {
+
+  private final SortedMap<String, ?> entries;
+  private final FieldProjection projection;
+
+  /**
+   * @param entries    The values to write, by key.
+   * @param projection The projection to apply to each value.
+   */
+  StreamingMapOutput(final SortedMap<String, ?> entries, final FieldProjection projection) {
+    this.entries = entries;
+    this.projection = projection;
+  }
+
+  @Override
+  public void write(final OutputStream output) throws IOException {
+    final JsonGenerator generator = Json.newGenerator(output);
+    generator.writeStartObject();
+    for (final Map.Entry<String, ?> entry : entries.entrySet()) {
+      final Object value = entry.getValue();
+      if (value == null) {
+        continue;
+      }
+      generator.writeFieldName(entry.getKey());
+      if (projection.isIdentity()) {
+        generator.writeObject(value);
+      } else {
+        generator.writeTree(projection.apply(value));
+      }
+    }
+    generator.writeEndObject();
+    generator.flush();
+  }
+
+  /**
+   * Waits for all of {@code futures} to complete and returns their values. A failure is rethrown
+   * as by {@link ConcurrentReads#get}.
+   *
+   * @param futures The futures to wait for, by key.
+   * @return The values, by key.
+   */
+  static <T> SortedMap<String, T> resolve(
+      final SortedMap<String, ? extends ListenableFuture<? extends T>> futures) {
+    final SortedMap<String, T> values = Maps.newTreeMap();
+    for (final Map.Entry<String, ? extends ListenableFuture<? extends T>> entry :
+        futures.entrySet()) {
+      values.put(entry.getKey(), ConcurrentReads.get(entry.getValue()));
+    }
+    return values;
+  }
+
+  /**
+   * Returns the page of {@code entries} that follows the key {@code cursor}. The last key of a
+   * full page is the cursor of the next one.
+   *
+   * @param entries The entries to page through.
+   * @param cursor  The key to start after, or the empty string to start at the first key.
+   * @param limit   The maximum number of entries to return, or 0 to return all of them.
+   * @return The page.
+   */
+  static <T> SortedMap<String, T> page(final SortedMap<String, T> entries, final String cursor,
+                                       final int limit) {
+    // The smallest string that sorts after the cursor is the cursor followed by a NUL.
+    final SortedMap<String, T> tail = cursor.isEmpty() ? entries : entries.tailMap(cursor + '\0');
+    if (limit == 0 || tail.size() <= limit) {
+      return tail;
+    }
+    final SortedMap<String, T> page = Maps.newTreeMap();
+    for (final Map.Entry<String, T> entry : tail.entrySet()) {
+      if (page.size() == limit) {
+        break;
+      }
+      page.put(entry.getKey(), entry.getValue());
+    }
+    return page;
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon;
+
+import com.google.common.primitives.Bytes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.spotify.helios.common.Json;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An append-only log of changes to a json value, used by {@link PersistentAtomicReference} to
+ * avoid rewriting the whole value on every update.
+ *
+ * Each record is a line of compact json. If the value is an object, a record holds the fields
+ * that were set and the names of the fields that were removed. Otherwise it holds the whole
+ * value. A record holds the whole new value of every field it touches, so replaying the log on
+ * top of a snapshot of any value it passed through ends at the value of its last record. The
+ * snapshot must therefore only be taken once the change it includes has been logged. A torn
+ * record at the end of the log, left by a crash in the middle of a write, is dropped on
+ * recovery. A record that cannot be read in the middle of the log fails the recovery, as
+ * replaying the records after it could silently lose changes.
+ *
+ * The first line of the log is a header holding a checksum of the snapshot the log was started
+ * on. A log whose header does not match the snapshot was left next to a snapshot written
+ * without it, e.g. by a version that predates the log, and is discarded.
+ */
+class DeltaLog {
+
+  private static final Logger log = LoggerFactory.getLogger(DeltaLog.class);
+
+  private static final String SET = "set";
+  private static final String REMOVE = "remove";
+  private static final String VALUE = "value";
+  private static final String SNAPSHOT = "snapshot";
+
+  private final Path path;
+
+  private FileChannel channel;
+  private long size;
+  private long snapshotChecksum;
+
+  DeltaLog(final Path path) {
+    this.path = path;
+  }
+
+  /**
+   * Replays the log on top of {@code snapshot}.
+   *
+   * @param snapshotBytes The serialized snapshot, empty if there is none.
+   * @param snapshot      The value that the log starts from.
+   * @return The value with all complete records of the log applied.
+   * @throws IOException If the log cannot be read, or holds a record that cannot be read followed
+   *                     by complete records.
+   */
+  JsonNode recover(final byte[] snapshotBytes, final JsonNode snapshot) throws IOException {
+    JsonNode value = snapshot;
+    size = 0;
+    snapshotChecksum = checksum(snapshotBytes);
+    if (Files.exists(path)) {
+      final byte[] bytes = Files.readAllBytes(path);
+      boolean discarded = false;
+      int start = 0;
+      for (int end = 0; end < bytes.length; end++) {
+        if (bytes[end] != '\n') {
+          continue;
+        }
+        JsonNode record;
+        try {
+          record = Json.readTree(Arrays.copyOfRange(bytes, start, end));
+        } catch (IOException e) {
+          record = null;
+        }
+        if (record == null) {
+          // Only a torn write at the end of the log is expected
+          for (int next = end + 1; next < bytes.length; next++) {
+            if (bytes[next] == '\n') {
+              throw new IOException("unreadable record at offset " + start + " of " + path);
+            }
+          }
+          break;
+        }
+        if (start == 0) {
+          // The header
+          if (!record.has(SNAPSHOT) || record.get(SNAPSHOT).asLong() != snapshotChecksum) {
+            log.warn("discarding {}, which was not started on the current snapshot", path);
+            discarded = true;
+            break;
+          }
+        } else {
+          value = apply(value, record);
+        }
+        start = end + 1;
+      }
+      size = start;
+      if (size < bytes.length && !discarded) {
+        log.warn("dropping {} bytes of torn records at the end of {}", bytes.length - size, path);
+      }
+    }
+    channel().truncate(size);
+    return value;
+  }
+
+  /**
+   * Appends a record of the changes from {@code from} to {@code to}, if there are any.
+   *
+   * @throws IOException If the record cannot be written.
+   */
+  void append(final JsonNode from, final JsonNode to) throws IOException {
+    final JsonNode record = diff(from, to);
+    if (record != null) {
+      write(record);
+    }
+  }
+
+  /**
+   * Appends a record of changes to the fields of an object value, if there are any.
+   *
+   * @param set    The fields that were added or changed.
+   * @param remove The names of the fields that were removed.
+   * @throws IOException If the record cannot be written.
+   */
+  void append(final ObjectNode set, final Collection<String> remove) throws IOException {
+    if (set.size() == 0 && remove.isEmpty()) {
+      return;
+    }
+    final ObjectNode record = JsonNodeFactory.instance.objectNode();
+    record.set(SET, set);
+    final ArrayNode names = record.putArray(REMOVE);
+    for (final String name : remove) {
+      names.add(name);
+    }
+    write(record);
+  }
+
+  private void write(final JsonNode record) throws IOException {
+    final byte[] header = size == 0 ? header() : new byte[0];
+    final byte[] json = Json.asBytes(record);
+    final ByteBuffer buffer = ByteBuffer.allocate(header.length + json.length + 1);
+    buffer.put(header).put(json).put((byte) '\n').flip();
+    final FileChannel channel = channel();
+    channel.position(size);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    size += buffer.limit();
+  }
+
+  private byte[] header() throws IOException {
+    final ObjectNode header = JsonNodeFactory.instance.objectNode();
+    header.put(SNAPSHOT, snapshotChecksum);
+    final byte[] json = Json.asBytes(header);
+    return Bytes.concat(json, new byte[]{'\n'});
+  }
+
+  /**
+   * Empties the log, once its records have been folded into a snapshot.
+   *
+   * @param snapshotBytes The new snapshot, which the next records are logged on top of.
+   * @throws IOException If the log cannot be truncated.
+   */
+  void truncate(final byte[] snapshotBytes) throws IOException {
+    channel().truncate(0);
+    size = 0;
+    snapshotChecksum = checksum(snapshotBytes);
+  }
+
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns the channel to the log, reopening it if a write was interrupted. Anything written
+   * past the last complete record is discarded.
+   */
+  private FileChannel channel() throws IOException {
+    if (channel == null || !channel.isOpen()) {
+      channel = FileChannel.open(path, CREATE, WRITE);
+      channel.truncate(size);
+    }
+    return channel;
+  }
+
+  private static long checksum(final byte[] bytes) {
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private static JsonNode diff(final JsonNode from, final JsonNode to) {
+    final ObjectNode record = JsonNodeFactory.instance.objectNode();
+    if (!from.isObject() || !to.isObject()) {
+      if (from.equals(to)) {
+        return null;
+      }
+      record.set(VALUE, to);
+      return record;
+    }
+    final ObjectNode set = record.putObject(SET);
+    final ArrayNode remove = record.putArray(REMOVE);
+    final Iterator<Map.Entry<String, JsonNode>> fields = to.fields();
+    while (fields.hasNext()) {
+      final Map.Entry<String, JsonNode> field = fields.next();
+      if (!field.getValue().equals(from.get(field.getKey()))) {
+        set.set(field.getKey(), field.getValue());
+      }
+    }
+    final Iterator<String> names = from.fieldNames();
+    while (names.hasNext()) {
+      final String name = names.next();
+      if (!to.has(name)) {
+        remove.add(name);
+      }
+    }
+    return set.size() == 0 && remove.size() == 0 ? null : record;
+  }
+
+  private static JsonNode apply(final JsonNode value, final JsonNode record) {
+    if (record.has(VALUE)) {
+      return record.get(VALUE);
+    }
+    final ObjectNode object = value.isObject()
+                              ? (ObjectNode) value
+                              : JsonNodeFactory.instance.objectNode();
+    if (record.has(SET)) {
+      object.setAll((ObjectNode) record.get(SET));
+    }
+    if (record.has(REMOVE)) {
+      for (final JsonNode name : record.get(REMOVE)) {
+        object.remove(name.asText());
+      }
+    }
+    return object;
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.servicescommon;
+
+import com.google.common.util.concurrent.AbstractService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A reactor that collapses event updates and calls a provided callback on a shared executor,
+ * instead of on a thread of its own. Calls of the callback of one reactor never overlap. Timeouts
+ * are scheduled on a scheduled executor, which may be separate from the one the callback is
+ * called on, so that callbacks that block do not hold up the timers of other reactors.
+ *
+ * Stopping the reactor interrupts a call of the callback that is in progress, like
+ * {@link DefaultReactor} does.
+ */
+public class ExecutorReactor extends AbstractService implements Reactor {
+
+  private static final Logger log = LoggerFactory.getLogger(ExecutorReactor.class);
+
+  private final Object lock = new Object();
+
+  private final String name;
+  private final Callback callback;
+  private final long timeoutMillis;
+  private final ScheduledExecutorService executor;
+  private final Executor callbackExecutor;
+  private final Runnable update = new Update();
+  private final Runnable timeout = new Timeout();
+
+  private boolean signalled;
+  private boolean scheduled;
+  private boolean stopped;
+  private Thread thread;
+  private ScheduledFuture<?> timeoutFuture;
+
+  /**
+   * Create a reactor that calls the provided callback with the specified timeout interval.
+   *
+   * @param name          The reactor name.
+   * @param callback      The callback to call.
+   * @param timeoutMillis The timeout in millis after which the callback should be called even if
+   *                      there has been no updates. Zero disables the timeout.
+   * @param executor      The executor to call the callback on.
+   */
+  public ExecutorReactor(final String name, final Callback callback, final long timeoutMillis,
+                         final ScheduledExecutorService executor) {
+    this(name, callback, timeoutMillis, executor, executor);
+  }
+
+  /**
+   * Create a reactor that schedules timeouts and calls the callback on separate executors.
+   *
+   * @param name             The reactor name.
+   * @param callback         The callback to call.
+   * @param timeoutMillis    The timeout in millis after which the callback should be called even
+   *                         if there has been no updates. Zero disables the timeout.
+   * @param executor         The executor to schedule timeouts on.
+   * @param callbackExecutor The executor to call the callback on.
+   */
+  public ExecutorReactor(final String name, final Callback callback, final long timeoutMillis,
+                         final ScheduledExecutorService executor,
+                         final Executor callbackExecutor) {
+    this.name = name;
+    this.callback = callback;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = executor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
+  @Override
+  public void signal() {
+    synchronized (lock) {
+      signalled = true;
+      if (isRunning()) {
+        schedule();
+      }
+    }
+  }
+
+  @Override
+  public Runnable signalRunnable() {
+    return new Runnable() {
+      @Override
+      public void run() {
+        signal();
+      }
+    };
+  }
+
+  @Override
+  protected void doStart() {
+    notifyStarted();
+    synchronized (lock) {
+      if (signalled) {
+        schedule();
+      } else {
+        scheduleTimeout();
+      }
+    }
+  }
+
+  @Override
+  protected void doStop() {
+    synchronized (lock) {
+      if (timeoutFuture != null) {
+        timeoutFuture.cancel(false);
+      }
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
+    maybeNotifyStopped();
+  }
+
+  /**
+   * Complete stopping the reactor once no call of the callback is scheduled or in progress.
+   */
+  private void maybeNotifyStopped() {
+    synchronized (lock) {
+      if (scheduled || stopped || state() != State.STOPPING) {
+        return;
+      }
+      stopped = true;
+    }
+    notifyStopped();
+  }
+
+  /**
+   * Schedule a call of the callback unless one is already scheduled or in progress. Must be
+   * called holding the lock.
+   */
+  private void schedule() {
+    if (scheduled) {
+      return;
+    }
+    if (timeoutFuture != null) {
+      timeoutFuture.cancel(false);
+      timeoutFuture = null;
+    }
+    try {
+      callbackExecutor.execute(update);
+      scheduled = true;
+    } catch (RejectedExecutionException e) {
+      log.debug("reactor executor shut down: {}", name);
+    }
+  }
+
+  /**
+   * Schedule a timeout call of the callback. Must be called holding the lock.
+   */
+  private void scheduleTimeout() {
+    if (timeoutMillis > 0) {
+      try {
+        timeoutFuture = executor.schedule(timeout, timeoutMillis, MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        log.debug("reactor executor shut down: {}", name);
+      }
+    }
+  }
+
+  private class Update implements Runnable {
+
+    @Override
+    public void run() {
+      final boolean running;
+      final boolean timeout;
+      synchronized (lock) {
+        running = isRunning();
+        if (running) {
+          timeout = !signalled;
+          signalled = false;
+          thread = Thread.currentThread();
+        } else {
+          scheduled = false;
+          timeout = false;
+        }
+      }
+      if (!running) {
+        maybeNotifyStopped();
+        return;
+      }
+
+      try {
+        callback.run(timeout);
+      } catch (InterruptedException e) {
+        log.debug("reactor interrupted: {}", name);
+      } catch (Exception e) {
+        if (e.getCause() instanceof ClosedByInterruptException ||
+            e.getCause() instanceof InterruptedIOException ||
+            e.getCause() instanceof InterruptedException) {
+          log.debug("reactor interrupted: {}", name);
+        } else {
+          log.error("reactor runner threw exception: {}", name, e);
+        }
+      } finally {
+        synchronized (lock) {
+          thread = null;
+          // Do not leak the interrupt to the next user of the shared thread
+          Thread.interrupted();
+          scheduled = false;
+          if (isRunning()) {
+            if (signalled) {
+              schedule();
+            } else {
+              scheduleTimeout();
+            }
+          }
+        }
+        maybeNotifyStopped();
+      }
+    }
+  }
+
+  private class Timeout implements Runnable {
+
+    @Override
+    public void run() {
+      synchronized (lock) {
+        if (isRunning()) {
+          schedule();
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Reactor(" + name + ")";
+  }
+}
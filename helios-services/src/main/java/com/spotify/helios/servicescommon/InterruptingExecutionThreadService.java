@@ -28,14 +28,36 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+/**
+ * An execution thread service that is stopped by interrupting the thread running it. By default
+ * the service runs on a dedicated thread. It can also be run on a shared executor, in which case
+ * only the thread running this service is interrupted when it is stopped.
+ */
 public abstract class InterruptingExecutionThreadService extends AbstractExecutionThreadService {
 
   private final ExecutorService executorService;
+  private final Executor sharedExecutor;
   private final String name;
 
+  private final Object lock = new Object();
+  private Thread thread;
+  private boolean shutdown;
+
   protected InterruptingExecutionThreadService(final String name) {
+    this(name, null);
+  }
+
+  /**
+   * Create a service that runs on a shared executor.
+   *
+   * @param name     The service name.
+   * @param executor The executor to run the service on. It is not shut down with the service. If
+   *                 null, the service runs on a thread of its own.
+   */
+  protected InterruptingExecutionThreadService(final String name, final Executor executor) {
     this.name = name;
-    this.executorService = Executors.newSingleThreadExecutor(
+    this.sharedExecutor = executor;
+    this.executorService = (executor != null) ? null : Executors.newSingleThreadExecutor(
         new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
   }
 
@@ -46,11 +68,47 @@ public abstract class InterruptingExecutionThreadService extends AbstractExecuti
 
   @Override
   protected Executor executor() {
-    return executorService;
+    if (sharedExecutor == null) {
+      return executorService;
+    }
+    return new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        sharedExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            synchronized (lock) {
+              thread = Thread.currentThread();
+              if (shutdown) {
+                thread.interrupt();
+              }
+            }
+            try {
+              command.run();
+            } finally {
+              synchronized (lock) {
+                thread = null;
+                // Do not leak the interrupt to the next user of the shared thread
+                Thread.interrupted();
+              }
+            }
+          }
+        });
+      }
+    };
   }
 
   @Override
   protected void triggerShutdown() {
-    executorService.shutdownNow();
+    if (sharedExecutor == null) {
+      executorService.shutdownNow();
+      return;
+    }
+    synchronized (lock) {
+      shutdown = true;
+      if (thread != null) {
+        thread.interrupt();
+      }
+    }
   }
 }
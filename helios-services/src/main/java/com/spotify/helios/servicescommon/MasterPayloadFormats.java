@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.PayloadFormat;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
+
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Keeps track of the payload format agents can write data read by masters in.
+ *
+ * Masters advertise the formats they can read in their up node, see {@link #upNodeData()}. The
+ * preferred format is only used while every live master advertises it, so that a master that
+ * predates it, e.g. one that was rolled back, never gets data it cannot parse. Otherwise, and
+ * until the masters have first been checked, the format is {@link PayloadFormat#JSON}.
+ */
+public class MasterPayloadFormats extends AbstractIdleService
+    implements Supplier<PayloadFormat> {
+
+  private static final Logger log = LoggerFactory.getLogger(MasterPayloadFormats.class);
+
+  private static final long CHECK_INTERVAL_SECONDS = 10;
+  private static final String PAYLOAD_FORMATS = "payloadFormats";
+
+  /**
+   * Gets told when the negotiated format changes.
+   */
+  public interface Listener {
+    void payloadFormatChanged(PayloadFormat format);
+  }
+
+  private final ZooKeeperClient client;
+  private final PayloadFormat preferred;
+  private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService executor;
+
+  private volatile PayloadFormat format = PayloadFormat.JSON;
+
+  public MasterPayloadFormats(final ZooKeeperClient client, final PayloadFormat preferred) {
+    this.client = client;
+    this.preferred = preferred;
+    this.executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("helios-master-payload-formats-%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        update();
+      }
+    }, 0, CHECK_INTERVAL_SECONDS, SECONDS);
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    executor.shutdownNow();
+    executor.awaitTermination(1, DAYS);
+  }
+
+  /**
+   * Returns the data of the up node of a master, naming the payload formats it can read.
+   */
+  public static byte[] upNodeData() {
+    return Json.asBytesUnchecked(ImmutableMap.of(PAYLOAD_FORMATS, PayloadFormat.READABLE));
+  }
+
+  public void addListener(final Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Returns the format to write data read by masters in.
+   */
+  @Override
+  public PayloadFormat get() {
+    return format;
+  }
+
+  private void update() {
+    final PayloadFormat negotiated;
+    try {
+      negotiated = negotiate();
+    } catch (KeeperException e) {
+      // Keep the current format, we'll have another go later
+      log.warn("failed to read the payload formats of the masters", e);
+      return;
+    }
+    if (negotiated != format) {
+      log.info("writing payloads read by masters as {}", negotiated.getName());
+      format = negotiated;
+      for (final Listener listener : listeners) {
+        listener.payloadFormatChanged(negotiated);
+      }
+    }
+  }
+
+  /**
+   * Returns the preferred format if every live master can read it, {@link PayloadFormat#JSON}
+   * otherwise.
+   */
+  PayloadFormat negotiate() throws KeeperException {
+    if (preferred == PayloadFormat.JSON) {
+      return PayloadFormat.JSON;
+    }
+    final List<String> paths = Lists.newArrayList();
+    for (final String master : client.getChildren(Paths.statusMasters())) {
+      paths.add(Paths.statusMasterUp(master));
+    }
+    // Masters that are down have no up node and are left out
+    final Map<String, byte[]> upNodes = client.getDataMany(paths);
+    if (upNodes.isEmpty()) {
+      return PayloadFormat.JSON;
+    }
+    for (final byte[] data : upNodes.values()) {
+      if (PayloadFormat.negotiate(preferred, readable(data)) != preferred) {
+        return PayloadFormat.JSON;
+      }
+    }
+    return preferred;
+  }
+
+  /**
+   * Returns the formats named in the up node of a master, or null if it names none, as do the
+   * up nodes of masters that predate payload format negotiation.
+   */
+  private static List<String> readable(final byte[] data) {
+    if (data == null || data.length == 0) {
+      return null;
+    }
+    try {
+      final JsonNode formats = Json.readTree(data).get(PAYLOAD_FORMATS);
+      if (formats == null || !formats.isArray()) {
+        return null;
+      }
+      final List<String> names = Lists.newArrayList();
+      for (final JsonNode name : formats) {
+        names.add(name.asText());
+      }
+      return names;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
@@ -22,10 +22,13 @@
 package com.spotify.helios.servicescommon;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Tracks API requests to the master to be tracked by the yammer metrics stuff.
@@ -40,6 +43,11 @@ public class MasterRequestMetrics {
   private final Meter failureMeter;
   private final Meter userErrorMeter;
 
+  private final Counter inFlightCounter;
+  private final Timer zooKeeperTimer;
+  private final Timer serializationTimer;
+  private final Histogram responseBytesHistogram;
+
   public MasterRequestMetrics(String group, String type, String requestName,
                               final MetricRegistry registry) {
     final String prefix = name(group, type, requestName);
@@ -51,6 +59,26 @@ public class MasterRequestMetrics {
     successMeter = registry.meter(prefix + "_meter_success");
     failureMeter = registry.meter(prefix + "_meter_failures");
     userErrorMeter = registry.meter(prefix + "_meter_usererror");
+
+    inFlightCounter = registry.counter(prefix + "_in_flight");
+    zooKeeperTimer = registry.timer(prefix + "_zookeeper_time");
+    serializationTimer = registry.timer(prefix + "_serialization_time");
+    responseBytesHistogram = registry.histogram(prefix + "_response_bytes");
+  }
+
+  public void started() {
+    inFlightCounter.inc();
+  }
+
+  public void finished() {
+    inFlightCounter.dec();
+  }
+
+  public void responseWritten(final long zooKeeperNanos, final long serializationNanos,
+                              final long bytes) {
+    zooKeeperTimer.update(zooKeeperNanos, NANOSECONDS);
+    serializationTimer.update(serializationNanos, NANOSECONDS);
+    responseBytesHistogram.update(bytes);
   }
 
   public void success() {
@@ -24,9 +24,13 @@ package com.spotify.helios.servicescommon;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.spotify.helios.common.Json;
 
 import org.slf4j.Logger;
@@ -38,8 +42,10 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
-import static com.google.common.base.Charsets.UTF_8;
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
@@ -49,34 +55,65 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
  *
  * Strangely, this is not actually atomic in the {@code AtomicReference} way; i.e. not threadsafe,
  * nor does it do CAS.
+ *
+ * By default every update rewrites the whole file. References created using
+ * {@link #createLogged(Path, TypeReference, Supplier)} instead append the changes to a log next
+ * to the file, and only rewrite the file once the log has grown larger than it. The log is
+ * replayed on top of the file when the reference is created again. When the value is a map that
+ * is replaced by a new map on every update, only the entries that changed are serialized; their
+ * values must then not be modified in place.
+ *
+ * Versions that predate the log read only the file. Owners of logged references should call
+ * {@link #compact()} on clean shutdown, so that the file is current after a downgrade. A log
+ * left over from before a downgrade is discarded rather than replayed on top of a file written
+ * since.
  */
 public class PersistentAtomicReference<T> {
 
   private static final Logger log = LoggerFactory.getLogger(PersistentAtomicReference.class);
 
+  private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
   private final Path filename;
   private final Path tempfilename;
   private final Object sync = new Object();
+  private final DeltaLog deltaLog;
 
   private volatile T value;
 
+  // The json of the value as persisted, when changes are logged
+  private JsonNode persisted;
+  private long snapshotSize;
+
   private PersistentAtomicReference(final Path filename,
                                     final JavaType javaType,
-                                    final Supplier<? extends T> initialValue)
+                                    final Supplier<? extends T> initialValue,
+                                    final boolean logged)
       throws IOException, InterruptedException {
     try {
       this.filename = filename.toAbsolutePath();
       this.tempfilename = filename.getFileSystem().getPath(this.filename.toString() + ".tmp");
+      byte[] bytes = new byte[0];
       if (Files.exists(filename)) {
-        final byte[] bytes = Files.readAllBytes(filename);
-        if (bytes.length > 0) {
-          value = Json.read(bytes, javaType);
-        } else {
-          value = initialValue.get();
-        }
+        bytes = Files.readAllBytes(filename);
+      }
+      if (bytes.length > 0) {
+        value = Json.read(bytes, javaType);
       } else {
         value = initialValue.get();
       }
+      if (logged) {
+        this.deltaLog = new DeltaLog(
+            filename.getFileSystem().getPath(this.filename.toString() + ".log"));
+        final JsonNode snapshot = bytes.length > 0 ? Json.readTree(bytes) : Json.asTree(value);
+        this.persisted = deltaLog.recover(bytes, snapshot);
+        this.snapshotSize = bytes.length;
+        if (deltaLog.size() > 0) {
+          value = Json.reader().withType(javaType).readValue(persisted);
+        }
+      } else {
+        this.deltaLog = null;
+      }
     } catch (InterruptedIOException | ClosedByInterruptException e) {
       throw new InterruptedException(e.getMessage());
     }
@@ -100,15 +137,101 @@ public class PersistentAtomicReference<T> {
   private void set0(final T newValue) throws IOException {
     log.debug("set: ({}) {}", filename, newValue);
     synchronized (sync) {
-      final String json = Json.asPrettyStringUnchecked(newValue);
-      log.debug("write: ({}) {}", tempfilename, json);
-      Files.write(tempfilename, json.getBytes(UTF_8));
-      log.debug("move: {} -> {}", tempfilename, filename);
-      Files.move(tempfilename, filename, ATOMIC_MOVE, REPLACE_EXISTING);
+      if (deltaLog == null) {
+        write(Json.asBytesUnchecked(newValue));
+      } else {
+        // Log the change even when compacting, so that the log still ends at the new value if we
+        // crash before the new snapshot is in place
+        if (newValue != value && newValue instanceof Map && value instanceof Map &&
+            persisted.isObject()) {
+          logChangedEntries((Map<?, ?>) value, (Map<?, ?>) newValue);
+        } else {
+          final JsonNode json = Json.asTree(newValue);
+          deltaLog.append(persisted, json);
+          persisted = json;
+        }
+        if (deltaLog.size() > Math.max(MIN_COMPACTION_BYTES, snapshotSize)) {
+          // The log has grown larger than the value, fold it into a new snapshot
+          snapshot(newValue);
+        }
+      }
       this.value = newValue;
     }
   }
 
+  /**
+   * Logs the entries of {@code to} that are not equal to those of {@code from}, serializing only
+   * those, and applies them to the persisted json.
+   */
+  private void logChangedEntries(final Map<?, ?> from, final Map<?, ?> to) throws IOException {
+    final ObjectNode set = JsonNodeFactory.instance.objectNode();
+    final List<String> removed = Lists.newArrayList();
+    for (final Map.Entry<?, ?> entry : to.entrySet()) {
+      final Object previous = from.get(entry.getKey());
+      if (java.util.Objects.deepEquals(previous, entry.getValue()) &&
+          (previous != null || from.containsKey(entry.getKey()))) {
+        continue;
+      }
+      // Serialize the entry as part of a map, so that it is written as it would be in the file
+      final JsonNode field = Json.asTree(Collections.singletonMap(entry.getKey(),
+                                                                  entry.getValue()));
+      if (field.size() > 0) {
+        set.setAll((ObjectNode) field);
+      } else {
+        // Left out of the map, e.g. because it is empty
+        removed.add(fieldName(entry.getKey()));
+      }
+    }
+    for (final Object key : from.keySet()) {
+      if (!to.containsKey(key)) {
+        removed.add(fieldName(key));
+      }
+    }
+    deltaLog.append(set, removed);
+    ((ObjectNode) persisted).setAll(set);
+    ((ObjectNode) persisted).remove(removed);
+  }
+
+  private static String fieldName(final Object key) {
+    return Json.asTree(Collections.singletonMap(key, true)).fieldNames().next();
+  }
+
+  /**
+   * Writes {@code value} to the file and empties the log. Must hold the lock.
+   */
+  private void snapshot(final T value) throws IOException {
+    final byte[] bytes = Json.asBytes(value);
+    write(bytes);
+    snapshotSize = bytes.length;
+    deltaLog.truncate(bytes);
+  }
+
+  /**
+   * Folds the change log into the file, so that the file alone holds the current value. Does
+   * nothing for references that do not log changes.
+   *
+   * @throws IOException If an error occurs working with the file on disk.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  public void compact() throws IOException, InterruptedException {
+    try {
+      synchronized (sync) {
+        if (deltaLog != null && deltaLog.size() > 0) {
+          snapshot(value);
+        }
+      }
+    } catch (InterruptedIOException | ClosedByInterruptException e) {
+      throw new InterruptedException(e.getMessage());
+    }
+  }
+
+  private void write(final byte[] bytes) throws IOException {
+    log.debug("write: ({}) {} bytes", tempfilename, bytes.length);
+    Files.write(tempfilename, bytes);
+    log.debug("move: {} -> {}", tempfilename, filename);
+    Files.move(tempfilename, filename, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
   /**
    * Set the reference to {@code newValue}, and wraps {@link IOException}s in
    * {@link RuntimeException}s.
@@ -138,7 +261,7 @@ public class PersistentAtomicReference<T> {
                                                         final Supplier<? extends T> initialValue)
       throws IOException, InterruptedException {
 
-    return new PersistentAtomicReference<>(filename, Json.type(typeReference), initialValue);
+    return create(filename, Json.type(typeReference), initialValue);
   }
 
 
@@ -153,7 +276,7 @@ public class PersistentAtomicReference<T> {
                                                         final JavaType javaType,
                                                         final Supplier<? extends T> initialValue)
       throws IOException, InterruptedException {
-    return new PersistentAtomicReference<>(filename, javaType, initialValue);
+    return new PersistentAtomicReference<>(filename, javaType, initialValue, false);
   }
 
 
@@ -164,6 +287,26 @@ public class PersistentAtomicReference<T> {
     return create(FileSystems.getDefault().getPath(filename), javaType, initialValue);
   }
 
+  /**
+   * Creates a reference that logs changes instead of rewriting the whole file on every update.
+   * Suited to large maps where each update only changes a few entries.
+   */
+  public static <T> PersistentAtomicReference<T> createLogged(
+      final Path filename, final TypeReference<T> typeReference,
+      final Supplier<? extends T> initialValue) throws IOException, InterruptedException {
+    return createLogged(filename, Json.type(typeReference), initialValue);
+  }
+
+  /**
+   * Creates a reference that logs changes instead of rewriting the whole file on every update.
+   * Suited to large maps where each update only changes a few entries.
+   */
+  public static <T> PersistentAtomicReference<T> createLogged(
+      final Path filename, final JavaType javaType, final Supplier<? extends T> initialValue)
+      throws IOException, InterruptedException {
+    return new PersistentAtomicReference<>(filename, javaType, initialValue, true);
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -21,11 +21,39 @@
 
 package com.spotify.helios.servicescommon;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
 import static com.spotify.helios.servicescommon.Reactor.Callback;
 
+/**
+ * Creates reactors. By default each reactor runs on a thread of its own. If created with an
+ * executor, reactors run on that executor instead, or call their callbacks on a separate
+ * executor if one is given for them.
+ */
 public class ReactorFactory {
 
+  private final ScheduledExecutorService executor;
+  private final Executor callbackExecutor;
+
+  public ReactorFactory() {
+    this(null);
+  }
+
+  public ReactorFactory(final ScheduledExecutorService executor) {
+    this(executor, executor);
+  }
+
+  public ReactorFactory(final ScheduledExecutorService executor,
+                        final Executor callbackExecutor) {
+    this.executor = executor;
+    this.callbackExecutor = callbackExecutor;
+  }
+
   public Reactor create(final String name, final Callback callback, final long timeout) {
+    if (executor != null) {
+      return new ExecutorReactor(name, callback, timeout, executor, callbackExecutor);
+    }
     return new DefaultReactor(name, callback, timeout);
   }
 }
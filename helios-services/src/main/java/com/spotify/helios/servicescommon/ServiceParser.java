@@ -24,6 +24,7 @@ package com.spotify.helios.servicescommon;
 import com.google.common.io.CharStreams;
 
 import com.spotify.helios.common.LoggingConfig;
+import com.spotify.helios.common.PayloadFormat;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.Arguments;
@@ -65,6 +66,7 @@ public class ServiceParser {
   private final Argument zooKeeperConnectiontimeoutArg;
   private final Argument zooKeeperNamespace;
   private final Argument zooKeeperClusterId;
+  private final Argument zooKeeperPayloadFormatArg;
   private final Argument noMetricsArg;
   private final Argument statsdHostPortArg;
   private final Argument riemannHostPortArg;
@@ -119,6 +121,13 @@ public class ServiceParser {
         .setDefault((String) null)
         .help("Optional cluster ID to ensure we are connected to the right cluster");
 
+    zooKeeperPayloadFormatArg = parser.addArgument("--zk-payload-format")
+        .choices(PayloadFormat.JSON.getName(), PayloadFormat.SMILE.getName())
+        .setDefault(PayloadFormat.JSON.getName())
+        .help("The format to write task configurations and statuses to zookeeper in. Data in "
+              + "any format is always read. Masters only write smile for agents that report "
+              + "being able to read it. Only use smile on agents once all masters read it.");
+
     noMetricsArg = parser.addArgument("--no-metrics")
         .setDefault(SUPPRESS)
         .action(storeTrue())
@@ -230,6 +239,10 @@ public class ServiceParser {
     return options.getString(zooKeeperClusterId.getDest());
   }
 
+  public PayloadFormat getZooKeeperPayloadFormat() {
+    return PayloadFormat.forName(options.getString(zooKeeperPayloadFormatArg.getDest()));
+  }
+
   private static String getHostName() {
     return exec("uname -n").trim();
   }
@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon.coordination;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.framework.listen.Listenable;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.apache.curator.framework.recipes.nodes.PersistentEphemeralNode;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Throwables.propagate;
+
+/**
+ * A {@link ZooKeeperClient} that serves reads of a set of subtrees from an in-memory mirror kept
+ * current using ZooKeeper watches, and passes everything else through to the underlying client.
+ *
+ * Reads are only served from memory once the initial load of a subtree has completed and while
+ * the connection to ZooKeeper is up, and after a reconnect only once the mirror has re-read the
+ * subtree. Otherwise they fall through to ZooKeeper. Note that reads
+ * served from memory are eventually consistent: a write made through the underlying client might
+ * not be visible until the corresponding watch has fired.
+ *
+ * The underlying client is started and closed separately. {@link #start()} and {@link #close()}
+ * only manage the in-memory mirrors.
+ *
+ * Watch events received by the mirrors once loaded are reported to the given
+ * {@link ZooKeeperModelReporter}, tagged with {@value #TAG}.
+ */
+public class CachingZooKeeperClient implements ZooKeeperClient {
+
+  private static final Logger log = LoggerFactory.getLogger(CachingZooKeeperClient.class);
+
+  private static final String TAG = "cache";
+
+  private final ZooKeeperClient client;
+  private final Map<String, SubtreeCache> caches;
+
+  public CachingZooKeeperClient(final ZooKeeperClient client, final String... roots) {
+    this(client, ZooKeeperModelReporter.noop(), roots);
+  }
+
+  public CachingZooKeeperClient(final ZooKeeperClient client,
+                                final ZooKeeperModelReporter reporter, final String... roots) {
+    this.client = client;
+    final ImmutableMap.Builder<String, SubtreeCache> caches = ImmutableMap.builder();
+    for (final String root : roots) {
+      caches.put(root, new SubtreeCache(client.getCuratorFramework(), reporter, root));
+    }
+    this.caches = caches.build();
+  }
+
+  private CachingZooKeeperClient(final ZooKeeperClient client,
+                                 final Map<String, SubtreeCache> caches) {
+    this.client = client;
+    this.caches = caches;
+  }
+
+  /**
+   * Returns a client that serves reads from the same mirrors as this one, and passes everything
+   * else through to {@code client}. The mirrors are still started and closed through this client.
+   *
+   * @param client The client to use for everything that is not served from memory.
+   * @return A client sharing the mirrors of this one.
+   */
+  public ZooKeeperClient withFallback(final ZooKeeperClient client) {
+    return new CachingZooKeeperClient(client, caches);
+  }
+
+  /**
+   * Returns true if every cached subtree has completed its initial load and is connected.
+   */
+  public boolean isLive() {
+    for (final SubtreeCache cache : caches.values()) {
+      if (!cache.isLive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the listeners of the mirror of the subtree at {@code root}. Listeners get the events
+   * of the underlying {@link TreeCache}, including those of its initial load.
+   *
+   * @param root The root of a cached subtree.
+   * @return The listeners of its mirror.
+   * @throws IllegalArgumentException If {@code root} is not the root of a cached subtree.
+   */
+  public Listenable<TreeCacheListener> getListenable(final String root) {
+    final SubtreeCache cache = caches.get(root);
+    checkArgument(cache != null, "%s is not cached", root);
+    return cache.tree.getListenable();
+  }
+
+  /**
+   * Returns the cache that can serve {@code path}, or null if the path is not in a cached subtree
+   * or the cache covering it is not currently live.
+   */
+  private SubtreeCache cacheFor(final String path) {
+    for (final Map.Entry<String, SubtreeCache> entry : caches.entrySet()) {
+      final String root = entry.getKey();
+      if (path.equals(root) || path.startsWith(root + "/")) {
+        final SubtreeCache cache = entry.getValue();
+        return cache.isLive() ? cache : null;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public byte[] getData(final String path) throws KeeperException {
+    final SubtreeCache cache = cacheFor(path);
+    if (cache == null) {
+      return client.getData(path);
+    }
+    final ChildData data = cache.tree.getCurrentData(path);
+    if (data == null) {
+      throw new KeeperException.NoNodeException(path);
+    }
+    return data.getData();
+  }
+
+  @Override
+  public List<String> getChildren(final String path) throws KeeperException {
+    final SubtreeCache cache = cacheFor(path);
+    if (cache == null) {
+      return client.getChildren(path);
+    }
+    final Map<String, ChildData> children = cache.tree.getCurrentChildren(path);
+    if (children == null) {
+      throw new KeeperException.NoNodeException(path);
+    }
+    return ImmutableList.copyOf(children.keySet());
+  }
+
+  @Override
+  public Map<String, byte[]> getDataMany(final Collection<String> paths)
+      throws KeeperException {
+    final Map<String, byte[]> results = Maps.newHashMap();
+    final List<String> uncached = Lists.newArrayList();
+    for (final String path : paths) {
+      final SubtreeCache cache = cacheFor(path);
+      if (cache == null) {
+        uncached.add(path);
+        continue;
+      }
+      final ChildData data = cache.tree.getCurrentData(path);
+      if (data != null) {
+        results.put(path, data.getData());
+      }
+    }
+    results.putAll(client.getDataMany(uncached));
+    return results;
+  }
+
+  @Override
+  public Map<String, Node> getNodeMany(final Collection<String> paths) throws KeeperException {
+    final Map<String, Node> results = Maps.newHashMap();
+    final List<String> uncached = Lists.newArrayList();
+    for (final String path : paths) {
+      final SubtreeCache cache = cacheFor(path);
+      if (cache == null) {
+        uncached.add(path);
+        continue;
+      }
+      final ChildData data = cache.tree.getCurrentData(path);
+      if (data != null) {
+        results.put(path, new Node(path, data.getData(), data.getStat()));
+      }
+    }
+    results.putAll(client.getNodeMany(uncached));
+    return results;
+  }
+
+  @Override
+  public Map<String, Stat> existsMany(final Collection<String> paths) throws KeeperException {
+    final Map<String, Stat> results = Maps.newHashMap();
+    final List<String> uncached = Lists.newArrayList();
+    for (final String path : paths) {
+      final SubtreeCache cache = cacheFor(path);
+      if (cache == null) {
+        uncached.add(path);
+        continue;
+      }
+      final ChildData data = cache.tree.getCurrentData(path);
+      if (data != null) {
+        results.put(path, data.getStat());
+      }
+    }
+    results.putAll(client.existsMany(uncached));
+    return results;
+  }
+
+  @Override
+  public Map<String, List<String>> getChildrenMany(final Collection<String> paths)
+      throws KeeperException {
+    final Map<String, List<String>> results = Maps.newHashMap();
+    final List<String> uncached = Lists.newArrayList();
+    for (final String path : paths) {
+      final SubtreeCache cache = cacheFor(path);
+      if (cache == null) {
+        uncached.add(path);
+        continue;
+      }
+      final Map<String, ChildData> children = cache.tree.getCurrentChildren(path);
+      if (children != null) {
+        results.put(path, ImmutableList.copyOf(children.keySet()));
+      }
+    }
+    results.putAll(client.getChildrenMany(uncached));
+    return results;
+  }
+
+  @Override
+  public Node getNode(final String path) throws KeeperException {
+    final SubtreeCache cache = cacheFor(path);
+    if (cache == null) {
+      return client.getNode(path);
+    }
+    final ChildData data = cache.tree.getCurrentData(path);
+    if (data == null) {
+      throw new KeeperException.NoNodeException(path);
+    }
+    return new Node(path, data.getData(), data.getStat());
+  }
+
+  @Override
+  public Stat exists(final String path) throws KeeperException {
+    final SubtreeCache cache = cacheFor(path);
+    if (cache == null) {
+      return client.exists(path);
+    }
+    final ChildData data = cache.tree.getCurrentData(path);
+    return data == null ? null : data.getStat();
+  }
+
+  @Override
+  public Stat stat(final String path) throws KeeperException {
+    return exists(path);
+  }
+
+  @Override
+  public void ensurePath(final String path) throws KeeperException {
+    client.ensurePath(path);
+  }
+
+  @Override
+  public void ensurePath(final String path, final boolean excludingLast) throws KeeperException {
+    client.ensurePath(path, excludingLast);
+  }
+
+  @Override
+  public void delete(final String path) throws KeeperException {
+    client.delete(path);
+  }
+
+  @Override
+  public void setData(final String path, final byte[] bytes) throws KeeperException {
+    client.setData(path, bytes);
+  }
+
+  @Override
+  public void createAndSetData(final String path, final byte[] data) throws KeeperException {
+    client.createAndSetData(path, data);
+  }
+
+  @Override
+  public void createWithMode(final String path, final CreateMode mode) throws KeeperException {
+    client.createWithMode(path, mode);
+  }
+
+  @Override
+  public void deleteRecursive(final String path) throws KeeperException {
+    client.deleteRecursive(path);
+  }
+
+  @Override
+  public List<String> listRecursive(final String path) throws KeeperException {
+    return client.listRecursive(path);
+  }
+
+  @Override
+  public void create(final String path) throws KeeperException {
+    client.create(path);
+  }
+
+  @Override
+  public <T> PersistentPathChildrenCache<T> pathChildrenCache(final String path,
+                                                              final Path snapshotFile,
+                                                              final JavaType valueType)
+      throws IOException, InterruptedException {
+    return client.pathChildrenCache(path, snapshotFile, valueType);
+  }
+
+  @Override
+  public Collection<CuratorTransactionResult> transaction(final List<ZooKeeperOperation> operations)
+      throws KeeperException {
+    return client.transaction(operations);
+  }
+
+  @Override
+  public Collection<CuratorTransactionResult> transaction(final ZooKeeperOperation... operations)
+      throws KeeperException {
+    return client.transaction(operations);
+  }
+
+  @Override
+  public void delete(final String path, final int version) throws KeeperException {
+    client.delete(path, version);
+  }
+
+  @Override
+  public Listenable<ConnectionStateListener> getConnectionStateListenable() {
+    return client.getConnectionStateListenable();
+  }
+
+  @Override
+  public ZooKeeper.States getState() throws KeeperException {
+    return client.getState();
+  }
+
+  @Override
+  public PersistentEphemeralNode persistentEphemeralNode(final String path,
+                                                         final PersistentEphemeralNode.Mode mode,
+                                                         final byte[] data) {
+    return client.persistentEphemeralNode(path, mode, data);
+  }
+
+  @Override
+  public CuratorFramework getCuratorFramework() {
+    return client.getCuratorFramework();
+  }
+
+  @Override
+  public void start() {
+    for (final SubtreeCache cache : caches.values()) {
+      try {
+        cache.tree.start();
+      } catch (Exception e) {
+        throw propagate(e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for (final SubtreeCache cache : caches.values()) {
+      cache.tree.close();
+    }
+  }
+
+  private static class SubtreeCache implements TreeCacheListener {
+
+    private final String root;
+    private final CuratorFramework curator;
+    private final ZooKeeperModelReporter reporter;
+    private final TreeCache tree;
+    private final AtomicBoolean initialized = new AtomicBoolean();
+    private final AtomicBoolean connected = new AtomicBoolean(true);
+    // Changed on every change of connection state, so that stale catch-up rounds are ignored
+    private final AtomicInteger connection = new AtomicInteger();
+    private final AtomicInteger added = new AtomicInteger();
+
+    SubtreeCache(final CuratorFramework curator, final ZooKeeperModelReporter reporter,
+                 final String root) {
+      this.root = root;
+      this.curator = curator;
+      this.reporter = reporter;
+      this.tree = new TreeCache(curator, root);
+      this.tree.getListenable().addListener(this);
+    }
+
+    boolean isLive() {
+      return initialized.get() && connected.get();
+    }
+
+    @Override
+    public void childEvent(final CuratorFramework client, final TreeCacheEvent event) {
+      switch (event.getType()) {
+        case INITIALIZED:
+          log.info("cache of {} initialized", root);
+          initialized.set(true);
+          break;
+        case CONNECTION_SUSPENDED:
+        case CONNECTION_LOST:
+          log.info("cache of {} disconnected, reading through", root);
+          connected.set(false);
+          connection.incrementAndGet();
+          break;
+        case CONNECTION_RECONNECTED:
+          log.info("cache of {} reconnected, reading through until it has caught up", root);
+          connected.set(false);
+          catchUp(connection.incrementAndGet(), 1);
+          break;
+        case NODE_ADDED:
+          added.incrementAndGet();
+          // fall through
+        case NODE_UPDATED:
+        case NODE_REMOVED:
+          if (initialized.get()) {
+            reporter.watchEvent(TAG, event.getType().name());
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    /**
+     * Waits for the tree to re-read the subtree after a reconnect. Curator does not report the
+     * tree as initialized again, so this makes round trips to ZooKeeper instead. The tree asks
+     * for every node it knows before reporting the reconnect, so the first round trip comes back
+     * after all of those. Nodes that it finds are read in turn and reported as added, so it has
+     * caught up once a later round trip comes back without any node having been added.
+     */
+    private void catchUp(final int connection, final int round) {
+      final int addedBefore = added.get();
+      try {
+        curator.checkExists().inBackground(new BackgroundCallback() {
+          @Override
+          public void processResult(final CuratorFramework client, final CuratorEvent event) {
+            if (SubtreeCache.this.connection.get() != connection) {
+              return;
+            }
+            if (round > 1 && added.get() == addedBefore) {
+              log.info("cache of {} caught up", root);
+              connected.set(true);
+            } else {
+              catchUp(connection, round + 1);
+            }
+          }
+        }).forPath(root);
+      } catch (Exception e) {
+        log.warn("cache of {} failed to catch up, reading through until reconnected", root, e);
+      }
+    }
+  }
+}
@@ -36,6 +36,11 @@ public class Check implements ZooKeeperOperation {
     transaction.check().forPath(path);
   }
 
+  @Override
+  public int payloadSize() {
+    return 0;
+  }
+
   @Override
   public String toString() {
     return "Check{" +
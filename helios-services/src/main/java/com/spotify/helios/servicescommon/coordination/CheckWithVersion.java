@@ -38,6 +38,11 @@ public class CheckWithVersion implements ZooKeeperOperation {
     transaction.check().withVersion(version).forPath(path);
   }
 
+  @Override
+  public int payloadSize() {
+    return 0;
+  }
+
   @Override
   public String toString() {
     return "CheckWithVersion{" +
@@ -36,6 +36,11 @@ class CreateEmpty implements ZooKeeperOperation {
     transaction.create().forPath(path);
   }
 
+  @Override
+  public int payloadSize() {
+    return 0;
+  }
+
   @Override
   public String toString() {
     return "CreateEmpty{" +
@@ -40,6 +40,15 @@ public class CreateMany implements ZooKeeperOperation {
     }
   }
 
+  @Override
+  public int payloadSize() {
+    int size = 0;
+    for (final byte[] data : nodes.values()) {
+      size += data.length;
+    }
+    return size;
+  }
+
   @Override
   public String toString() {
     return "CreateMany{" +
@@ -38,6 +38,11 @@ class CreateWithData implements ZooKeeperOperation {
     transaction.create().forPath(path, data);
   }
 
+  @Override
+  public int payloadSize() {
+    return data.length;
+  }
+
   @Override
   public String toString() {
     return "CreateWithData{" +
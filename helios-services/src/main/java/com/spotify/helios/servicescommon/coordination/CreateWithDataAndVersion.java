@@ -42,6 +42,11 @@ class CreateWithDataAndVersion implements ZooKeeperOperation {
         .setData().withVersion(version).forPath(path, data);
   }
 
+  @Override
+  public int payloadSize() {
+    return data.length;
+  }
+
   @Override
   public String toString() {
     return "CreateWithDataAndVersion{" +
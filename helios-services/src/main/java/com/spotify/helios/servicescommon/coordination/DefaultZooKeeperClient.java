@@ -26,6 +26,8 @@ import com.google.common.collect.ImmutableList;
 import com.fasterxml.jackson.databind.JavaType;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
 import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.listen.Listenable;
@@ -48,7 +50,11 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -57,6 +63,8 @@ import static com.google.common.base.Throwables.propagateIfInstanceOf;
 import static com.google.common.collect.Lists.reverse;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 public class DefaultZooKeeperClient implements ZooKeeperClient {
 
@@ -217,6 +225,134 @@ public class DefaultZooKeeperClient implements ZooKeeperClient {
     }
   }
 
+  @Override
+  public Map<String, byte[]> getDataMany(final Collection<String> paths)
+      throws KeeperException {
+    return readMany(paths, new BackgroundRead<byte[]>() {
+      @Override
+      public void start(final String path, final BackgroundCallback callback) throws Exception {
+        client.getData().inBackground(callback).forPath(path);
+      }
+
+      @Override
+      public byte[] result(final CuratorEvent event) {
+        return event.getData() == null ? new byte[0] : event.getData();
+      }
+    });
+  }
+
+  @Override
+  public Map<String, Node> getNodeMany(final Collection<String> paths) throws KeeperException {
+    return readMany(paths, new BackgroundRead<Node>() {
+      @Override
+      public void start(final String path, final BackgroundCallback callback) throws Exception {
+        client.getData().inBackground(callback).forPath(path);
+      }
+
+      @Override
+      public Node result(final CuratorEvent event) {
+        final byte[] data = event.getData() == null ? new byte[0] : event.getData();
+        return new Node(event.getPath(), data, event.getStat());
+      }
+    });
+  }
+
+  @Override
+  public Map<String, Stat> existsMany(final Collection<String> paths) throws KeeperException {
+    return readMany(paths, new BackgroundRead<Stat>() {
+      @Override
+      public void start(final String path, final BackgroundCallback callback) throws Exception {
+        client.checkExists().inBackground(callback).forPath(path);
+      }
+
+      @Override
+      public Stat result(final CuratorEvent event) {
+        return event.getStat();
+      }
+    });
+  }
+
+  @Override
+  public Map<String, List<String>> getChildrenMany(final Collection<String> paths)
+      throws KeeperException {
+    return readMany(paths, new BackgroundRead<List<String>>() {
+      @Override
+      public void start(final String path, final BackgroundCallback callback) throws Exception {
+        client.getChildren().inBackground(callback).forPath(path);
+      }
+
+      @Override
+      public List<String> result(final CuratorEvent event) {
+        return event.getChildren();
+      }
+    });
+  }
+
+  /**
+   * Issues one background read per path and waits for all of them to complete, so that the reads
+   * are pipelined over the connection instead of each waiting for the previous one. Gives up
+   * with {@link KeeperException.OperationTimeoutException} if they have not all completed within
+   * the connection timeout, the same bound Curator puts on a blocking read waiting for a
+   * connection.
+   */
+  private <T> Map<String, T> readMany(final Collection<String> paths, final BackgroundRead<T> read)
+      throws KeeperException {
+    assertClusterIdFlagTrue();
+    if (paths.isEmpty()) {
+      return emptyMap();
+    }
+
+    final Map<String, T> results = new ConcurrentHashMap<>();
+    final AtomicReference<KeeperException> failure = new AtomicReference<>();
+    final CountDownLatch latch = new CountDownLatch(paths.size());
+
+    for (final String path : paths) {
+      final BackgroundCallback callback = new BackgroundCallback() {
+        @Override
+        public void processResult(final CuratorFramework client, final CuratorEvent event) {
+          try {
+            final KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (code == KeeperException.Code.OK) {
+              results.put(path, read.result(event));
+            } else if (code != KeeperException.Code.NONODE) {
+              failure.compareAndSet(null, KeeperException.create(code, path));
+            }
+          } finally {
+            latch.countDown();
+          }
+        }
+      };
+      try {
+        read.start(path, callback);
+      } catch (Exception e) {
+        propagateIfInstanceOf(e, KeeperException.class);
+        throw propagate(e);
+      }
+    }
+
+    try {
+      final int timeoutMillis = client.getZookeeperClient().getConnectionTimeoutMs();
+      if (!latch.await(timeoutMillis, MILLISECONDS)) {
+        throw new KeeperException.OperationTimeoutException();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw propagate(e);
+    }
+
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return results;
+  }
+
+  private interface BackgroundRead<T> {
+
+    void start(String path, BackgroundCallback callback) throws Exception;
+
+    T result(CuratorEvent event);
+  }
+
   @Override
   public void deleteRecursive(final String path) throws KeeperException {
     assertClusterIdFlagTrue();
@@ -26,20 +26,35 @@ import org.apache.curator.framework.api.transaction.CuratorTransaction;
 class Delete implements ZooKeeperOperation {
 
   private final String path;
+  private final int version;
 
   Delete(final String path) {
+    this(path, -1);
+  }
+
+  /**
+   * @param version The expected version of the node, or -1 to match any version.
+   */
+  Delete(final String path, final int version) {
     this.path = path;
+    this.version = version;
   }
 
   @Override
   public void register(final CuratorTransaction transaction) throws Exception {
-    transaction.delete().forPath(path);
+    transaction.delete().withVersion(version).forPath(path);
+  }
+
+  @Override
+  public int payloadSize() {
+    return 0;
   }
 
   @Override
   public String toString() {
     return "Delete{" +
            "path='" + path + '\'' +
+           ", version=" + version +
            '}';
   }
 }
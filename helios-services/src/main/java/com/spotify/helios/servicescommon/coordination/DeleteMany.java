@@ -40,6 +40,11 @@ public class DeleteMany implements ZooKeeperOperation {
     }
   }
 
+  @Override
+  public int payloadSize() {
+    return 0;
+  }
+
   @Override
   public String toString() {
     return "DeleteMany{" +
@@ -41,11 +41,14 @@ public class Paths {
   private static final String PORTS = "ports";
   private static final String ENVIRONMENT = "environment";
   private static final String ID = "id";
+  private static final String ROLLING_UPDATES = "rolling-updates";
 
   private static final PathFactory CONFIG_ID = new PathFactory("/", CONFIG, ID);
   private static final PathFactory CONFIG_JOBS = new PathFactory("/", CONFIG, JOBS);
   private static final PathFactory CONFIG_JOBREFS = new PathFactory("/", CONFIG, JOBREFS);
   private static final PathFactory CONFIG_HOSTS = new PathFactory("/", CONFIG, HOSTS);
+  private static final PathFactory CONFIG_ROLLING_UPDATES =
+      new PathFactory("/", CONFIG, ROLLING_UPDATES);
   private static final PathFactory STATUS_HOSTS = new PathFactory("/", STATUS, HOSTS);
   private static final PathFactory STATUS_MASTERS = new PathFactory("/", STATUS, MASTERS);
   private static final PathFactory HISTORY_JOBS = new PathFactory("/", HISTORY, JOBS);
@@ -63,6 +66,14 @@ public class Paths {
     return CONFIG_JOBREFS.path();
   }
 
+  public static String configRollingUpdates() {
+    return CONFIG_ROLLING_UPDATES.path();
+  }
+
+  public static String configRollingUpdate(final String id) {
+    return CONFIG_ROLLING_UPDATES.path(id);
+  }
+
   public static String configJob(final JobId id) {
     return CONFIG_JOBS.path(id.toString());
   }
@@ -23,7 +23,9 @@ package com.spotify.helios.servicescommon.coordination;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -34,6 +36,7 @@ import com.spotify.helios.agent.BoundedRandomExponentialBackoff;
 import com.spotify.helios.agent.RetryIntervalPolicy;
 import com.spotify.helios.agent.RetryScheduler;
 import com.spotify.helios.common.Json;
+import com.spotify.helios.common.JsonCodec;
 import com.spotify.helios.servicescommon.DefaultReactor;
 import com.spotify.helios.servicescommon.PersistentAtomicReference;
 import com.spotify.helios.servicescommon.Reactor;
@@ -82,9 +85,11 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
   private final CuratorFramework curator;
   private final String path;
   private final String clusterId;
-  private final JavaType valueType;
+  private final JsonCodec<T> codec;
 
   private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+  private final CopyOnWriteArrayList<WatchListener> watchListeners =
+      new CopyOnWriteArrayList<>();
   private final CuratorWatcher childrenWatcher = new ChildrenWatcher();
   private final CuratorWatcher dataWatcher = new DataWatcher();
   private final Set<String> changes = Sets.newConcurrentHashSet();
@@ -99,13 +104,13 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     this.curator = curator;
     this.path = path;
     this.clusterId = clusterId;
-    this.valueType = valueType;
+    this.codec = Json.codec(valueType);
 
     final MapType mapType = Json.typeFactory().constructMapType(HashMap.class,
                                                                 Json.type(String.class), valueType);
     final Supplier<Map<String, T>> empty = Suppliers.ofInstance(Collections.<String, T>emptyMap());
 
-    this.snapshot = PersistentAtomicReference.create(snapshotFile, mapType, empty);
+    this.snapshot = PersistentAtomicReference.createLogged(snapshotFile, mapType, empty);
     this.reactor = new DefaultReactor("zk-ppcc:" + path, new Update(), REFRESH_INTERVAL_MILLIS);
     curator.getConnectionStateListenable().addListener(new ConnectionListener());
   }
@@ -118,6 +123,10 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     listeners.remove(listener);
   }
 
+  public void addWatchListener(final WatchListener listener) {
+    watchListeners.add(listener);
+  }
+
   @Override
   protected void startUp() throws Exception {
     log.debug("starting cache");
@@ -128,6 +137,7 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
   @Override
   protected void shutDown() throws Exception {
     reactor.stopAsync().awaitTerminated();
+    snapshot.compact();
   }
 
   public Map<String, T> getNodes() {
@@ -144,17 +154,38 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     }
   }
 
+  private void fireWatchEvent(final WatchedEvent event) {
+    for (final WatchListener listener : watchListeners) {
+      try {
+        listener.watchEvent(event);
+      } catch (Exception e) {
+        log.error("Watch listener threw exception", e);
+      }
+    }
+  }
+
   private boolean isAlive() {
     return state().ordinal() < STOPPING.ordinal();
   }
 
   public interface Listener {
 
-    void nodesChanged(PersistentPathChildrenCache<?> cache);
+    /**
+     * @param nodes The paths of the nodes that were added, removed or changed.
+     */
+    void nodesChanged(PersistentPathChildrenCache<?> cache, Set<String> nodes);
 
     void connectionStateChanged(ConnectionState state);
   }
 
+  /**
+   * Notified of every ZooKeeper watch event received by the cache.
+   */
+  public interface WatchListener {
+
+    void watchEvent(WatchedEvent event);
+  }
+
   private class Update implements Reactor.Callback {
 
     final RetryIntervalPolicy retryIntervalPolicy = BoundedRandomExponentialBackoff.newBuilder()
@@ -185,10 +216,15 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
 
     final Map<String, T> newSnapshot;
     final Map<String, T> currentSnapshot = snapshot.get();
+    final Set<String> changed = Sets.newHashSet();
 
     if (!synced) {
       synced = true;
       newSnapshot = sync();
+      final MapDifference<String, T> difference = Maps.difference(currentSnapshot, newSnapshot);
+      changed.addAll(difference.entriesOnlyOnLeft().keySet());
+      changed.addAll(difference.entriesOnlyOnRight().keySet());
+      changed.addAll(difference.entriesDiffering().keySet());
     } else {
       newSnapshot = Maps.newHashMap(currentSnapshot);
     }
@@ -205,25 +241,27 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
         final byte[] bytes = curator.getData()
             .usingWatcher(dataWatcher)
             .forPath(node);
-        value = Json.read(bytes, valueType);
+        value = codec.read(bytes);
       } catch (KeeperException e) {
         throw e;
       } catch (Exception e) {
         throw Throwables.propagate(e);
       }
-      newSnapshot.put(node, value);
+      if (!Objects.equal(value, newSnapshot.put(node, value))) {
+        changed.add(node);
+      }
     }
 
-    if (!currentSnapshot.equals(newSnapshot)) {
+    if (!changed.isEmpty()) {
       snapshot.setUnchecked(newSnapshot);
-      fireNodesChanged();
+      fireNodesChanged(changed);
     }
   }
 
-  private void fireNodesChanged() {
+  private void fireNodesChanged(final Set<String> nodes) {
     for (final Listener listener : listeners) {
       try {
-        listener.nodesChanged(this);
+        listener.nodesChanged(this, nodes);
       } catch (Exception e) {
         log.error("Listener threw exception", e);
       }
@@ -251,7 +289,7 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
         log.debug("child: {}={}", node, json);
         final T value;
         try {
-          value = Json.read(bytes, valueType);
+          value = codec.read(bytes);
         } catch (IOException e) {
           log.warn("failed to parse node: {}: {}", node, json, e);
           // Treat parse failure as absence
@@ -301,6 +339,7 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     @Override
     public void process(final WatchedEvent event) throws Exception {
       log.debug("children event: {}", event);
+      fireWatchEvent(event);
       synced = false;
       reactor.signal();
     }
@@ -311,6 +350,7 @@ public class PersistentPathChildrenCache<T> extends AbstractIdleService {
     @Override
     public void process(final WatchedEvent event) throws Exception {
       log.debug("data event: {}", event);
+      fireWatchEvent(event);
       if (event.getType() == NodeDataChanged) {
         final String child = ZKPaths.getNodeFromPath(event.getPath());
         changes.add(child);
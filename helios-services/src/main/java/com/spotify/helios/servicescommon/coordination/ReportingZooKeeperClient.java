@@ -30,14 +30,22 @@ import org.apache.curator.framework.recipes.nodes.PersistentEphemeralNode;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.data.Stat;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * A {@link ZooKeeperClient} that reports errors, latencies, payload sizes and watch events of the
+ * operations it passes through to {@link ZooKeeperModelReporter}, tagged with the name of the
+ * component using it.
+ */
 public class ReportingZooKeeperClient implements ZooKeeperClient {
 
   private final ZooKeeperClient client;
@@ -54,121 +62,226 @@ public class ReportingZooKeeperClient implements ZooKeeperClient {
 
   @Override
   public void ensurePath(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.ensurePath(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "ensurePath");
       throw e;
+    } finally {
+      reporter.time(tag, "ensurePath", path, start);
     }
   }
 
   @Override
   public void ensurePath(String path, boolean excludingLast) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.ensurePath(path, excludingLast);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "ensurePath");
       throw e;
+    } finally {
+      reporter.time(tag, "ensurePath", path, start);
     }
   }
 
   @Override
   public byte[] getData(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
-      return client.getData(path);
+      final byte[] data = client.getData(path);
+      reporter.bytesRead(tag, "getData", size(data));
+      return data;
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "getData");
       throw e;
+    } finally {
+      reporter.time(tag, "getData", path, start);
     }
   }
 
   @Override
   public List<String> getChildren(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       return client.getChildren(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "getChildren");
       throw e;
+    } finally {
+      reporter.time(tag, "getChildren", path, start);
+    }
+  }
+
+  @Override
+  public Map<String, byte[]> getDataMany(Collection<String> paths) throws KeeperException {
+    final long start = System.nanoTime();
+    try {
+      final Map<String, byte[]> data = client.getDataMany(paths);
+      long bytes = 0;
+      for (final byte[] value : data.values()) {
+        bytes += size(value);
+      }
+      reporter.bytesRead(tag, "getDataMany", bytes);
+      return data;
+    } catch (KeeperException e) {
+      reporter.checkException(e, tag, "getDataMany");
+      throw e;
+    } finally {
+      reporter.time(tag, "getDataMany", paths, start);
+    }
+  }
+
+  @Override
+  public Map<String, Node> getNodeMany(Collection<String> paths) throws KeeperException {
+    final long start = System.nanoTime();
+    try {
+      final Map<String, Node> nodes = client.getNodeMany(paths);
+      long bytes = 0;
+      for (final Node node : nodes.values()) {
+        bytes += size(node.getBytes());
+      }
+      reporter.bytesRead(tag, "getNodeMany", bytes);
+      return nodes;
+    } catch (KeeperException e) {
+      reporter.checkException(e, tag, "getNodeMany");
+      throw e;
+    } finally {
+      reporter.time(tag, "getNodeMany", paths, start);
+    }
+  }
+
+  @Override
+  public Map<String, Stat> existsMany(Collection<String> paths) throws KeeperException {
+    final long start = System.nanoTime();
+    try {
+      return client.existsMany(paths);
+    } catch (KeeperException e) {
+      reporter.checkException(e, tag, "existsMany");
+      throw e;
+    } finally {
+      reporter.time(tag, "existsMany", paths, start);
+    }
+  }
+
+  @Override
+  public Map<String, List<String>> getChildrenMany(Collection<String> paths)
+      throws KeeperException {
+    final long start = System.nanoTime();
+    try {
+      return client.getChildrenMany(paths);
+    } catch (KeeperException e) {
+      reporter.checkException(e, tag, "getChildrenMany");
+      throw e;
+    } finally {
+      reporter.time(tag, "getChildrenMany", paths, start);
     }
   }
 
   @Override
   public void delete(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.delete(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "delete");
       throw e;
+    } finally {
+      reporter.time(tag, "delete", path, start);
     }
   }
 
   @Override
   public void setData(String path, byte[] bytes) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.setData(path, bytes);
+      reporter.bytesWritten(tag, "setData", size(bytes));
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "setData");
       throw e;
+    } finally {
+      reporter.time(tag, "setData", path, start);
     }
   }
 
   @Override
   public void createAndSetData(String path, byte[] data) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.createAndSetData(path, data);
+      reporter.bytesWritten(tag, "createAndSetData", size(data));
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "createAndSetData");
       throw e;
+    } finally {
+      reporter.time(tag, "createAndSetData", path, start);
     }
   }
 
   @Override
   public void createWithMode(String path, CreateMode mode) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.createWithMode(path, mode);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "createWithMode");
       throw e;
+    } finally {
+      reporter.time(tag, "createWithMode", path, start);
     }
   }
 
   @Override
   public Stat stat(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       return client.stat(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "stat");
       throw e;
+    } finally {
+      reporter.time(tag, "stat", path, start);
     }
   }
 
   @Override
   public void deleteRecursive(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.deleteRecursive(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "deleteRecursive");
       throw e;
+    } finally {
+      reporter.time(tag, "deleteRecursive", path, start);
     }
   }
 
   @Override
   public List<String> listRecursive(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       return client.listRecursive(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "listRecursive");
       throw e;
+    } finally {
+      reporter.time(tag, "listRecursive", path, start);
     }
   }
 
   @Override
   public void create(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.create(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "create");
       throw e;
+    } finally {
+      reporter.time(tag, "create", path, start);
     }
   }
 
@@ -176,58 +289,81 @@ public class ReportingZooKeeperClient implements ZooKeeperClient {
   public <T> PersistentPathChildrenCache<T> pathChildrenCache(String path, Path snapshotFile,
                                                               final JavaType valueType)
       throws IOException, InterruptedException {
-    return client.pathChildrenCache(path, snapshotFile, valueType);
+    final PersistentPathChildrenCache<T> cache =
+        client.pathChildrenCache(path, snapshotFile, valueType);
+    cache.addWatchListener(new PersistentPathChildrenCache.WatchListener() {
+      @Override
+      public void watchEvent(final WatchedEvent event) {
+        reporter.watchEvent(tag, event.getType().name());
+      }
+    });
+    return cache;
   }
 
   @Override
   public Collection<CuratorTransactionResult> transaction(List<ZooKeeperOperation> operations)
       throws KeeperException {
+    final long start = System.nanoTime();
     try {
-      return client.transaction(operations);
+      final Collection<CuratorTransactionResult> results = client.transaction(operations);
+      long bytes = 0;
+      for (final ZooKeeperOperation operation : operations) {
+        bytes += operation.payloadSize();
+      }
+      reporter.bytesWritten(tag, "transaction", bytes);
+      return results;
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "transaction");
       throw e;
+    } finally {
+      reporter.time(tag, "transaction", operations, start);
     }
   }
 
   @Override
   public Collection<CuratorTransactionResult> transaction(ZooKeeperOperation... operations)
       throws KeeperException {
-    try {
-      return client.transaction(operations);
-    } catch (KeeperException e) {
-      reporter.checkException(e, tag, "transaction");
-      throw e;
-    }
+    return transaction(Arrays.asList(operations));
   }
 
   @Override
   public void delete(String path, int version) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       client.delete(path, version);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "delete");
       throw e;
+    } finally {
+      reporter.time(tag, "delete", path, start);
     }
   }
 
   @Override
   public Node getNode(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
-      return client.getNode(path);
+      final Node node = client.getNode(path);
+      reporter.bytesRead(tag, "getNode", size(node.getBytes()));
+      return node;
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "getNode");
       throw e;
+    } finally {
+      reporter.time(tag, "getNode", path, start);
     }
   }
 
   @Override
   public Stat exists(String path) throws KeeperException {
+    final long start = System.nanoTime();
     try {
       return client.exists(path);
     } catch (KeeperException e) {
       reporter.checkException(e, tag, "exists");
       throw e;
+    } finally {
+      reporter.time(tag, "exists", path, start);
     }
   }
 
@@ -267,5 +403,8 @@ public class ReportingZooKeeperClient implements ZooKeeperClient {
   public CuratorFramework getCuratorFramework() {
     return client.getCuratorFramework();
   }
-}
 
+  private static long size(final byte[] data) {
+    return data == null ? 0 : data.length;
+  }
+}
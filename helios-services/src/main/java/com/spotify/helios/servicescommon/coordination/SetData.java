@@ -27,21 +27,36 @@ public class SetData implements ZooKeeperOperation {
 
   private final byte[] bytes;
   private final String path;
+  private final int version;
 
   public SetData(String path, byte[] bytes) {
+    this(path, bytes, -1);
+  }
+
+  /**
+   * @param version The expected version of the node, or -1 to match any version.
+   */
+  public SetData(String path, byte[] bytes, int version) {
     this.path = path;
     this.bytes = bytes;
+    this.version = version;
   }
 
   @Override
   public void register(CuratorTransaction transaction) throws Exception {
-    transaction.setData().forPath(path, bytes);
+    transaction.setData().withVersion(version).forPath(path, bytes);
+  }
+
+  @Override
+  public int payloadSize() {
+    return bytes.length;
   }
 
   @Override
   public String toString() {
     return "SetData{" +
            "path='" + path + '\'' +
+           ", version=" + version +
            '}';
   }
 }
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Exists because the Curator library makes things ununit-testable without this. Also it avoids
@@ -52,6 +53,44 @@ public interface ZooKeeperClient {
 
   List<String> getChildren(String path) throws KeeperException;
 
+  /**
+   * Reads the data of several nodes concurrently, costing roughly one round trip in total.
+   *
+   * @param paths The paths to read.
+   * @return A map from path to data. Nodes that do not exist are left out.
+   * @throws KeeperException If any of the reads fail for a reason other than a missing node.
+   */
+  Map<String, byte[]> getDataMany(Collection<String> paths) throws KeeperException;
+
+  /**
+   * Reads the data and stat of several nodes concurrently, costing roughly one round trip in
+   * total.
+   *
+   * @param paths The paths to read.
+   * @return A map from path to node. Nodes that do not exist are left out.
+   * @throws KeeperException If any of the reads fail for a reason other than a missing node.
+   */
+  Map<String, Node> getNodeMany(Collection<String> paths) throws KeeperException;
+
+  /**
+   * Reads the stat of several nodes concurrently without reading their data, costing roughly one
+   * round trip in total.
+   *
+   * @param paths The paths to read.
+   * @return A map from path to stat. Nodes that do not exist are left out.
+   * @throws KeeperException If any of the reads fail for a reason other than a missing node.
+   */
+  Map<String, Stat> existsMany(Collection<String> paths) throws KeeperException;
+
+  /**
+   * Lists the children of several nodes concurrently, costing roughly one round trip in total.
+   *
+   * @param paths The paths to list.
+   * @return A map from path to children. Nodes that do not exist are left out.
+   * @throws KeeperException If any of the reads fail for a reason other than a missing node.
+   */
+  Map<String, List<String>> getChildrenMany(Collection<String> paths) throws KeeperException;
+
   void delete(String path) throws KeeperException;
 
   void setData(String path, byte[] bytes) throws KeeperException;
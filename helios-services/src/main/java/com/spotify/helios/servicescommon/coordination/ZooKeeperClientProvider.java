@@ -24,13 +24,25 @@ package com.spotify.helios.servicescommon.coordination;
 public class ZooKeeperClientProvider {
   private final ZooKeeperClient client;
   private final ZooKeeperModelReporter reporter;
+  private final CachingZooKeeperClient cache;
 
   public ZooKeeperClientProvider(ZooKeeperClient client, ZooKeeperModelReporter reporter) {
+    this(client, reporter, null);
+  }
+
+  /**
+   * @param cache If not null, serves the reads it can from memory. Only operations that go to
+   *              {@code client} are reported, so cached reads do not count as ZooKeeper time.
+   */
+  public ZooKeeperClientProvider(ZooKeeperClient client, ZooKeeperModelReporter reporter,
+                                 CachingZooKeeperClient cache) {
     this.client = client;
     this.reporter = reporter;
+    this.cache = cache;
   }
 
   public ZooKeeperClient get(String tag) {
-    return new ReportingZooKeeperClient(client, reporter, tag);
+    final ZooKeeperClient reporting = new ReportingZooKeeperClient(client, reporter, tag);
+    return cache == null ? reporting : cache.withFallback(reporting);
   }
 }
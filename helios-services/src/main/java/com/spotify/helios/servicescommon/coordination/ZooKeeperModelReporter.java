@@ -23,22 +23,34 @@ package com.spotify.helios.servicescommon.coordination;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
 
 import com.spotify.helios.servicescommon.NoOpRiemannClient;
 import com.spotify.helios.servicescommon.RiemannFacade;
 import com.spotify.helios.servicescommon.statistics.NoopZooKeeperMetrics;
+import com.spotify.helios.servicescommon.statistics.RequestPhases;
 import com.spotify.helios.servicescommon.statistics.ZooKeeperMetrics;
 
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.ConnectionLossException;
 import org.apache.zookeeper.KeeperException.OperationTimeoutException;
 import org.apache.zookeeper.KeeperException.RuntimeInconsistencyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class ZooKeeperModelReporter {
+
+  private static final Logger log = LoggerFactory.getLogger(ZooKeeperModelReporter.class);
+
+  private static final long SLOW_OPERATION_NANOS = MILLISECONDS.toNanos(500);
+  private static final double SLOW_OPERATION_LOGS_PER_SECOND = 1;
+
   private final RiemannFacade riemannFacade;
   private final ZooKeeperMetrics metrics;
   private final ImmutableMap<Class<?>, String> exceptionMap =
@@ -46,6 +58,8 @@ public class ZooKeeperModelReporter {
           OperationTimeoutException.class, "timeout",
           ConnectionLossException.class, "connection_loss",
           RuntimeInconsistencyException.class, "inconsistency");
+  private final RateLimiter slowOperationLogLimiter =
+      RateLimiter.create(SLOW_OPERATION_LOGS_PER_SECOND);
 
   public ZooKeeperModelReporter(final RiemannFacade riemannFacade,
                                 final ZooKeeperMetrics metrics) {
@@ -74,6 +88,34 @@ public class ZooKeeperModelReporter {
     metrics.zookeeperTransientError();
   }
 
+  /**
+   * Records the latency of an operation that was started at {@code startNanos}, as returned by
+   * {@link System#nanoTime()}. Slow operations are logged along with their {@code target}, sampled
+   * to at most one log line per second.
+   */
+  public void time(final String tag, final String operation, final Object target,
+                   final long startNanos) {
+    final long durationNanos = System.nanoTime() - startNanos;
+    metrics.zookeeperOperation(tag, operation, durationNanos);
+    RequestPhases.zooKeeper(durationNanos);
+    if (durationNanos >= SLOW_OPERATION_NANOS && slowOperationLogLimiter.tryAcquire()) {
+      log.warn("slow zookeeper operation: {} {} {} took {} ms",
+               tag, operation, target, NANOSECONDS.toMillis(durationNanos));
+    }
+  }
+
+  public void bytesRead(final String tag, final String operation, final long bytes) {
+    metrics.zookeeperBytesRead(tag, operation, bytes);
+  }
+
+  public void bytesWritten(final String tag, final String operation, final long bytes) {
+    metrics.zookeeperBytesWritten(tag, operation, bytes);
+  }
+
+  public void watchEvent(final String tag, final String type) {
+    metrics.zookeeperWatchEvent(tag, type);
+  }
+
   public static ZooKeeperModelReporter noop() {
     return new ZooKeeperModelReporter(new NoOpRiemannClient().facade(), new NoopZooKeeperMetrics());
   }
@@ -25,4 +25,9 @@ import org.apache.curator.framework.api.transaction.CuratorTransaction;
 
 public interface ZooKeeperOperation {
   void register(CuratorTransaction transaction) throws Exception;
+
+  /**
+   * @return The number of bytes of node data this operation writes.
+   */
+  int payloadSize();
 }
@@ -35,6 +35,10 @@ public class ZooKeeperOperations {
     return new SetData(path, bytes);
   }
 
+  public static ZooKeeperOperation set(final String path, final byte[] bytes, final int version) {
+    return new SetData(path, bytes, version);
+  }
+
   public static ZooKeeperOperation check(final String path, final int version) {
     return new CheckWithVersion(path, version);
   }
@@ -77,6 +81,10 @@ public class ZooKeeperOperations {
     return new Delete(path);
   }
 
+  public static ZooKeeperOperation delete(final String path, final int version) {
+    return new Delete(path, version);
+  }
+
   public static ZooKeeperOperation delete(final List<String> paths) {
     return new DeleteMany(paths);
   }
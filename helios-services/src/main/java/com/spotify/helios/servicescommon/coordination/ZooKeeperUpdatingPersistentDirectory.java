@@ -26,7 +26,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -39,6 +39,7 @@ import com.spotify.helios.servicescommon.PersistentAtomicReference;
 import com.spotify.helios.servicescommon.Reactor;
 
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.curator.utils.ZKPaths;
@@ -50,6 +51,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +60,7 @@ import java.util.Set;
 import static com.google.common.collect.MapDifference.ValueDifference;
 import static com.google.common.util.concurrent.Service.State.STOPPING;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.zookeeper.KeeperException.BadVersionException;
 import static org.apache.zookeeper.KeeperException.ConnectionLossException;
 import static org.apache.zookeeper.KeeperException.NoNodeException;
 import static org.apache.zookeeper.KeeperException.NodeExistsException;
@@ -66,7 +69,8 @@ import static org.apache.zookeeper.KeeperException.NodeExistsException;
  * A map that persists modification locally on disk and attempt to replicate modifications to
  * ZooKeeper, retrying forever until successful. Note that ZooKeeper is only written to and never
  * read from, so this is not a distributed map. Multiple changes to the same key are folded and only
- * the last value is written to ZooKeeper.
+ * the last value is written to ZooKeeper. Changes are written in batches, as ZooKeeper
+ * transactions.
  */
 public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
 
@@ -75,6 +79,11 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
 
   private static final long RETRY_INTERVAL_MILLIS = 5000;
 
+  /**
+   * Keeps transactions well below the default ZooKeeper request size limit of 1 MB.
+   */
+  private static final int MAX_TRANSACTION_BYTES = 512 * 1024;
+
   private static final Map<String, byte[]> EMPTY_ENTRIES = Collections.emptyMap();
   private static final TypeReference<Map<String, byte[]>> ENTRIES_TYPE =
       new TypeReference<Map<String, byte[]>>() {};
@@ -100,6 +109,7 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
   private final Object lock = new Object() {};
 
   private Map<String, byte[]> remote = Maps.newHashMap();
+  private Map<String, Integer> versions = Maps.newHashMap();
   private volatile boolean initialized;
 
   private final ConnectionStateListener connectionStateListener = new ConnectionStateListener() {
@@ -129,8 +139,8 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
       throws IOException, InterruptedException {
     this.provider = provider;
     this.path = path;
-    this.entries = PersistentAtomicReference.create(stateFile, ENTRIES_TYPE,
-                                                    Suppliers.ofInstance(EMPTY_ENTRIES));
+    this.entries = PersistentAtomicReference.createLogged(stateFile, ENTRIES_TYPE,
+                                                          Suppliers.ofInstance(EMPTY_ENTRIES));
     this.reactor = new DefaultReactor(name, new Update(), RETRY_INTERVAL_MILLIS);
   }
 
@@ -151,6 +161,29 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
     return prev;
   }
 
+  /**
+   * Puts several entries with a single write of the local state file.
+   */
+  public void putAll(final Map<String, byte[]> values) throws InterruptedException {
+    if (values.isEmpty()) {
+      return;
+    }
+    for (final String key : values.keySet()) {
+      Preconditions.checkArgument(key.indexOf('/') == -1);
+      PathUtils.validatePath(ZKPaths.makePath(path, key));
+    }
+    synchronized (lock) {
+      final Map<String, byte[]> mutable = Maps.newHashMap(entries.get());
+      mutable.putAll(values);
+      try {
+        entries.set(ImmutableMap.copyOf(mutable));
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+    reactor.signal();
+  }
+
   public byte[] remove(final Object key) throws InterruptedException {
     if (!(key instanceof String)) {
       return null;
@@ -197,6 +230,7 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
   @Override
   protected void shutDown() throws Exception {
     reactor.stopAsync().awaitTerminated();
+    entries.compact();
   }
 
   public static ZooKeeperUpdatingPersistentDirectory create(final String name,
@@ -235,7 +269,8 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
           initialized = false;
           if (e instanceof ConnectionLossException) {
             log.warn("Connection lost. Resyncing in {}ms", backoff);
-          } else if (e instanceof NodeExistsException || e instanceof NoNodeException) {
+          } else if (e instanceof NodeExistsException || e instanceof NoNodeException ||
+                     e instanceof BadVersionException) {
             log.warn("Conflict: {} {}. Resyncing in {}ms", e.getPath(), e.code(), backoff);
           } else {
             log.error("Error: Resyncing in {}ms", e.getPath(), e.code(), backoff, e);
@@ -249,6 +284,12 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
       return state().ordinal() < STOPPING.ordinal();
     }
 
+    /**
+     * Writes the difference between the local and remote state to ZooKeeper. The difference is
+     * written in as few transactions as the size limit of a transaction allows. The versions of
+     * the remote nodes are tracked locally, so no reads are needed before writing, and a node that
+     * was changed behind our back fails the transaction and causes a resync.
+     */
     private void incrementalUpdate() throws KeeperException {
       final MapDifference<String, byte[]> difference = Maps.difference(entries.get(), remote,
                                                                        BYTE_ARRAY_EQUIVALENCE);
@@ -256,8 +297,6 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
         return;
       }
 
-      final Map<String, byte[]> newRemote = Maps.newHashMap(remote);
-
       final Map<String, byte[]> create = difference.entriesOnlyOnLeft();
       final Map<String, ValueDifference<byte[]>> update = difference.entriesDiffering();
       final Map<String, byte[]> delete = difference.entriesOnlyOnRight();
@@ -266,88 +305,112 @@ public class ZooKeeperUpdatingPersistentDirectory extends AbstractIdleService {
       log.debug("update: {}", update.keySet());
       log.debug("delete: {}", delete.keySet());
 
+      final Batch batch = new Batch();
+
       for (final Map.Entry<String, byte[]> entry : create.entrySet()) {
-        write(entry.getKey(), entry.getValue());
-        newRemote.put(entry.getKey(), entry.getValue());
+        final String node = entry.getKey();
+        batch.add(node, entry.getValue(),
+                  ZooKeeperOperations.create(ZKPaths.makePath(path, node), entry.getValue()));
       }
 
       for (final Map.Entry<String, ValueDifference<byte[]>> entry : update.entrySet()) {
-        write(entry.getKey(), entry.getValue().leftValue());
-        newRemote.put(entry.getKey(), entry.getValue().leftValue());
+        final String node = entry.getKey();
+        final byte[] data = entry.getValue().leftValue();
+        batch.add(node, data,
+                  ZooKeeperOperations.set(ZKPaths.makePath(path, node), data, version(node)));
       }
 
-      for (final Map.Entry<String, byte[]> entry : delete.entrySet()) {
-        delete(entry.getKey());
-        newRemote.remove(entry.getKey());
+      for (final String node : delete.keySet()) {
+        batch.add(node, null,
+                  ZooKeeperOperations.delete(ZKPaths.makePath(path, node), version(node)));
       }
 
-      remote = newRemote;
+      batch.commit();
     }
 
-    private boolean parentExists() throws KeeperException {
-      return client("parentExists").exists(path) != null;
-      }
-
-    private void delete(final String node) throws KeeperException {
-      final ZooKeeperClient client = client("delete");
-      final String nodePath = ZKPaths.makePath(path, node);
-        if (client.stat(nodePath) != null) {
-          log.debug("deleting node: {}", nodePath);
-          client.delete(nodePath);
-        }
+    private int version(final String node) {
+      final Integer version = versions.get(node);
+      return version == null ? -1 : version;
     }
 
-    private void write(final String node, final byte[] data) throws KeeperException {
-      final ZooKeeperClient client = client("write");
-      final String nodePath = ZKPaths.makePath(path, node);
-        if (client.stat(nodePath) != null) {
-          log.debug("setting node: {}", nodePath);
-          client.setData(nodePath, data);
-        } else {
-          log.debug("creating node: {}", nodePath);
-          client.createAndSetData(nodePath, data);
-        }
+    private boolean parentExists() throws KeeperException {
+      return client("parentExists").exists(path) != null;
     }
 
+    /**
+     * Reads the remote state from ZooKeeper. The children are read concurrently.
+     */
     private void syncChecked() throws KeeperException {
       final ZooKeeperClient client = client("sync");
       final List<String> nodes = client.getChildren(path);
-      final Map<String, byte[]> snapshot = entries.get();
+      final Map<String, String> nodePaths = Maps.newHashMap();
+      for (final String node : nodes) {
+        nodePaths.put(ZKPaths.makePath(path, node), node);
+      }
 
-      // Get new remote state
+      final Map<String, Node> read = client.getNodeMany(nodePaths.keySet());
       remote = Maps.newHashMap();
-      for (String node : nodes) {
-        final String nodePath = ZKPaths.makePath(path, node);
-        final byte[] data = client.getData(nodePath);
-        remote.put(node, data);
+      versions = Maps.newHashMap();
+      for (final Map.Entry<String, Node> entry : read.entrySet()) {
+        final String node = nodePaths.get(entry.getKey());
+        remote.put(node, entry.getValue().getBytes());
+        versions.put(node, entry.getValue().getStat().getVersion());
       }
+      log.debug("sync: read {} nodes", remote.size());
+    }
 
-      // Create and update missing and outdated nodes
-      for (final Map.Entry<String, byte[]> entry : snapshot.entrySet()) {
-        final String node = entry.getKey();
-        final byte[] remoteData = remote.get(node);
-        final byte[] localData = entry.getValue();
-        final String nodePath = ZKPaths.makePath(path, node);
-        if (remoteData == null) {
-          log.debug("sync: creating node {}", nodePath);
-          client.createAndSetData(nodePath, localData);
-          remote.put(node, localData);
-        } else if (!Arrays.equals(remoteData, localData)) {
-          log.debug("sync: updating node {}", nodePath);
-          client.setData(nodePath, localData);
-          remote.put(node, localData);
+    /**
+     * Writes to ZooKeeper in transactions of bounded size, and keeps the remote state up to date
+     * with the transactions that were committed.
+     */
+    private class Batch {
+
+      private final List<ZooKeeperOperation> operations = Lists.newArrayList();
+      private final Map<String, byte[]> writes = Maps.newHashMap();
+      private int bytes;
+
+      /**
+       * @param data The data written to the node, or null if the node is deleted.
+       */
+      private void add(final String node, final byte[] data, final ZooKeeperOperation operation)
+          throws KeeperException {
+        final int size = node.length() + (data == null ? 0 : data.length);
+        if (!operations.isEmpty() && bytes + size > MAX_TRANSACTION_BYTES) {
+          commit();
         }
+        operations.add(operation);
+        writes.put(node, data);
+        bytes += size;
       }
 
-      // Remove undesired nodes
-      final ImmutableSet<String> keySet = ImmutableSet.copyOf(remote.keySet());
-      for (final String node : keySet) {
-        if (!snapshot.containsKey(node)) {
-          final String nodePath = ZKPaths.makePath(path, node);
-          log.debug("sync: deleting node {}", nodePath);
-          client.delete(nodePath);
-          remote.remove(node);
+      private void commit() throws KeeperException {
+        if (operations.isEmpty()) {
+          return;
+        }
+        final Collection<CuratorTransactionResult> results =
+            client("write").transaction(operations);
+        for (final CuratorTransactionResult result : results) {
+          final String node = ZKPaths.getNodeFromPath(result.getForPath());
+          switch (result.getType()) {
+            case CREATE:
+              remote.put(node, writes.get(node));
+              versions.put(node, 0);
+              break;
+            case SET_DATA:
+              remote.put(node, writes.get(node));
+              versions.put(node, result.getResultStat().getVersion());
+              break;
+            case DELETE:
+              remote.remove(node);
+              versions.remove(node);
+              break;
+            default:
+              break;
+          }
         }
+        operations.clear();
+        writes.clear();
+        bytes = 0;
       }
     }
   }
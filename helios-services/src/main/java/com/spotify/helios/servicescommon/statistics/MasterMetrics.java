@@ -29,6 +29,19 @@ public interface MasterMetrics {
 
   void badRequest(String name);
 
+  /**
+   * Called when a request to the resource method {@code name} is dispatched on behalf of
+   * {@code user}, which is null if the client did not identify itself.
+   */
+  void requestStarted(String name, String user);
+
+  void requestFinished(String name);
+
+  /**
+   * Records how a request's latency broke down once its response has been written.
+   */
+  void responseWritten(String name, long zooKeeperNanos, long serializationNanos, long bytes);
+
   void jobsInJobList(int count);
 
   void jobsHistoryEventSize(int count);
@@ -21,20 +21,34 @@
 
 package com.spotify.helios.servicescommon.statistics;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
 
 import com.spotify.helios.servicescommon.MasterRequestMetrics;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.concurrent.TimeUnit.DAYS;
 
 public class MasterMetricsImpl implements MasterMetrics {
   private static final String TYPE = "master";
+  private static final Pattern UNSAFE_USER_CHARACTERS = Pattern.compile("[^A-Za-z0-9_-]");
+
+  // The user is chosen by the client, so only so many of them get a meter of their own
+  private static final int DEFAULT_MAX_USER_METERS = 100;
+  private static final String OTHER_USERS = "other";
 
   private final Map<String, MasterRequestMetrics> requestMetrics = Maps.newConcurrentMap();
+  private final Cache<String, Meter> userMeters;
+  private final int maxUserMeters;
 
   private final Histogram jobsInJobListHist;
   private final Histogram eventsInJobHistoryHist;
@@ -43,8 +57,27 @@ public class MasterMetricsImpl implements MasterMetrics {
 
   public MasterMetricsImpl(final String group,
                            final MetricRegistry registry) {
+    this(group, registry, DEFAULT_MAX_USER_METERS);
+  }
+
+  /**
+   * @param maxUserMeters How many users get a request meter of their own. Requests by further
+   *                      users are counted together as "other" until a user has not made any
+   *                      request for a day, which frees its meter.
+   */
+  MasterMetricsImpl(final String group, final MetricRegistry registry, final int maxUserMeters) {
     this.group = group;
     this.registry = registry;
+    this.maxUserMeters = maxUserMeters;
+    this.userMeters = CacheBuilder.newBuilder()
+        .expireAfterAccess(1, DAYS)
+        .removalListener(new RemovalListener<String, Meter>() {
+          @Override
+          public void onRemoval(final RemovalNotification<String, Meter> notification) {
+            registry.remove(userMeterName(notification.getKey()));
+          }
+        })
+        .build();
 
     eventsInJobHistoryHist = registry.histogram(name(group, TYPE + "_events_in_job_history"));
     jobsInJobListHist = registry.histogram(name(group, TYPE + "_jobs_in_job_list"));
@@ -65,6 +98,50 @@ public class MasterMetricsImpl implements MasterMetrics {
     request(name).userError();
   }
 
+  @Override
+  public void requestStarted(final String name, final String user) {
+    request(name).started();
+    final String userName = user == null
+                            ? "unknown"
+                            : UNSAFE_USER_CHARACTERS.matcher(user).replaceAll("_");
+    userMeter(userName).mark();
+  }
+
+  private Meter userMeter(final String userName) {
+    final Meter meter = userMeters.getIfPresent(userName);
+    if (meter != null) {
+      return meter;
+    }
+    if (userName.equals(OTHER_USERS)) {
+      return registry.meter(userMeterName(OTHER_USERS));
+    }
+    if (userMeters.size() >= maxUserMeters) {
+      // Let meters of users that have gone quiet expire before giving up on this one
+      userMeters.cleanUp();
+      if (userMeters.size() >= maxUserMeters) {
+        return registry.meter(userMeterName(OTHER_USERS));
+      }
+    }
+    final Meter created = registry.meter(userMeterName(userName));
+    userMeters.put(userName, created);
+    return created;
+  }
+
+  private String userMeterName(final String userName) {
+    return name(group, TYPE, "user", userName + "_requests");
+  }
+
+  @Override
+  public void requestFinished(final String name) {
+    request(name).finished();
+  }
+
+  @Override
+  public void responseWritten(final String name, final long zooKeeperNanos,
+                              final long serializationNanos, final long bytes) {
+    request(name).responseWritten(zooKeeperNanos, serializationNanos, bytes);
+  }
+
   private MasterRequestMetrics request(final String name) {
     MasterRequestMetrics m = requestMetrics.get(name);
     if (m == null) {
@@ -32,6 +32,16 @@ public class NoopMasterMetrics implements MasterMetrics {
   @Override
   public void badRequest(final String name) {}
 
+  @Override
+  public void requestStarted(final String name, final String user) {}
+
+  @Override
+  public void requestFinished(final String name) {}
+
+  @Override
+  public void responseWritten(final String name, final long zooKeeperNanos,
+                              final long serializationNanos, final long bytes) {}
+
   @Override
   public void jobsInJobList(int count) {}
 
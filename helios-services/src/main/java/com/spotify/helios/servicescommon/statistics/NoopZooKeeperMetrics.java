@@ -24,4 +24,17 @@ package com.spotify.helios.servicescommon.statistics;
 public class NoopZooKeeperMetrics implements ZooKeeperMetrics {
   @Override
   public void zookeeperTransientError() {}
+
+  @Override
+  public void zookeeperOperation(final String tag, final String operation,
+                                 final long durationNanos) {}
+
+  @Override
+  public void zookeeperBytesRead(final String tag, final String operation, final long bytes) {}
+
+  @Override
+  public void zookeeperBytesWritten(final String tag, final String operation, final long bytes) {}
+
+  @Override
+  public void zookeeperWatchEvent(final String tag, final String type) {}
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.servicescommon.statistics;
+
+/**
+ * Tracks the phases of the request being handled by the current thread: when it started, when
+ * the resource method returned, how much time was spent waiting for ZooKeeper in between, and
+ * how large the response was.
+ *
+ * A request is started by the resource method dispatcher and ended once the response has been
+ * written, by a servlet filter wrapping the whole request. ZooKeeper time is added by the
+ * ZooKeeper client wrappers. Work handed off to other threads is not accounted for.
+ */
+public class RequestPhases {
+
+  private static final ThreadLocal<RequestPhases> CURRENT = new ThreadLocal<>();
+
+  private final String name;
+  private final String user;
+  private final long startNanos;
+
+  private long zooKeeperNanos;
+  private long dispatchedNanos;
+  private long bytes;
+
+  private RequestPhases(final String name, final String user) {
+    this.name = name;
+    this.user = user;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Starts tracking a request on the current thread, replacing any request left behind by an
+   * earlier request that was never ended.
+   */
+  public static RequestPhases start(final String name, final String user) {
+    final RequestPhases phases = new RequestPhases(name, user);
+    CURRENT.set(phases);
+    return phases;
+  }
+
+  /**
+   * Returns the request being handled by the current thread, or null if there is none.
+   */
+  public static RequestPhases current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Stops tracking the request on the current thread.
+   *
+   * @return The request, or null if there was none.
+   */
+  public static RequestPhases end() {
+    final RequestPhases phases = CURRENT.get();
+    CURRENT.remove();
+    return phases;
+  }
+
+  /**
+   * Adds time spent in ZooKeeper to the request being handled by the current thread, if any.
+   */
+  public static void zooKeeper(final long nanos) {
+    final RequestPhases phases = CURRENT.get();
+    if (phases != null) {
+      phases.zooKeeperNanos += nanos;
+    }
+  }
+
+  /**
+   * Marks the point at which the resource method returned and response serialization begins.
+   */
+  public void dispatched() {
+    dispatchedNanos = System.nanoTime();
+  }
+
+  /**
+   * Records the size of the response body once it has been written.
+   */
+  public void written(final long bytes) {
+    this.bytes = bytes;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  public long getZooKeeperNanos() {
+    return zooKeeperNanos;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return When the resource method returned, or when the request started if it never did.
+   */
+  public long getDispatchedNanos() {
+    return dispatchedNanos == 0 ? startNanos : dispatchedNanos;
+  }
+}
@@ -25,4 +25,15 @@ public interface ZooKeeperMetrics {
 
   void zookeeperTransientError();
 
+  /**
+   * Records the latency of a single {@code ZooKeeperClient} operation issued by {@code tag}.
+   */
+  void zookeeperOperation(String tag, String operation, long durationNanos);
+
+  void zookeeperBytesRead(String tag, String operation, long bytes);
+
+  void zookeeperBytesWritten(String tag, String operation, long bytes);
+
+  void zookeeperWatchEvent(String tag, String type);
+
 }
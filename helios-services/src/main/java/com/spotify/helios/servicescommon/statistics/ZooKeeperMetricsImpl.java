@@ -25,14 +25,25 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * ZooKeeper metrics. Operation metrics are named after the tag the client was handed out with by
+ * {@code ZooKeeperClientProvider} and the operation, e.g.
+ * {@code helios.zookeeper.listJobs.getChildren.latency}, so that the caller driving the load can
+ * be told apart.
+ */
 public class ZooKeeperMetricsImpl implements ZooKeeperMetrics {
   private static final String TYPE = "zookeeper";
 
+  private final String prefix;
+  private final MetricRegistry registry;
   private final Counter transientErrorCounter;
   private final Meter transientErrorMeter;
 
   public ZooKeeperMetricsImpl(String group, MetricRegistry registry) {
-    final String prefix = MetricRegistry.name(group, TYPE) + ".";
+    this.prefix = MetricRegistry.name(group, TYPE) + ".";
+    this.registry = registry;
     transientErrorCounter = registry.counter(prefix + "transient_error_count");
     transientErrorMeter = registry.meter(prefix + "transient_error_meter");
   }
@@ -42,4 +53,29 @@ public class ZooKeeperMetricsImpl implements ZooKeeperMetrics {
     transientErrorCounter.inc();
     transientErrorMeter.mark();
   }
+
+  @Override
+  public void zookeeperOperation(final String tag, final String operation,
+                                 final long durationNanos) {
+    registry.timer(name(tag, operation, "latency")).update(durationNanos, NANOSECONDS);
+  }
+
+  @Override
+  public void zookeeperBytesRead(final String tag, final String operation, final long bytes) {
+    registry.meter(name(tag, operation, "bytes_read")).mark(bytes);
+  }
+
+  @Override
+  public void zookeeperBytesWritten(final String tag, final String operation, final long bytes) {
+    registry.meter(name(tag, operation, "bytes_written")).mark(bytes);
+  }
+
+  @Override
+  public void zookeeperWatchEvent(final String tag, final String type) {
+    registry.meter(name(tag, "watch", type)).mark();
+  }
+
+  private String name(final String tag, final String operation, final String metric) {
+    return prefix + tag + "." + operation + "." + metric;
+  }
 }
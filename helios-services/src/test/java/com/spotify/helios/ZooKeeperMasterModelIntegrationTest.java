@@ -22,13 +22,19 @@
 package com.spotify.helios;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 
 import com.spotify.helios.common.HeliosException;
+import com.spotify.helios.common.HeliosRuntimeException;
+import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.Deployment;
 import com.spotify.helios.common.descriptors.Goal;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
 import com.spotify.helios.master.HostNotFoundException;
+import com.spotify.helios.master.JobAlreadyDeployedException;
 import com.spotify.helios.master.JobDoesNotExistException;
 import com.spotify.helios.master.JobNotDeployedException;
 import com.spotify.helios.master.JobStillDeployedException;
@@ -38,28 +44,41 @@ import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.retry.ExponentialBackoffRetry;
+import org.apache.zookeeper.KeeperException.ConnectionLossException;
+import org.apache.zookeeper.KeeperException.NodeExistsException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import java.util.List;
 import java.util.Map;
 
+import static java.util.Collections.emptyMap;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ZooKeeperMasterModelIntegrationTest {
@@ -197,6 +216,163 @@ public class ZooKeeperMasterModelIntegrationTest {
     }
   }
 
+  @Test
+  public void testBulkDeploy() throws Exception {
+    final String secondHost = "SECOND";
+    final String missingHost = "MISSING";
+    final List<String> hosts = ImmutableList.of(HOST, secondHost, missingHost);
+    final Deployment deployment = Deployment.of(JOB_ID, Goal.START);
+
+    try {
+      model.deployJob(hosts, deployment, Job.EMPTY_TOKEN);
+      fail("should throw");
+    } catch (JobDoesNotExistException e) {
+      assertTrue(true);
+    }
+
+    model.addJob(JOB);
+    model.registerHost(HOST, "foo");
+    model.registerHost(secondHost, "bar");
+    model.deployJob(HOST, deployment);
+
+    final Map<String, HeliosException> deployFailures =
+        model.deployJob(hosts, deployment, Job.EMPTY_TOKEN);
+    assertEquals(ImmutableSet.of(HOST, missingHost), deployFailures.keySet());
+    assertTrue(deployFailures.get(HOST) instanceof JobAlreadyDeployedException);
+    assertTrue(deployFailures.get(missingHost) instanceof HostNotFoundException);
+    assertEquals(deployment, model.getDeployment(secondHost, JOB_ID));
+
+    final Map<String, HeliosException> undeployFailures =
+        model.undeployJob(hosts, JOB_ID, Job.EMPTY_TOKEN);
+    assertEquals(ImmutableSet.of(missingHost), undeployFailures.keySet());
+    assertNull(model.getDeployment(HOST, JOB_ID));
+    assertNull(model.getDeployment(secondHost, JOB_ID));
+    model.removeJob(JOB_ID);
+  }
+
+  @Test
+  public void testBulkDeployMoreHostsThanOneTransaction() throws Exception {
+    final ZooKeeperClient spiedClient = spy(client);
+    final ZooKeeperMasterModel spiedModel = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(spiedClient, ZooKeeperModelReporter.noop()));
+    final Deployment deployment = Deployment.of(JOB_ID, Goal.START);
+
+    final List<String> hosts = Lists.newArrayList();
+    for (int i = 0; i < 120; i++) {
+      final String host = "host-" + i;
+      model.registerHost(host, "id-" + i);
+      hosts.add(host);
+    }
+    model.addJob(JOB);
+
+    assertEquals(emptyMap(), spiedModel.deployJob(hosts, deployment, Job.EMPTY_TOKEN));
+    verify(spiedClient, times(3)).transaction(anyListOf(ZooKeeperOperation.class));
+    for (final String host : hosts) {
+      assertEquals(deployment, model.getDeployment(host, JOB_ID));
+    }
+    assertEquals(ImmutableSet.copyOf(hosts), model.getJobStatus(JOB_ID).getDeployments().keySet());
+
+    assertEquals(emptyMap(), spiedModel.undeployJob(hosts, JOB_ID, Job.EMPTY_TOKEN));
+    verify(spiedClient, times(6)).transaction(anyListOf(ZooKeeperOperation.class));
+    for (final String host : hosts) {
+      assertNull(model.getDeployment(host, JOB_ID));
+    }
+    model.removeJob(JOB_ID);
+  }
+
+  @Test
+  public void testBulkDeployFallsBackToOneHostAtATime() throws Exception {
+    final ZooKeeperClient spiedClient = spy(client);
+    final ZooKeeperMasterModel spiedModel = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(spiedClient, ZooKeeperModelReporter.noop()));
+    final String secondHost = "SECOND";
+    final String thirdHost = "THIRD";
+    final List<String> hosts = ImmutableList.of(HOST, secondHost, thirdHost);
+    final Deployment deployment = Deployment.of(JOB_ID, Goal.START);
+
+    model.addJob(JOB);
+    for (final String host : hosts) {
+      model.registerHost(host, host.toLowerCase());
+    }
+
+    // The transaction for all hosts conflicts, then the one for the first host on its own fails.
+    doThrow(new NodeExistsException())
+        .doThrow(new ConnectionLossException())
+        .doCallRealMethod()
+        .when(spiedClient).transaction(anyListOf(ZooKeeperOperation.class));
+
+    final Map<String, HeliosException> deployFailures =
+        spiedModel.deployJob(hosts, deployment, Job.EMPTY_TOKEN);
+    assertEquals(ImmutableSet.of(HOST), deployFailures.keySet());
+    assertThat(deployFailures.get(HOST).getCause(), instanceOf(HeliosRuntimeException.class));
+    assertNull(model.getDeployment(HOST, JOB_ID));
+    assertEquals(deployment, model.getDeployment(secondHost, JOB_ID));
+    assertEquals(deployment, model.getDeployment(thirdHost, JOB_ID));
+
+    doThrow(new ConnectionLossException())
+        .doThrow(new ConnectionLossException())
+        .doCallRealMethod()
+        .when(spiedClient).transaction(anyListOf(ZooKeeperOperation.class));
+
+    final Map<String, HeliosException> undeployFailures =
+        spiedModel.undeployJob(ImmutableList.of(secondHost, thirdHost), JOB_ID, Job.EMPTY_TOKEN);
+    assertEquals(ImmutableSet.of(secondHost), undeployFailures.keySet());
+    assertThat(undeployFailures.get(secondHost).getCause(),
+               instanceOf(HeliosRuntimeException.class));
+    assertEquals(deployment, model.getDeployment(secondHost, JOB_ID));
+    assertNull(model.getDeployment(thirdHost, JOB_ID));
+  }
+
+  @Test
+  public void testBulkDeployLosingConnectionAfterCommit() throws Exception {
+    final ZooKeeperClient spiedClient = spy(client);
+    final ZooKeeperMasterModel spiedModel = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(spiedClient, ZooKeeperModelReporter.noop()));
+    final String secondHost = "SECOND";
+    final List<String> hosts = ImmutableList.of(HOST, secondHost);
+    final Deployment deployment = Deployment.of(JOB_ID, Goal.START);
+
+    model.addJob(JOB);
+    for (final String host : hosts) {
+      model.registerHost(host, host.toLowerCase());
+    }
+
+    // The transaction goes in, but the connection is lost before the master hears about it
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        invocation.callRealMethod();
+        throw new ConnectionLossException();
+      }
+    }).when(spiedClient).transaction(anyListOf(ZooKeeperOperation.class));
+
+    assertEquals(emptyMap(), spiedModel.deployJob(hosts, deployment, Job.EMPTY_TOKEN));
+    verify(spiedClient, times(1)).transaction(anyListOf(ZooKeeperOperation.class));
+    assertEquals(deployment, model.getDeployment(HOST, JOB_ID));
+    assertEquals(deployment, model.getDeployment(secondHost, JOB_ID));
+  }
+
+  @Test
+  public void testHostStatusLeavesOutStatusesOfRemovedJobs() throws Exception {
+    final Job removedJob = JOB.toBuilder().setVersion("REMOVED").build();
+    model.addJob(JOB);
+    model.registerHost(HOST, "foo");
+    client.ensurePath(Paths.statusHostJobs(HOST));
+    for (final Job job : ImmutableList.of(JOB, removedJob)) {
+      final TaskStatus status = TaskStatus.newBuilder()
+          .setJob(job)
+          .setGoal(Goal.START)
+          .setState(TaskStatus.State.RUNNING)
+          .build();
+      client.createAndSetData(Paths.statusHostJob(HOST, job.getId()),
+                              Json.asBytes(status.withoutJob()));
+    }
+
+    final Map<JobId, TaskStatus> statuses = model.getHostStatus(HOST).getStatuses();
+    assertEquals(ImmutableSet.of(JOB_ID), statuses.keySet());
+    assertEquals(JOB, statuses.get(JOB_ID).getJob());
+  }
+
   @Test
   public void testHostRegistration() throws Exception {
     model.registerHost(HOST, "foo");
@@ -21,6 +21,7 @@
 
 package com.spotify.helios.agent;
 
+import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -155,6 +156,13 @@ public class AgentTest {
     when(reactorFactory.create(anyString(), callbackCaptor.capture(), timeoutCaptor.capture()))
         .thenReturn(reactor);
     when(model.getTasks()).thenReturn(unmodifiableJobs);
+    when(model.getTask(any(JobId.class))).then(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocationOnMock) throws Throwable {
+        final JobId jobId = (JobId) invocationOnMock.getArguments()[0];
+        return unmodifiableJobs.get(jobId);
+      }
+    });
     when(model.getTaskStatuses()).thenReturn(unmodifiableJobStatuses);
     when(model.getTaskStatus(any(JobId.class))).then(new Answer<Object>() {
       @Override
@@ -187,23 +195,26 @@ public class AgentTest {
 
   private void start(Job descriptor) throws InterruptedException {
     configure(descriptor, START);
+    listener.tasksChanged(model, ImmutableSet.of(descriptor.getId()));
     callback.run(false);
   }
 
   private void badStop(Job descriptor) throws InterruptedException {
     jobs.remove(descriptor.getId());
+    listener.tasksChanged(model, ImmutableSet.of(descriptor.getId()));
     callback.run(false);
   }
 
   private void stop(Job descriptor) throws InterruptedException {
     configure(descriptor, UNDEPLOY);
+    listener.tasksChanged(model, ImmutableSet.of(descriptor.getId()));
     callback.run(false);
   }
 
   @Test
   public void verifyReactorIsUpdatedWhenListenerIsCalled() throws Exception {
     startAgent();
-    listener.tasksChanged(model);
+    listener.tasksChanged(model, ImmutableSet.of(FOO_JOB.getId()));
     verify(reactor, times(2)).signal();
   }
 
@@ -364,6 +375,47 @@ public class AgentTest {
     verify(fooSupervisor, atLeast(2)).setGoal(START);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void verifyOnlyAffectedJobsAreReconciled() throws Exception {
+    startAgent();
+
+    // The first run reconciles everything and reaps containers
+    start(FOO_JOB);
+    verify(reaper).reap(any(Supplier.class));
+    verify(fooSupervisor).setGoal(START);
+
+    // Later changes only touch the affected jobs
+    start(BAR_JOB);
+    verify(barSupervisor).setGoal(START);
+    verify(fooSupervisor).setGoal(START);
+    callback.run(false);
+    verify(barSupervisor).setGoal(START);
+    verify(reaper).reap(any(Supplier.class));
+
+    // A supervisor state change reconciles its job
+    final ArgumentCaptor<Supervisor.Listener> supervisorListener =
+        ArgumentCaptor.forClass(Supervisor.Listener.class);
+    verify(supervisorFactory).create(eq(BAR_JOB), anyString(),
+                                     anyMapOf(String.class, Integer.class),
+                                     supervisorListener.capture());
+    supervisorListener.getValue().stateChanged(barSupervisor);
+    callback.run(false);
+    verify(barSupervisor, times(2)).setGoal(START);
+    verify(fooSupervisor).setGoal(START);
+
+    // Task changes that the model does not name are left for the next resync
+    configure(FOO_JOB, STOP);
+    callback.run(false);
+    verify(fooSupervisor, never()).setGoal(STOP);
+
+    // A timeout reconciles everything again
+    callback.run(true);
+    verify(reaper, times(2)).reap(any(Supplier.class));
+    verify(fooSupervisor).setGoal(STOP);
+    verify(barSupervisor, times(3)).setGoal(START);
+  }
+
   @Test
   public void verifyCloseDoesNotStopJobs() throws Exception {
     startAgent();
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.spotify.docker.client.ContainerNotFoundException;
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.messages.Container;
+import com.spotify.docker.client.messages.ContainerExit;
+import com.spotify.docker.client.messages.ContainerInfo;
+import com.spotify.docker.client.messages.ContainerState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ContainerExitWatcherTest {
+
+  private static final String CONTAINER_ID = "container";
+
+  @Mock private DockerClient docker;
+  @Mock private Container container;
+
+  @Test
+  public void testRunningContainerIsNotInspected() throws Exception {
+    when(container.id()).thenReturn(CONTAINER_ID);
+    when(docker.listContainers()).thenReturn(ImmutableList.of(container));
+
+    final ContainerExitWatcher sut = new ContainerExitWatcher(docker);
+    final ListenableFuture<ContainerExit> exit = sut.exit(CONTAINER_ID);
+    sut.runOneIteration();
+
+    assertFalse(exit.isDone());
+    verify(docker, never()).inspectContainer(anyString());
+  }
+
+  @Test
+  public void testExitedContainer() throws Exception {
+    when(docker.listContainers()).thenReturn(Collections.<Container>emptyList());
+    final ContainerState state = mock(ContainerState.class);
+    when(state.running()).thenReturn(false);
+    when(state.exitCode()).thenReturn(17);
+    final ContainerInfo info = mock(ContainerInfo.class);
+    when(info.state()).thenReturn(state);
+    when(docker.inspectContainer(CONTAINER_ID)).thenReturn(info);
+
+    final ContainerExitWatcher sut = new ContainerExitWatcher(docker);
+    final ListenableFuture<ContainerExit> exit = sut.exit(CONTAINER_ID);
+    assertSame(exit, sut.exit(CONTAINER_ID));
+    sut.runOneIteration();
+
+    assertEquals(17, (int) exit.get().statusCode());
+  }
+
+  @Test
+  public void testRemovedContainer() throws Exception {
+    when(docker.listContainers()).thenReturn(Collections.<Container>emptyList());
+    when(docker.inspectContainer(CONTAINER_ID))
+        .thenThrow(new ContainerNotFoundException(CONTAINER_ID));
+
+    final ContainerExitWatcher sut = new ContainerExitWatcher(docker);
+    final ListenableFuture<ContainerExit> exit = sut.exit(CONTAINER_ID);
+    sut.runOneIteration();
+
+    try {
+      exit.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ContainerNotFoundException.class));
+    }
+  }
+}
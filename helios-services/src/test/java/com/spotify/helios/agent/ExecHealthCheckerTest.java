@@ -21,6 +21,8 @@
 
 package com.spotify.helios.agent;
 
+import com.google.common.util.concurrent.MoreExecutors;
+
 import com.spotify.docker.client.DockerClient;
 import com.spotify.docker.client.DockerClient.ExecParameter;
 import com.spotify.docker.client.DockerClient.ExecStartParameter;
@@ -36,12 +38,17 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.concurrent.ExecutionException;
+
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.Is.isA;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyVararg;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExecHealthCheckerTest {
@@ -80,12 +87,14 @@ public class ExecHealthCheckerTest {
     when(docker.execStart(eq(EXEC_ID), (ExecStartParameter) anyVararg())).thenReturn(log);
     when(docker.execInspect(EXEC_ID)).thenReturn(execState);
 
-    checker = new ExecHealthChecker(healthCheck, docker);
+    checker = new ExecHealthChecker(healthCheck, docker,
+                                    HealthCheckerFactory.execSupported(docker),
+                                    MoreExecutors.sameThreadExecutor());
   }
 
   @Test
-  public void testHealthCheckSuccess() {
-    assertThat(checker.check(CONTAINER_ID), is(true));
+  public void testHealthCheckSuccess() throws Exception {
+    assertThat(checker.check(CONTAINER_ID).get(), is(true));
   }
 
   @Test
@@ -94,7 +103,15 @@ public class ExecHealthCheckerTest {
     when(execState.exitCode()).thenReturn(2);
     when(docker.execInspect(EXEC_ID)).thenReturn(execState);
 
-    assertThat(checker.check(CONTAINER_ID), is(false));
+    assertThat(checker.check(CONTAINER_ID).get(), is(false));
+  }
+
+  @Test
+  public void testDockerVersionIsCached() throws Exception {
+    assertThat(checker.check(CONTAINER_ID).get(), is(true));
+    assertThat(checker.check(CONTAINER_ID).get(), is(true));
+    verify(docker, times(1)).info();
+    verify(docker, times(1)).version();
   }
 
   @Test
@@ -103,8 +120,9 @@ public class ExecHealthCheckerTest {
     when(version.apiVersion()).thenReturn("1.15");
     when(docker.version()).thenReturn(version);
 
-    exception.expect(UnsupportedOperationException.class);
-    checker.check(CONTAINER_ID);
+    exception.expect(ExecutionException.class);
+    exception.expectCause(isA(UnsupportedOperationException.class));
+    checker.check(CONTAINER_ID).get();
   }
 
   @Test
@@ -113,8 +131,9 @@ public class ExecHealthCheckerTest {
     when(info.executionDriver()).thenReturn("lxc");
     when(docker.info()).thenReturn(info);
 
-    exception.expect(UnsupportedOperationException.class);
-    checker.check(CONTAINER_ID);
+    exception.expect(ExecutionException.class);
+    exception.expectCause(isA(UnsupportedOperationException.class));
+    checker.check(CONTAINER_ID).get();
   }
 
 }
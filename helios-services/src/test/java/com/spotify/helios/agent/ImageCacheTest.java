@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.agent;
+
+import com.spotify.docker.client.DockerClient;
+import com.spotify.docker.client.ImageNotFoundException;
+import com.spotify.docker.client.messages.ImageInfo;
+import com.spotify.helios.servicescommon.statistics.SupervisorMetrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.spotify.helios.common.descriptors.ImagePullPolicy.ALWAYS;
+import static com.spotify.helios.common.descriptors.ImagePullPolicy.IF_NOT_PRESENT;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ImageCacheTest {
+
+  private static final String TAGGED = "spotify/busybox:latest";
+  private static final String PINNED = "spotify/busybox@sha256:" +
+                                       "0123456789abcdef0123456789abcdef" +
+                                       "0123456789abcdef0123456789abcdef";
+
+  @Mock private DockerClient docker;
+  @Mock private SupervisorMetrics metrics;
+  @Mock private ImageInfo imageInfo;
+
+  private final TaskRunner.Listener listener = new TaskRunner.NopListener();
+
+  @Test
+  public void testPinnedImageIsNotPulledWhenPresent() throws Exception {
+    when(docker.inspectImage(PINNED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    assertSame(imageInfo, sut.get(PINNED, null, listener));
+    assertSame(imageInfo, sut.get(PINNED, null, listener));
+
+    verify(docker, never()).pull(PINNED);
+    verify(docker, times(1)).inspectImage(PINNED);
+    verify(metrics, times(2)).imageCacheHit();
+  }
+
+  @Test
+  public void testTaggedImageIsPulledByDefault() throws Exception {
+    when(docker.inspectImage(TAGGED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    assertSame(imageInfo, sut.get(TAGGED, null, listener));
+    assertSame(imageInfo, sut.get(TAGGED, null, listener));
+
+    verify(docker, times(2)).pull(TAGGED);
+    verify(metrics, times(2)).imageCacheMiss();
+  }
+
+  @Test
+  public void testPullPolicies() throws Exception {
+    when(docker.inspectImage(TAGGED))
+        .thenThrow(new ImageNotFoundException(TAGGED))
+        .thenReturn(imageInfo);
+    when(docker.inspectImage(PINNED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    // Not present, so pulled once and then cached
+    assertSame(imageInfo, sut.get(TAGGED, IF_NOT_PRESENT, listener));
+    assertSame(imageInfo, sut.get(TAGGED, IF_NOT_PRESENT, listener));
+    verify(docker, times(1)).pull(TAGGED);
+
+    // Present, but pulled anyway
+    assertSame(imageInfo, sut.get(PINNED, ALWAYS, listener));
+    verify(docker, times(1)).pull(PINNED);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    when(docker.inspectImage(PINNED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    sut.get(PINNED, null, listener);
+    sut.invalidate(PINNED);
+    sut.get(PINNED, null, listener);
+
+    verify(docker, times(2)).inspectImage(PINNED);
+  }
+
+  @Test
+  public void testPrefetchedImageIsUsedOnce() throws Exception {
+    when(docker.inspectImage(TAGGED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    sut.prefetch(TAGGED, null);
+    verify(docker, timeout(60000)).pull(TAGGED);
+    assertSame(imageInfo, sut.get(TAGGED, null, listener));
+
+    // The prefetch stood in for the first pull, but not for the next one
+    verify(docker, times(1)).pull(TAGGED);
+    sut.get(TAGGED, null, listener);
+    verify(docker, times(2)).pull(TAGGED);
+    sut.close();
+  }
+
+  @Test
+  public void testConcurrentPullsAreCollapsed() throws Exception {
+    final CountDownLatch pulling = new CountDownLatch(1);
+    final CountDownLatch proceed = new CountDownLatch(1);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) throws Throwable {
+        pulling.countDown();
+        proceed.await();
+        return null;
+      }
+    }).when(docker).pull(TAGGED);
+    when(docker.inspectImage(TAGGED)).thenReturn(imageInfo);
+    final ImageCache sut = new ImageCache(docker, metrics);
+
+    final CountDownLatch waiting = new CountDownLatch(1);
+    final Callable<ImageInfo> first = new Callable<ImageInfo>() {
+      @Override
+      public ImageInfo call() throws Exception {
+        return sut.get(TAGGED, null, listener);
+      }
+    };
+    final Callable<ImageInfo> second = new Callable<ImageInfo>() {
+      @Override
+      public ImageInfo call() throws Exception {
+        return sut.get(TAGGED, null, new TaskRunner.NopListener() {
+          @Override
+          public void pulling() {
+            waiting.countDown();
+          }
+        });
+      }
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<ImageInfo> firstResult = executor.submit(first);
+      pulling.await(1, MINUTES);
+
+      // Let the second get join the ongoing pull before it finishes
+      final Future<ImageInfo> secondResult = executor.submit(second);
+      waiting.await(1, MINUTES);
+      proceed.countDown();
+
+      assertSame(imageInfo, firstResult.get(1, MINUTES));
+      assertSame(imageInfo, secondResult.get(1, MINUTES));
+      verify(docker, times(1)).pull(TAGGED);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
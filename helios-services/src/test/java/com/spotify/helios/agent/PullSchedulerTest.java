@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.spotify.helios.Polling;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+
+public class PullSchedulerTest {
+
+  private final PullScheduler sut = new PullScheduler(1);
+  private final List<String> order = Collections.synchronizedList(Lists.<String>newArrayList());
+
+  @Test
+  public void testUrgentPullsGoFirst() throws Exception {
+    final PullScheduler.Ticket running = sut.ticket(true);
+    sut.acquire(running);
+
+    final Thread speculative = pull("speculative", false);
+    awaitWaiting(1);
+    final Thread urgent = pull("urgent", true);
+    awaitWaiting(2);
+
+    sut.release();
+    speculative.join(MINUTES.toMillis(1));
+    urgent.join(MINUTES.toMillis(1));
+
+    assertEquals(ImmutableList.of("urgent", "speculative"), order);
+  }
+
+  @Test
+  public void testUnlimited() throws Exception {
+    final PullScheduler unlimited = new PullScheduler(0);
+    for (int i = 0; i < 10; i++) {
+      unlimited.acquire(unlimited.ticket(false));
+    }
+    assertEquals(0, unlimited.waiting());
+  }
+
+  private Thread pull(final String name, final boolean urgent) {
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          sut.acquire(sut.ticket(urgent));
+          order.add(name);
+          sut.release();
+        } catch (InterruptedException ignored) {
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private void awaitWaiting(final int waiting) throws Exception {
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return sut.waiting() == waiting ? true : null;
+      }
+    });
+  }
+}
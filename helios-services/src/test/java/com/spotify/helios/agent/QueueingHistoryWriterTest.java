@@ -27,6 +27,8 @@ import com.google.common.collect.Iterables;
 import com.spotify.helios.Polling;
 import com.spotify.helios.ZooKeeperTestManager;
 import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.PayloadFormat;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.TaskStatus;
@@ -38,7 +40,9 @@ import com.spotify.helios.servicescommon.coordination.Paths;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClient;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
 import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperOperation;
 
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
 import org.apache.zookeeper.KeeperException;
 import org.junit.After;
 import org.junit.Before;
@@ -48,6 +52,7 @@ import org.mockito.stubbing.Answer;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +62,8 @@ import static com.spotify.helios.agent.QueueingHistoryWriter.MAX_NUMBER_STATUS_E
 import static com.spotify.helios.common.descriptors.Goal.START;
 import static org.apache.zookeeper.KeeperException.ConnectionLossException;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -122,25 +129,23 @@ public class QueueingHistoryWriterTest {
   public void testZooKeeperErrorDoesntLoseItemsReally() throws Exception {
     final ZooKeeperClient mockClient = mock(ZooKeeperClient.class);
     makeWriter(mockClient, kafkaProvider);
-    final String path = Paths.historyJobHostEventsTimestamp(JOB_ID, HOSTNAME, TIMESTAMP);
     final KeeperException exc = new ConnectionLossException();
     // make save operations fail
-    doThrow(exc).when(mockClient).createAndSetData(path, TASK_STATUS.toJsonBytes());
+    doThrow(exc).when(mockClient).transaction(anyListOf(ZooKeeperOperation.class));
 
     writer.saveHistoryItem(JOB_ID, TASK_STATUS, TIMESTAMP);
     // wait up to 10s for it to fail twice -- and make sure I mocked it correctly.
-    verify(mockClient, timeout(10000).atLeast(2)).createAndSetData(path, TASK_STATUS.toJsonBytes());
+    verify(mockClient, timeout(10000).atLeast(2)).transaction(anyListOf(ZooKeeperOperation.class));
 
     // now make the client work
-    doAnswer(new Answer<Void>() {
+    doAnswer(new Answer<Collection<CuratorTransactionResult>>() {
       @Override
-      public Void answer(InvocationOnMock invocation) throws Throwable {
-        client.createAndSetData(
-          (String) invocation.getArguments()[0],
-          (byte[]) invocation.getArguments()[1]);
-        return null;
+      @SuppressWarnings("unchecked")
+      public Collection<CuratorTransactionResult> answer(InvocationOnMock invocation)
+          throws Throwable {
+        return client.transaction((List<ZooKeeperOperation>) invocation.getArguments()[0]);
       }
-    }).when(mockClient).createAndSetData(path, TASK_STATUS.toJsonBytes());
+    }).when(mockClient).transaction(anyListOf(ZooKeeperOperation.class));
 
     awaitHistoryItems();
   }
@@ -153,6 +158,23 @@ public class QueueingHistoryWriterTest {
     assertEquals(JOB_ID, historyItem.getStatus().getJob().getId());
   }
 
+  @Test
+  public void testCompactHistoryItemsAreResolved() throws Exception {
+    writer.stopAsync().awaitTerminated();
+    writer = new QueueingHistoryWriter(HOSTNAME, client, kafkaProvider,
+        agentStateDirs.resolve("task-history.json"), PayloadFormat.JSON, true);
+    writer.startUp();
+    writer.saveHistoryItem(JOB_ID, TASK_STATUS, TIMESTAMP);
+
+    final TaskStatusEvent historyItem = Iterables.getOnlyElement(awaitHistoryItems());
+    assertEquals(TASK_STATUS, historyItem.getStatus());
+    final TaskStatus stored = Json.read(
+        client.getData(Paths.historyJobHostEventsTimestamp(JOB_ID, HOSTNAME, TIMESTAMP)),
+        TaskStatus.class);
+    assertNull(stored.getJob());
+    assertEquals(JOB_ID, stored.getJobId());
+  }
+
   private Iterable<TaskStatusEvent> awaitHistoryItems() throws Exception {
     return await(40L, TimeUnit.SECONDS, new Callable<Iterable<TaskStatusEvent>>() {
       @Override
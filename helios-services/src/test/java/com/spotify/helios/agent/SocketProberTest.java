@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.agent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.google.common.base.Charsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SocketProberTest {
+
+  private static final long TIMEOUT_MILLIS = SECONDS.toMillis(5);
+
+  private ScheduledExecutorService timer;
+  private SocketProber prober;
+  private ServerSocket server;
+
+  @Before
+  public void setUp() throws Exception {
+    timer = Executors.newSingleThreadScheduledExecutor();
+    prober = new SocketProber(timer);
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    prober.close();
+    timer.shutdownNow();
+    server.close();
+  }
+
+  @Test
+  public void testConnect() throws Exception {
+    assertTrue(prober.connect(address(), TIMEOUT_MILLIS).get(1, MINUTES));
+  }
+
+  @Test
+  public void testConnectRefused() throws Exception {
+    final InetSocketAddress address = address();
+    server.close();
+    assertFalse(prober.connect(address, TIMEOUT_MILLIS).get(1, MINUTES));
+  }
+
+  @Test
+  public void testHttpSuccess() throws Exception {
+    respond("HTTP/1.1 204 No Content\r\n\r\n");
+    assertTrue(prober.get(address(), "/", TIMEOUT_MILLIS, TIMEOUT_MILLIS)
+                   .get(1, MINUTES));
+  }
+
+  @Test
+  public void testHttpFailure() throws Exception {
+    respond("HTTP/1.1 503 Service Unavailable\r\n\r\n");
+    assertFalse(prober.get(address(), "/", TIMEOUT_MILLIS, TIMEOUT_MILLIS)
+                    .get(1, MINUTES));
+  }
+
+  @Test
+  public void testHttpTimeout() throws Exception {
+    // Accept the connection but never respond
+    assertFalse(prober.get(address(), "/", TIMEOUT_MILLIS, 100)
+                    .get(1, MINUTES));
+  }
+
+  @Test
+  public void testParseStatus() throws Exception {
+    assertNull(SocketProber.successful(buffer("HTTP/1.")));
+    assertNull(SocketProber.successful(buffer("HTTP/1.1 2")));
+    assertEquals(true, SocketProber.successful(buffer("HTTP/1.1 200")));
+    assertEquals(true, SocketProber.successful(buffer("HTTP/1.0 302 Found\r\n")));
+    assertEquals(false, SocketProber.successful(buffer("HTTP/1.1 404 Not Found\r\n")));
+    assertEquals(false, SocketProber.successful(buffer("garbage\r\n")));
+    assertEquals(false, SocketProber.successful(buffer("SSH-2.0 OpenSSH\r\n")));
+  }
+
+  private InetSocketAddress address() {
+    return new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+  }
+
+  private ByteBuffer buffer(final String s) {
+    final ByteBuffer buffer = ByteBuffer.allocate(256);
+    buffer.put(s.getBytes(US_ASCII));
+    return buffer;
+  }
+
+  private void respond(final String response) {
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try (final Socket socket = server.accept()) {
+          // Read the request before responding
+          final BufferedReader in = new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), US_ASCII));
+          String line;
+          do {
+            line = in.readLine();
+          } while (line != null && !line.isEmpty());
+          final OutputStream out = socket.getOutputStream();
+          out.write(response.getBytes(US_ASCII));
+          out.flush();
+        } catch (Exception ignore) {
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.agent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.descriptors.TaskStatus.State;
+import com.spotify.helios.common.descriptors.TaskStatusEvent;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.zookeeper.KeeperException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static com.spotify.helios.Polling.await;
+import static com.spotify.helios.common.descriptors.Goal.START;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.CREATING;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.PULLING_IMAGE;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.RUNNING;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.STARTING;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.STOPPED;
+import static com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter.noop;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+
+public class ZooKeeperAgentModelTest {
+
+  private static final String HOST = "host";
+  private static final Job JOB = Job.newBuilder()
+      .setCommand(ImmutableList.<String>of())
+      .setImage("image")
+      .setName("foo")
+      .setVersion("version")
+      .build();
+  private static final JobId JOB_ID = JOB.getId();
+  private static final String STATUS_PATH = Paths.statusHostJob(HOST, JOB_ID);
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private Path stateDirectory;
+  private ZooKeeperAgentModel model;
+
+  @Before
+  public void setUp() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    client.ensurePath(Paths.configHostJobs(HOST));
+    client.ensurePath(Paths.statusHostJobs(HOST));
+    client.ensurePath(Paths.historyJobHostEvents(JOB_ID, HOST));
+    stateDirectory = Files.createTempDirectory("helios-agent-model-test-");
+    model = new ZooKeeperAgentModel(new ZooKeeperClientProvider(client, noop()),
+                                    KafkaClientProvider.getTestingProvider(), HOST,
+                                    stateDirectory, 500);
+    model.startAsync().awaitRunning();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    model.stopAsync().awaitTerminated();
+    zk.close();
+    FileUtils.deleteQuietly(stateDirectory.toFile());
+  }
+
+  @Test
+  public void testCoalescesRapidTransitions() throws Exception {
+    for (final State state : ImmutableList.of(PULLING_IMAGE, CREATING, STARTING, RUNNING)) {
+      model.setTaskStatus(JOB_ID, status(state));
+    }
+
+    // Reads see the latest status before it is published
+    assertEquals(RUNNING, model.getTaskStatus(JOB_ID).getState());
+
+    awaitPublishedState(RUNNING);
+    assertEquals("status should have been written once",
+                 0, client.stat(STATUS_PATH).getVersion());
+
+    // Every transition is kept in the history
+    awaitHistory(4);
+    assertEquals(ImmutableList.of(PULLING_IMAGE, CREATING, STARTING, RUNNING), historyStates());
+  }
+
+  @Test
+  public void testSuppressesUnchangedStatus() throws Exception {
+    model.setTaskStatus(JOB_ID, status(RUNNING));
+    awaitPublishedState(RUNNING);
+
+    model.setTaskStatus(JOB_ID, status(RUNNING));
+    model.setTaskStatus(JOB_ID, status(STOPPED));
+    awaitPublishedState(STOPPED);
+
+    awaitHistory(2);
+    assertEquals(ImmutableList.of(RUNNING, STOPPED), historyStates());
+  }
+
+  @Test
+  public void testRemoveDropsPendingStatus() throws Exception {
+    model.setTaskStatus(JOB_ID, status(RUNNING));
+    model.removeTaskStatus(JOB_ID);
+    assertEquals(null, model.getTaskStatus(JOB_ID));
+
+    // Publish something else and make sure the removed status did not sneak in
+    final JobId otherId = JobId.fromString("other:1:" + JOB_ID.getHash());
+    model.setTaskStatus(otherId, status(RUNNING));
+    await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return client.exists(Paths.statusHostJob(HOST, otherId));
+      }
+    });
+    assertEquals(null, client.exists(STATUS_PATH));
+  }
+
+  private TaskStatus status(final State state) {
+    return TaskStatus.newBuilder()
+        .setJob(JOB)
+        .setGoal(START)
+        .setState(state)
+        .setContainerId("containerId")
+        .build();
+  }
+
+  private void awaitPublishedState(final State state) throws Exception {
+    await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        try {
+          final TaskStatus status = Json.read(client.getData(STATUS_PATH), TaskStatus.class);
+          return status.getState() == state ? true : null;
+        } catch (KeeperException.NoNodeException e) {
+          return null;
+        }
+      }
+    });
+  }
+
+  private void awaitHistory(final int events) throws Exception {
+    await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return historyStates().size() >= events ? true : null;
+      }
+    });
+  }
+
+  private List<State> historyStates() throws Exception {
+    final String path = Paths.historyJobHostEvents(JOB_ID, HOST);
+    final List<String> timestamps = Lists.newArrayList(client.getChildren(path));
+    Collections.sort(timestamps);
+    final List<State> states = Lists.newArrayList();
+    for (final String timestamp : timestamps) {
+      final byte[] data = client.getData(path + "/" + timestamp);
+      states.add(Json.read(data, TaskStatusEvent.class).getStatus().getState());
+    }
+    return states;
+  }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import com.spotify.helios.Polling;
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.agent.Clock;
+import com.spotify.helios.agent.SystemClock;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+
+import org.joda.time.Instant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.FAILED;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.PENDING;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.UPDATING;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.RUNNING;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RollingUpdaterTest {
+
+  private static final String HOST1 = "host1";
+  private static final String HOST2 = "host2";
+  private static final Job OLD_JOB = Job.newBuilder()
+      .setCommand(ImmutableList.<String>of())
+      .setImage("image")
+      .setName("foo")
+      .setVersion("1")
+      .build();
+  private static final Job NEW_JOB = OLD_JOB.toBuilder()
+      .setVersion("2")
+      .build();
+  private static final JobId OLD_ID = OLD_JOB.getId();
+  private static final JobId NEW_ID = NEW_JOB.getId();
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private ZooKeeperMasterModel model;
+  private ZooKeeperClientProvider provider;
+  private StatusEventFeed feed;
+  private RollingUpdater updater;
+  private RollingUpdater takeover;
+
+  @Before
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    client.ensurePath(Paths.configHosts());
+    client.ensurePath(Paths.configJobs());
+    client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.configRollingUpdates());
+    client.ensurePath(Paths.statusHosts());
+    client.ensurePath(Paths.historyJobs());
+    provider = new ZooKeeperClientProvider(client, ZooKeeperModelReporter.noop());
+    model = new ZooKeeperMasterModel(provider);
+
+    model.addJob(OLD_JOB);
+    model.addJob(NEW_JOB);
+    for (final String host : ImmutableList.of(HOST1, HOST2)) {
+      model.registerHost(host, host);
+      client.ensurePath(Paths.statusHostJobs(host));
+      model.deployJob(host, Deployment.of(OLD_ID, Goal.START));
+    }
+
+    feed = new StatusEventFeed(zk.curator());
+    feed.startAsync().awaitRunning();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    if (updater != null) {
+      updater.stopAsync().awaitTerminated();
+    }
+    if (takeover != null) {
+      takeover.stopAsync().awaitTerminated();
+    }
+    feed.stopAsync().awaitTerminated();
+    zk.close();
+  }
+
+  @Test
+  public void testAdvancesOnTaskStatus() throws Exception {
+    // Only look at rolling updates occasionally, so that progress has to come from status events
+    startUpdater(MINUTES.toMillis(10));
+    final RollingUpdate update = create(60);
+    assertEquals(ImmutableList.of(HOST1, HOST2), update.getHosts());
+
+    awaitHostState(update.getId(), HOST1, UPDATING);
+    assertNotNull(model.getDeployment(HOST1, NEW_ID));
+    assertNull(model.getDeployment(HOST1, OLD_ID));
+    assertEquals(PENDING, updater.get(update.getId()).getHostState(HOST2));
+    assertNotNull(model.getDeployment(HOST2, OLD_ID));
+
+    setRunning(HOST1);
+    awaitHostState(update.getId(), HOST2, UPDATING);
+    assertNotNull(model.getDeployment(HOST2, NEW_ID));
+    assertNull(model.getDeployment(HOST2, OLD_ID));
+
+    setRunning(HOST2);
+    awaitState(update.getId(), RollingUpdate.State.DONE);
+  }
+
+  @Test
+  public void testFailsWhenJobDoesNotComeUp() throws Exception {
+    startUpdater(100);
+    final RollingUpdate update = create(1);
+
+    final RollingUpdate failed = awaitState(update.getId(), RollingUpdate.State.FAILED);
+    assertEquals(FAILED, failed.getHostState(HOST1));
+    assertEquals(PENDING, failed.getHostState(HOST2));
+    assertNotNull(model.getDeployment(HOST2, OLD_ID));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    startUpdater(MINUTES.toMillis(10));
+    final RollingUpdate update = create(60);
+    awaitHostState(update.getId(), HOST1, UPDATING);
+
+    updater.cancel(update.getId(), Job.EMPTY_TOKEN);
+    setRunning(HOST1);
+    awaitState(update.getId(), RollingUpdate.State.CANCELLED);
+    assertNull(model.getDeployment(HOST2, NEW_ID));
+  }
+
+  @Test
+  public void testTakeOverFromMasterThatWentAway() throws Exception {
+    startUpdater(MINUTES.toMillis(10));
+    final RollingUpdate update = create(60);
+    awaitHostState(update.getId(), HOST1, UPDATING);
+    updater.stopAsync().awaitTerminated();
+
+    // The lease of the first master has run out by the clock of the second
+    takeover = new RollingUpdater(model, provider, "second", 100, laterClock());
+    takeover.follow(feed);
+    takeover.startAsync().awaitRunning();
+    awaitOwner(update.getId(), "second");
+
+    setRunning(HOST1);
+    awaitHostState(update.getId(), HOST2, UPDATING);
+    assertNull(model.getDeployment(HOST2, OLD_ID));
+    setRunning(HOST2);
+    awaitState(update.getId(), RollingUpdate.State.DONE);
+  }
+
+  @Test
+  public void testMasterThatLosesLeaseWhileDeployingStops() throws Exception {
+    // The first master deploys to host1, but the second master takes the rolling update over
+    // before the first has recorded that, so the conditional write of the first master fails.
+    final ZooKeeperMasterModel firstModel = spy(model);
+    takeover = new RollingUpdater(model, provider, "second", 100, laterClock());
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        final Object failures = invocation.callRealMethod();
+        if (!takeover.isRunning()) {
+          takeover.follow(feed);
+          takeover.startAsync().awaitRunning();
+        }
+        final String id = Iterables.getOnlyElement(updater.list().keySet());
+        awaitOwner(id, "second");
+        awaitHostState(id, HOST1, UPDATING);
+        return failures;
+      }
+    }).when(firstModel).deployJob(anyCollectionOf(String.class), any(Deployment.class),
+                                  anyString());
+
+    updater = new RollingUpdater(firstModel, provider, "master", MINUTES.toMillis(10),
+                                 new SystemClock());
+    updater.follow(feed);
+    updater.startAsync().awaitRunning();
+    final RollingUpdate update = create(60);
+
+    // Both masters deployed to host1, but with a parallelism of 1 neither went on to host2
+    awaitOwner(update.getId(), "second");
+    assertEquals(UPDATING, updater.get(update.getId()).getHostState(HOST1));
+    assertEquals(PENDING, updater.get(update.getId()).getHostState(HOST2));
+    assertNotNull(model.getDeployment(HOST1, NEW_ID));
+    assertNull(model.getDeployment(HOST2, NEW_ID));
+    assertNotNull(model.getDeployment(HOST2, OLD_ID));
+
+    setRunning(HOST1);
+    awaitHostState(update.getId(), HOST2, UPDATING);
+    setRunning(HOST2);
+    awaitState(update.getId(), RollingUpdate.State.DONE);
+    assertEquals("second", updater.get(update.getId()).getOwner());
+
+    // The first master gave up on the rolling update after its write failed
+    verify(firstModel, times(1)).deployJob(anyCollectionOf(String.class), any(Deployment.class),
+                                           anyString());
+  }
+
+  @Test
+  public void testPeriodicLookOnlyRenewsLeaseWithoutStatusEvents() throws Exception {
+    final ZooKeeperMasterModel spiedModel = spy(model);
+    final AtomicInteger statusReads = new AtomicInteger();
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(final InvocationOnMock invocation) throws Throwable {
+        statusReads.incrementAndGet();
+        return invocation.callRealMethod();
+      }
+    }).when(spiedModel).getJobStatus(NEW_ID);
+    final AtomicLong skew = new AtomicLong();
+    updater = new RollingUpdater(spiedModel, provider, "master", 100, new Clock() {
+      @Override
+      public Instant now() {
+        return Instant.now().plus(skew.get());
+      }
+    });
+    updater.follow(feed);
+    updater.startAsync().awaitRunning();
+    final RollingUpdate update = create(60);
+    awaitHostState(update.getId(), HOST1, UPDATING);
+    Thread.sleep(500);
+    final int reads = statusReads.get();
+
+    // Move close enough to the end of the lease for the updater to renew it
+    final long expiry = updater.get(update.getId()).getLeaseExpiry();
+    skew.set(SECONDS.toMillis(20));
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return updater.get(update.getId()).getLeaseExpiry() > expiry ? true : null;
+      }
+    });
+    Thread.sleep(500);
+    assertEquals(reads, statusReads.get());
+
+    // A status event still advances it
+    setRunning(HOST1);
+    awaitHostState(update.getId(), HOST2, UPDATING);
+    assertTrue(statusReads.get() > reads);
+  }
+
+  private void startUpdater(final long intervalMillis) {
+    updater = new RollingUpdater(model, provider, "master", intervalMillis, new SystemClock());
+    updater.follow(feed);
+    updater.startAsync().awaitRunning();
+  }
+
+  private RollingUpdate create(final long healthWaitSeconds) throws Exception {
+    final RollingUpdateRequest request =
+        new RollingUpdateRequest(OLD_ID, NEW_ID, null, 1, null, healthWaitSeconds);
+    final List<String> hosts = updater.selectHosts(request);
+    return updater.create(request, hosts, Job.EMPTY_TOKEN, "user");
+  }
+
+  private static Clock laterClock() {
+    return new Clock() {
+      @Override
+      public Instant now() {
+        return Instant.now().plus(MINUTES.toMillis(1));
+      }
+    };
+  }
+
+  private void setRunning(final String host) throws Exception {
+    client.createAndSetData(Paths.statusHostJob(host, NEW_ID), Json.asBytes(
+        TaskStatus.newBuilder().setJob(NEW_JOB).setGoal(Goal.START).setState(RUNNING).build()));
+  }
+
+  private void awaitHostState(final String id, final String host,
+                              final RollingUpdate.HostState state) throws Exception {
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return updater.get(id).getHostState(host) == state ? true : null;
+      }
+    });
+  }
+
+  private void awaitOwner(final String id, final String owner) throws Exception {
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return owner.equals(updater.get(id).getOwner()) ? true : null;
+      }
+    });
+  }
+
+  private RollingUpdate awaitState(final String id, final RollingUpdate.State state)
+      throws Exception {
+    return Polling.await(1, MINUTES, new Callable<RollingUpdate>() {
+      @Override
+      public RollingUpdate call() throws Exception {
+        final RollingUpdate update = updater.get(id);
+        return update.getState() == state ? update : null;
+      }
+    });
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master;
+
+import com.google.common.collect.ImmutableList;
+
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.Task;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.protocol.StatusEvent;
+import com.spotify.helios.common.protocol.StatusEvents;
+import com.spotify.helios.servicescommon.coordination.CachingZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.spotify.helios.common.descriptors.HostStatus.Status.DOWN;
+import static com.spotify.helios.common.descriptors.HostStatus.Status.UP;
+import static com.spotify.helios.common.descriptors.TaskStatus.State.RUNNING;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.DEPLOYMENT;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.HOST_STATUS;
+import static com.spotify.helios.common.protocol.StatusEvent.Type.TASK_STATUS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StatusEventFeedTest {
+
+  private static final String HOST = "host";
+  private static final Job JOB = Job.newBuilder()
+      .setCommand(ImmutableList.<String>of())
+      .setImage("image")
+      .setName("foo")
+      .setVersion("version")
+      .build();
+  private static final JobId JOB_ID = JOB.getId();
+  private static final long TIMEOUT_MILLIS = MINUTES.toMillis(1);
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private StatusEventFeed feed;
+
+  @Before
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    client.ensurePath(Paths.configHostJobs(HOST));
+    client.ensurePath(Paths.statusHostJobs(HOST));
+    feed = new StatusEventFeed(zk.curator());
+    feed.startAsync().awaitRunning();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    feed.stopAsync().awaitTerminated();
+    zk.close();
+  }
+
+  @Test
+  public void testEvents() throws Exception {
+    final StatusEvents start = feed.poll("", 0, TIMEOUT_MILLIS);
+    assertTrue(start.isReset());
+    assertTrue(start.getEvents().isEmpty());
+
+    client.createAndSetData(Paths.configHostJob(HOST, JOB_ID),
+                            new Task(JOB, Goal.START, null).toJsonBytes());
+    final StatusEvent deployed = next(start);
+    assertEquals(DEPLOYMENT, deployed.getType());
+    assertEquals(HOST, deployed.getHost());
+    assertEquals(JOB_ID, deployed.getJobId());
+    assertEquals(Goal.START, deployed.getDeployment().getGoal());
+
+    client.createAndSetData(Paths.statusHostJob(HOST, JOB_ID), Json.asBytes(
+        TaskStatus.newBuilder().setJob(JOB).setGoal(Goal.START).setState(RUNNING).build()));
+    final StatusEvent running = next(feed.poll(start.getFeed(), deployed.getVersion(), 0));
+    assertEquals(TASK_STATUS, running.getType());
+    assertEquals(RUNNING, running.getTaskStatus().getState());
+
+    client.createAndSetData(Paths.statusHostUp(HOST), new byte[0]);
+    final StatusEvent up = next(feed.poll(start.getFeed(), running.getVersion(), 0));
+    assertEquals(HOST_STATUS, up.getType());
+    assertEquals(UP, up.getHostStatus());
+
+    client.delete(Paths.statusHostUp(HOST));
+    final StatusEvent down = next(feed.poll(start.getFeed(), up.getVersion(), 0));
+    assertEquals(DOWN, down.getHostStatus());
+
+    client.delete(Paths.configHostJob(HOST, JOB_ID));
+    final StatusEvent undeployed = next(feed.poll(start.getFeed(), down.getVersion(), 0));
+    assertEquals(DEPLOYMENT, undeployed.getType());
+    assertNull(undeployed.getDeployment());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    final StatusEvents start = feed.poll("", 0, TIMEOUT_MILLIS);
+    final StatusEvents events = feed.poll(start.getFeed(), start.getVersion(), 100);
+    assertFalse(events.isReset());
+    assertTrue(events.getEvents().isEmpty());
+    assertEquals(start.getFeed(), events.getFeed());
+    assertEquals(start.getVersion(), events.getVersion());
+  }
+
+  @Test
+  public void testUnknownFeedResets() throws Exception {
+    final StatusEvents start = feed.poll("", 0, TIMEOUT_MILLIS);
+    final StatusEvents events = feed.poll("foo", start.getVersion(), TIMEOUT_MILLIS);
+    assertTrue(events.isReset());
+    assertEquals(start.getFeed(), events.getFeed());
+  }
+
+  @Test
+  public void testFollowsReadCache() throws Exception {
+    feed.stopAsync().awaitTerminated();
+    final CachingZooKeeperClient cachingClient =
+        new CachingZooKeeperClient(client, Paths.configHosts(), Paths.statusHosts());
+    feed = new StatusEventFeed(cachingClient);
+    cachingClient.start();
+    try {
+      feed.startAsync().awaitRunning();
+      final StatusEvents start = feed.poll("", 0, TIMEOUT_MILLIS);
+      assertTrue(start.isReset());
+
+      client.createAndSetData(Paths.configHostJob(HOST, JOB_ID),
+                              new Task(JOB, Goal.START, null).toJsonBytes());
+      final StatusEvent deployed = next(start);
+      assertEquals(DEPLOYMENT, deployed.getType());
+      assertEquals(JOB_ID, deployed.getJobId());
+    } finally {
+      cachingClient.close();
+    }
+  }
+
+  /**
+   * Returns the first event following {@code events}, waiting for it if needed.
+   */
+  private StatusEvent next(final StatusEvents events) throws Exception {
+    if (!events.isReset() && !events.getEvents().isEmpty()) {
+      return events.getEvents().get(0);
+    }
+    final StatusEvents next = feed.poll(events.getFeed(), events.getVersion(), TIMEOUT_MILLIS);
+    assertFalse(next.isReset());
+    assertEquals(1, next.getEvents().size());
+    return next.getEvents().get(0);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.master.metrics;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import com.spotify.helios.master.metrics.SlowRequestLog.SlowRequest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlowRequestLogTest {
+
+  @Test
+  public void testIgnoresFastRequests() {
+    final SlowRequestLog log = new SlowRequestLog(10, 100);
+    log.record("JobsResource#list", "foo", 200, MILLISECONDS.toNanos(99), 0, 0, 0);
+    assertTrue(log.slowest().isEmpty());
+  }
+
+  @Test
+  public void testKeepsMostRecentSlowestFirst() {
+    final SlowRequestLog log = new SlowRequestLog(3, 100);
+    for (final long millis : ImmutableList.of(500L, 100L, 300L, 200L, 400L)) {
+      log.record("JobsResource#list", "user" + millis, 200, MILLISECONDS.toNanos(millis),
+                 0, 0, 0);
+    }
+
+    final List<Long> latencies = Lists.newArrayList();
+    for (final SlowRequest request : log.slowest()) {
+      latencies.add(request.getTotalMillis());
+    }
+    assertEquals(ImmutableList.of(400L, 300L, 200L), latencies);
+  }
+}
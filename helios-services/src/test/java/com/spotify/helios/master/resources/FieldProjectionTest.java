@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.spotify.helios.common.Json;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FieldProjectionTest {
+
+  private static final Map<String, Object> STATUS = ImmutableMap.<String, Object>of(
+      "status", "UP",
+      "environment", ImmutableMap.of("FOO", "bar"),
+      "statuses", ImmutableMap.of(
+          "foo:1", ImmutableMap.of("state", "RUNNING", "env", ImmutableMap.of("A", "1")),
+          "bar:1", ImmutableMap.of("state", "STOPPED", "env", ImmutableMap.of("B", "2"))));
+
+  @Test
+  public void testEmptyIsIdentity() throws Exception {
+    assertTrue(FieldProjection.parse("").isIdentity());
+    assertFalse(FieldProjection.parse("status").isIdentity());
+    assertFalse(FieldProjection.parse("-status").isIdentity());
+  }
+
+  @Test
+  public void testInclude() throws Exception {
+    assertProjection("status,statuses.*.state",
+                     "{'status':'UP','statuses':{'bar:1':{'state':'STOPPED'},"
+                     + "'foo:1':{'state':'RUNNING'}}}");
+  }
+
+  @Test
+  public void testIncludeNamedAndWildcard() throws Exception {
+    assertProjection("statuses.*.state,statuses.foo:1.env",
+                     "{'statuses':{'bar:1':{'state':'STOPPED'},"
+                     + "'foo:1':{'env':{'A':'1'},'state':'RUNNING'}}}");
+  }
+
+  @Test
+  public void testExclude() throws Exception {
+    assertProjection("-environment,-statuses.*.env",
+                     "{'status':'UP','statuses':{'bar:1':{'state':'STOPPED'},"
+                     + "'foo:1':{'state':'RUNNING'}}}");
+  }
+
+  @Test
+  public void testIncludeAndExclude() throws Exception {
+    assertProjection("statuses,-statuses.bar:1",
+                     "{'statuses':{'foo:1':{'env':{'A':'1'},'state':'RUNNING'}}}");
+  }
+
+  private static void assertProjection(final String fields, final String expected)
+      throws Exception {
+    final JsonNode projected = FieldProjection.parse(fields).apply(STATUS);
+    assertEquals(Json.readTree(expected.replace('\'', '"')), projected);
+  }
+}
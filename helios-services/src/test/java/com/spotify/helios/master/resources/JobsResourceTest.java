@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.Json;
+import com.spotify.helios.common.descriptors.Deployment;
+import com.spotify.helios.common.descriptors.Goal;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.JobStatus;
+import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.master.ZooKeeperMasterModel;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperClientProvider;
+import com.spotify.helios.servicescommon.coordination.ZooKeeperModelReporter;
+import com.spotify.helios.servicescommon.statistics.MasterMetrics;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.WebApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.Map;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import static com.spotify.helios.common.descriptors.TaskStatus.State.RUNNING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+public class JobsResourceTest {
+
+  private static final String HOST = "host";
+  private static final Job JOB = Job.newBuilder()
+      .setCommand(ImmutableList.<String>of())
+      .setImage("image")
+      .setName("foo")
+      .setVersion("1")
+      .build();
+  private static final JobId JOB_ID = JOB.getId();
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private ZooKeeperMasterModel model;
+  private JobsResource resource;
+
+  @Before
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    client.ensurePath(Paths.configHosts());
+    client.ensurePath(Paths.configJobs());
+    client.ensurePath(Paths.configJobRefs());
+    client.ensurePath(Paths.statusHosts());
+    client.ensurePath(Paths.historyJobs());
+    model = new ZooKeeperMasterModel(
+        new ZooKeeperClientProvider(client, ZooKeeperModelReporter.noop()));
+    resource = new JobsResource(model, mock(MasterMetrics.class),
+                                MoreExecutors.sameThreadExecutor());
+
+    model.addJob(JOB);
+    model.registerHost(HOST, "id");
+    client.ensurePath(Paths.statusHostJobs(HOST));
+  }
+
+  @After
+  public void teardown() throws Exception {
+    zk.close();
+  }
+
+  @Test
+  public void testJobStatusTagChanges() throws Exception {
+    final EntityTag created = statusTag();
+
+    model.deployJob(HOST, Deployment.of(JOB_ID, Goal.START));
+    final EntityTag deployed = statusTag();
+    assertNotEquals(created, deployed);
+
+    client.createAndSetData(Paths.statusHostJob(HOST, JOB_ID), Json.asBytes(
+        TaskStatus.newBuilder().setJob(JOB).setGoal(Goal.START).setState(RUNNING).build()));
+    final EntityTag running = statusTag();
+    assertNotEquals(deployed, running);
+    assertEquals(running, statusTag());
+
+    model.undeployJob(HOST, JOB_ID);
+    final EntityTag undeployed = statusTag();
+    assertNotEquals(running, undeployed);
+    assertNotEquals(created, undeployed);
+  }
+
+  @Test
+  public void testJobStatusConditionalGet() throws Exception {
+    model.deployJob(HOST, Deployment.of(JOB_ID, Goal.START));
+    final EntityTag tag = statusTag();
+
+    final Response notModified = resource.statusGet(JOB_ID, false, request(tag));
+    assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), notModified.getStatus());
+    assertNull(notModified.getEntity());
+
+    final EntityTag stale = new EntityTag(tag.getValue() + "0");
+    final Response modified = resource.statusGet(JOB_ID, false, request(stale));
+    assertEquals(Response.Status.OK.getStatusCode(), modified.getStatus());
+    assertEquals(tag, modified.getMetadata().getFirst(HttpHeaders.ETAG));
+    final JobStatus status = (JobStatus) modified.getEntity();
+    assertNotNull(status.getDeployments().get(HOST));
+  }
+
+  @Test
+  public void testListFillsPageWhenJobsAreRemoved() throws Exception {
+    final Job second = JOB.toBuilder().setVersion("2").build();
+    final Job third = JOB.toBuilder().setVersion("3").build();
+    model.addJob(second);
+    model.addJob(third);
+
+    // A job that sorts between the first two was removed after it was listed
+    final JobId removed = JobId.fromString("foo:1a:" + JOB_ID.getHash());
+    final ZooKeeperMasterModel spiedModel = spy(model);
+    doReturn(ImmutableList.of(JOB_ID, removed, second.getId(), third.getId()))
+        .when(spiedModel).listJobs();
+    resource = new JobsResource(spiedModel, mock(MasterMetrics.class),
+                                MoreExecutors.sameThreadExecutor());
+
+    final Response response = resource.list("", "", 2, "", request(null));
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(output);
+    final Map<String, Object> jobs = Json.read(output.toByteArray(),
+                                               new TypeReference<Map<String, Object>>() {});
+    assertEquals(ImmutableSet.of(JOB_ID.toString(), second.getId().toString()), jobs.keySet());
+  }
+
+  private EntityTag statusTag() {
+    final Response response = resource.statusGet(JOB_ID, false, request(null));
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    return (EntityTag) response.getMetadata().getFirst(HttpHeaders.ETAG);
+  }
+
+  private static Request request(final EntityTag ifNoneMatch) {
+    final InBoundHeaders headers = new InBoundHeaders();
+    if (ifNoneMatch != null) {
+      headers.putSingle(HttpHeaders.IF_NONE_MATCH, "\"" + ifNoneMatch.getValue() + "\"");
+    }
+    final URI uri = URI.create("http://localhost/jobs/" + JOB_ID + "/status");
+    return new ContainerRequest(mock(WebApplication.class), "GET", URI.create("http://localhost/"),
+                                uri, headers, new ByteArrayInputStream(new byte[0]));
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.collect.ImmutableList;
+
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.RollingUpdateResponse;
+import com.spotify.helios.master.JobDoesNotExistException;
+import com.spotify.helios.master.RollingUpdater;
+import com.spotify.helios.master.TokenVerificationException;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.FORBIDDEN;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.INVALID_ID;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.INVALID_OPTIONS;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.JOB_NOT_FOUND;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.NOT_FOUND;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.NO_HOSTS;
+import static com.spotify.helios.common.protocol.RollingUpdateResponse.Status.OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RollingUpdatesResourceTest {
+
+  private static final JobId OLD_ID = JobId.fromString("foo:1:" + hash('1'));
+  private static final JobId NEW_ID = JobId.fromString("foo:2:" + hash('2'));
+  private static final List<String> HOSTS = ImmutableList.of("host1", "host2");
+  private static final String TOKEN = "token";
+
+  private final RollingUpdater updater = mock(RollingUpdater.class);
+  private final RollingUpdatesResource resource = new RollingUpdatesResource(updater);
+
+  @Test
+  public void testPost() throws Exception {
+    final RollingUpdateRequest request = request(OLD_ID, NEW_ID, 1);
+    when(updater.selectHosts(request)).thenReturn(HOSTS);
+    when(updater.create(request, HOSTS, TOKEN, "user"))
+        .thenReturn(RollingUpdate.newBuilder().setId("id").build());
+
+    final RollingUpdateResponse response = resource.post(request, "user", TOKEN);
+
+    assertEquals(OK, response.getStatus());
+    assertEquals("id", response.getId());
+  }
+
+  @Test
+  public void testPostRejectsPartialJobIds() throws Exception {
+    assertPostFails(request(OLD_ID, JobId.fromString("foo:2"), 1), 400, INVALID_ID);
+    assertPostFails(request(JobId.fromString("foo"), NEW_ID, 1), 400, INVALID_ID);
+  }
+
+  @Test
+  public void testPostRejectsInvalidOptions() throws Exception {
+    assertPostFails(request(OLD_ID, NEW_ID, 0), 400, INVALID_OPTIONS);
+  }
+
+  @Test
+  public void testPostWithoutHosts() throws Exception {
+    final RollingUpdateRequest request = request(OLD_ID, NEW_ID, 1);
+    when(updater.selectHosts(request)).thenReturn(Collections.<String>emptyList());
+
+    assertPostFails(request, 400, NO_HOSTS);
+  }
+
+  @Test
+  public void testPostWithUnknownJob() throws Exception {
+    final RollingUpdateRequest request = request(OLD_ID, NEW_ID, 1);
+    when(updater.selectHosts(request)).thenReturn(HOSTS);
+    when(updater.create(request, HOSTS, TOKEN, "user"))
+        .thenThrow(new JobDoesNotExistException(NEW_ID));
+
+    assertPostFails(request, 400, JOB_NOT_FOUND);
+  }
+
+  @Test
+  public void testPostWithWrongToken() throws Exception {
+    final RollingUpdateRequest request = request(OLD_ID, NEW_ID, 1);
+    when(updater.selectHosts(request)).thenReturn(HOSTS);
+    when(updater.create(request, HOSTS, TOKEN, "user"))
+        .thenThrow(new TokenVerificationException(NEW_ID));
+
+    assertPostFails(request, 403, FORBIDDEN);
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    final RollingUpdate update = RollingUpdate.newBuilder().setId("id").build();
+    when(updater.get("id")).thenReturn(update);
+
+    assertSame(update, resource.get("id"));
+    try {
+      resource.get("missing");
+      fail();
+    } catch (WebApplicationException e) {
+      assertEquals(404, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    when(updater.cancel("id", TOKEN))
+        .thenReturn(RollingUpdate.newBuilder().setId("id").build());
+    when(updater.cancel("other", TOKEN)).thenThrow(new TokenVerificationException(NEW_ID));
+
+    assertEquals(OK, resource.cancel("id", TOKEN).getStatus());
+    assertCancelFails("missing", 404, NOT_FOUND);
+    assertCancelFails("other", 403, FORBIDDEN);
+  }
+
+  private void assertPostFails(final RollingUpdateRequest request, final int status,
+                               final RollingUpdateResponse.Status expected) throws Exception {
+    try {
+      resource.post(request, "user", TOKEN);
+      fail();
+    } catch (WebApplicationException e) {
+      assertResponse(e.getResponse(), status, expected);
+    }
+  }
+
+  private void assertCancelFails(final String id, final int status,
+                                 final RollingUpdateResponse.Status expected) throws Exception {
+    try {
+      resource.cancel(id, TOKEN);
+      fail();
+    } catch (WebApplicationException e) {
+      assertResponse(e.getResponse(), status, expected);
+    }
+  }
+
+  private static void assertResponse(final Response response, final int status,
+                                     final RollingUpdateResponse.Status expected) {
+    assertEquals(status, response.getStatus());
+    assertEquals(expected, ((RollingUpdateResponse) response.getEntity()).getStatus());
+  }
+
+  private static RollingUpdateRequest request(final JobId oldJob, final JobId newJob,
+                                              final int batchSize) {
+    return new RollingUpdateRequest(oldJob, newJob, null, batchSize, null, 60L);
+  }
+
+  private static String hash(final char c) {
+    return new String(new char[40]).replace('\0', c);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.master.resources;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.spotify.helios.common.HeliosRuntimeException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.SortedMap;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class StreamingMapOutputTest {
+
+  private static final SortedMap<String, Integer> ENTRIES = ImmutableSortedMap.of(
+      "a", 1, "b", 2, "c", 3, "d", 4);
+
+  @Test
+  public void testPage() throws Exception {
+    assertEquals(ENTRIES, StreamingMapOutput.page(ENTRIES, "", 0));
+    assertEquals(ImmutableList.of("a", "b"),
+                 ImmutableList.copyOf(StreamingMapOutput.page(ENTRIES, "", 2).keySet()));
+    assertEquals(ImmutableList.of("c", "d"),
+                 ImmutableList.copyOf(StreamingMapOutput.page(ENTRIES, "b", 2).keySet()));
+    assertEquals(ImmutableList.of("d"),
+                 ImmutableList.copyOf(StreamingMapOutput.page(ENTRIES, "c", 2).keySet()));
+    assertEquals(ImmutableList.of("c", "d"),
+                 ImmutableList.copyOf(StreamingMapOutput.page(ENTRIES, "bb", 0).keySet()));
+    assertEquals(0, StreamingMapOutput.page(ENTRIES, "d", 2).size());
+  }
+
+  @Test
+  public void testWriteSkipsNullValues() throws Exception {
+    final SortedMap<String, Object> entries = Maps.newTreeMap();
+    entries.put("a", ImmutableMap.of("x", 1, "y", 2));
+    entries.put("b", null);
+    entries.put("c", ImmutableMap.of("x", 3));
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    new StreamingMapOutput(entries, FieldProjection.parse("")).write(output);
+    assertEquals("{\"a\":{\"x\":1,\"y\":2},\"c\":{\"x\":3}}",
+                 new String(output.toByteArray(), UTF_8));
+
+    output.reset();
+    new StreamingMapOutput(entries, FieldProjection.parse("x")).write(output);
+    assertEquals("{\"a\":{\"x\":1},\"c\":{\"x\":3}}",
+                 new String(output.toByteArray(), UTF_8));
+  }
+
+  @Test
+  public void testResolveRethrowsFailure() throws Exception {
+    final HeliosRuntimeException failure = new HeliosRuntimeException("read failed");
+    final SortedMap<String, ListenableFuture<Integer>> futures =
+        ImmutableSortedMap.of("a", Futures.immediateFuture(1),
+                              "b", Futures.<Integer>immediateFailedFuture(failure));
+    try {
+      StreamingMapOutput.resolve(futures);
+      fail("expected the failure to be rethrown");
+    } catch (HeliosRuntimeException e) {
+      assertSame(failure, e);
+    }
+  }
+}
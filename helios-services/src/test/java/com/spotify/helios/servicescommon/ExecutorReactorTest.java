@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.servicescommon;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutorReactorTest {
+
+  private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testCallsDoNotOverlap() throws Exception {
+    final AtomicBoolean running = new AtomicBoolean();
+    final AtomicBoolean overlapped = new AtomicBoolean();
+    final AtomicInteger calls = new AtomicInteger();
+    final Reactor reactor = new ExecutorReactor("test", new Reactor.Callback() {
+      @Override
+      public void run(final boolean timeout) throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+          overlapped.set(true);
+        }
+        Thread.sleep(1);
+        calls.incrementAndGet();
+        running.set(false);
+      }
+    }, 0, executor);
+    reactor.startAsync().awaitRunning();
+
+    for (int i = 0; i < 1000; i++) {
+      reactor.signal();
+    }
+    reactor.stopAsync().awaitTerminated(1, MINUTES);
+
+    assertFalse(overlapped.get());
+    assertTrue(calls.get() < 1000);
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    final CountDownLatch timedOut = new CountDownLatch(1);
+    final Reactor reactor = new ExecutorReactor("test", new Reactor.Callback() {
+      @Override
+      public void run(final boolean timeout) throws InterruptedException {
+        if (timeout) {
+          timedOut.countDown();
+        }
+      }
+    }, 10, executor);
+    reactor.startAsync().awaitRunning();
+
+    assertTrue(timedOut.await(1, MINUTES));
+    reactor.stopAsync().awaitTerminated(1, MINUTES);
+  }
+
+  @Test
+  public void testBlockingCallbacksDoNotHoldUpTimers() throws Exception {
+    final ScheduledExecutorService timers = Executors.newSingleThreadScheduledExecutor();
+    try {
+      final CountDownLatch blocked = new CountDownLatch(1);
+      final CountDownLatch timedOut = new CountDownLatch(1);
+      final Reactor blocking = new ExecutorReactor("blocking", new Reactor.Callback() {
+        @Override
+        public void run(final boolean timeout) throws InterruptedException {
+          blocked.countDown();
+          Thread.sleep(MINUTES.toMillis(1));
+        }
+      }, 0, timers, executor);
+      final Reactor timing = new ExecutorReactor("timing", new Reactor.Callback() {
+        @Override
+        public void run(final boolean timeout) throws InterruptedException {
+          if (timeout) {
+            timedOut.countDown();
+          }
+        }
+      }, 10, timers, executor);
+      blocking.startAsync().awaitRunning();
+      blocking.signal();
+      assertTrue(blocked.await(1, MINUTES));
+
+      // The only timer thread is free to time out the other reactor
+      timing.startAsync().awaitRunning();
+      assertTrue(timedOut.await(1, MINUTES));
+      timing.stopAsync().awaitTerminated(1, MINUTES);
+      blocking.stopAsync().awaitTerminated(1, MINUTES);
+    } finally {
+      timers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStopInterruptsCallback() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    final Reactor reactor = new ExecutorReactor("test", new Reactor.Callback() {
+      @Override
+      public void run(final boolean timeout) throws InterruptedException {
+        started.countDown();
+        try {
+          Thread.sleep(MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+      }
+    }, 0, executor);
+    reactor.startAsync().awaitRunning();
+    reactor.signal();
+    assertTrue(started.await(1, MINUTES));
+
+    reactor.stopAsync().awaitTerminated(1, MINUTES);
+    assertEquals(0, interrupted.getCount());
+
+    // The shared thread is still usable and not interrupted
+    assertFalse(executor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return Thread.currentThread().isInterrupted();
+      }
+    }).get(1, MINUTES));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon;
+
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.common.PayloadFormat;
+import com.spotify.helios.servicescommon.coordination.DefaultZooKeeperClient;
+import com.spotify.helios.servicescommon.coordination.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MasterPayloadFormatsTest {
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private MasterPayloadFormats formats;
+
+  @Before
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    client = new DefaultZooKeeperClient(zk.curator());
+    client.ensurePath(Paths.statusMasters());
+    formats = new MasterPayloadFormats(client, PayloadFormat.SMILE);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    zk.close();
+  }
+
+  @Test
+  public void testSmileOnlyWhileEveryMasterCanReadIt() throws Exception {
+    // Nobody to ask
+    assertEquals(PayloadFormat.JSON, formats.negotiate());
+
+    registerMaster("new", MasterPayloadFormats.upNodeData());
+    assertEquals(PayloadFormat.SMILE, formats.negotiate());
+
+    // A master that predates payload format negotiation has an empty up node
+    registerMaster("old", new byte[0]);
+    assertEquals(PayloadFormat.JSON, formats.negotiate());
+
+    // Once it is down it no longer counts
+    client.delete(Paths.statusMasterUp("old"));
+    assertEquals(PayloadFormat.SMILE, formats.negotiate());
+  }
+
+  @Test
+  public void testJsonIsNotNegotiated() throws Exception {
+    registerMaster("new", MasterPayloadFormats.upNodeData());
+    assertEquals(PayloadFormat.JSON,
+                 new MasterPayloadFormats(client, PayloadFormat.JSON).negotiate());
+  }
+
+  private void registerMaster(final String name, final byte[] data) throws Exception {
+    client.ensurePath(Paths.statusMasterUp(name), true);
+    client.createAndSetData(Paths.statusMasterUp(name), data);
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.servicescommon;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.common.Json;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentAtomicReferenceTest {
+
+  private static final TypeReference<Map<String, String>> TYPE =
+      new TypeReference<Map<String, String>>() {};
+  private static final Supplier<Map<String, String>> EMPTY =
+      Suppliers.<Map<String, String>>ofInstance(ImmutableMap.<String, String>of());
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path file;
+  private Path logFile;
+
+  @Before
+  public void setup() throws Exception {
+    file = temporaryFolder.getRoot().toPath().resolve("state.json");
+    logFile = temporaryFolder.getRoot().toPath().resolve("state.json.log");
+  }
+
+  @Test
+  public void testLoggedChangesAreRecovered() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1", "b", "2"));
+    ref.set(ImmutableMap.of("a", "1", "c", "3"));
+
+    assertFalse(Files.exists(file));
+    assertTrue(Files.size(logFile) > 0);
+
+    final PersistentAtomicReference<Map<String, String>> recovered =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    assertEquals(ImmutableMap.of("a", "1", "c", "3"), recovered.get());
+  }
+
+  @Test
+  public void testTornRecordIsDropped() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1"));
+    final long size = Files.size(logFile);
+    Files.write(logFile, "{\"set\":{\"b\":".getBytes(UTF_8), APPEND);
+
+    final PersistentAtomicReference<Map<String, String>> recovered =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    assertEquals(ImmutableMap.of("a", "1"), recovered.get());
+    assertEquals(size, Files.size(logFile));
+
+    recovered.set(ImmutableMap.of("a", "1", "b", "2"));
+    assertEquals(ImmutableMap.of("a", "1", "b", "2"),
+                 PersistentAtomicReference.createLogged(file, TYPE, EMPTY).get());
+  }
+
+  @Test
+  public void testLogIsCompacted() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    final Map<String, String> value = Maps.newHashMap();
+    final String padding = Strings.repeat("x", 1024);
+    for (int i = 0; i < 200; i++) {
+      value.put("key" + (i % 10), padding + i);
+      ref.set(ImmutableMap.copyOf(value));
+    }
+
+    assertTrue(Files.exists(file));
+    assertTrue(Files.size(logFile) < 200 * padding.length());
+    assertEquals(value, PersistentAtomicReference.createLogged(file, TYPE, EMPTY).get());
+  }
+
+  @Test
+  public void testSnapshotWithoutTruncatedLogKeepsRemovals() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1", "b", "2"));
+    ref.set(ImmutableMap.of("a", "2"));
+
+    // A crash after compacting into a snapshot but before truncating the log
+    Files.write(file, Json.asBytes(ImmutableMap.of("a", "2")));
+    assertTrue(Files.size(logFile) > 0);
+
+    final PersistentAtomicReference<Map<String, String>> recovered =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    assertEquals(ImmutableMap.of("a", "2"), recovered.get());
+  }
+
+  @Test
+  public void testPlainReferenceDoesNotLog() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.create(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1"));
+
+    assertTrue(Files.exists(file));
+    assertFalse(Files.exists(logFile));
+    assertEquals(ImmutableMap.of("a", "1"),
+                 PersistentAtomicReference.create(file, TYPE, EMPTY).get());
+  }
+
+  @Test
+  public void testOnlyChangedEntriesAreLogged() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1", "b", "2", "c", "3"));
+    ref.set(ImmutableMap.of("a", "1", "b", "4"));
+
+    final List<String> lines = Files.readAllLines(logFile, UTF_8);
+    assertEquals("{\"set\":{\"b\":\"4\"},\"remove\":[\"c\"]}", lines.get(lines.size() - 1));
+    assertEquals(ImmutableMap.of("a", "1", "b", "4"),
+                 PersistentAtomicReference.createLogged(file, TYPE, EMPTY).get());
+  }
+
+  @Test
+  public void testCompactFoldsLogIntoFile() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1"));
+    ref.compact();
+
+    // What a version that does not know about the log reads
+    assertEquals(ImmutableMap.of("a", "1"),
+                 PersistentAtomicReference.create(file, TYPE, EMPTY).get());
+    assertEquals(0, Files.size(logFile));
+  }
+
+  @Test
+  public void testLogOfOtherSnapshotIsDiscarded() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1"));
+
+    // A version that does not know about the log writes the file, leaving the log behind
+    PersistentAtomicReference.create(file, TYPE, EMPTY).set(ImmutableMap.of("b", "2"));
+
+    assertEquals(ImmutableMap.of("b", "2"),
+                 PersistentAtomicReference.createLogged(file, TYPE, EMPTY).get());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnreadableRecordInTheMiddleFails() throws Exception {
+    final PersistentAtomicReference<Map<String, String>> ref =
+        PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+    ref.set(ImmutableMap.of("a", "1"));
+    ref.set(ImmutableMap.of("a", "2"));
+    ref.set(ImmutableMap.of("a", "3"));
+
+    final List<String> lines = Lists.newArrayList(Files.readAllLines(logFile, UTF_8));
+    lines.set(2, "{\"set\":");
+    Files.write(logFile, lines, UTF_8);
+
+    PersistentAtomicReference.createLogged(file, TYPE, EMPTY);
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon.coordination;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import com.spotify.helios.Polling;
+import com.spotify.helios.ZooKeeperTestManager;
+import com.spotify.helios.ZooKeeperTestingServerManager;
+import com.spotify.helios.servicescommon.NoOpRiemannClient;
+import com.spotify.helios.servicescommon.statistics.ZooKeeperMetrics;
+
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class CachingZooKeeperClientTest {
+
+  private static final String ROOT = "/foos";
+
+  private ZooKeeperTestManager zk;
+  private DefaultZooKeeperClient client;
+  private CachingZooKeeperClient cache;
+
+  @Before
+  public void setup() throws Exception {
+    zk = new ZooKeeperTestingServerManager();
+    zk.ensure(ROOT);
+    client = new DefaultZooKeeperClient(zk.curator());
+    cache = new CachingZooKeeperClient(client, ROOT);
+    cache.start();
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.isLive() ? true : null;
+      }
+    });
+  }
+
+  @After
+  public void teardown() throws Exception {
+    cache.close();
+    zk.close();
+  }
+
+  @Test
+  public void testReadsFollowWrites() throws Exception {
+    client.createAndSetData("/foos/foo", "bar".getBytes(UTF_8));
+    awaitData("/foos/foo", "bar");
+    assertEquals(ImmutableSet.of("foo"), ImmutableSet.copyOf(cache.getChildren(ROOT)));
+
+    client.setData("/foos/foo", "baz".getBytes(UTF_8));
+    awaitData("/foos/foo", "baz");
+
+    client.delete("/foos/foo");
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return cache.exists("/foos/foo") == null ? true : null;
+      }
+    });
+    try {
+      cache.getData("/foos/foo");
+      fail();
+    } catch (NoNodeException expected) {
+    }
+    assertEquals(0, cache.getChildren(ROOT).size());
+  }
+
+  @Test
+  public void testUncachedPathsReadThrough() throws Exception {
+    client.ensurePath("/bars");
+    client.createAndSetData("/bars/bar", "bar".getBytes(UTF_8));
+    assertArrayEquals("bar".getBytes(UTF_8), cache.getData("/bars/bar"));
+    assertNull(cache.exists("/bars/baz"));
+  }
+
+  @Test
+  public void testOnlyUncachedReadsAreReported() throws Exception {
+    client.createAndSetData("/foos/foo", "foo".getBytes(UTF_8));
+    client.ensurePath("/bars");
+    client.createAndSetData("/bars/bar", "bar".getBytes(UTF_8));
+    awaitData("/foos/foo", "foo");
+    final ZooKeeperMetrics metrics = mock(ZooKeeperMetrics.class);
+    final ZooKeeperClientProvider provider = new ZooKeeperClientProvider(
+        client, new ZooKeeperModelReporter(new NoOpRiemannClient().facade(), metrics), cache);
+
+    assertArrayEquals("foo".getBytes(UTF_8), provider.get("test").getData("/foos/foo"));
+    verify(metrics, never()).zookeeperOperation(anyString(), anyString(), anyLong());
+
+    assertArrayEquals("bar".getBytes(UTF_8), provider.get("test").getData("/bars/bar"));
+    verify(metrics).zookeeperOperation(eq("test"), eq("getData"), anyLong());
+  }
+
+  @Test
+  public void testBatchedReads() throws Exception {
+    client.createAndSetData("/foos/foo", "foo".getBytes(UTF_8));
+    client.ensurePath("/bars");
+    client.createAndSetData("/bars/bar", "bar".getBytes(UTF_8));
+    awaitData("/foos/foo", "foo");
+
+    final Map<String, byte[]> data = cache.getDataMany(
+        ImmutableList.of("/foos/foo", "/foos/missing", "/bars/bar", "/bars/missing"));
+    assertEquals(ImmutableSet.of("/foos/foo", "/bars/bar"), data.keySet());
+    assertArrayEquals("foo".getBytes(UTF_8), data.get("/foos/foo"));
+    assertArrayEquals("bar".getBytes(UTF_8), data.get("/bars/bar"));
+
+    final Map<String, Node> nodes = cache.getNodeMany(
+        ImmutableList.of("/foos/foo", "/foos/missing", "/bars/bar"));
+    assertEquals(ImmutableSet.of("/foos/foo", "/bars/bar"), nodes.keySet());
+    assertArrayEquals("foo".getBytes(UTF_8), nodes.get("/foos/foo").getBytes());
+    assertEquals(0, nodes.get("/bars/bar").getStat().getVersion());
+
+    final Map<String, List<String>> children = cache.getChildrenMany(
+        ImmutableList.of(ROOT, "/bars", "/bazs"));
+    assertEquals(ImmutableSet.of(ROOT, "/bars"), children.keySet());
+    assertEquals(ImmutableList.of("foo"), children.get(ROOT));
+    assertEquals(ImmutableList.of("bar"), children.get("/bars"));
+  }
+
+  private void awaitData(final String path, final String value) throws Exception {
+    Polling.await(1, MINUTES, new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        try {
+          return value.equals(new String(cache.getData(path), UTF_8)) ? true : null;
+        } catch (NoNodeException e) {
+          return null;
+        }
+      }
+    });
+  }
+}
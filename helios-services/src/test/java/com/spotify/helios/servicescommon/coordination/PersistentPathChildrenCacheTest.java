@@ -56,6 +56,8 @@ import static org.apache.zookeeper.KeeperException.NoNodeException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -151,7 +153,8 @@ public class PersistentPathChildrenCacheTest {
   public void verifyListenerCalledOnNodeAdd() throws Exception {
     final DataPojo created = new DataPojo("foo");
     ensure("/foos/foo", created);
-    verify(listener, timeout(60000).atLeastOnce()).nodesChanged(cache);
+    verify(listener, timeout(60000).atLeastOnce())
+        .nodesChanged(cache, ImmutableSet.of("/foos/foo"));
     final DataPojo read = Iterables.getOnlyElement(cache.getNodes().values());
     assertEquals(created, read);
   }
@@ -160,11 +163,13 @@ public class PersistentPathChildrenCacheTest {
   public void verifyListenerCalledOnNodeChange() throws Exception {
     final DataPojo created = new DataPojo("foo");
     ensure("/foos/foo", created);
-    verify(listener, timeout(60000).atLeastOnce()).nodesChanged(cache);
+    verify(listener, timeout(60000).atLeastOnce())
+        .nodesChanged(cache, ImmutableSet.of("/foos/foo"));
     reset(listener);
     final DataPojo changed = new DataPojo("foo-changed");
     zk.curator().setData().forPath("/foos/foo", Json.asBytesUnchecked(changed));
-    verify(listener, timeout(60000).atLeastOnce()).nodesChanged(cache);
+    verify(listener, timeout(60000).atLeastOnce())
+        .nodesChanged(cache, ImmutableSet.of("/foos/foo"));
     final DataPojo read = Iterables.getOnlyElement(cache.getNodes().values());
     assertEquals(changed, read);
   }
@@ -172,13 +177,15 @@ public class PersistentPathChildrenCacheTest {
   @Test
   public void verifyListenerCalledOnNodeRemoved() throws Exception {
     ensure("/foos/foo", new DataPojo("foo"));
-    verify(listener, timeout(60000).atLeastOnce()).nodesChanged(cache);
+    verify(listener, timeout(60000).atLeastOnce())
+        .nodesChanged(cache, ImmutableSet.of("/foos/foo"));
     reset(listener);
     try {
       zk.curator().delete().forPath("/foos/foo");
     } catch (NoNodeException ignore) {
     }
-    verify(listener, timeout(60000).atLeastOnce()).nodesChanged(cache);
+    verify(listener, timeout(60000).atLeastOnce())
+        .nodesChanged(cache, ImmutableSet.of("/foos/foo"));
     assertTrue(cache.getNodes().isEmpty());
   }
 
@@ -200,7 +207,7 @@ public class PersistentPathChildrenCacheTest {
       }
     });
 
-    verify(listener, atLeastOnce()).nodesChanged(cache);
+    verify(listener, atLeastOnce()).nodesChanged(eq(cache), anySetOf(String.class));
 
     // Take down zk
     zk.stop();
@@ -243,7 +250,7 @@ public class PersistentPathChildrenCacheTest {
       }
     });
 
-    verify(listener, atLeastOnce()).nodesChanged(cache);
+    verify(listener, atLeastOnce()).nodesChanged(eq(cache), anySetOf(String.class));
 
     // Stop the cache
     stopCache();
@@ -266,7 +273,7 @@ public class PersistentPathChildrenCacheTest {
       }
     });
 
-    verify(listener, atLeastOnce()).nodesChanged(cache);
+    verify(listener, atLeastOnce()).nodesChanged(cache, ImmutableSet.of(FOO1));
   }
 
   private void startCache() throws IOException, InterruptedException {
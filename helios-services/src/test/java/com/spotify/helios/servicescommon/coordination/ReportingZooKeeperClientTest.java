@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.spotify.helios.servicescommon.coordination;
+
+import com.google.common.collect.ImmutableMap;
+
+import com.codahale.metrics.MetricRegistry;
+import com.spotify.helios.servicescommon.NoOpRiemannClient;
+import com.spotify.helios.servicescommon.statistics.ZooKeeperMetricsImpl;
+
+import org.apache.zookeeper.KeeperException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportingZooKeeperClientTest {
+
+  private static final String PREFIX = "helios.zookeeper.test.";
+
+  private final ZooKeeperClient delegate = mock(ZooKeeperClient.class);
+  private final MetricRegistry registry = new MetricRegistry();
+
+  private ReportingZooKeeperClient client;
+
+  @Before
+  public void setUp() {
+    final ZooKeeperModelReporter reporter = new ZooKeeperModelReporter(
+        new NoOpRiemannClient().facade(), new ZooKeeperMetricsImpl("helios", registry));
+    client = new ReportingZooKeeperClient(delegate, reporter, "test");
+  }
+
+  @Test
+  public void testReportsReads() throws Exception {
+    when(delegate.getData("/foo")).thenReturn("foo".getBytes(UTF_8));
+
+    client.getData("/foo");
+    client.getData("/foo");
+
+    assertEquals(2, registry.timer(PREFIX + "getData.latency").getCount());
+    assertEquals(6, registry.meter(PREFIX + "getData.bytes_read").getCount());
+  }
+
+  @Test
+  public void testReportsTransactionPayload() throws Exception {
+    client.transaction(new SetData("/foo", "foo".getBytes(UTF_8)),
+                       new CreateMany(ImmutableMap.of("/bar", "bar!".getBytes(UTF_8))),
+                       new Check("/baz"));
+
+    assertEquals(1, registry.timer(PREFIX + "transaction.latency").getCount());
+    assertEquals(7, registry.meter(PREFIX + "transaction.bytes_written").getCount());
+  }
+
+  @Test
+  public void testTimesFailedOperations() throws Exception {
+    when(delegate.getData("/foo")).thenThrow(new KeeperException.ConnectionLossException());
+
+    try {
+      client.getData("/foo");
+      fail();
+    } catch (KeeperException.ConnectionLossException expected) {
+    }
+
+    assertEquals(1, registry.timer(PREFIX + "getData.latency").getCount());
+    assertEquals(0, registry.meter(PREFIX + "getData.bytes_read").getCount());
+    assertEquals(1, registry.counter("helios.zookeeper.transient_error_count").getCount());
+  }
+}
@@ -106,6 +106,34 @@ public class ZooKeeperUpdatingPersistentDirectoryTest {
     awaitNodeWithData(FOO_PATH, BAR1_DATA);
   }
 
+  @Test
+  public void verifyWritesManyNodes() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      sut.put("node-" + i, ("data-" + i).getBytes());
+    }
+    for (int i = 0; i < 100; i++) {
+      awaitNodeWithData(ZKPaths.makePath(PARENT_PATH, "node-" + i), ("data-" + i).getBytes());
+    }
+    for (int i = 0; i < 100; i++) {
+      sut.remove("node-" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      awaitNoNode(ZKPaths.makePath(PARENT_PATH, "node-" + i));
+    }
+  }
+
+  @Test
+  public void verifyOverwritesNodeChangedBehindItsBack() throws Exception {
+    sut.put(FOO_NODE, BAR1_DATA);
+    awaitNodeWithData(FOO_PATH, BAR1_DATA);
+
+    // Bumps the version of the node, so the next write of the directory conflicts
+    zk.curator().setData().forPath(FOO_PATH, "other".getBytes());
+
+    sut.put(FOO_NODE, BAR2_DATA);
+    awaitNodeWithData(FOO_PATH, BAR2_DATA);
+  }
+
   @Test
   public void verifyRemovesUndesiredNode() throws Exception {
     zk.ensure(FOO_PATH);
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.servicescommon.statistics;
+
+import com.google.common.collect.ImmutableSet;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MasterMetricsImplTest {
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private final MasterMetricsImpl metrics = new MasterMetricsImpl("helios", registry, 2);
+
+  @Test
+  public void testUserMetersAreCapped() {
+    metrics.requestStarted("jobs", "alice");
+    metrics.requestStarted("jobs", "bob");
+    metrics.requestStarted("jobs", "mallory1");
+    metrics.requestStarted("jobs", "mallory2");
+    metrics.requestStarted("jobs", "alice");
+
+    assertEquals(ImmutableSet.of("helios.master.user.alice_requests",
+                                 "helios.master.user.bob_requests",
+                                 "helios.master.user.other_requests"),
+                 registry.getMeters(new MetricFilter() {
+                   @Override
+                   public boolean matches(final String name, final Metric metric) {
+                     return name.startsWith("helios.master.user.");
+                   }
+                 }).keySet());
+    assertEquals(2, registry.meter("helios.master.user.alice_requests").getCount());
+    assertEquals(2, registry.meter("helios.master.user.other_requests").getCount());
+  }
+}
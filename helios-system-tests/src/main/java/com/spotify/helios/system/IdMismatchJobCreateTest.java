@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import static com.spotify.helios.common.descriptors.Job.EMPTY_ENV;
 import static com.spotify.helios.common.descriptors.Job.EMPTY_HEALTH_CHECK;
+import static com.spotify.helios.common.descriptors.Job.EMPTY_IMAGE_PULL_POLICY;
 import static com.spotify.helios.common.descriptors.Job.EMPTY_RESOURCES;
 import static com.spotify.helios.common.descriptors.Job.EMPTY_PORTS;
 import static com.spotify.helios.common.descriptors.Job.EMPTY_REGISTRATION;
@@ -54,7 +55,7 @@ public class IdMismatchJobCreateTest extends SystemTestBase {
                 EMPTY_ENV, EMPTY_RESOURCES, EMPTY_PORTS, EMPTY_REGISTRATION,
                 EMPTY_GRACE_PERIOD, EMPTY_VOLUMES, EMPTY_EXPIRES,
                 EMPTY_REGISTRATION_DOMAIN, EMPTY_CREATING_USER, EMPTY_TOKEN,
-                EMPTY_HEALTH_CHECK)).get();
+                EMPTY_HEALTH_CHECK, EMPTY_IMAGE_PULL_POLICY)).get();
 
     // TODO (dano): Maybe this should be ID_MISMATCH but then JobValidator must become able to
     // TODO (dano): communicate that
@@ -41,6 +41,7 @@ import com.spotify.helios.cli.command.JobStopCommand;
 import com.spotify.helios.cli.command.JobUndeployCommand;
 import com.spotify.helios.cli.command.JobWatchCommand;
 import com.spotify.helios.cli.command.MasterListCommand;
+import com.spotify.helios.cli.command.RollingUpdateCommand;
 import com.spotify.helios.cli.command.VersionCommand;
 import com.spotify.helios.common.LoggingConfig;
 import com.spotify.helios.common.Version;
@@ -204,6 +205,7 @@ public class CliParser {
     new JobListCommand(p("jobs"));
     new JobStatusCommand(p("status"));
     new JobWatchCommand(p("watch"));
+    new RollingUpdateCommand(p("rolling-update"));
 
     // Host commands
     new HostListCommand(p("hosts"));
@@ -300,6 +302,15 @@ public class CliParser {
           .action(storeTrue())
           .help("json output");
 
+      // Read by ControlCommand, which runs against several domains at a time
+      addArgument("--target-parallelism")
+          .type(Integer.class)
+          .help("how many domains to run a command against at the same time, default 8");
+
+      addArgument("--target-timeout")
+          .type(Integer.class)
+          .help("seconds to wait for each domain before skipping it, default no limit");
+
       noLogSetup = addArgument("--no-log-setup")
           .action(storeTrue())
           .help(SUPPRESS);
@@ -22,6 +22,8 @@
 package com.spotify.helios.cli.command;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import com.spotify.helios.cli.Target;
 import com.spotify.helios.cli.Utils;
@@ -31,22 +33,43 @@ import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Strings.repeat;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public abstract class ControlCommand implements CliCommand {
 
   public static final int BATCH_SIZE = 10;
   public static final int QUEUE_SIZE = 1000;
 
+  /**
+   * How many targets commands are run against at the same time unless --target-parallelism is
+   * given.
+   */
+  static final int DEFAULT_TARGET_PARALLELISM = 8;
+
+  /**
+   * How often to check whether a target waiting for a free thread has started running.
+   */
+  private static final long QUEUED_POLL_MILLIS = 100;
+
   ControlCommand(final Subparser parser) {
 
     parser.setDefault("command", this).defaultHelp(true);
@@ -57,6 +80,11 @@ public abstract class ControlCommand implements CliCommand {
                  final PrintStream err, final String username, final boolean json,
                  final BufferedReader stdin)
       throws IOException, InterruptedException {
+    // Prompts can only be answered one target at a time
+    if (targets.size() > 1 && !isInteractive(options)) {
+      return runConcurrently(options, targets, out, err, username, json, stdin);
+    }
+
     boolean successful = true;
 
     boolean isFirst = true;
@@ -104,6 +132,126 @@ public abstract class ControlCommand implements CliCommand {
     return successful ? 0 : 1;
   }
 
+  /**
+   * Executes against every target at the same time, bounded by --target-parallelism, buffering
+   * the output of each. The output is then written in target order, so it reads the same as if
+   * the targets had been run one after another. A target that fails, or does not finish within
+   * --target-timeout seconds of starting, is reported on stderr and given up on, and the output
+   * of the others is still written.
+   */
+  private int runConcurrently(final Namespace options, final List<Target> targets,
+                              final PrintStream out, final PrintStream err,
+                              final String username, final boolean json,
+                              final BufferedReader stdin)
+      throws IOException, InterruptedException {
+    final Integer parallelism = options.getInt("target_parallelism");
+    final Integer timeout = options.getInt("target_timeout");
+    final long timeoutMillis = timeout == null ? 0 : SECONDS.toMillis(timeout);
+
+    final int threads = parallelism == null ? DEFAULT_TARGET_PARALLELISM : max(1, parallelism);
+    final ExecutorService executor = newTargetExecutor(min(targets.size(), threads));
+    try {
+      final List<TargetOutput> outputs = Lists.newArrayList();
+      final List<Future<TargetOutput>> futures = Lists.newArrayList();
+      for (final Target target : targets) {
+        final TargetOutput output = new TargetOutput();
+        outputs.add(output);
+        futures.add(executor.submit(new Callable<TargetOutput>() {
+          @Override
+          public TargetOutput call() throws Exception {
+            output.started = currentTimeMillis();
+            if (!json) {
+              final List<URI> endpoints = target.getEndpointSupplier().get();
+              output.header = format("%s (%s)", target.getName(), endpoints);
+            }
+            output.successful = run(options, target, output.out, output.err, username, json,
+                                    stdin);
+            return output;
+          }
+        }));
+      }
+
+      boolean successful = true;
+      if (json) {
+        out.println("{");
+      }
+      for (int i = 0; i < targets.size(); i++) {
+        final Target target = targets.get(i);
+        final TargetOutput output = await(target, futures.get(i), outputs.get(i), timeoutMillis,
+                                          err);
+        successful &= output != null && output.successful;
+
+        if (json) {
+          out.println("\"" + target.getName() + "\": ");
+          // Keep the document valid for targets that failed without output
+          if (output == null || output.outBytes.size() == 0) {
+            out.println("null");
+          } else {
+            output.outBytes.writeTo(out);
+          }
+          out.println(i < targets.size() - 1 ? ",\n" : "}");
+        } else {
+          // Failed targets get their header too, so it is clear what the error was about
+          final String header = outputs.get(i).header;
+          out.println(header == null ? target.getName() : header);
+          out.println(repeat("-", header == null ? target.getName().length() : header.length()));
+          if (output != null) {
+            output.outBytes.writeTo(out);
+          }
+          out.println();
+        }
+        if (output != null) {
+          output.errBytes.writeTo(err);
+        }
+        out.flush();
+      }
+      return successful ? 0 : 1;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  static ExecutorService newTargetExecutor(final int threads) {
+    return newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("helios-cli-target-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Waits for the output of a target until {@code timeoutMillis} after it started running, or
+   * forever if it is 0. A target still queued behind others has not started its clock yet.
+   *
+   * @return The output, or null if the target failed or timed out, which is reported on
+   *         {@code err}.
+   */
+  private static TargetOutput await(final Target target, final Future<TargetOutput> future,
+                                    final TargetOutput output, final long timeoutMillis,
+                                    final PrintStream err)
+      throws InterruptedException {
+    try {
+      if (timeoutMillis == 0) {
+        return future.get();
+      }
+      while (output.started == 0) {
+        try {
+          return future.get(QUEUED_POLL_MILLIS, MILLISECONDS);
+        } catch (TimeoutException ignore) {
+          // Check again whether it has started
+        }
+      }
+      return future.get(max(0, output.started + timeoutMillis - currentTimeMillis()),
+                        MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      err.println("Timed out waiting for " + target);
+      return null;
+    } catch (ExecutionException e) {
+      err.println("Failed to run against " + target + ": " + e.getCause());
+      return null;
+    }
+  }
+
   /**
    * Execute against a cluster at a specific endpoint
    * @param stdin TODO
@@ -113,7 +261,7 @@ public abstract class ControlCommand implements CliCommand {
                       final BufferedReader stdin)
       throws InterruptedException, IOException {
 
-    final HeliosClient client = Utils.getClient(target, err, username);
+    final HeliosClient client = getClient(target, err, username);
     if (client == null) {
       return false;
     }
@@ -137,7 +285,34 @@ public abstract class ControlCommand implements CliCommand {
     }
   }
 
+  /**
+   * Returns a client for {@code target}, or null if its masters cannot be resolved, in which case
+   * the reason has been printed on {@code err}.
+   */
+  HeliosClient getClient(final Target target, final PrintStream err, final String username) {
+    return Utils.getClient(target, err, username);
+  }
+
   abstract int run(final Namespace options, final HeliosClient client, PrintStream out,
                    final boolean json, BufferedReader stdin)
       throws ExecutionException, InterruptedException, IOException;
+
+  /**
+   * Returns true if the command will prompt on stdin when run with {@code options}, in which
+   * case it is run against one target at a time.
+   */
+  boolean isInteractive(final Namespace options) {
+    return false;
+  }
+
+  private static class TargetOutput {
+
+    private final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(outBytes);
+    private final PrintStream err = new PrintStream(errBytes);
+    private volatile long started;
+    private volatile String header;
+    private boolean successful;
+  }
 }
@@ -111,4 +111,9 @@ public class HostDeregisterCommand extends ControlCommand {
     }
     return code;
   }
+
+  @Override
+  boolean isInteractive(final Namespace options) {
+    return !options.getBoolean(yesArg.getDest()) && !options.getBoolean(forceArg.getDest());
+  }
 }
@@ -63,6 +63,11 @@ import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
 
 public class HostListCommand extends ControlCommand {
 
+  // The table only needs the state of each task, so leave out the bulky parts of the statuses
+  private static final String TABLE_FIELDS = "-environment,-statuses.*.env,-statuses.*.ports,"
+                                             + "-statuses.*.job.env,-statuses.*.job.volumes,"
+                                             + "-statuses.*.job.command";
+
   private final Argument quietArg;
   private final Argument patternArg;
   private final Argument fullArg;
@@ -120,7 +125,8 @@ public class HostListCommand extends ControlCommand {
     } else {
       final Map<String, ListenableFuture<HostStatus>> statuses = Maps.newTreeMap();
       try {
-        final Map<String, HostStatus> hostStatuses = client.hostStatuses(hosts).get();
+        final Map<String, HostStatus> hostStatuses =
+            client.hostStatuses(hosts, json ? "" : TABLE_FIELDS).get();
         for (final Entry<String, HostStatus> entry : hostStatuses.entrySet()) {
           statuses.put(entry.getKey(), Futures.immediateFuture(entry.getValue()));
         }
@@ -27,14 +27,13 @@ import com.google.common.collect.Maps;
 import com.spotify.helios.client.HeliosClient;
 import com.spotify.helios.common.JobValidator;
 import com.spotify.helios.common.Json;
-import com.spotify.helios.common.descriptors.ExecHealthCheck;
-import com.spotify.helios.common.descriptors.HttpHealthCheck;
+import com.spotify.helios.common.descriptors.HealthCheck;
+import com.spotify.helios.common.descriptors.ImagePullPolicy;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.PortMapping;
 import com.spotify.helios.common.descriptors.ServiceEndpoint;
 import com.spotify.helios.common.descriptors.ServicePorts;
-import com.spotify.helios.common.descriptors.TcpHealthCheck;
 import com.spotify.helios.common.protocol.CreateJobResponse;
 
 import net.sourceforge.argparse4j.inf.Argument;
@@ -84,11 +83,14 @@ public class JobCreateCommand extends ControlCommand {
   private final Argument registrationArg;
   private final Argument registrationDomainArg;
   private final Argument gracePeriodArg;
+  private final Argument imagePullPolicyArg;
   private final Argument volumeArg;
   private final Argument expiresArg;
   private final Argument healthCheckExecArg;
   private final Argument healthCheckHttpArg;
   private final Argument healthCheckTcpArg;
+  private final Argument healthCheckTimeoutArg;
+  private final Argument healthCheckIntervalArg;
 
   public JobCreateCommand(final Subparser parser) {
     super(parser);
@@ -161,6 +163,13 @@ public class JobCreateCommand extends ControlCommand {
         .help("if --grace-period is specified, Helios will unregister from service discovery and " +
               "wait the specified number of seconds before undeploying, default 0 seconds");
 
+    imagePullPolicyArg = parser.addArgument("--image-pull-policy")
+        .type(ImagePullPolicy.class)
+        .help("When the agent pulls the image before starting a container. ALWAYS pulls every " +
+              "time, IF_NOT_PRESENT only if the image is not on the agent, and DIGEST_PINNED " +
+              "only if the image is not on the agent and is referenced by digest. " +
+              "Default DIGEST_PINNED.");
+
     volumeArg = parser.addArgument("--volume")
         .action(append())
         .setDefault(new ArrayList<String>())
@@ -191,6 +200,16 @@ public class JobCreateCommand extends ControlCommand {
     healthCheckTcpArg = parser.addArgument("--tcp-check")
         .help("Run TCP health check against the provided port name. The service will not be " +
               "registered in service discovery until the container passes the TCP health check.");
+
+    healthCheckTimeoutArg = parser.addArgument("--health-check-timeout")
+        .type(Integer.class)
+        .help("The number of seconds a single health check may take before it is considered " +
+              "failed.");
+
+    healthCheckIntervalArg = parser.addArgument("--health-check-interval")
+        .type(Integer.class)
+        .help("The maximum number of seconds to wait between failed health checks. Checks back " +
+              "off exponentially from one second up to this interval.");
   }
 
   @Override
@@ -379,6 +398,12 @@ public class JobCreateCommand extends ControlCommand {
       builder.setGracePeriod(gracePeriod);
     }
 
+    final ImagePullPolicy imagePullPolicy =
+        (ImagePullPolicy) options.get(imagePullPolicyArg.getDest());
+    if (imagePullPolicy != null) {
+      builder.setImagePullPolicy(imagePullPolicy);
+    }
+
     // Parse volumes
     final List<String> volumeSpecs = options.getList(volumeArg.getDest());
     for (final String spec : volumeSpecs) {
@@ -427,17 +452,33 @@ public class JobCreateCommand extends ControlCommand {
       throw new IllegalArgumentException("Only one health check may be specified.");
     }
 
+    final Integer healthCheckTimeout = options.getInt(healthCheckTimeoutArg.getDest());
+    final Integer healthCheckInterval = options.getInt(healthCheckIntervalArg.getDest());
+
     if (execHealthCheck != null && !execHealthCheck.isEmpty()) {
-      builder.setHealthCheck(ExecHealthCheck.of(execHealthCheck));
+      builder.setHealthCheck(HealthCheck.newExecHealthCheck()
+                                 .setCommand(execHealthCheck)
+                                 .setTimeout(healthCheckTimeout)
+                                 .setInterval(healthCheckInterval)
+                                 .build());
     } else if (!isNullOrEmpty(httpHealthCheck)) {
       final String[] parts = httpHealthCheck.split(":", 2);
       if (parts.length != 2) {
         throw new IllegalArgumentException("Invalid HTTP health check: " + httpHealthCheck);
       }
 
-      builder.setHealthCheck(HttpHealthCheck.of(parts[0], parts[1]));
+      builder.setHealthCheck(HealthCheck.newHttpHealthCheck()
+                                 .setPort(parts[0])
+                                 .setPath(parts[1])
+                                 .setTimeout(healthCheckTimeout)
+                                 .setInterval(healthCheckInterval)
+                                 .build());
     } else if (!isNullOrEmpty(tcpHealthCheck)) {
-      builder.setHealthCheck(TcpHealthCheck.of(tcpHealthCheck));
+      builder.setHealthCheck(HealthCheck.newTcpHealthCheck()
+                                 .setPort(tcpHealthCheck)
+                                 .setTimeout(healthCheckTimeout)
+                                 .setInterval(healthCheckInterval)
+                                 .build());
     }
 
     builder.setToken(options.getString(tokenArg.getDest()));
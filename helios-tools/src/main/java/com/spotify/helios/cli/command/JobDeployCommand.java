@@ -36,6 +36,7 @@ import net.sourceforge.argparse4j.inf.Subparser;
 import java.io.BufferedReader;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static com.spotify.helios.common.descriptors.Goal.START;
@@ -96,13 +97,21 @@ public class JobDeployCommand extends WildcardJobCommand {
 
     final List<String> resolvedHosts = Lists.newArrayList();
     for (final String candidateHost : hosts) {
-      final String host = resolver.resolveName(candidateHost);
-      resolvedHosts.add(host);
+      resolvedHosts.add(resolver.resolveName(candidateHost));
+    }
+
+    // Deploy to all hosts in one request, or one at a time if the master does not support that
+    final String token = options.getString(tokenArg.getDest());
+    final Map<String, JobDeployResponse> results =
+        client.deploy(jobId, resolvedHosts, job.getGoal(), token).get();
+
+    for (final String host : resolvedHosts) {
       if (!json) {
         out.printf("%s: ", host);
       }
-      final String token = options.getString(tokenArg.getDest());
-      final JobDeployResponse result = client.deploy(job, host, token).get();
+      final JobDeployResponse result = results != null
+                                       ? results.get(host)
+                                       : client.deploy(job, host, token).get();
       if (result.getStatus() == JobDeployResponse.Status.OK) {
         if (!json) {
           out.printf("done%n");
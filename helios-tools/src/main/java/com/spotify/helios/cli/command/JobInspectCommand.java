@@ -33,6 +33,7 @@ import com.spotify.helios.common.Json;
 import com.spotify.helios.common.descriptors.ExecHealthCheck;
 import com.spotify.helios.common.descriptors.HealthCheck;
 import com.spotify.helios.common.descriptors.HttpHealthCheck;
+import com.spotify.helios.common.descriptors.ImagePullPolicy;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.PortMapping;
@@ -49,6 +50,7 @@ import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static com.google.common.base.CharMatcher.WHITESPACE;
+import static com.google.common.base.Objects.firstNonNull;
 
 public class JobInspectCommand extends WildcardJobCommand {
 
@@ -97,6 +99,12 @@ public class JobInspectCommand extends WildcardJobCommand {
     } else if (healthCheck instanceof ExecHealthCheck) {
       s += "Not implemented yet.";
     }
+    if (healthCheck.getTimeout() != null) {
+      s += String.format(", timeout: %ss", healthCheck.getTimeout());
+    }
+    if (healthCheck.getInterval() != null) {
+      s += String.format(", interval: %ss", healthCheck.getInterval());
+    }
     return s;
   }
 
@@ -125,6 +133,9 @@ public class JobInspectCommand extends WildcardJobCommand {
     } else {
       out.printf("Id: %s%n", job.getId());
       out.printf("Image: %s%n", job.getImage());
+      // Jobs created without a policy are pulled as if they had the default one
+      out.printf("Image pull policy: %s%n",
+                 firstNonNull(job.getImagePullPolicy(), ImagePullPolicy.DIGEST_PINNED));
       out.printf("Command: %s%n", quote(job.getCommand()));
       printMap(out, "Env:   ", QUOTE, job.getEnv());
       out.printf("Health check: %s%n", formatHealthCheck(job.getHealthCheck()));
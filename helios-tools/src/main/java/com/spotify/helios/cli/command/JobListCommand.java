@@ -49,11 +49,15 @@ import java.util.concurrent.ExecutionException;
 
 import static com.google.common.base.CharMatcher.WHITESPACE;
 import static com.google.common.base.Joiner.on;
+import static com.google.common.base.Strings.nullToEmpty;
 import static com.spotify.helios.cli.Output.table;
 import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
 
 public class JobListCommand extends ControlCommand {
 
+  private static final String QUIET_FIELDS = "id";
+  private static final String TABLE_FIELDS = "id,command,env";
+
   private final Argument quietArg;
   private final Argument patternArg;
   private final Argument fullArg;
@@ -90,12 +94,16 @@ public class JobListCommand extends ControlCommand {
     final String pattern = options.getString(patternArg.getDest());
     final boolean deployed = options.getBoolean(deployedArg.getDest());
 
-    final Map<JobId, Job> jobs;
-    if (pattern == null) {
-      jobs = client.jobs().get();
+    // Only fetch the fields we print, unless we're printing the full job definitions
+    final String fields;
+    if (json && !quiet) {
+      fields = "";
+    } else if (quiet) {
+      fields = QUIET_FIELDS;
     } else {
-      jobs = client.jobs(pattern).get();
+      fields = TABLE_FIELDS;
     }
+    final Map<JobId, Job> jobs = client.jobs(nullToEmpty(pattern), "", 0, fields).get();
 
     if (!Strings.isNullOrEmpty(pattern) && jobs.isEmpty()) {
       if (json) {
@@ -115,4 +115,9 @@ public class JobRemoveCommand extends WildcardJobCommand {
     }
     return code;
   }
+
+  @Override
+  boolean isInteractive(final Namespace options) {
+    return !options.getBoolean(yesArg.getDest()) && !options.getBoolean(forceArg.getDest());
+  }
 }
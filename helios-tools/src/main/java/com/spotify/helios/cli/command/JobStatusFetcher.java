@@ -38,9 +38,19 @@ public class JobStatusFetcher {
 
   public static Map<JobId, ListenableFuture<JobStatus>> getJobsStatuses(HeliosClient client,
       Set<JobId> jobIds) throws InterruptedException {
+    return getJobsStatuses(client, jobIds, client.jobStatuses(jobIds));
+  }
+
+  /**
+   * Like {@link #getJobsStatuses(HeliosClient, Set)}, for a batch fetch that has already been
+   * started, so that the statuses can be fetched from several masters at the same time.
+   */
+  static Map<JobId, ListenableFuture<JobStatus>> getJobsStatuses(
+      final HeliosClient client, final Set<JobId> jobIds,
+      final ListenableFuture<Map<JobId, JobStatus>> batch) throws InterruptedException {
     final Map<JobId, ListenableFuture<JobStatus>> futures = Maps.newTreeMap();
     try {
-      final Map<JobId, JobStatus> statuses = client.jobStatuses(jobIds).get();
+      final Map<JobId, JobStatus> statuses = batch.get();
       for (final Entry<JobId, JobStatus> entry : statuses.entrySet()) {
         futures.put(entry.getKey(), Futures.immediateFuture(entry.getValue()));
       }
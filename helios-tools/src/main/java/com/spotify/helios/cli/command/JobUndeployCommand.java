@@ -22,6 +22,7 @@
 package com.spotify.helios.cli.command;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 import com.spotify.helios.cli.Utils;
 import com.spotify.helios.client.HeliosClient;
@@ -40,6 +41,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
@@ -128,15 +130,24 @@ public class JobUndeployCommand extends WildcardJobCommand {
     int code = 0;
     final HostResolver resolver = HostResolver.create(client);
 
+    final List<String> resolvedHosts = Lists.newArrayList();
     for (final String candidateHost : hosts) {
-      final String host = resolver.resolveName(candidateHost);
+      resolvedHosts.add(resolver.resolveName(candidateHost));
+    }
+
+    // Undeploy from all hosts in one request, or one at a time if the master does not support that
+    final String token = options.getString(tokenArg.getDest());
+    final Map<String, JobUndeployResponse> responses =
+        client.undeploy(jobId, resolvedHosts, token).get();
 
+    for (final String host : resolvedHosts) {
       if (!json) {
         out.printf("%s: ", host);
       }
 
-      final String token = options.getString(tokenArg.getDest());
-      final JobUndeployResponse response = client.undeploy(jobId, host, token).get();
+      final JobUndeployResponse response = responses != null
+                                           ? responses.get(host)
+                                           : client.undeploy(jobId, host, token).get();
       if (response.getStatus() == JobUndeployResponse.Status.OK) {
         if (!json) {
           out.println("done");
@@ -155,4 +166,9 @@ public class JobUndeployCommand extends WildcardJobCommand {
 
     return code;
   }
+
+  @Override
+  boolean isInteractive(final Namespace options) {
+    return !options.getBoolean(yesArg.getDest()) && !options.getBoolean(forceArg.getDest());
+  }
 }
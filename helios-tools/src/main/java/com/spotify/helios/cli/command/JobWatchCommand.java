@@ -30,10 +30,13 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import com.spotify.helios.cli.Target;
 import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.client.StatusEventSubscription;
 import com.spotify.helios.common.descriptors.Job;
 import com.spotify.helios.common.descriptors.JobId;
 import com.spotify.helios.common.descriptors.JobStatus;
 import com.spotify.helios.common.descriptors.TaskStatus;
+import com.spotify.helios.common.protocol.StatusEvent;
+import com.spotify.helios.common.protocol.StatusEvents;
 
 import net.sourceforge.argparse4j.inf.Argument;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -47,14 +50,23 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
 
-import static com.spotify.helios.cli.Utils.allAsMap;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static com.spotify.helios.cli.command.JobStatusFetcher.getJobsStatuses;
+import static java.lang.Math.max;
 import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
 
 public class JobWatchCommand extends MultiTargetControlCommand {
@@ -74,7 +86,8 @@ public class JobWatchCommand extends MultiTargetControlCommand {
     intervalArg = parser.addArgument("--interval")
         .type(Integer.class)
         .setDefault(1)
-        .help("polling interval, default 1 second");
+        .help("polling interval if the master does not support change events, "
+              + "default 1 second");
 
     prefixesArg = parser.addArgument("hosts")
         .nargs("*")
@@ -104,7 +117,7 @@ public class JobWatchCommand extends MultiTargetControlCommand {
     }
 
     watchJobsOnHosts(out, exact, prefixes, jobIds, options.getInt(intervalArg.getDest()),
-        clients);
+        options.getInt("target_timeout"), clients);
     return 0;
   }
 
@@ -114,14 +127,27 @@ public class JobWatchCommand extends MultiTargetControlCommand {
                                       final List<String> resolvedHosts, final List<JobId> jobIds,
                                       final Integer interval, final HeliosClient client)
                                           throws InterruptedException, ExecutionException {
-    watchJobsOnHosts(out, exact, resolvedHosts, Sets.newHashSet(jobIds), interval,
+    watchJobsOnHosts(out, exact, resolvedHosts, Sets.newHashSet(jobIds), interval, null,
         ImmutableList.of(new TargetAndClient(client)));
   }
 
+  /**
+   * @param timeout The seconds to wait for each master on every refresh before skipping it, or
+   *                null to wait for as long as it takes.
+   */
   static void watchJobsOnHosts(final PrintStream out, final boolean exact,
                                final List<String> prefixes, final Set<JobId> jobIds,
-                               final int interval, final List<TargetAndClient> clients)
+                               final int interval, final Integer timeout,
+                               final List<TargetAndClient> clients)
       throws InterruptedException, ExecutionException {
+    // Follow the change feeds of the masters so that we only fetch statuses when they change
+    final List<StatusEventSubscription> subscriptions = Lists.newArrayList();
+    for (final TargetAndClient cc : clients) {
+      subscriptions.add(cc.getClient().subscribe());
+    }
+    final ChangeFollower changes = new ChangeFollower(subscriptions, prefixes, jobIds, timeout);
+    changes.await();
+
     out.println("Control-C to stop");
     out.println("JOB                  HOST                           STATE    THROTTLED?");
     final DateTimeFormatter formatter = DateTimeFormat.forPattern("YYYY-MM-dd HH:mm:ss");
@@ -130,7 +156,14 @@ public class JobWatchCommand extends MultiTargetControlCommand {
       final Instant now = new Instant();
       out.printf("-------------------- ------------------------------ -------- "
           + "---------- [%s UTC]%n", now.toString(formatter));
-      for (TargetAndClient cc : clients) {
+      // Fetch from every master at the same time, then show the reports in order
+      final List<ListenableFuture<Map<JobId, JobStatus>>> batches = Lists.newArrayList();
+      for (final TargetAndClient cc : clients) {
+        batches.add(cc.getClient().jobStatuses(jobIds));
+      }
+      final long deadline = timeout == null ? 0 : currentTimeMillis() + SECONDS.toMillis(timeout);
+      for (int i = 0; i < clients.size(); i++) {
+        final TargetAndClient cc = clients.get(i);
         final Optional<Target> target = cc.getTarget();
         if (clients.size() > 1) {
           final String header;
@@ -142,20 +175,193 @@ public class JobWatchCommand extends MultiTargetControlCommand {
           }
           out.printf("---%s%n", header);
         }
-        showReport(out, exact, prefixes, jobIds, formatter, cc.getClient());
+        final Map<JobId, JobStatus> statuses =
+            fetchStatuses(cc.getClient(), jobIds, batches.get(i), deadline);
+        if (statuses == null) {
+          out.printf("Timed out waiting for %s%n",
+                     target.isPresent() ? target.get() : "the master");
+          continue;
+        }
+        showReport(out, exact, prefixes, jobIds, statuses);
       }
       if (out.checkError()) {
+        changes.close();
         break;
       }
-      Thread.sleep(1000 * interval);
+      if (!changes.await()) {
+        Thread.sleep(1000 * interval);
+      }
     }
   }
 
-  private static void showReport(PrintStream out, boolean exact, final List<String> prefixes,
-      final Set<JobId> jobIds, final DateTimeFormatter formatter, final HeliosClient client)
+  /**
+   * Follows the change feeds of several masters at once, so that a change on one master is seen
+   * without first waiting for the long-polls of all the others.
+   */
+  private static class ChangeFollower {
+
+    // A master answers a long-poll within this long even if nothing changed
+    private static final long POLL_MILLIS = SECONDS.toMillis(10);
+
+    private final List<StatusEventSubscription> subscriptions;
+    private final List<String> prefixes;
+    private final Set<JobId> jobIds;
+    private final Integer timeout;
+    private final Map<StatusEventSubscription, ListenableFuture<StatusEvents>> polls =
+        Maps.newHashMap();
+    private final Map<StatusEventSubscription, Long> deadlines = Maps.newHashMap();
+    private final BlockingQueue<StatusEventSubscription> answered = new LinkedBlockingQueue<>();
+    private boolean supported = true;
+
+    /**
+     * @param timeout The seconds a master may take to answer a long-poll on top of its usual
+     *                wait, or null to wait for as long as it takes.
+     */
+    ChangeFollower(final List<StatusEventSubscription> subscriptions,
+                   final List<String> prefixes, final Set<JobId> jobIds, final Integer timeout) {
+      this.subscriptions = subscriptions;
+      this.prefixes = prefixes;
+      this.jobIds = jobIds;
+      this.timeout = timeout;
+    }
+
+    /**
+     * Waits until a watched job changes on a watched host, until some master asks us to read
+     * the statuses again, or until some master does not answer in time. The polls of the other
+     * masters carry on into the next call.
+     *
+     * @return false if a master does not support the change feed or failed to answer, in which
+     *         case we poll instead.
+     */
+    boolean await() throws InterruptedException {
+      if (!supported) {
+        return false;
+      }
+      while (true) {
+        for (final StatusEventSubscription subscription : subscriptions) {
+          if (!polls.containsKey(subscription)) {
+            final ListenableFuture<StatusEvents> poll = subscription.next();
+            polls.put(subscription, poll);
+            // Each master gets its own deadline, counted from when its poll was sent
+            deadlines.put(subscription, timeout == null
+                                        ? Long.MAX_VALUE
+                                        : currentTimeMillis() + POLL_MILLIS +
+                                          SECONDS.toMillis(timeout));
+            poll.addListener(new Runnable() {
+              @Override
+              public void run() {
+                answered.add(subscription);
+              }
+            }, sameThreadExecutor());
+          }
+        }
+
+        final StatusEventSubscription subscription;
+        final long deadline = Collections.min(deadlines.values());
+        if (deadline == Long.MAX_VALUE) {
+          subscription = answered.take();
+        } else {
+          subscription = answered.poll(max(0, deadline - currentTimeMillis()), MILLISECONDS);
+          if (subscription == null) {
+            // Read the statuses, which reports the masters that do not answer
+            cancelBefore(deadline);
+            return true;
+          }
+        }
+
+        // Skip the answers of polls that were cancelled
+        final ListenableFuture<StatusEvents> poll = polls.get(subscription);
+        if (poll == null || !poll.isDone()) {
+          continue;
+        }
+        polls.remove(subscription);
+        deadlines.remove(subscription);
+        final StatusEvents events;
+        try {
+          events = poll.get();
+        } catch (ExecutionException e) {
+          return false;
+        }
+        if (events == null) {
+          supported = false;
+          close();
+          return false;
+        }
+        if (changed(events)) {
+          return true;
+        }
+      }
+    }
+
+    void close() {
+      cancelBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * Cancels the polls whose deadline is not after {@code deadline}.
+     */
+    private void cancelBefore(final long deadline) {
+      for (final StatusEventSubscription subscription : ImmutableList.copyOf(polls.keySet())) {
+        if (deadlines.get(subscription) <= deadline) {
+          polls.remove(subscription).cancel(true);
+          deadlines.remove(subscription);
+        }
+      }
+    }
+
+    private boolean changed(final StatusEvents events) {
+      if (events.isReset()) {
+        return true;
+      }
+      for (final StatusEvent event : events.getEvents()) {
+        if (event.getType() != StatusEvent.Type.HOST_STATUS &&
+            jobIds.contains(event.getJobId()) && hostMatches(prefixes, event.getHost())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Fetches the statuses of the jobs from one master, whose batch fetch has already been started,
+   * giving up at {@code deadline} unless it is 0.
+   *
+   * @return The statuses, or null if the master did not answer in time.
+   */
+  private static Map<JobId, JobStatus> fetchStatuses(
+      final HeliosClient client, final Set<JobId> jobIds,
+      final ListenableFuture<Map<JobId, JobStatus>> batch, final long deadline)
       throws ExecutionException, InterruptedException {
-    final Map<JobId, JobStatus> statuses = getStatuses(client, jobIds);
+    final Map<JobId, JobStatus> statuses = Maps.newTreeMap();
+    try {
+      try {
+        get(batch, deadline);
+      } catch (ExecutionException ignored) {
+        // The statuses are then fetched one job at a time below
+      }
+      final Map<JobId, ListenableFuture<JobStatus>> fetch =
+          getJobsStatuses(client, jobIds, batch);
+      for (final Map.Entry<JobId, ListenableFuture<JobStatus>> entry : fetch.entrySet()) {
+        statuses.put(entry.getKey(), get(entry.getValue(), deadline));
+      }
+    } catch (TimeoutException e) {
+      batch.cancel(true);
+      return null;
+    }
+    return statuses;
+  }
 
+  private static <T> T get(final Future<T> future, final long deadline)
+      throws ExecutionException, InterruptedException, TimeoutException {
+    if (deadline == 0) {
+      return future.get();
+    }
+    return future.get(max(0, deadline - currentTimeMillis()), MILLISECONDS);
+  }
+
+  private static void showReport(PrintStream out, boolean exact, final List<String> prefixes,
+      final Set<JobId> jobIds, final Map<JobId, JobStatus> statuses) {
     for (final JobId jobId : jobIds) {
       final JobStatus jobStatus = statuses.get(jobId);
       if (jobStatus == null) {
@@ -203,14 +409,4 @@ public class JobWatchCommand extends MultiTargetControlCommand {
     }
     return s.substring(0, len);
   }
-
-  private static Map<JobId, JobStatus> getStatuses(final HeliosClient client,
-                                                   final Set<JobId> jobIds)
-      throws ExecutionException, InterruptedException {
-    final Map<JobId, ListenableFuture<JobStatus>> futures = getJobsStatuses(client, jobIds);
-
-    final Map<JobId, JobStatus> statuses = Maps.newTreeMap();
-    statuses.putAll(allAsMap(futures));
-    return statuses;
-  }
 }
@@ -24,6 +24,7 @@ package com.spotify.helios.cli.command;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Lists;
 
 import com.spotify.helios.cli.Target;
 import com.spotify.helios.cli.Utils;
@@ -36,7 +37,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 public abstract class MultiTargetControlCommand implements CliCommand {
@@ -50,16 +54,45 @@ public abstract class MultiTargetControlCommand implements CliCommand {
                  final BufferedReader stdin)
                      throws IOException, InterruptedException {
 
+    // Resolve the masters of every target at the same time
+    final ExecutorService executor = ControlCommand.newTargetExecutor(targets.size());
+    final List<Future<HeliosClient>> futures = Lists.newArrayList();
+    try {
+      for (final Target target : targets) {
+        futures.add(executor.submit(new Callable<HeliosClient>() {
+          @Override
+          public HeliosClient call() {
+            return Utils.getClient(target, err, username);
+          }
+        }));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
     final Builder<TargetAndClient> clientBuilder = ImmutableList.<TargetAndClient>builder();
-    for (final Target target : targets) {
-      final HeliosClient client = Utils.getClient(target, err, username);
+    boolean resolved = true;
+    for (int i = 0; i < targets.size(); i++) {
+      final HeliosClient client;
+      try {
+        client = futures.get(i).get();
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
       if (client == null) {
-        return 1;
+        resolved = false;
+      } else {
+        clientBuilder.add(new TargetAndClient(targets.get(i), client));
       }
-      clientBuilder.add(new TargetAndClient(target, client));
     }
 
     final List<TargetAndClient> clients = clientBuilder.build();
+    if (!resolved) {
+      for (TargetAndClient cc : clients) {
+        cc.getClient().close();
+      }
+      return 1;
+    }
 
     final int result;
     try {
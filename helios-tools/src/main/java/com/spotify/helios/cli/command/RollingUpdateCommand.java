@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.cli.command;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.descriptors.RollingUpdate.HostState;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.RollingUpdateResponse;
+
+import net.sourceforge.argparse4j.inf.Argument;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.BufferedReader;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.sourceforge.argparse4j.impl.Arguments.storeTrue;
+
+public class RollingUpdateCommand extends ControlCommand {
+
+  private final Argument oldJobArg;
+  private final Argument newJobArg;
+  private final Argument hostsArg;
+  private final Argument batchSizeArg;
+  private final Argument parallelismArg;
+  private final Argument healthWaitArg;
+  private final Argument tokenArg;
+  private final Argument asyncArg;
+  private final Argument intervalArg;
+
+  public RollingUpdateCommand(final Subparser parser) {
+    super(parser);
+
+    parser.help("replace a job with another on a set of hosts, a few hosts at a time");
+
+    oldJobArg = parser.addArgument("old-job")
+        .help("The job to replace.");
+
+    newJobArg = parser.addArgument("new-job")
+        .help("The job to replace it with.");
+
+    hostsArg = parser.addArgument("--hosts")
+        .nargs("+")
+        .help("The hosts to update, in order. Defaults to every host the old job is deployed to.");
+
+    batchSizeArg = parser.addArgument("--batch-size")
+        .type(Integer.class)
+        .setDefault(RollingUpdateRequest.DEFAULT_BATCH_SIZE)
+        .help("How many hosts to update at a time.");
+
+    parallelismArg = parser.addArgument("--parallelism")
+        .type(Integer.class)
+        .help("How many hosts may be waiting for the new job to come up at a time. "
+              + "Defaults to the batch size.");
+
+    healthWaitArg = parser.addArgument("--health-wait")
+        .type(Long.class)
+        .setDefault(RollingUpdateRequest.DEFAULT_HEALTH_WAIT_SECONDS)
+        .help("How many seconds to wait for the new job to come up on a host before stopping "
+              + "the rolling update.");
+
+    tokenArg = parser.addArgument("--token")
+        .nargs("?")
+        .setDefault("")
+        .help("Insecure access token");
+
+    asyncArg = parser.addArgument("--async")
+        .action(storeTrue())
+        .help("Return once the rolling update has started, instead of following it until it "
+              + "is done. The masters carry on with it either way.");
+
+    intervalArg = parser.addArgument("--interval")
+        .type(Integer.class)
+        .setDefault(1)
+        .help("How often to check on the rolling update, default 1 second");
+  }
+
+  @Override
+  int run(final Namespace options, final HeliosClient client, final PrintStream out,
+          final boolean json, final BufferedReader stdin)
+      throws ExecutionException, InterruptedException {
+    final JobId oldJob = resolveJob(options.getString(oldJobArg.getDest()), client, out, json);
+    if (oldJob == null) {
+      return 1;
+    }
+    final JobId newJob = resolveJob(options.getString(newJobArg.getDest()), client, out, json);
+    if (newJob == null) {
+      return 1;
+    }
+
+    final List<String> resolvedHosts = Lists.newArrayList();
+    final List<String> hosts = options.getList(hostsArg.getDest());
+    if (hosts != null) {
+      final HostResolver resolver = HostResolver.create(client);
+      for (final String candidateHost : hosts) {
+        resolvedHosts.add(resolver.resolveName(candidateHost));
+      }
+    }
+
+    final RollingUpdateRequest request = new RollingUpdateRequest(
+        oldJob, newJob, resolvedHosts,
+        options.getInt(batchSizeArg.getDest()),
+        options.getInt(parallelismArg.getDest()),
+        options.getLong(healthWaitArg.getDest()));
+    final RollingUpdateResponse response =
+        client.rollingUpdate(request, options.getString(tokenArg.getDest())).get();
+
+    if (response == null) {
+      if (!json) {
+        out.printf("The master does not support rolling updates%n");
+      }
+      return 1;
+    }
+    if (response.getStatus() != RollingUpdateResponse.Status.OK) {
+      if (!json) {
+        out.printf("Failed: %s%n", response);
+      } else {
+        out.printf(response.toJsonString());
+      }
+      return 1;
+    }
+    if (!json) {
+      out.printf("Rolling update %s: %s -> %s%n", response.getId(), oldJob, newJob);
+    }
+    if (options.getBoolean(asyncArg.getDest())) {
+      if (json) {
+        out.printf(response.toJsonString());
+      }
+      return 0;
+    }
+
+    // Follow the rolling update, printing each host as it moves along
+    final long interval = SECONDS.toMillis(options.getInt(intervalArg.getDest()));
+    final Map<String, HostState> reported = Maps.newHashMap();
+    while (true) {
+      final RollingUpdate update = client.rollingUpdate(response.getId()).get();
+      if (update == null) {
+        if (!json) {
+          out.printf("Rolling update %s has gone away%n", response.getId());
+        }
+        return 1;
+      }
+      if (!json) {
+        for (final String host : update.getHosts()) {
+          final HostState state = update.getHostState(host);
+          if (state != HostState.PENDING && state != reported.get(host)) {
+            out.printf("%s: %s%n", host, state);
+            reported.put(host, state);
+          }
+        }
+      }
+      if (update.getState() != RollingUpdate.State.RUNNING) {
+        if (!json) {
+          out.printf("%s%s%n", update.getState(),
+                     update.getError() == null ? "" : ": " + update.getError());
+        } else {
+          out.printf(update.toJsonString());
+        }
+        return update.getState() == RollingUpdate.State.DONE ? 0 : 1;
+      }
+      Thread.sleep(interval);
+    }
+  }
+
+  private static JobId resolveJob(final String jobIdString, final HeliosClient client,
+                                  final PrintStream out, final boolean json)
+      throws ExecutionException, InterruptedException {
+    final Map<JobId, Job> jobs = client.jobs(jobIdString).get();
+    if (jobs.size() == 1) {
+      return Iterables.getOnlyElement(jobs.keySet());
+    }
+    final RollingUpdateResponse.Status status = jobs.isEmpty()
+                                                ? RollingUpdateResponse.Status.JOB_NOT_FOUND
+                                                : RollingUpdateResponse.Status.INVALID_ID;
+    if (!json) {
+      out.printf("%s job reference: %s%n", jobs.isEmpty() ? "Unknown" : "Ambiguous",
+                 jobIdString);
+    } else {
+      out.printf(new RollingUpdateResponse(status, null).toJsonString());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.cli.command;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.spotify.helios.cli.Target;
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.Json;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ControlCommandTest {
+
+  private static final Target A = Target.from(URI.create("http://a:5801"));
+  private static final Target B = Target.from(URI.create("http://b:5801"));
+  private static final Target C = Target.from(URI.create("http://c:5801"));
+  private static final Target D = Target.from(URI.create("http://d:5801"));
+
+  private final ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(outBytes);
+  private final PrintStream err = new PrintStream(errBytes);
+
+  @Test
+  public void testOutputIsInTargetOrder() throws Exception {
+    // Each target waits for the one after it, so they finish in reverse order
+    final CountDownLatch aDone = new CountDownLatch(1);
+    final CountDownLatch bDone = new CountDownLatch(1);
+    final CountDownLatch cDone = new CountDownLatch(1);
+    final FakeCommand command = new FakeCommand(false, ImmutableMap.of(
+        A, after(bDone, aDone),
+        B, after(cDone, bDone),
+        C, after(new CountDownLatch(0), cDone)));
+
+    final int ret = command.run(options(), ImmutableList.of(A, B, C), out, err, "user", false,
+                                null);
+
+    assertEquals(0, ret);
+    assertEquals(section(A) + section(B) + section(C), outBytes.toString());
+    assertEquals("", errBytes.toString());
+  }
+
+  @Test(timeout = 30000)
+  public void testFailingAndSlowTargetsAreSkipped() throws Exception {
+    final FakeCommand command = new FakeCommand(false, ImmutableMap.of(
+        A, succeed(),
+        B, fail(),
+        C, hang(),
+        D, succeed()));
+
+    final int ret = command.run(options("target_timeout", 1), ImmutableList.of(A, B, C, D),
+                                out, err, "user", true, null);
+
+    assertEquals(1, ret);
+    final Map<String, Object> output =
+        Json.read(outBytes.toString(), new TypeReference<Map<String, Object>>() {});
+    assertEquals(ImmutableList.of(A.getName(), B.getName(), C.getName(), D.getName()),
+                 ImmutableList.copyOf(output.keySet()));
+    assertEquals(A.getName(), output.get(A.getName()));
+    assertNull(output.get(B.getName()));
+    assertNull(output.get(C.getName()));
+    assertEquals(D.getName(), output.get(D.getName()));
+    assertThat(errBytes.toString(), containsString("Failed to run against " + B));
+    assertThat(errBytes.toString(), containsString("Timed out waiting for " + C));
+  }
+
+  @Test(timeout = 30000)
+  public void testTimeoutStartsWhenTargetStarts() throws Exception {
+    // Run one at a time, B only starts after A has used up most of the timeout
+    final FakeCommand command = new FakeCommand(false, ImmutableMap.of(
+        A, sleep(700),
+        B, sleep(700)));
+
+    final int ret = command.run(options("target_timeout", 1, "target_parallelism", 1),
+                                ImmutableList.of(A, B), out, err, "user", false, null);
+
+    assertEquals(0, ret);
+    assertEquals(section(A) + section(B), outBytes.toString());
+    assertEquals("", errBytes.toString());
+  }
+
+  @Test
+  public void testFailedTargetGetsHeader() throws Exception {
+    final FakeCommand command = new FakeCommand(false, ImmutableMap.of(
+        A, fail(),
+        B, succeed()));
+
+    final int ret = command.run(options(), ImmutableList.of(A, B), out, err, "user", false,
+                                null);
+
+    assertEquals(1, ret);
+    final String header = format("%s (%s)", A.getName(), A.getEndpointSupplier().get());
+    assertEquals(format("%s%n%s%n%n", header, header.replaceAll(".", "-")) + section(B),
+                 outBytes.toString());
+    assertThat(errBytes.toString(), containsString("Failed to run against " + A));
+  }
+
+  @Test
+  public void testInteractiveCommandRunsOneTargetAtATime() throws Exception {
+    final FakeCommand command = new FakeCommand(true, ImmutableMap.of(
+        A, succeed(),
+        B, succeed(),
+        C, succeed()));
+
+    final int ret = command.run(options(), ImmutableList.of(A, B, C), out, err, "user", false,
+                                null);
+
+    assertEquals(0, ret);
+    assertEquals(section(A) + section(B) + section(C), outBytes.toString());
+    assertEquals(1, command.maxRunning.get());
+    assertEquals(Collections.nCopies(3, Thread.currentThread()), command.threads);
+  }
+
+  private static Namespace options(final Object... keysAndValues) {
+    final Map<String, Object> attrs = Maps.newHashMap();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      attrs.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return new Namespace(attrs);
+  }
+
+  private static String section(final Target target) {
+    final String header = format("%s (%s)", target.getName(), target.getEndpointSupplier().get());
+    return format("%s%n%s%n%s%n%n", header, header.replaceAll(".", "-"),
+                  Json.asStringUnchecked(target.getName()));
+  }
+
+  private static Behaviour succeed() {
+    return after(new CountDownLatch(0), new CountDownLatch(1));
+  }
+
+  /**
+   * Prints the name of the target once {@code start} has been counted down, then counts down
+   * {@code done}.
+   */
+  private static Behaviour after(final CountDownLatch start, final CountDownLatch done) {
+    return new Behaviour() {
+      @Override
+      public void run(final Target target, final PrintStream out) throws InterruptedException {
+        try {
+          start.await();
+          out.println(Json.asStringUnchecked(target.getName()));
+        } finally {
+          done.countDown();
+        }
+      }
+    };
+  }
+
+  private static Behaviour fail() {
+    return new Behaviour() {
+      @Override
+      public void run(final Target target, final PrintStream out) {
+        throw new IllegalStateException("master exploded");
+      }
+    };
+  }
+
+  private static Behaviour sleep(final long millis) {
+    return new Behaviour() {
+      @Override
+      public void run(final Target target, final PrintStream out) throws InterruptedException {
+        Thread.sleep(millis);
+        out.println(Json.asStringUnchecked(target.getName()));
+      }
+    };
+  }
+
+  private static Behaviour hang() {
+    return new Behaviour() {
+      @Override
+      public void run(final Target target, final PrintStream out) throws InterruptedException {
+        Thread.sleep(MINUTES.toMillis(10));
+      }
+    };
+  }
+
+  private interface Behaviour {
+
+    void run(Target target, PrintStream out) throws InterruptedException;
+  }
+
+  /**
+   * A command that runs a {@link Behaviour} for each target, found through the client made for
+   * the target.
+   */
+  private static class FakeCommand extends ControlCommand {
+
+    private final boolean interactive;
+    private final Map<HeliosClient, Target> targets = Maps.newHashMap();
+    private final Map<Target, HeliosClient> clients = Maps.newHashMap();
+    private final Map<Target, Behaviour> behaviours;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final List<Thread> threads = Collections.synchronizedList(Lists.<Thread>newArrayList());
+
+    FakeCommand(final boolean interactive, final Map<Target, Behaviour> behaviours) {
+      super(ArgumentParsers.newArgumentParser("test").addSubparsers().addParser("fake"));
+      this.interactive = interactive;
+      this.behaviours = behaviours;
+      // Made up front, as the clients are asked for from several threads
+      for (final Target target : behaviours.keySet()) {
+        final HeliosClient client = mock(HeliosClient.class);
+        clients.put(target, client);
+        targets.put(client, target);
+      }
+    }
+
+    @Override
+    HeliosClient getClient(final Target target, final PrintStream err, final String username) {
+      return clients.get(target);
+    }
+
+    @Override
+    int run(final Namespace options, final HeliosClient client, final PrintStream out,
+            final boolean json, final BufferedReader stdin)
+        throws ExecutionException, InterruptedException, IOException {
+      final int now = running.incrementAndGet();
+      synchronized (maxRunning) {
+        maxRunning.set(max(maxRunning.get(), now));
+      }
+      threads.add(Thread.currentThread());
+      try {
+        final Target target = targets.get(client);
+        behaviours.get(target).run(target, out);
+        return 0;
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    @Override
+    boolean isInteractive(final Namespace options) {
+      return interactive;
+    }
+  }
+}
@@ -48,6 +48,8 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -75,7 +77,8 @@ public class JobListCommandTest {
     final Subparser subparser = parser.addSubparsers().addParser("list");
     command = new JobListCommand(subparser);
 
-    when(client.jobs()).thenReturn(Futures.immediateFuture(jobs));
+    when(client.jobs(eq(""), eq(""), eq(0), anyString()))
+        .thenReturn(Futures.immediateFuture(jobs));
 
     Map<JobId, JobStatus> statuses = new HashMap<>();
     for (final JobId jobId : jobs.keySet()) {
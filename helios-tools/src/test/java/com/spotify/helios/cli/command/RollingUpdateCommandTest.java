@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014 Spotify AB.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.spotify.helios.cli.command;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import com.spotify.helios.client.HeliosClient;
+import com.spotify.helios.common.descriptors.Job;
+import com.spotify.helios.common.descriptors.JobId;
+import com.spotify.helios.common.descriptors.RollingUpdate;
+import com.spotify.helios.common.descriptors.RollingUpdate.HostState;
+import com.spotify.helios.common.protocol.RollingUpdateRequest;
+import com.spotify.helios.common.protocol.RollingUpdateResponse;
+
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.DONE;
+import static com.spotify.helios.common.descriptors.RollingUpdate.HostState.UPDATING;
+import static java.lang.String.format;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RollingUpdateCommandTest {
+
+  private static final JobId OLD_ID = JobId.fromString("foo:1:" + hash('1'));
+  private static final JobId NEW_ID = JobId.fromString("foo:2:" + hash('2'));
+  private static final String HOST1 = "host1";
+  private static final String HOST2 = "host2";
+
+  private final HeliosClient client = mock(HeliosClient.class);
+  private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+  private final PrintStream out = new PrintStream(baos);
+
+  private ArgumentParser parser;
+  private RollingUpdateCommand command;
+
+  @Before
+  public void setUp() {
+    parser = ArgumentParsers.newArgumentParser("test");
+    command = new RollingUpdateCommand(parser.addSubparsers().addParser("rolling-update"));
+
+    when(client.jobs("foo:1")).thenReturn(jobs(OLD_ID));
+    when(client.jobs("foo:2")).thenReturn(jobs(NEW_ID));
+    when(client.rollingUpdate(any(RollingUpdateRequest.class), anyString())).thenReturn(
+        Futures.immediateFuture(new RollingUpdateResponse(RollingUpdateResponse.Status.OK, "id")));
+  }
+
+  @Test
+  public void testFollowsRollingUpdateUntilDone() throws Exception {
+    when(client.rollingUpdate("id")).thenReturn(
+        update(RollingUpdate.State.RUNNING, ImmutableMap.of(HOST1, UPDATING), null),
+        update(RollingUpdate.State.RUNNING, ImmutableMap.of(HOST1, DONE, HOST2, UPDATING), null),
+        update(RollingUpdate.State.DONE, ImmutableMap.of(HOST1, DONE, HOST2, DONE), null));
+
+    final int ret = command.run(options("foo:1", "foo:2", "--hosts", HOST1, HOST2,
+                                        "--batch-size", "2", "--interval", "0"),
+                                client, out, false, null);
+
+    assertEquals(0, ret);
+    assertEquals(format("Rolling update id: %s -> %s%n", OLD_ID, NEW_ID) +
+                 format("host1: UPDATING%n") +
+                 format("host1: DONE%n") +
+                 format("host2: UPDATING%n") +
+                 format("host2: DONE%n") +
+                 format("DONE%n"),
+                 baos.toString());
+
+    final ArgumentCaptor<RollingUpdateRequest> request =
+        ArgumentCaptor.forClass(RollingUpdateRequest.class);
+    verify(client).rollingUpdate(request.capture(), eq(""));
+    assertEquals(OLD_ID, request.getValue().getOldJob());
+    assertEquals(NEW_ID, request.getValue().getNewJob());
+    assertEquals(ImmutableList.of(HOST1, HOST2), request.getValue().getHosts());
+    assertEquals(2, request.getValue().getBatchSize());
+    assertEquals(2, request.getValue().getParallelism());
+    assertEquals(RollingUpdateRequest.DEFAULT_HEALTH_WAIT_SECONDS,
+                 request.getValue().getHealthWaitSeconds());
+  }
+
+  @Test
+  public void testFailedRollingUpdate() throws Exception {
+    when(client.rollingUpdate("id")).thenReturn(
+        update(RollingUpdate.State.FAILED, ImmutableMap.of(HOST1, HostState.FAILED), "boom"));
+
+    final int ret = command.run(options("foo:1", "foo:2", "--interval", "0"), client, out, false,
+                                null);
+
+    assertEquals(1, ret);
+    assertThat(baos.toString(), containsString(format("host1: FAILED%nFAILED: boom%n")));
+  }
+
+  @Test
+  public void testAsyncDoesNotFollow() throws Exception {
+    final int ret = command.run(options("foo:1", "foo:2", "--async"), client, out, false, null);
+
+    assertEquals(0, ret);
+    assertEquals(format("Rolling update id: %s -> %s%n", OLD_ID, NEW_ID), baos.toString());
+    verify(client, never()).rollingUpdate("id");
+  }
+
+  @Test
+  public void testUnknownJob() throws Exception {
+    when(client.jobs("foo:3"))
+        .thenReturn(Futures.immediateFuture(Collections.<JobId, Job>emptyMap()));
+
+    final int ret = command.run(options("foo:1", "foo:3"), client, out, false, null);
+
+    assertEquals(1, ret);
+    assertEquals(format("Unknown job reference: foo:3%n"), baos.toString());
+    verify(client, never()).rollingUpdate(any(RollingUpdateRequest.class), anyString());
+  }
+
+  private Namespace options(final String... args) throws Exception {
+    final String[] argv = new String[args.length + 1];
+    argv[0] = "rolling-update";
+    System.arraycopy(args, 0, argv, 1, args.length);
+    return parser.parseArgs(argv);
+  }
+
+  private static ListenableFuture<Map<JobId, Job>> jobs(final JobId id) {
+    return Futures.immediateFuture((Map<JobId, Job>) ImmutableMap.of(id, mock(Job.class)));
+  }
+
+  private static ListenableFuture<RollingUpdate> update(
+      final RollingUpdate.State state, final Map<String, HostState> hostStates,
+      final String error) {
+    return Futures.immediateFuture(RollingUpdate.newBuilder()
+                                       .setId("id")
+                                       .setOldJob(OLD_ID)
+                                       .setNewJob(NEW_ID)
+                                       .setHosts(ImmutableList.of(HOST1, HOST2))
+                                       .setState(state)
+                                       .setHostStates(hostStates)
+                                       .setError(error)
+                                       .build());
+  }
+
+  private static String hash(final char c) {
+    return new String(new char[40]).replace('\0', c);
+  }
+}